@@ -3,6 +3,10 @@ package com.voidcrypt;
 import com.comphenix.protocol.ProtocolLibrary;
 import com.comphenix.protocol.ProtocolManager;
 import com.voidcrypt.commands.VoidCryptCommand;
+import com.voidcrypt.core.AuditPipeline;
+import com.voidcrypt.core.DefenseSnapshot;
+import com.voidcrypt.core.StateSnapshot;
+import com.voidcrypt.core.TimingWheel;
 import com.voidcrypt.gui.LogManager;
 import com.voidcrypt.gui.NotificationManager;
 import com.voidcrypt.phantom.FirewallExecutor;
@@ -11,13 +15,24 @@ import com.voidcrypt.radar.ThreatRadarRenderer;
 import com.voidcrypt.radar.TrafficAnalyzer;
 import com.voidcrypt.scanner.ConfigurationAuditor;
 import com.voidcrypt.scanner.FileIntegrityChecker;
+import com.voidcrypt.security.EntropyPool;
+import com.voidcrypt.security.IpStateTable;
+import com.voidcrypt.security.PrefixLockouts;
+import com.voidcrypt.security.RecentAddressFilter;
+import com.voidcrypt.security.RateLimits;
 import com.voidcrypt.security.SecurityValidator;
 import com.voidcrypt.shadow.SessionGuardian;
 import com.voidcrypt.zte.CryptographicChallenge;
+import com.voidcrypt.zte.HandshakeFilter;
+import com.voidcrypt.zte.HandshakeFilterListener;
 import com.voidcrypt.zte.HandshakeInterceptor;
+import com.voidcrypt.zte.StatusInterceptor;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.plugin.java.JavaPlugin;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
 import java.util.logging.Level;
 
 public class VoidCryptPlugin extends JavaPlugin {
@@ -28,6 +43,8 @@ public class VoidCryptPlugin extends JavaPlugin {
     // Modules
     private CryptographicChallenge cryptographicChallenge;
     private HandshakeInterceptor handshakeInterceptor;
+    private HandshakeFilter handshakeFilter;
+    private StatusInterceptor statusInterceptor;
     private SessionGuardian sessionGuardian;
     private TrafficAnalyzer trafficAnalyzer;
     private ThreatRadarRenderer threatRadarRenderer;
@@ -37,6 +54,17 @@ public class VoidCryptPlugin extends JavaPlugin {
     private FirewallExecutor firewallExecutor;
     private LogManager logManager;
     private NotificationManager notificationManager;
+    private AuditPipeline auditPipeline;
+    
+    // Shared expiry service, per-IP state and rate limits used by every module
+    private TimingWheel expiryWheel;
+    private IpStateTable ipStateTable;
+    private RateLimits rateLimits;
+    private PrefixLockouts prefixLockouts;
+    private RecentAddressFilter pingGate;
+    private EntropyPool entropyPool;
+    private StateSnapshot stateSnapshot;
+    private volatile DefenseSnapshot defenseSnapshot = DefenseSnapshot.EMPTY;
 
     @Override
     public void onEnable() {
@@ -68,10 +96,50 @@ public class VoidCryptPlugin extends JavaPlugin {
         
         logManager = new LogManager(this);
         notificationManager = new NotificationManager(this);
+        auditPipeline = new AuditPipeline(getConfig().getInt("audit.buffer-size", 8192), createAuditSinks(), getLogger());
+        
+        // Audit events are formatted and written off the packet threads
+        Bukkit.getScheduler().runTaskTimerAsynchronously(this, auditPipeline::drain, 1L, 1L);
+        expiryWheel = new TimingWheel(50L, System::currentTimeMillis, getLogger());
+        ipStateTable = new IpStateTable(expiryWheel);
+        rateLimits = RateLimits.fromConfig(getConfig().getConfigurationSection("rate-limiting"), getLogger());
+        prefixLockouts = PrefixLockouts.fromConfig(getConfig().getConfigurationSection("rate-limiting.prefix-lockout"),
+            getConfig().getLong("rate-limiting.lockout-duration-minutes", 5) * 60_000, expiryWheel, getLogger());
+        
+        // Expire TTL entries every tick instead of sweeping maps
+        Bukkit.getScheduler().runTaskTimerAsynchronously(this, expiryWheel::advance, 1L, 1L);
+        
+        // Addresses that did a server-list ping recently, for the ping-before-join gate
+        if (getConfig().getBoolean("ping-gate.enabled", false)) {
+            pingGate = new RecentAddressFilter(getConfig().getLong("ping-gate.window-minutes", 10) * 60_000,
+                getConfig().getInt("ping-gate.slices", 5),
+                getConfig().getInt("ping-gate.capacity", 250_000),
+                getConfig().getDouble("ping-gate.false-positive-rate", 0.01));
+        }
+        
+        // Challenge nonces are generated ahead of time, in batches, off the packet threads
+        entropyPool = new EntropyPool(getConfig().getInt("void-handshake.entropy-pool.size", 16384),
+            getConfig().getInt("void-handshake.entropy-pool.low-water", 4096));
+        Bukkit.getScheduler().runTaskTimerAsynchronously(this, entropyPool::refill, 1L, 1L);
         
         // Initialize modules
         initializeModules();
         
+        // One view of sessions, traffic and score per tick for the radar, HUD, GUI and commands
+        refreshDefenseSnapshot();
+        Bukkit.getScheduler().runTaskTimerAsynchronously(this, this::refreshDefenseSnapshot, 1L, 1L);
+        
+        // Pick up where the last run left off, then keep the snapshot fresh
+        if (getConfig().getBoolean("snapshot.enabled", true)) {
+            stateSnapshot = new StateSnapshot(new File(getDataFolder(), 
+                getConfig().getString("snapshot.file", "state.bin")).toPath(), getLogger());
+            loadSnapshot();
+            long interval = getConfig().getLong("snapshot.interval-minutes", 5) * 60 * 20;
+            if (interval > 0) {
+                Bukkit.getScheduler().runTaskTimerAsynchronously(this, this::saveSnapshot, interval, interval);
+            }
+        }
+        
         // Register commands
         getCommand("voidcrypt").setExecutor(new VoidCryptCommand(this));
         
@@ -84,9 +152,6 @@ public class VoidCryptPlugin extends JavaPlugin {
             });
         }
         
-        Bukkit.getScheduler().runTaskTimerAsynchronously(this, 
-            SecurityValidator::cleanupRateLimits, 6000L, 6000L);
-        
         logStartup();
         logManager.info("System started successfully", "Core");
     }
@@ -96,15 +161,65 @@ public class VoidCryptPlugin extends JavaPlugin {
         if (protocolManager != null) {
             protocolManager.removePacketListeners(this);
         }
+        if (stateSnapshot != null) {
+            saveSnapshot();
+        }
+        if (sessionGuardian != null) {
+            sessionGuardian.close();
+        }
+        if (auditPipeline != null) {
+            auditPipeline.drainFully(2_000);
+        }
         getLogger().info("VoidCrypt Defense System disabled.");
     }
 
+    private void loadSnapshot() {
+        long start = System.nanoTime();
+        StateSnapshot.Result result = stateSnapshot.load(ipStateTable, rateLimits,
+            sessionGuardian::restoreSession, System.currentTimeMillis());
+        if (result != null) {
+            getLogger().info(String.format("Restored %d IP records, %d rate-limit entries and %d sessions in %d ms",
+                result.ipRecords(), result.rateEntries(), result.sessions(), (System.nanoTime() - start) / 1_000_000));
+        }
+    }
+
+    /**
+     * Writes the state snapshot; called periodically off the main thread and once on disable
+     */
+    public void saveSnapshot() {
+        try {
+            getDataFolder().mkdirs();
+            StateSnapshot.Result result = stateSnapshot.save(ipStateTable, rateLimits,
+                sessionGuardian.getSessionView(), System.currentTimeMillis());
+            getLogger().fine("State snapshot written: " + result.total() + " entries, " + result.bytes() + " bytes");
+        } catch (IOException | RuntimeException e) {
+            getLogger().log(Level.WARNING, "Could not write state snapshot", e);
+        }
+    }
+
+    /**
+     * Builds and publishes the defense snapshot; called every tick off the main thread
+     */
+    public void refreshDefenseSnapshot() {
+        defenseSnapshot = DefenseSnapshot.build(System.currentTimeMillis(), sessionGuardian.getSessionView(),
+            trafficAnalyzer.getSystemLoad(), trafficAnalyzer.getPacketVolume(),
+            trafficAnalyzer.getPeakPacketsPerSecond(), trafficAnalyzer.getTotalPackets(),
+            configurationAuditor != null ? configurationAuditor.getSecurityScore() : DefenseSnapshot.NO_SCORE);
+    }
+
     private boolean checkProtocolLib() {
         return Bukkit.getPluginManager().getPlugin("ProtocolLib") != null;
     }
 
     private void initializeModules() {
         // Module 1: Void Handshake Protocol
+        handshakeFilter = HandshakeFilter.fromConfig(getConfig().getConfigurationSection("handshake-filter"));
+        if (handshakeFilter != null) {
+            new HandshakeFilterListener(this, protocolManager, handshakeFilter);
+        }
+        if (getConfig().getBoolean("status-cache.enabled", true) || pingGate != null) {
+            statusInterceptor = new StatusInterceptor(this, protocolManager);
+        }
         if (getConfig().getBoolean("void-handshake.enabled", true)) {
             cryptographicChallenge = new CryptographicChallenge(this);
             handshakeInterceptor = new HandshakeInterceptor(this, protocolManager, cryptographicChallenge);
@@ -118,7 +233,7 @@ public class VoidCryptPlugin extends JavaPlugin {
         
         // Module 3: Threat Radar
         trafficAnalyzer = new TrafficAnalyzer(this, protocolManager);
-        threatRadarRenderer = new ThreatRadarRenderer(this, trafficAnalyzer, sessionGuardian);
+        threatRadarRenderer = new ThreatRadarRenderer(this);
         getLogger().info("[OK] Threat Radar module enabled");
         
         // Module 4: Core Integrity Scanner
@@ -171,6 +286,58 @@ public class VoidCryptPlugin extends JavaPlugin {
         return firewallExecutor;
     }
 
+    public HandshakeInterceptor getHandshakeInterceptor() {
+        return handshakeInterceptor;
+    }
+
+    /**
+     * @return the handshake pre-filter, or null if disabled
+     */
+    public HandshakeFilter getHandshakeFilter() {
+        return handshakeFilter;
+    }
+
+    /**
+     * @return the status-ping cache, or null if disabled
+     */
+    public StatusInterceptor getStatusInterceptor() {
+        return statusInterceptor;
+    }
+
+    public TimingWheel getExpiryWheel() {
+        return expiryWheel;
+    }
+
+    public IpStateTable getIpStateTable() {
+        return ipStateTable;
+    }
+
+    public RateLimits getRateLimits() {
+        return rateLimits;
+    }
+
+    public PrefixLockouts getPrefixLockouts() {
+        return prefixLockouts;
+    }
+
+    /**
+     * @return recently pinging addresses, or null if the ping gate is disabled
+     */
+    public RecentAddressFilter getPingGate() {
+        return pingGate;
+    }
+
+    /**
+     * @return the state published at the last tick; never null
+     */
+    public DefenseSnapshot getDefenseSnapshot() {
+        return defenseSnapshot;
+    }
+
+    public EntropyPool getEntropyPool() {
+        return entropyPool;
+    }
+
     public LogManager getLogManager() {
         return logManager;
     }
@@ -179,27 +346,69 @@ public class VoidCryptPlugin extends JavaPlugin {
         return notificationManager;
     }
 
+    public AuditPipeline getAuditPipeline() {
+        return auditPipeline;
+    }
+
     public void alert(String message) {
-        String prefix = ChatColor.translateAlternateColorCodes('&', 
-            getConfig().getString("messages.alert-prefix", "&8[&4VoidCrypt&8] &c"));
-        Bukkit.getOnlinePlayers().stream()
-            .filter(p -> p.hasPermission("voidcrypt.admin"))
-            .forEach(p -> p.sendMessage(prefix + message));
-        getLogger().warning("[ALERT] " + message);
-        if (logManager != null) {
-            logManager.alert(message, "Alert");
-        }
-        if (notificationManager != null) {
-            notificationManager.sendNotification(message);
+        alert(message, null);
+    }
+
+    /**
+     * Queues an admin alert; {@code arg} is appended to the message on the audit thread
+     */
+    public void alert(String message, Object arg) {
+        if (auditPipeline != null) {
+            auditPipeline.alert(message, arg);
+        } else {
+            getLogger().warning("[ALERT] " + message + (arg != null ? arg : ""));
         }
     }
 
     public void auditLog(Level level, String event, String details) {
-        String logMessage = String.format("AUDIT [%s]: %s | %s", 
-            level.getName(), event, details);
-        getLogger().log(level, logMessage);
-        if (logManager != null) {
-            logManager.info(logMessage, "Audit");
+        auditLog(level, event, details, null);
+    }
+
+    /**
+     * Queues an audit record; {@code arg} is appended to the details on the audit thread
+     */
+    public void auditLog(Level level, String event, String details, Object arg) {
+        if (auditPipeline != null) {
+            auditPipeline.audit(level, event, details, arg);
+        } else {
+            getLogger().log(level, "AUDIT [" + level.getName() + "]: " + event + " | " + details + (arg != null ? arg : ""));
         }
     }
+
+    /**
+     * Logger, GUI log and admin broadcast; all run on the draining thread
+     */
+    private List<AuditPipeline.AuditSink> createAuditSinks() {
+        AuditPipeline.AuditSink logger = (kind, level, line) -> {
+            if (kind == AuditPipeline.Kind.ALERT) {
+                getLogger().warning("[ALERT] " + line);
+            } else {
+                getLogger().log(level, line);
+            }
+        };
+        AuditPipeline.AuditSink guiLog = (kind, level, line) -> {
+            if (kind == AuditPipeline.Kind.ALERT) {
+                logManager.alert(line, "Alert");
+            } else {
+                logManager.info(line, "Audit");
+            }
+        };
+        AuditPipeline.AuditSink broadcast = (kind, level, line) -> {
+            if (kind != AuditPipeline.Kind.ALERT) {
+                return;
+            }
+            String prefix = ChatColor.translateAlternateColorCodes('&', 
+                getConfig().getString("messages.alert-prefix", "&8[&4VoidCrypt&8] &c"));
+            Bukkit.getOnlinePlayers().stream()
+                .filter(p -> p.hasPermission("voidcrypt.admin"))
+                .forEach(p -> p.sendMessage(prefix + line));
+            notificationManager.sendNotification(line);
+        };
+        return List.of(logger, guiLog, broadcast);
+    }
 }
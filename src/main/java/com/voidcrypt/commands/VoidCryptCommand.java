@@ -1,13 +1,16 @@
 package com.voidcrypt.commands;
 
 import com.voidcrypt.VoidCryptPlugin;
+import com.voidcrypt.core.DefenseSnapshot;
 import com.voidcrypt.gui.GUIManager;
 import com.voidcrypt.gui.PlayerInfoBook;
 import com.voidcrypt.gui.SecurityHUD;
 import com.voidcrypt.radar.TrafficAnalyzer;
 import com.voidcrypt.scanner.ConfigurationAuditor;
 import com.voidcrypt.scanner.FileIntegrityChecker;
+import com.voidcrypt.shadow.ReplicatedSessionStore;
 import com.voidcrypt.shadow.SessionFingerprint;
+import com.voidcrypt.zte.HandshakeFilter;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
@@ -23,8 +26,6 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.UUID;
 
 /**
  * Comando principal de VoidCrypt con GUIs interactivas
@@ -155,20 +156,20 @@ public class VoidCryptCommand implements CommandExecutor, TabCompleter {
     }
 
     private void showStatus(CommandSender sender) {
-        TrafficAnalyzer traffic = plugin.getTrafficAnalyzer();
+        DefenseSnapshot snapshot = plugin.getDefenseSnapshot();
         
         sender.sendMessage("");
         sender.sendMessage(ChatColor.DARK_RED + "═══ " + ChatColor.RED + "Estado del Sistema" + 
                           ChatColor.DARK_RED + " ═══");
         
         // TPS
-        double tps = traffic.getSystemLoad();
+        double tps = snapshot.tps();
         ChatColor tpsColor = tps >= 18 ? ChatColor.GREEN : (tps >= 15 ? ChatColor.YELLOW : ChatColor.RED);
         sender.sendMessage(ChatColor.GRAY + "TPS: " + tpsColor + String.format("%.2f", tps));
         
         // Tráfico
-        int packets = traffic.getPacketVolume();
-        TrafficAnalyzer.NetworkStatus status = traffic.getNetworkStatus();
+        int packets = snapshot.packetsPerSecond();
+        TrafficAnalyzer.NetworkStatus status = snapshot.networkStatus();
         ChatColor statusColor = switch (status) {
             case NORMAL -> ChatColor.GREEN;
             case ELEVATED -> ChatColor.YELLOW;
@@ -179,19 +180,19 @@ public class VoidCryptCommand implements CommandExecutor, TabCompleter {
                           ChatColor.DARK_GRAY + " [" + status + "]");
         
         // Nivel de amenaza
-        double threat = traffic.getThreatLevel();
+        double threat = snapshot.threatLevel();
         int threatPercent = (int)(threat * 100);
         ChatColor threatColor = threat < 0.3 ? ChatColor.GREEN : 
                                 (threat < 0.6 ? ChatColor.YELLOW : ChatColor.RED);
         sender.sendMessage(ChatColor.GRAY + "Nivel de amenaza: " + threatColor + threatPercent + "%");
         
         // Sesiones
-        int sessions = plugin.getSessionGuardian().getActiveSessionCount();
+        int sessions = snapshot.sessionCount();
         sender.sendMessage(ChatColor.GRAY + "Sesiones activas: " + ChatColor.WHITE + sessions);
         
         // Puntuación de seguridad
-        if (plugin.getConfigurationAuditor() != null) {
-            int score = plugin.getConfigurationAuditor().getSecurityScore();
+        if (snapshot.hasSecurityScore()) {
+            int score = snapshot.securityScore();
             ChatColor scoreColor = score >= 80 ? ChatColor.GREEN : 
                                    (score >= 50 ? ChatColor.YELLOW : ChatColor.RED);
             sender.sendMessage(ChatColor.GRAY + "Puntuación de seguridad: " + 
@@ -320,17 +321,16 @@ public class VoidCryptCommand implements CommandExecutor, TabCompleter {
         }
         
         // Listar todas las sesiones
-        Map<UUID, SessionFingerprint> sessions = plugin.getSessionGuardian().getAllSessions();
+        List<DefenseSnapshot.Session> sessions = plugin.getDefenseSnapshot().sessions();
         
         sender.sendMessage(ChatColor.DARK_RED + "═══ " + ChatColor.RED + 
                           "Sesiones Activas (" + sessions.size() + ")" + ChatColor.DARK_RED + " ═══");
         
-        for (Map.Entry<UUID, SessionFingerprint> entry : sessions.entrySet()) {
-            Player player = Bukkit.getPlayer(entry.getKey());
-            SessionFingerprint fp = entry.getValue();
+        for (DefenseSnapshot.Session fp : sessions) {
+            Player player = Bukkit.getPlayer(fp.uuid());
             
-            String name = player != null ? player.getName() : entry.getKey().toString().substring(0, 8);
-            ChatColor statusColor = switch (fp.getStatus()) {
+            String name = player != null ? player.getName() : fp.uuid().toString().substring(0, 8);
+            ChatColor statusColor = switch (fp.status()) {
                 case ACTIVE -> ChatColor.GREEN;
                 case SUSPICIOUS -> ChatColor.YELLOW;
                 case UNDER_INVESTIGATION -> ChatColor.GOLD;
@@ -338,8 +338,8 @@ public class VoidCryptCommand implements CommandExecutor, TabCompleter {
             };
             
             sender.sendMessage(statusColor + "● " + ChatColor.WHITE + name + 
-                              ChatColor.DARK_GRAY + " | IP: " + ChatColor.GRAY + fp.getBoundIP() +
-                              ChatColor.DARK_GRAY + " | " + statusColor + fp.getStatus());
+                              ChatColor.DARK_GRAY + " | IP: " + ChatColor.GRAY + fp.boundIP() +
+                              ChatColor.DARK_GRAY + " | " + statusColor + fp.status());
         }
         
         sender.sendMessage("");
@@ -357,8 +357,7 @@ public class VoidCryptCommand implements CommandExecutor, TabCompleter {
         if (meta != null) {
             MapView view = Bukkit.createMap(player.getWorld());
             view.getRenderers().clear();
-            view.addRenderer(new com.voidcrypt.radar.ThreatRadarRenderer(
-                plugin, plugin.getTrafficAnalyzer(), plugin.getSessionGuardian()));
+            view.addRenderer(new com.voidcrypt.radar.ThreatRadarRenderer(plugin));
             
             meta.setMapView(view);
             meta.setDisplayName(ChatColor.DARK_RED + "✦ " + ChatColor.RED + "Radar de Amenazas" + 
@@ -619,28 +618,92 @@ public class VoidCryptCommand implements CommandExecutor, TabCompleter {
     }
 
     private void showStats(CommandSender sender) {
-        var traffic = plugin.getTrafficAnalyzer();
-        var sessions = plugin.getSessionGuardian().getAllSessions();
+        var snapshot = plugin.getDefenseSnapshot();
         
         sender.sendMessage("");
         sender.sendMessage(ChatColor.GOLD + "═══ Estadísticas de VoidCrypt ═══");
         sender.sendMessage("");
         sender.sendMessage(ChatColor.AQUA + "Tráfico de Red:");
-        sender.sendMessage(ChatColor.GRAY + "  Paquetes totales: " + ChatColor.WHITE + formatNumber(traffic.getTotalPackets()));
-        sender.sendMessage(ChatColor.GRAY + "  Paquetes/segundo actual: " + ChatColor.WHITE + traffic.getPacketVolume());
-        sender.sendMessage(ChatColor.GRAY + "  Pico máximo: " + ChatColor.WHITE + traffic.getPeakPacketsPerSecond() + " pkt/s");
+        sender.sendMessage(ChatColor.GRAY + "  Paquetes totales: " + ChatColor.WHITE + formatNumber(snapshot.totalPackets()));
+        sender.sendMessage(ChatColor.GRAY + "  Paquetes/segundo actual: " + ChatColor.WHITE + snapshot.packetsPerSecond());
+        sender.sendMessage(ChatColor.GRAY + "  Pico máximo: " + ChatColor.WHITE + snapshot.peakPacketsPerSecond() + " pkt/s");
         sender.sendMessage("");
         sender.sendMessage(ChatColor.AQUA + "Sesiones:");
-        sender.sendMessage(ChatColor.GRAY + "  Activas: " + ChatColor.WHITE + sessions.size());
+        sender.sendMessage(ChatColor.GRAY + "  Activas: " + ChatColor.WHITE + snapshot.sessionCount());
+        sender.sendMessage(ChatColor.GRAY + "  En espera de reconexión: " + ChatColor.WHITE
+            + plugin.getSessionGuardian().getRetainedSessionCount());
         
-        long suspicious = sessions.values().stream()
-            .filter(s -> s.getStatus() == SessionFingerprint.SessionStatus.SUSPICIOUS).count();
-        long compromised = sessions.values().stream()
-            .filter(s -> s.getStatus() == SessionFingerprint.SessionStatus.COMPROMISED).count();
+        int suspicious = snapshot.count(SessionFingerprint.SessionStatus.SUSPICIOUS);
+        int compromised = snapshot.count(SessionFingerprint.SessionStatus.COMPROMISED);
         
         sender.sendMessage(ChatColor.GRAY + "  Sospechosas: " + ChatColor.YELLOW + suspicious);
         sender.sendMessage(ChatColor.GRAY + "  Comprometidas: " + ChatColor.RED + compromised);
         sender.sendMessage("");
+        var handshakeFilter = plugin.getHandshakeFilter();
+        if (handshakeFilter != null) {
+            sender.sendMessage(ChatColor.AQUA + "Filtro de handshake:");
+            sender.sendMessage(ChatColor.GRAY + "  Aceptados: " + ChatColor.GREEN
+                + formatNumber(handshakeFilter.getCount(HandshakeFilter.Reason.ACCEPTED))
+                + ChatColor.GRAY + "  Rechazados: " + ChatColor.RED + formatNumber(handshakeFilter.getRejectedCount()));
+            sender.sendMessage(ChatColor.GRAY + "  Protocolo antiguo/nuevo: " + ChatColor.WHITE
+                + handshakeFilter.getCount(HandshakeFilter.Reason.PROTOCOL_TOO_OLD) + " / "
+                + handshakeFilter.getCount(HandshakeFilter.Reason.PROTOCOL_TOO_NEW)
+                + ChatColor.GRAY + "  Sin host: " + ChatColor.WHITE
+                + handshakeFilter.getCount(HandshakeFilter.Reason.HOST_MISSING)
+                + ChatColor.GRAY + "  IP directa: " + ChatColor.WHITE
+                + handshakeFilter.getCount(HandshakeFilter.Reason.IP_LITERAL)
+                + ChatColor.GRAY + "  Host no permitido: " + ChatColor.WHITE
+                + handshakeFilter.getCount(HandshakeFilter.Reason.HOST_NOT_ALLOWED));
+            sender.sendMessage("");
+        }
+        if (plugin.getSessionGuardian().getSessionStore() instanceof ReplicatedSessionStore sync) {
+            sender.sendMessage(ChatColor.AQUA + "Sincronización de sesiones:");
+            sender.sendMessage(ChatColor.GRAY + "  De otros servidores: " + ChatColor.WHITE + sync.getRemoteCount());
+            sender.sendMessage(ChatColor.GRAY + "  Enviadas: " + ChatColor.WHITE + formatNumber(sync.getSentRecords())
+                + ChatColor.GRAY + " en " + formatNumber(sync.getSentDatagrams()) + " datagramas"
+                + ChatColor.GRAY + "  Recibidas: " + ChatColor.WHITE + formatNumber(sync.getReceivedRecords()));
+            sender.sendMessage(ChatColor.GRAY + "  Datagramas rechazados: " + ChatColor.RED
+                + formatNumber(sync.getRejectedDatagrams()));
+            sender.sendMessage("");
+        }
+        if (plugin.getStatusInterceptor() != null && plugin.getStatusInterceptor().getResponder() != null) {
+            var status = plugin.getStatusInterceptor().getResponder();
+            sender.sendMessage(ChatColor.AQUA + "Pings de estado:");
+            sender.sendMessage(ChatColor.GRAY + "  Desde caché: " + ChatColor.GREEN + formatNumber(status.getServedCachedCount())
+                + ChatColor.GRAY + "  Generados por el servidor: " + ChatColor.WHITE
+                + formatNumber(status.getPassedToServerCount()));
+            sender.sendMessage(ChatColor.GRAY + "  Sobre el límite: " + ChatColor.YELLOW
+                + formatNumber(status.getServedReducedCount()) + ChatColor.GRAY + " sin jugadores, "
+                + ChatColor.RED + formatNumber(status.getDroppedCount()) + ChatColor.GRAY + " descartados");
+            sender.sendMessage("");
+        }
+        if (plugin.getHandshakeInterceptor() != null) {
+            sender.sendMessage(ChatColor.AQUA + "Etapas de admisión (en orden):");
+            for (var stage : plugin.getHandshakeInterceptor().getPipelineStages()) {
+                sender.sendMessage(ChatColor.GRAY + "  " + stage.name() + ": " + ChatColor.WHITE
+                    + formatNumber(stage.evaluated()) + ChatColor.GRAY + " evaluados, "
+                    + ChatColor.RED + String.format("%.1f%%", stage.rejectRate() * 100) + ChatColor.GRAY
+                    + " rechazados, " + String.format("%.0f", stage.averageNanos()) + " ns");
+            }
+            sender.sendMessage("");
+        }
+        var admission = plugin.getHandshakeInterceptor() != null
+            ? plugin.getHandshakeInterceptor().getAdmission() : null;
+        if (admission != null) {
+            sender.sendMessage(ChatColor.AQUA + "Admisión de logins:");
+            sender.sendMessage(ChatColor.GRAY + "  En cola: " + ChatColor.WHITE + admission.getQueueDepth()
+                + ChatColor.GRAY + " (pico " + admission.getPeakQueueDepth() + ")");
+            sender.sendMessage(ChatColor.GRAY + "  Espera media/máx: " + ChatColor.WHITE
+                + String.format("%.0f", admission.getAverageWaitMs()) + " / " + admission.getMaxWaitMs() + " ms");
+            sender.sendMessage(ChatColor.GRAY + "  Vía rápida: " + ChatColor.GREEN + formatNumber(admission.getFastLaneCount())
+                + ChatColor.GRAY + "  Admitidos: " + ChatColor.WHITE
+                + formatNumber(admission.getAdmittedCount() + admission.getAdmittedFromQueueCount()));
+            sender.sendMessage(ChatColor.GRAY + "  Rechazados: " + ChatColor.RED + formatNumber(admission.getRejectedCount())
+                + ChatColor.GRAY + " (subred " + admission.getRejectedSubnetCount()
+                + ", cola llena " + admission.getRejectedFullCount()
+                + ", espera agotada " + admission.getTimedOutCount() + ")");
+            sender.sendMessage("");
+        }
         sender.sendMessage(ChatColor.AQUA + "Bans:");
         sender.sendMessage(ChatColor.GRAY + "  IPs baneadas: " + ChatColor.WHITE + 
             Bukkit.getBanList(org.bukkit.BanList.Type.IP).getBanEntries().size());
@@ -664,9 +727,9 @@ public class VoidCryptCommand implements CommandExecutor, TabCompleter {
         switch (args[1].toLowerCase()) {
             case "handshake" -> sender.sendMessage(ChatColor.GREEN + "✓ Void Handshake Protocol: OK");
             case "session" -> sender.sendMessage(ChatColor.GREEN + "✓ Shadow Session: OK - " + 
-                plugin.getSessionGuardian().getActiveSessionCount() + " sesiones");
+                plugin.getDefenseSnapshot().sessionCount() + " sesiones");
             case "radar" -> sender.sendMessage(ChatColor.GREEN + "✓ Threat Radar: OK - Nivel: " + 
-                (int)(plugin.getTrafficAnalyzer().getThreatLevel() * 100) + "%");
+                (int)(plugin.getDefenseSnapshot().threatLevel() * 100) + "%");
             case "scanner" -> {
                 if (plugin.getFileIntegrityChecker() != null) {
                     sender.sendMessage(ChatColor.GREEN + "✓ Core Integrity Scanner: OK");
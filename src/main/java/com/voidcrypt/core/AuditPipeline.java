@@ -0,0 +1,247 @@
+package com.voidcrypt.core;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous audit pipeline: bounded multi-producer, single-consumer ring buffer
+ * Producers (often Netty packet threads) claim a preallocated slot with one CAS and copy
+ * references into it; no formatting, logging or allocation happens on their side.
+ * {@link #drain()} formats the queued events and hands them to the sinks in batches.
+ * When the ring is full new events are dropped and counted instead of blocking the producer.
+ */
+public final class AuditPipeline {
+
+    private static final int MAX_BATCH = 1024;
+
+    private final Slot[] ring;
+    private final int mask;
+    private final List<AuditSink> sinks;
+    private final Logger logger;
+
+    // Next sequence to claim / next sequence the consumer will read
+    private final AtomicLong claimed;
+    private final AtomicLong consumed;
+    private final AtomicBoolean draining;
+
+    // Consumer-side scratch, reused for every batch
+    private final Slot[] batch = new Slot[MAX_BATCH];
+    private final String[] lines = new String[MAX_BATCH];
+
+    // Counters
+    private final LongAdder published;
+    private final LongAdder dropped;
+    private volatile int lastBatchSize;
+    private volatile int peakBatchSize;
+
+    /**
+     * @param capacity ring size, rounded up to a power of two
+     */
+    public AuditPipeline(int capacity, List<AuditSink> sinks, Logger logger) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.ring = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            ring[i] = new Slot();
+        }
+        this.mask = size - 1;
+        this.sinks = List.copyOf(sinks);
+        this.logger = logger;
+        this.claimed = new AtomicLong(0);
+        this.consumed = new AtomicLong(0);
+        this.draining = new AtomicBoolean(false);
+        this.published = new LongAdder();
+        this.dropped = new LongAdder();
+    }
+
+    /**
+     * Queues an audit record, written as "AUDIT [level]: event | message + arg"
+     * @param arg appended to the message by the consumer (e.g. an address), may be null
+     * @return false if the ring was full and the event was dropped
+     */
+    public boolean audit(Level level, String event, String message, Object arg) {
+        return publish(Kind.AUDIT, level, event, message, arg);
+    }
+
+    /**
+     * Queues an admin alert, written as "message + arg"
+     */
+    public boolean alert(String message, Object arg) {
+        return publish(Kind.ALERT, Level.WARNING, null, message, arg);
+    }
+
+    private boolean publish(Kind kind, Level level, String event, String message, Object arg) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed.get() >= ring.length) {
+                dropped.increment();
+                return false;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        Slot slot = ring[(int) (sequence & mask)];
+        slot.kind = kind;
+        slot.level = level;
+        slot.event = event;
+        slot.message = message;
+        slot.arg = arg;
+        slot.sequence = sequence; // volatile write publishes the fields above
+        published.increment();
+        return true;
+    }
+
+    /**
+     * Formats and delivers everything published before the call, in batches of up to 1024 events.
+     * Meant to be called from one background task; concurrent calls are skipped.
+     * @return number of events delivered
+     */
+    public int drain() {
+        if (!draining.compareAndSet(false, true)) {
+            return 0;
+        }
+        int total = 0;
+        try {
+            // Stop at what was claimed on entry so a flood cannot pin the consumer here forever
+            long end = claimed.get();
+            while (true) {
+                long next = consumed.get();
+                int size = 0;
+                while (size < MAX_BATCH && next + size < end) {
+                    Slot slot = ring[(int) ((next + size) & mask)];
+                    if (slot.sequence != next + size) {
+                        break; // not yet published
+                    }
+                    batch[size] = slot;
+                    lines[size] = format(slot);
+                    size++;
+                }
+                if (size == 0) {
+                    break;
+                }
+
+                for (AuditSink sink : sinks) {
+                    try {
+                        for (int i = 0; i < size; i++) {
+                            sink.write(batch[i].kind, batch[i].level, lines[i]);
+                        }
+                        sink.endBatch();
+                    } catch (RuntimeException e) {
+                        logger.log(Level.WARNING, "Audit sink failed", e);
+                    }
+                }
+
+                for (int i = 0; i < size; i++) {
+                    batch[i].clear();
+                    batch[i] = null;
+                    lines[i] = null;
+                }
+                consumed.set(next + size); // frees the slots for producers
+                total += size;
+                lastBatchSize = size;
+                if (size > peakBatchSize) {
+                    peakBatchSize = size;
+                }
+            }
+        } finally {
+            draining.set(false);
+        }
+        return total;
+    }
+
+    /**
+     * Delivers everything published so far, waiting for a drain already running on another
+     * thread to finish first. Used on shutdown, where {@link #drain()} could return without
+     * delivering anything because the background task holds the consumer side.
+     * @param timeoutMs gives up after this long, e.g. if a producer never finishes publishing
+     * @return number of events delivered by this call
+     */
+    public int drainFully(long timeoutMs) {
+        long deadline = System.nanoTime() + timeoutMs * 1_000_000;
+        int total = 0;
+        while (getBacklog() > 0 && System.nanoTime() - deadline < 0) {
+            int delivered = drain();
+            if (delivered == 0) {
+                LockSupport.parkNanos(100_000);
+            }
+            total += delivered;
+        }
+        return total;
+    }
+
+    private static String format(Slot slot) {
+        String text = slot.arg == null ? slot.message : slot.message + slot.arg;
+        if (slot.kind == Kind.ALERT) {
+            return text;
+        }
+        return "AUDIT [" + slot.level.getName() + "]: " + slot.event + " | " + text;
+    }
+
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    /**
+     * Events lost because the ring was full
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Events claimed but not yet delivered
+     */
+    public long getBacklog() {
+        return claimed.get() - consumed.get();
+    }
+
+    public int getLastBatchSize() {
+        return lastBatchSize;
+    }
+
+    public int getPeakBatchSize() {
+        return peakBatchSize;
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    public enum Kind {
+        AUDIT,
+        ALERT
+    }
+
+    /**
+     * Destination for formatted events; only ever called from the draining thread
+     */
+    public interface AuditSink {
+        void write(Kind kind, Level level, String line);
+
+        /**
+         * Called once after each batch
+         */
+        default void endBatch() {
+        }
+    }
+
+    private static final class Slot {
+        volatile long sequence = -1;
+        Kind kind;
+        Level level;
+        String event;
+        String message;
+        Object arg;
+
+        void clear() {
+            level = null;
+            event = null;
+            message = null;
+            arg = null;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.voidcrypt.core;
+
+import com.voidcrypt.radar.TrafficAnalyzer;
+import com.voidcrypt.shadow.SessionFingerprint;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Immutable view of the defense state, built once per tick off the main thread
+ * The radar, HUD, GUI and commands read the latest one from {@link com.voidcrypt.VoidCryptPlugin#getDefenseSnapshot()}
+ * instead of copying the session map and querying TPS and traffic themselves: a read is one
+ * volatile load, and every reader in the same tick sees the same numbers.
+ *
+ * @param takenAt        wall-clock time the snapshot was built
+ * @param sessions       session state at that time, in no particular order
+ * @param statusCounts   sessions per status, every status present
+ * @param suspicious     sessions with a suspicion level above zero
+ * @param securityScore  configuration audit score, or {@link #NO_SCORE} if the auditor is disabled
+ */
+public record DefenseSnapshot(long takenAt, List<Session> sessions,
+                              Map<SessionFingerprint.SessionStatus, Integer> statusCounts, int suspicious,
+                              double tps, int packetsPerSecond, int peakPacketsPerSecond, long totalPackets,
+                              TrafficAnalyzer.NetworkStatus networkStatus, double threatLevel, int securityScore) {
+
+    public static final int NO_SCORE = -1;
+
+    /**
+     * Published until the first snapshot is built
+     */
+    public static final DefenseSnapshot EMPTY = build(0L, List.of(), 20.0, 0, 0, 0L, NO_SCORE);
+
+    public DefenseSnapshot {
+        sessions = List.copyOf(sessions);
+        statusCounts = Map.copyOf(statusCounts);
+    }
+
+    /**
+     * Captures each session's status and suspicion and derives counts, network status and threat level
+     */
+    public static DefenseSnapshot build(long now, Iterable<SessionFingerprint> fingerprints, double tps,
+                                        int packetsPerSecond, int peakPacketsPerSecond, long totalPackets,
+                                        int securityScore) {
+        List<Session> sessions = new ArrayList<>();
+        Map<SessionFingerprint.SessionStatus, Integer> counts = new EnumMap<>(SessionFingerprint.SessionStatus.class);
+        for (SessionFingerprint.SessionStatus status : SessionFingerprint.SessionStatus.values()) {
+            counts.put(status, 0);
+        }
+        int suspicious = 0;
+        long nowNanos = System.nanoTime();
+        for (SessionFingerprint fp : fingerprints) {
+            Session session = new Session(fp, fp.getStatus(nowNanos), fp.getSuspicionLevel(nowNanos));
+            sessions.add(session);
+            counts.merge(session.status(), 1, Integer::sum);
+            if (session.suspicionLevel() > 0) {
+                suspicious++;
+            }
+        }
+        return new DefenseSnapshot(now, sessions, counts, suspicious, tps, packetsPerSecond, peakPacketsPerSecond,
+            totalPackets, TrafficAnalyzer.networkStatus(packetsPerSecond, tps),
+            TrafficAnalyzer.threatLevel(packetsPerSecond, tps), securityScore);
+    }
+
+    public int sessionCount() {
+        return sessions.size();
+    }
+
+    public int count(SessionFingerprint.SessionStatus status) {
+        return statusCounts.get(status);
+    }
+
+    public boolean hasSecurityScore() {
+        return securityScore != NO_SCORE;
+    }
+
+    /**
+     * A session's status and suspicion when the snapshot was built
+     * Identity fields are read from the fingerprint, where they never change.
+     */
+    public record Session(SessionFingerprint fingerprint, SessionFingerprint.SessionStatus status,
+                          int suspicionLevel) {
+        public UUID uuid() {
+            return fingerprint.getPlayerUUID();
+        }
+
+        public String boundIP() {
+            return fingerprint.getBoundIP();
+        }
+
+        public String protocolHash() {
+            return fingerprint.getProtocolHash();
+        }
+    }
+}
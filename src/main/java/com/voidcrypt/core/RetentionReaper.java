@@ -0,0 +1,68 @@
+package com.voidcrypt.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * One reaper for keyed retention deadlines, on the shared {@link TimingWheel}
+ * Each key has at most one (key, deadline) entry; retaining a key again replaces its entry and
+ * {@link #cancel} drops it, both O(1) from any thread. When a deadline passes the key is
+ * handed to the release action on the wheel's advancing thread, unless it was cancelled or
+ * retained again in the meantime.
+ *
+ * @param <K> the retained key
+ */
+public final class RetentionReaper<K> {
+
+    private final TimingWheel wheel;
+    private final long retentionMs;
+    private final Consumer<K> release;
+    private final Map<K, TimingWheel.Timeout> pending;
+
+    public RetentionReaper(TimingWheel wheel, long retentionMs, Consumer<K> release) {
+        this.wheel = wheel;
+        this.retentionMs = retentionMs;
+        this.release = release;
+        this.pending = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Releases {@code key} once the retention period has passed, replacing any earlier deadline
+     */
+    public void retain(K key) {
+        TimingWheel.Timeout timeout = wheel.schedule(expired -> {
+            if (pending.remove(key, expired)) {
+                release.accept(key);
+            }
+        }, retentionMs);
+        TimingWheel.Timeout previous = pending.put(key, timeout);
+        if (previous != null) {
+            previous.cancel();
+        }
+        // A deadline that fired before it was registered could not find itself in the map
+        if (timeout.isExpired() && pending.remove(key, timeout)) {
+            release.accept(key);
+        }
+    }
+
+    /**
+     * @return true if the key had a pending deadline, which will now never fire
+     */
+    public boolean cancel(K key) {
+        TimingWheel.Timeout timeout = pending.remove(key);
+        return timeout != null && timeout.cancel();
+    }
+
+    public boolean isPending(K key) {
+        return pending.containsKey(key);
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getRetentionMs() {
+        return retentionMs;
+    }
+}
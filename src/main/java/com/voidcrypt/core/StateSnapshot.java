@@ -0,0 +1,377 @@
+package com.voidcrypt.core;
+
+import com.voidcrypt.security.IpStateTable;
+import com.voidcrypt.security.RateKind;
+import com.voidcrypt.security.RateLimiter;
+import com.voidcrypt.security.RateLimits;
+import com.voidcrypt.shadow.SessionFingerprint;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * Warm-restart snapshot of the in-memory defense state
+ * Verified IPs, lockouts, suspicion and bans (from {@link IpStateTable}), rate-limit windows
+ * and session fingerprints are streamed into one binary file so a restart or /reload does not
+ * hand attackers a clean slate or send every returning player through the handshake at once.
+ *
+ * Layout: header (magic, version, creation time), then blocks of fixed-size records
+ * (tag, count, records), an end block holding the record counts, and a CRC32C of everything
+ * before it. The file is
+ * written next to the target and atomically renamed over it, and read back through a
+ * memory-mapped buffer. Deadlines are absolute wall-clock times, so anything that ran out
+ * while the server was down is dropped on load.
+ */
+public final class StateSnapshot {
+
+    private static final int MAGIC = 0x5643_5354; // "VCST"
+    private static final short VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int BLOCK_HEADER_BYTES = 8;
+    private static final int SUMMARY_BYTES = 3 * 8;
+    private static final int TRAILER_BYTES = BLOCK_HEADER_BYTES + SUMMARY_BYTES + 4;
+    private static final int BUFFER_BYTES = 1 << 18;
+
+    private static final int TAG_END = 0;
+    private static final int TAG_IP = 1;
+    private static final int TAG_LIMITER = 2;
+    private static final int TAG_RATE = 3;
+    private static final int TAG_SESSION = 4;
+
+    private static final int IP_RECORD_BYTES = 7 * 8;
+    private static final int RATE_RECORD_BYTES = 2 * 8;
+    private static final int MAX_STRING_BYTES = 0xFFFF;
+
+    private final Path file;
+    private final Logger logger;
+
+    public StateSnapshot(Path file, Logger logger) {
+        this.file = file;
+        this.logger = logger;
+    }
+
+    /**
+     * Writes a snapshot and replaces the previous one. Safe to call while the server runs;
+     * concurrent saves are serialized.
+     */
+    public synchronized Result save(IpStateTable table, RateLimits limits,
+                                    Collection<SessionFingerprint> sessions, long now) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        long[] counts = new long[3];
+        long bytes;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            BlockWriter out = new BlockWriter(channel);
+            out.buffer.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putLong(now);
+
+            try {
+                table.forEachRecord((hi, lo, flags, verifiedUntil, lockedUntil, firstSeen, lastSeen) -> {
+                    out.record(TAG_IP, IP_RECORD_BYTES)
+                        .putLong(hi).putLong(lo).putLong(flags)
+                        .putLong(verifiedUntil).putLong(lockedUntil)
+                        .putLong(firstSeen).putLong(lastSeen);
+                    counts[0]++;
+                });
+                for (RateKind kind : RateKind.values()) {
+                    RateLimiter limiter = limits.get(kind);
+                    byte[] name = utf8(kind.getConfigKey());
+                    out.record(TAG_LIMITER, 2 + name.length + 4 * 4 + 8)
+                        .putShort((short) name.length).put(name)
+                        .putInt(limiter.getPolicy().ordinal()).putInt(limiter.getLimit())
+                        .putInt(limiter.getBurst()).putInt(0).putLong(limiter.getPeriodMs());
+                    limiter.forEachEntry((key, state) -> {
+                        out.record(TAG_RATE, RATE_RECORD_BYTES).putLong(key).putLong(state);
+                        counts[1]++;
+                    });
+                }
+                for (SessionFingerprint session : sessions) {
+                    writeSession(out, session);
+                    counts[2]++;
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            bytes = out.finish(counts);
+            channel.force(true);
+        }
+
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return new Result(counts[0], counts[1], counts[2], bytes);
+    }
+
+    /**
+     * Restores a snapshot written by {@link #save}. A missing file is a cold start; a corrupt,
+     * truncated or foreign-version file is logged and ignored so the server still starts.
+     * Rate-limit entries are only restored into limiters configured with the same policy and rates.
+     * @return what was restored, or null if nothing was
+     */
+    public synchronized Result load(IpStateTable table, RateLimits limits,
+                                    Consumer<SessionFingerprint> sessions, long now) {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warning("Could not read state snapshot " + file + ": " + e.getMessage());
+            return null;
+        }
+
+        String problem = verify(buffer);
+        if (problem != null) {
+            logger.warning("Ignoring state snapshot " + file + ": " + problem);
+            return null;
+        }
+
+        // The end block's counts let the table be sized once instead of growing record by record
+        long savedIpRecords = buffer.getLong(buffer.capacity() - 4 - SUMMARY_BYTES);
+        table.reserve((int) Math.min(Integer.MAX_VALUE, Math.max(0, savedIpRecords)));
+
+        long ipRecords = 0;
+        long rateEntries = 0;
+        long sessionCount = 0;
+        try {
+            buffer.position(HEADER_BYTES);
+            RateLimiter limiter = null;
+            while (true) {
+                int tag = buffer.getInt();
+                int count = buffer.getInt();
+                if (tag == TAG_END) {
+                    break;
+                }
+                for (int i = 0; i < count; i++) {
+                    switch (tag) {
+                        case TAG_IP -> {
+                            if (table.restore(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong(),
+                                    buffer.getLong(), buffer.getLong(), buffer.getLong(), now)) {
+                                ipRecords++;
+                            }
+                        }
+                        case TAG_LIMITER -> limiter = readLimiter(buffer, limits);
+                        case TAG_RATE -> {
+                            long key = buffer.getLong();
+                            long state = buffer.getLong();
+                            if (limiter != null && limiter.restore(key, state, now)) {
+                                rateEntries++;
+                            }
+                        }
+                        case TAG_SESSION -> {
+                            sessions.accept(readSession(buffer));
+                            sessionCount++;
+                        }
+                        default -> throw new IllegalStateException("unknown block tag " + tag);
+                    }
+                }
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalStateException | IllegalArgumentException e) {
+            // Checksum passed, so this is a writer bug; keep whatever was restored so far
+            logger.warning("State snapshot " + file + " is malformed: " + e);
+        }
+        return new Result(ipRecords, rateEntries, sessionCount, buffer.capacity());
+    }
+
+    /**
+     * @return why the file cannot be used, or null if the header and checksum are valid
+     */
+    private static String verify(ByteBuffer buffer) {
+        if (buffer.capacity() < HEADER_BYTES + TRAILER_BYTES) {
+            return "truncated";
+        }
+        if (buffer.getInt(0) != MAGIC) {
+            return "not a snapshot file";
+        }
+        short version = buffer.getShort(4);
+        if (version != VERSION) {
+            return "unsupported version " + version;
+        }
+        int end = buffer.capacity() - 4;
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().position(0).limit(end));
+        if ((int) crc.getValue() != buffer.getInt(end)) {
+            return "checksum mismatch";
+        }
+        return null;
+    }
+
+    private static RateLimiter readLimiter(ByteBuffer buffer, RateLimits limits) {
+        String name = readString(buffer);
+        int policy = buffer.getInt();
+        int limit = buffer.getInt();
+        int burst = buffer.getInt();
+        buffer.getInt(); // reserved
+        long periodMs = buffer.getLong();
+        for (RateKind kind : RateKind.values()) {
+            RateLimiter limiter = limits.get(kind);
+            if (kind.getConfigKey().equals(name)) {
+                boolean sameRules = limiter.getPolicy().ordinal() == policy && limiter.getLimit() == limit
+                    && limiter.getBurst() == burst && limiter.getPeriodMs() == periodMs;
+                return sameRules ? limiter : null;
+            }
+        }
+        return null;
+    }
+
+    private static void writeSession(BlockWriter out, SessionFingerprint session) {
+        byte[] ip = utf8(session.getBoundIP());
+        byte[] hash = utf8(session.getProtocolHash());
+        byte[] token = utf8(session.getEntropyToken());
+        int size = 2 * 8 + 8 + 4 + 4 + 4 + 3 * 2 + ip.length + hash.length + token.length;
+        UUID uuid = session.getPlayerUUID();
+        ByteBuffer buffer = out.record(TAG_SESSION, size)
+            .putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits())
+            .putLong(session.getCreationTime())
+            .putInt(session.getProtocolVersion())
+            .putInt(session.getStatus().ordinal())
+            .putInt(session.getSuspicionLevel());
+        putString(buffer, ip);
+        putString(buffer, hash);
+        putString(buffer, token);
+    }
+
+    private static SessionFingerprint readSession(ByteBuffer buffer) {
+        UUID uuid = new UUID(buffer.getLong(), buffer.getLong());
+        long creationTime = buffer.getLong();
+        int protocolVersion = buffer.getInt();
+        SessionFingerprint.SessionStatus status = SessionFingerprint.SessionStatus.values()[buffer.getInt()];
+        int suspicion = buffer.getInt();
+        String ip = readString(buffer);
+        String hash = readString(buffer);
+        String token = readString(buffer);
+        return SessionFingerprint.restore(uuid, ip, hash, creationTime, protocolVersion, token, status, suspicion);
+    }
+
+    private static byte[] utf8(String value) {
+        byte[] bytes = value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("string too long for snapshot: " + bytes.length + " bytes");
+        }
+        return bytes;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Entries written or restored, and the file size in bytes
+     */
+    public record Result(long ipRecords, long rateEntries, long sessions, long bytes) {
+        public long total() {
+            return ipRecords + rateEntries + sessions;
+        }
+    }
+
+    /**
+     * Packs records into blocks in one reusable buffer, checksumming each chunk as it is flushed.
+     * A block is only ever flushed whole, so its count can be patched in place.
+     */
+    private static final class BlockWriter {
+        final FileChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        final CRC32C crc = new CRC32C();
+        long written;
+        int tag = -1;
+        int countAt;
+        int count;
+
+        BlockWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * @return the buffer, with room for one {@code size}-byte record of {@code tag}
+         */
+        ByteBuffer record(int tag, int size) {
+            if (tag != this.tag || buffer.remaining() < size) {
+                endBlock();
+                if (buffer.remaining() < BLOCK_HEADER_BYTES + size) {
+                    flush();
+                }
+                this.tag = tag;
+                buffer.putInt(tag);
+                countAt = buffer.position();
+                buffer.putInt(0);
+                count = 0;
+            }
+            count++;
+            return buffer;
+        }
+
+        /**
+         * Writes the end block with the IP, rate-limit and session counts, then the checksum
+         * @return total bytes written
+         */
+        long finish(long[] counts) {
+            endBlock();
+            if (buffer.remaining() < TRAILER_BYTES) {
+                flush();
+            }
+            buffer.putInt(TAG_END).putInt(1);
+            for (long count : counts) {
+                buffer.putLong(count);
+            }
+            buffer.flip();
+            crc.update(buffer);
+            buffer.limit(buffer.capacity());
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            write();
+            return written;
+        }
+
+        private void endBlock() {
+            if (tag >= 0) {
+                buffer.putInt(countAt, count);
+                tag = -1;
+            }
+        }
+
+        private void flush() {
+            buffer.flip();
+            crc.update(buffer);
+            buffer.position(0);
+            write();
+            buffer.clear();
+        }
+
+        private void write() {
+            try {
+                while (buffer.hasRemaining()) {
+                    written += channel.write(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.voidcrypt.core;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Shared expiry service: hierarchical timing wheel
+ * Four levels of 64 buckets; level 0 has one bucket per tick, each level above
+ * covers 64x the span of the one below (50 ms ticks reach ~9.7 days).
+ * Scheduling and cancellation are O(1) from any thread; entries are handed to the
+ * wheel through lock-free queues and only the thread calling {@link #advance()} touches buckets.
+ * Nothing is ever scanned: entries expire within one tick of their deadline.
+ */
+public final class TimingWheel {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private static final VarHandle STATE;
+
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(Timeout.class, "state", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final long tickMs;
+    private final LongSupplier clock;
+    private final Logger logger;
+
+    private final Bucket[][] wheels;
+    private final Bucket overflow;
+    private final Bucket expiring;
+
+    // Multi-producer, single-consumer hand-off to the advancing thread
+    private final Queue<Timeout> scheduled;
+    private final Queue<Timeout> cancelled;
+    private final AtomicBoolean advancing;
+
+    private long currentTick;
+
+    // Counters
+    private final AtomicLong pendingTimeouts;
+    private final AtomicLong totalExpirations;
+    private volatile int expirationsLastTick;
+    private volatile int peakExpirationsPerTick;
+
+    public TimingWheel(long tickMs, LongSupplier clock, Logger logger) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("tickMs must be positive");
+        }
+        this.tickMs = tickMs;
+        this.clock = clock;
+        this.logger = logger;
+        this.wheels = new Bucket[LEVELS][WHEEL_SIZE];
+        for (Bucket[] wheel : wheels) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                wheel[i] = new Bucket();
+            }
+        }
+        this.overflow = new Bucket();
+        this.expiring = new Bucket();
+        this.scheduled = new ConcurrentLinkedQueue<>();
+        this.cancelled = new ConcurrentLinkedQueue<>();
+        this.advancing = new AtomicBoolean(false);
+        this.currentTick = clock.getAsLong() / tickMs;
+        this.pendingTimeouts = new AtomicLong(0);
+        this.totalExpirations = new AtomicLong(0);
+    }
+
+    /**
+     * Schedules {@code task} to run on the advancing thread once {@code delayMs} has passed
+     */
+    public Timeout schedule(ExpiryTask task, long delayMs) {
+        Timeout timeout = new Timeout(this, task, clock.getAsLong() + Math.max(0, delayMs));
+        pendingTimeouts.incrementAndGet();
+        scheduled.offer(timeout);
+        return timeout;
+    }
+
+    /**
+     * Moves the wheel up to the current time and runs every task that came due.
+     * Meant to be called once per server tick; concurrent calls are skipped.
+     */
+    public void advance() {
+        if (!advancing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long targetTick = clock.getAsLong() / tickMs;
+            drainScheduled();
+            drainCancelled();
+
+            int expired = expireAll(expiring); // entries that were already due when handed over
+            while (currentTick < targetTick) {
+                currentTick++;
+                cascade();
+                expired += expireAll(expiring);
+                expired += expireAll(wheels[0][(int) (currentTick & WHEEL_MASK)]);
+            }
+
+            expirationsLastTick = expired;
+            if (expired > peakExpirationsPerTick) {
+                peakExpirationsPerTick = expired;
+            }
+        } finally {
+            advancing.set(false);
+        }
+    }
+
+    private void drainScheduled() {
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            if ((int) STATE.getVolatile(timeout) == PENDING) {
+                place(timeout);
+            }
+        }
+    }
+
+    private void drainCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.unlink(timeout);
+            }
+        }
+    }
+
+    /**
+     * Puts a timeout in the lowest level whose higher digits match the current tick
+     */
+    private void place(Timeout timeout) {
+        long deadlineTick = (timeout.deadline + tickMs - 1) / tickMs;
+        if (deadlineTick <= currentTick) {
+            expiring.append(timeout);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = WHEEL_BITS * (level + 1);
+            if ((deadlineTick >>> shift) == (currentTick >>> shift)) {
+                wheels[level][(int) ((deadlineTick >>> (WHEEL_BITS * level)) & WHEEL_MASK)].append(timeout);
+                return;
+            }
+        }
+        overflow.append(timeout);
+    }
+
+    /**
+     * Re-files higher-level buckets whose span starts at the current tick
+     */
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            long lowerBits = currentTick & ((1L << (WHEEL_BITS * level)) - 1);
+            if (lowerBits != 0) {
+                return;
+            }
+            refile(wheels[level][(int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK)]);
+        }
+        if ((currentTick & ((1L << (WHEEL_BITS * LEVELS)) - 1)) == 0) {
+            refile(overflow);
+        }
+    }
+
+    private void refile(Bucket bucket) {
+        Timeout timeout = bucket.head;
+        bucket.head = bucket.tail = null;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.prev = timeout.next = null;
+            timeout.bucket = null;
+            place(timeout);
+            timeout = next;
+        }
+    }
+
+    private int expireAll(Bucket bucket) {
+        int expired = 0;
+        Timeout timeout;
+        while ((timeout = bucket.poll()) != null) {
+            if (!STATE.compareAndSet(timeout, PENDING, EXPIRED)) {
+                continue; // cancelled while queued for expiry
+            }
+            pendingTimeouts.decrementAndGet();
+            totalExpirations.incrementAndGet();
+            expired++;
+            try {
+                timeout.task.expire(timeout);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Expiry task failed", e);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Tasks run during the most recent {@link #advance()}
+     */
+    public int getExpirationsLastTick() {
+        return expirationsLastTick;
+    }
+
+    public int getPeakExpirationsPerTick() {
+        return peakExpirationsPerTick;
+    }
+
+    public long getTotalExpirations() {
+        return totalExpirations.get();
+    }
+
+    /**
+     * Scheduled tasks that have neither run nor been cancelled
+     */
+    public long getPendingTimeouts() {
+        return pendingTimeouts.get();
+    }
+
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    @FunctionalInterface
+    public interface ExpiryTask {
+        void expire(Timeout timeout);
+    }
+
+    /**
+     * Handle for a scheduled task
+     */
+    public static final class Timeout {
+        private final TimingWheel wheel;
+        private final ExpiryTask task;
+        private final long deadline;
+        @SuppressWarnings("unused") // accessed through STATE
+        private volatile int state;
+
+        // Owned by the advancing thread
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(TimingWheel wheel, ExpiryTask task, long deadline) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * @return true if the task had not run yet and now never will
+         */
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, PENDING, CANCELLED)) {
+                return false;
+            }
+            wheel.pendingTimeouts.decrementAndGet();
+            wheel.cancelled.offer(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+    }
+
+    /**
+     * Intrusive doubly linked list of timeouts
+     */
+    private static final class Bucket {
+        Timeout head;
+        Timeout tail;
+
+        void append(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void unlink(Timeout timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        Timeout poll() {
+            Timeout timeout = head;
+            if (timeout != null) {
+                unlink(timeout);
+            }
+            return timeout;
+        }
+    }
+}
@@ -130,16 +130,14 @@ public class GUIManager implements Listener {
         fillRow(inv, 5, createGlass(Material.CYAN_STAINED_GLASS_PANE));
         
         // Poblar con jugadores
-        var sessions = plugin.getSessionGuardian().getAllSessions();
         int slot = 10;
         
-        for (var entry : sessions.entrySet()) {
+        for (var fingerprint : plugin.getDefenseSnapshot().sessions()) {
             if (slot >= 44) break;
             if (slot % 9 == 0) slot++; // Skip bordes
             if (slot % 9 == 8) slot += 2;
             
-            Player target = Bukkit.getPlayer(entry.getKey());
-            var fingerprint = entry.getValue();
+            Player target = Bukkit.getPlayer(fingerprint.uuid());
             
             ItemStack skull = new ItemStack(Material.PLAYER_HEAD);
             SkullMeta meta = (SkullMeta) skull.getItemMeta();
@@ -147,7 +145,7 @@ public class GUIManager implements Listener {
             if (meta != null && target != null) {
                 meta.setOwningPlayer(target);
                 
-                ChatColor statusColor = switch (fingerprint.getStatus()) {
+                ChatColor statusColor = switch (fingerprint.status()) {
                     case ACTIVE -> ChatColor.GREEN;
                     case SUSPICIOUS -> ChatColor.YELLOW;
                     case UNDER_INVESTIGATION -> ChatColor.GOLD;
@@ -156,10 +154,10 @@ public class GUIManager implements Listener {
                 
                 meta.setDisplayName(statusColor + target.getName());
                 meta.setLore(Arrays.asList(
-                    ChatColor.GRAY + "IP: " + ChatColor.WHITE + fingerprint.getBoundIP(),
-                    ChatColor.GRAY + "Estado: " + statusColor + fingerprint.getStatus().name(),
-                    ChatColor.GRAY + "Sospecha: " + ChatColor.WHITE + fingerprint.getSuspicionLevel() + "/10",
-                    ChatColor.GRAY + "Hash: " + ChatColor.DARK_GRAY + fingerprint.getProtocolHash(),
+                    ChatColor.GRAY + "IP: " + ChatColor.WHITE + fingerprint.boundIP(),
+                    ChatColor.GRAY + "Estado: " + statusColor + fingerprint.status().name(),
+                    ChatColor.GRAY + "Sospecha: " + ChatColor.WHITE + fingerprint.suspicionLevel() + "/10",
+                    ChatColor.GRAY + "Hash: " + ChatColor.DARK_GRAY + fingerprint.protocolHash(),
                     "",
                     ChatColor.YELLOW + "Click izquierdo: " + ChatColor.WHITE + "Ver detalles",
                     ChatColor.YELLOW + "Click derecho: " + ChatColor.WHITE + "Acciones"
@@ -254,10 +252,10 @@ public class GUIManager implements Listener {
         fillRow(inv, 0, createGlass(Material.LIME_STAINED_GLASS_PANE));
         fillRow(inv, 5, createGlass(Material.LIME_STAINED_GLASS_PANE));
         
-        var traffic = plugin.getTrafficAnalyzer();
+        var snapshot = plugin.getDefenseSnapshot();
         
         // TPS
-        double tps = traffic.getSystemLoad();
+        double tps = snapshot.tps();
         ChatColor tpsColor = tps >= 18 ? ChatColor.GREEN : (tps >= 15 ? ChatColor.YELLOW : ChatColor.RED);
         inv.setItem(10, createItem(Material.CLOCK, tpsColor + "TPS: " + String.format("%.2f", tps),
             getProgressBar((int) tps, 20),
@@ -265,8 +263,8 @@ public class GUIManager implements Listener {
             ChatColor.GRAY + "20 TPS = rendimiento óptimo"));
         
         // Tráfico de red
-        int packets = traffic.getPacketVolume();
-        var status = traffic.getNetworkStatus();
+        int packets = snapshot.packetsPerSecond();
+        var status = snapshot.networkStatus();
         ChatColor netColor = switch (status) {
             case NORMAL -> ChatColor.GREEN;
             case ELEVATED -> ChatColor.YELLOW;
@@ -275,11 +273,11 @@ public class GUIManager implements Listener {
         };
         inv.setItem(12, createItem(Material.HOPPER, netColor + "Tráfico: " + packets + " pkt/s",
             ChatColor.GRAY + "Estado: " + netColor + status.name(),
-            ChatColor.GRAY + "Pico: " + traffic.getPeakPacketsPerSecond() + " pkt/s",
-            ChatColor.GRAY + "Total: " + formatNumber(traffic.getTotalPackets())));
+            ChatColor.GRAY + "Pico: " + snapshot.peakPacketsPerSecond() + " pkt/s",
+            ChatColor.GRAY + "Total: " + formatNumber(snapshot.totalPackets())));
         
         // Nivel de amenaza
-        double threat = traffic.getThreatLevel();
+        double threat = snapshot.threatLevel();
         int threatPercent = (int) (threat * 100);
         ChatColor threatColor = threat < 0.3 ? ChatColor.GREEN : 
                                 (threat < 0.6 ? ChatColor.YELLOW : ChatColor.RED);
@@ -289,17 +287,16 @@ public class GUIManager implements Listener {
             ChatColor.GRAY + "Basado en tráfico y TPS"));
         
         // Sesiones
-        int sessions = plugin.getSessionGuardian().getActiveSessionCount();
-        long suspicious = plugin.getSessionGuardian().getAllSessions().values().stream()
-            .filter(s -> s.getSuspicionLevel() > 0).count();
+        int sessions = snapshot.sessionCount();
+        int suspicious = snapshot.suspicious();
         inv.setItem(16, createItem(Material.PLAYER_HEAD, ChatColor.AQUA + "Sesiones: " + sessions,
             ChatColor.GRAY + "Sospechosas: " + ChatColor.YELLOW + suspicious,
             "",
             ChatColor.GRAY + "Jugadores conectados actualmente"));
         
         // Puntuación de seguridad
-        if (plugin.getConfigurationAuditor() != null) {
-            int score = plugin.getConfigurationAuditor().getSecurityScore();
+        if (snapshot.hasSecurityScore()) {
+            int score = snapshot.securityScore();
             ChatColor scoreColor = score >= 80 ? ChatColor.GREEN : 
                                    (score >= 50 ? ChatColor.YELLOW : ChatColor.RED);
             inv.setItem(22, createItem(Material.SHIELD, scoreColor + "Puntuación: " + score + "/100",
@@ -755,8 +752,8 @@ public class GUIManager implements Listener {
     }
 
     private ItemStack createStatusItem() {
-        var traffic = plugin.getTrafficAnalyzer();
-        double threat = traffic.getThreatLevel();
+        var snapshot = plugin.getDefenseSnapshot();
+        double threat = snapshot.threatLevel();
         
         Material mat = threat < 0.3 ? Material.EMERALD : 
                        (threat < 0.6 ? Material.GOLD_INGOT : Material.REDSTONE);
@@ -765,8 +762,8 @@ public class GUIManager implements Listener {
         
         return createItem(mat, color + "Estado del Sistema",
             ChatColor.GRAY + "Nivel de amenaza: " + color + (int)(threat * 100) + "%",
-            ChatColor.GRAY + "TPS: " + String.format("%.1f", traffic.getSystemLoad()),
-            ChatColor.GRAY + "Sesiones: " + plugin.getSessionGuardian().getActiveSessionCount());
+            ChatColor.GRAY + "TPS: " + String.format("%.1f", snapshot.tps()),
+            ChatColor.GRAY + "Sesiones: " + snapshot.sessionCount());
     }
 
     private ItemStack createPlayerHead(Player target, ChatColor color) {
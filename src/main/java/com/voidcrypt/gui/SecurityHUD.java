@@ -1,7 +1,7 @@
 package com.voidcrypt.gui;
 
 import com.voidcrypt.VoidCryptPlugin;
-import com.voidcrypt.radar.TrafficAnalyzer;
+import com.voidcrypt.core.DefenseSnapshot;
 import net.md_5.bungee.api.ChatMessageType;
 import net.md_5.bungee.api.chat.TextComponent;
 import org.bukkit.Bukkit;
@@ -74,12 +74,12 @@ public class SecurityHUD {
     }
 
     private void updateAllHUDs() {
-        TrafficAnalyzer traffic = plugin.getTrafficAnalyzer();
-        double threat = traffic.getThreatLevel();
-        double tps = traffic.getSystemLoad();
-        int packets = traffic.getPacketVolume();
-        int sessions = plugin.getSessionGuardian().getActiveSessionCount();
-        var networkStatus = traffic.getNetworkStatus();
+        DefenseSnapshot snapshot = plugin.getDefenseSnapshot();
+        double threat = snapshot.threatLevel();
+        double tps = snapshot.tps();
+        int packets = snapshot.packetsPerSecond();
+        int sessions = snapshot.sessionCount();
+        var networkStatus = snapshot.networkStatus();
         
         // Determinar colores según estado
         ChatColor tpsColor = tps >= 18 ? ChatColor.GREEN : (tps >= 15 ? ChatColor.YELLOW : ChatColor.RED);
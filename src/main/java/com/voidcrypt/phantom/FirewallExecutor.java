@@ -1,13 +1,16 @@
 package com.voidcrypt.phantom;
 
 import com.voidcrypt.VoidCryptPlugin;
+import com.voidcrypt.security.IpStateTable;
+import com.voidcrypt.security.PackedAddress;
+import com.voidcrypt.security.RateKind;
 import com.voidcrypt.security.SecurityValidator;
 import org.bukkit.Bukkit;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
+import java.util.HashSet;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 /**
@@ -18,12 +21,14 @@ public class FirewallExecutor {
 
     private final VoidCryptPlugin plugin;
     private final OperatingSystem os;
-    private final Set<String> bannedIPs;
+    
+    // Ban flag lives in the shared per-IP record
+    private final IpStateTable ipState;
 
     public FirewallExecutor(VoidCryptPlugin plugin) {
         this.plugin = plugin;
         this.os = detectOS();
-        this.bannedIPs = ConcurrentHashMap.newKeySet();
+        this.ipState = plugin.getIpStateTable();
         
         plugin.getLogger().info("Firewall Executor initialized for: " + os);
     }
@@ -54,20 +59,21 @@ public class FirewallExecutor {
             return false;
         }
         
-        if (!SecurityValidator.checkRateLimit("firewall:" + validatedIP)) {
+        PackedAddress address = PackedAddress.of(validatedIP);
+        if (!plugin.getRateLimits().tryAcquire(RateKind.FIREWALL, address, System.currentTimeMillis())) {
             plugin.getLogger().warning("Rate limit exceeded for firewall operations on: " + validatedIP);
             return false;
         }
         
         // Avoid duplicates
-        if (bannedIPs.contains(validatedIP)) {
+        if (ipState.isBanned(address)) {
             return true;
         }
         
         // Check if auto-firewall is enabled
         if (!plugin.getConfig().getBoolean("phantom-ports.auto-firewall", false)) {
             plugin.getLogger().info("Auto-firewall disabled. IP marked: " + validatedIP);
-            bannedIPs.add(validatedIP);
+            ipState.markBanned(address);
             return false;
         }
         
@@ -87,8 +93,8 @@ public class FirewallExecutor {
             }
         });
         
-        bannedIPs.add(validatedIP);
-        plugin.auditLog(Level.WARNING, "FIREWALL_BAN", "IP: " + validatedIP);
+        ipState.markBanned(address);
+        plugin.auditLog(Level.WARNING, "FIREWALL_BAN", "IP: ", validatedIP);
         return true;
     }
 
@@ -156,13 +162,13 @@ public class FirewallExecutor {
         Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
             try {
                 executeCommand(command, validatedIP);
-                bannedIPs.remove(validatedIP);
+                ipState.clearBanned(PackedAddress.of(validatedIP));
             } catch (Exception e) {
                 plugin.getLogger().severe("Error unbanning IP: " + e.getMessage());
             }
         });
         
-        plugin.auditLog(Level.INFO, "FIREWALL_UNBAN", "IP: " + validatedIP);
+        plugin.auditLog(Level.INFO, "FIREWALL_UNBAN", "IP: ", validatedIP);
         return true;
     }
 
@@ -177,7 +183,9 @@ public class FirewallExecutor {
     }
 
     public Set<String> getBannedIPs() {
-        return Set.copyOf(bannedIPs);
+        Set<String> banned = new HashSet<>();
+        ipState.forEachBanned(address -> banned.add(address.toString()));
+        return Set.copyOf(banned);
     }
 
     public OperatingSystem getOperatingSystem() {
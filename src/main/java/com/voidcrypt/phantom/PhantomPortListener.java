@@ -6,12 +6,15 @@ import com.comphenix.protocol.events.ListenerPriority;
 import com.comphenix.protocol.events.PacketAdapter;
 import com.comphenix.protocol.events.PacketEvent;
 import com.voidcrypt.VoidCryptPlugin;
+import com.voidcrypt.security.IpStateTable;
+import com.voidcrypt.security.PackedAddress;
+import com.voidcrypt.security.RateKind;
 import com.voidcrypt.security.SecurityValidator;
 import com.voidcrypt.shadow.SessionGuardian;
 import org.bukkit.entity.Player;
 
-import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -32,8 +35,8 @@ public class PhantomPortListener extends PacketAdapter {
     // Configured honeypot channels
     private final Set<String> honeypotChannels;
     
-    // Suspicious IP registry
-    private final Map<String, SuspicionData> suspicionRegistry;
+    // Suspicion level per IP lives in the shared per-IP record
+    private final IpStateTable ipState;
     
     // Known malicious patterns
     private static final Pattern MALFORMED_BRAND = Pattern.compile(
@@ -53,7 +56,7 @@ public class PhantomPortListener extends PacketAdapter {
         this.firewallExecutor = firewallExecutor;
         this.sessionGuardian = sessionGuardian;
         this.honeypotChannels = ConcurrentHashMap.newKeySet();
-        this.suspicionRegistry = new ConcurrentHashMap<>();
+        this.ipState = plugin.getIpStateTable();
         
         // Load honeypot channels from config
         List<String> channels = plugin.getConfig().getStringList("phantom-ports.honeypot-channels");
@@ -69,10 +72,9 @@ public class PhantomPortListener extends PacketAdapter {
         if (event.isCancelled()) return;
         
         Player player = event.getPlayer();
-        String ip = extractIP(player);
-        
-        String validatedIP = SecurityValidator.validateIP(ip);
-        if (validatedIP == null) return;
+        // No string round trip: the text form is only built for alerts and logs
+        PackedAddress address = player != null ? PackedAddress.of(player.getAddress()) : null;
+        if (address == null) return;
         
         try {
             String channel = event.getPacket().getStrings().readSafely(0);
@@ -82,19 +84,19 @@ public class PhantomPortListener extends PacketAdapter {
             
             // Check if it's a honeypot channel
             if (isHoneypotChannel(channel)) {
-                handleHoneypotTrigger(validatedIP, player, channel);
+                handleHoneypotTrigger(address, player, channel);
                 event.setCancelled(true);
                 return;
             }
             
             // Analyze packet content
             if (data != null) {
-                analyzePayload(validatedIP, player, channel, data);
+                analyzePayload(address, player, channel, data);
             }
             
             // Verify MC|Brand channel
             if ("MC|Brand".equals(channel) || "minecraft:brand".equals(channel)) {
-                validateBrandPacket(validatedIP, player, data);
+                validateBrandPacket(address, player, data);
             }
             
         } catch (Exception e) {
@@ -107,19 +109,18 @@ public class PhantomPortListener extends PacketAdapter {
                channel.startsWith("voidcrypt:") && !channel.equals("voidcrypt:response");
     }
 
-    private void handleHoneypotTrigger(String ip, Player player, String channel) {
-        if (!SecurityValidator.checkRateLimit("honeypot:" + ip)) {
+    private void handleHoneypotTrigger(PackedAddress address, Player player, String channel) {
+        long now = System.currentTimeMillis();
+        if (!plugin.getRateLimits().tryAcquire(RateKind.HONEYPOT, address, now)) {
             return;
         }
         
-        plugin.alert("HONEYPOT TRIGGERED! IP: " + ip + " | Channel: " + channel);
-        plugin.auditLog(Level.WARNING, "HONEYPOT_TRIGGERED", 
-            "IP: " + ip + " Channel: " + SecurityValidator.sanitizeForLog(channel));
+        // Formatted and sanitized on the audit thread, not on this packet thread
+        plugin.alert("HONEYPOT TRIGGERED! IP: ", new LogDetail(address, " | Channel: ", channel));
+        plugin.auditLog(Level.WARNING, "HONEYPOT_TRIGGERED", "IP: ", new LogDetail(address, " Channel: ", channel));
         
         // Increment suspicion
-        SuspicionData data = suspicionRegistry.computeIfAbsent(ip, 
-            k -> new SuspicionData(ip, 0, System.currentTimeMillis()));
-        data.incrementLevel(5);
+        int level = ipState.addSuspicion(address, 5, now);
         
         // Mark session
         if (player != null) {
@@ -127,8 +128,8 @@ public class PhantomPortListener extends PacketAdapter {
         }
         
         // Execute block if enabled
-        if (data.level >= 10 && plugin.getConfig().getBoolean("phantom-ports.auto-firewall", false)) {
-            firewallExecutor.executeBan(ip);
+        if (level >= 10 && plugin.getConfig().getBoolean("phantom-ports.auto-firewall", false)) {
+            firewallExecutor.executeBan(address.toString());
         }
         
         // Kick player
@@ -137,18 +138,15 @@ public class PhantomPortListener extends PacketAdapter {
         }
     }
 
-    private void analyzePayload(String ip, Player player, String channel, byte[] data) {
+    private void analyzePayload(PackedAddress address, Player player, String channel, byte[] data) {
         String content = new String(data, StandardCharsets.UTF_8);
         
         // Detect exploit patterns
         if (EXPLOIT_PATTERN.matcher(content).find()) {
-            plugin.alert("EXPLOIT ATTEMPT DETECTED! IP: " + ip + " | Pattern found");
-            plugin.auditLog(Level.SEVERE, "EXPLOIT_ATTEMPT", 
-                "IP: " + ip + " Content: " + SecurityValidator.sanitizeForLog(content));
+            plugin.alert("EXPLOIT ATTEMPT DETECTED (pattern found)! IP: ", address);
+            plugin.auditLog(Level.SEVERE, "EXPLOIT_ATTEMPT", "IP: ", new LogDetail(address, " Content: ", content));
             
-            SuspicionData suspData = suspicionRegistry.computeIfAbsent(ip,
-                k -> new SuspicionData(ip, 0, System.currentTimeMillis()));
-            suspData.incrementLevel(10);
+            ipState.addSuspicion(address, 10, System.currentTimeMillis());
             
             if (player != null) {
                 sessionGuardian.addSuspicion(player.getUniqueId(), 10);
@@ -156,14 +154,14 @@ public class PhantomPortListener extends PacketAdapter {
             }
             
             if (plugin.getConfig().getBoolean("phantom-ports.auto-firewall", false)) {
-                firewallExecutor.executeBan(ip);
+                firewallExecutor.executeBan(address.toString());
             }
         }
     }
 
-    private void validateBrandPacket(String ip, Player player, byte[] data) {
+    private void validateBrandPacket(PackedAddress address, Player player, byte[] data) {
         if (data == null || data.length == 0) {
-            addSuspicion(ip, player, 2, "Empty brand packet");
+            addSuspicion(address, player, 2, "Empty brand packet");
             return;
         }
         
@@ -171,37 +169,44 @@ public class PhantomPortListener extends PacketAdapter {
         
         // Detect malformed characters
         if (MALFORMED_BRAND.matcher(brand).matches()) {
-            addSuspicion(ip, player, 3, "Malformed brand: " + SecurityValidator.sanitizeForLog(brand));
+            addSuspicion(address, player, 3, "Malformed brand: " + SecurityValidator.sanitizeForLog(brand));
         }
         
         // Detect clients known to be used in attacks
         String brandLower = brand.toLowerCase();
         if (brandLower.contains("bot") || brandLower.contains("attack") || 
             brandLower.contains("flood") || brandLower.contains("stress")) {
-            addSuspicion(ip, player, 5, "Suspicious brand: " + brand);
+            addSuspicion(address, player, 5, "Suspicious brand: " + brand);
         }
     }
 
-    private void addSuspicion(String ip, Player player, int level, String reason) {
-        SuspicionData data = suspicionRegistry.computeIfAbsent(ip,
-            k -> new SuspicionData(ip, 0, System.currentTimeMillis()));
-        data.incrementLevel(level);
+    private void addSuspicion(PackedAddress address, Player player, int level, String reason) {
+        ipState.addSuspicion(address, level, System.currentTimeMillis());
         
-        plugin.getLogger().warning("Suspicion added for " + ip + ": " + reason);
+        plugin.getLogger().warning("Suspicion added for " + address + ": " + reason);
         
         if (player != null) {
             sessionGuardian.addSuspicion(player.getUniqueId(), level);
         }
     }
 
-    private String extractIP(Player player) {
-        if (player == null) return null;
-        InetSocketAddress address = player.getAddress();
-        return address != null ? address.getAddress().getHostAddress() : null;
+    public Map<String, SuspicionData> getSuspicionRegistry() {
+        Map<String, SuspicionData> registry = new HashMap<>();
+        ipState.forEachSuspicious((address, level, firstSeen, lastSeen) -> {
+            String ip = address.toString();
+            registry.put(ip, new SuspicionData(ip, level, firstSeen, lastSeen));
+        });
+        return Map.copyOf(registry);
     }
 
-    public Map<String, SuspicionData> getSuspicionRegistry() {
-        return Map.copyOf(suspicionRegistry);
+    /**
+     * Audit argument for an address and untrusted client text, built into a line by the audit thread
+     */
+    private record LogDetail(PackedAddress address, String label, String text) {
+        @Override
+        public String toString() {
+            return address + label + SecurityValidator.sanitizeForLog(text);
+        }
     }
 
     // Suspicion tracking class
@@ -218,6 +223,13 @@ public class PhantomPortListener extends PacketAdapter {
             this.lastSeen = timestamp;
         }
 
+        public SuspicionData(String ip, int level, long firstSeen, long lastSeen) {
+            this.ip = ip;
+            this.level = level;
+            this.firstSeen = firstSeen;
+            this.lastSeen = lastSeen;
+        }
+
         public void incrementLevel(int amount) {
             this.level += amount;
             this.lastSeen = System.currentTimeMillis();
@@ -1,8 +1,7 @@
 package com.voidcrypt.radar;
 
 import com.voidcrypt.VoidCryptPlugin;
-import com.voidcrypt.shadow.SessionFingerprint;
-import com.voidcrypt.shadow.SessionGuardian;
+import com.voidcrypt.core.DefenseSnapshot;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.map.MapCanvas;
@@ -12,8 +11,6 @@ import org.bukkit.map.MapView;
 import org.jetbrains.annotations.NotNull;
 
 import java.awt.*;
-import java.util.Map;
-import java.util.UUID;
 
 /**
  * Módulo 3A: Renderizador del Radar de Amenazas
@@ -22,8 +19,6 @@ import java.util.UUID;
 public class ThreatRadarRenderer extends MapRenderer {
 
     private final VoidCryptPlugin plugin;
-    private final TrafficAnalyzer trafficAnalyzer;
-    private final SessionGuardian sessionGuardian;
     
     private long lastRender = 0;
     private int frameCounter = 0;
@@ -37,12 +32,9 @@ public class ThreatRadarRenderer extends MapRenderer {
     private static final byte COLOR_WHITE = MapPalette.matchColor(Color.WHITE);
     private static final byte COLOR_CYAN = MapPalette.matchColor(Color.CYAN);
 
-    public ThreatRadarRenderer(VoidCryptPlugin plugin, TrafficAnalyzer trafficAnalyzer, 
-                                SessionGuardian sessionGuardian) {
+    public ThreatRadarRenderer(VoidCryptPlugin plugin) {
         super(true); // Contextual rendering
         this.plugin = plugin;
-        this.trafficAnalyzer = trafficAnalyzer;
-        this.sessionGuardian = sessionGuardian;
     }
 
     @Override
@@ -55,6 +47,7 @@ public class ThreatRadarRenderer extends MapRenderer {
         }
         lastRender = now;
         frameCounter++;
+        DefenseSnapshot snapshot = plugin.getDefenseSnapshot();
         
         // Limpiar canvas con fondo negro
         for (int x = 0; x < 128; x++) {
@@ -76,13 +69,13 @@ public class ThreatRadarRenderer extends MapRenderer {
         drawCore(canvas);
         
         // Dibujar jugadores como puntos
-        drawPlayers(canvas);
+        drawPlayers(canvas, snapshot);
         
         // Dibujar indicadores de estado
-        drawStatusIndicators(canvas);
+        drawStatusIndicators(canvas, snapshot);
         
         // Dibujar estadísticas
-        drawStats(canvas);
+        drawStats(canvas, snapshot);
     }
 
     private void drawGrid(MapCanvas canvas) {
@@ -142,25 +135,23 @@ public class ThreatRadarRenderer extends MapRenderer {
         }
     }
 
-    private void drawPlayers(MapCanvas canvas) {
-        Map<UUID, SessionFingerprint> sessions = sessionGuardian.getAllSessions();
+    private void drawPlayers(MapCanvas canvas, DefenseSnapshot snapshot) {
         int playerIndex = 0;
-        int totalPlayers = sessions.size();
+        int totalPlayers = snapshot.sessionCount();
         
-        for (Map.Entry<UUID, SessionFingerprint> entry : sessions.entrySet()) {
-            SessionFingerprint fp = entry.getValue();
-            Player player = Bukkit.getPlayer(entry.getKey());
+        for (DefenseSnapshot.Session fp : snapshot.sessions()) {
+            Player player = Bukkit.getPlayer(fp.uuid());
             if (player == null || !player.isOnline()) continue;
             
             // Distribuir jugadores en círculo alrededor del centro
             double angle = (2 * Math.PI * playerIndex) / Math.max(1, totalPlayers);
-            int distance = 30 + (fp.getSuspicionLevel() * 2); // Más sospecha = más lejos
+            int distance = 30 + (fp.suspicionLevel() * 2); // Más sospecha = más lejos
             
             int x = (int) (64 + distance * Math.cos(angle));
             int y = (int) (64 + distance * Math.sin(angle));
             
             // Color según estado
-            byte color = switch (fp.getStatus()) {
+            byte color = switch (fp.status()) {
                 case ACTIVE -> COLOR_GREEN;
                 case SUSPICIOUS -> COLOR_YELLOW;
                 case UNDER_INVESTIGATION -> (frameCounter % 4 < 2) ? COLOR_RED : COLOR_YELLOW;
@@ -179,8 +170,8 @@ public class ThreatRadarRenderer extends MapRenderer {
         }
     }
 
-    private void drawStatusIndicators(MapCanvas canvas) {
-        TrafficAnalyzer.NetworkStatus status = trafficAnalyzer.getNetworkStatus();
+    private void drawStatusIndicators(MapCanvas canvas, DefenseSnapshot snapshot) {
+        TrafficAnalyzer.NetworkStatus status = snapshot.networkStatus();
         
         // Indicador en esquina superior izquierda
         byte statusColor = switch (status) {
@@ -197,11 +188,11 @@ public class ThreatRadarRenderer extends MapRenderer {
         }
     }
 
-    private void drawStats(MapCanvas canvas) {
+    private void drawStats(MapCanvas canvas, DefenseSnapshot snapshot) {
         // Dibujar TPS y paquetes en la parte inferior
-        double tps = trafficAnalyzer.getSystemLoad();
-        int packets = trafficAnalyzer.getPacketVolume();
-        int players = sessionGuardian.getActiveSessionCount();
+        double tps = snapshot.tps();
+        int packets = snapshot.packetsPerSecond();
+        int players = snapshot.sessionCount();
         
         // Mini barra de TPS (parte inferior)
         int tpsWidth = (int) ((tps / 20.0) * 50);
@@ -100,9 +100,13 @@ public class TrafficAnalyzer extends PacketAdapter {
      * @return 0.0 (normal) to 1.0 (critical)
      */
     public double getThreatLevel() {
-        int packets = getPacketVolume();
-        double tps = getSystemLoad();
-        
+        return threatLevel(getPacketVolume(), getSystemLoad());
+    }
+
+    /**
+     * Threat level for a given packet rate and TPS
+     */
+    public static double threatLevel(int packets, double tps) {
         double packetFactor = Math.min(1.0, packets / (double) CRITICAL_THRESHOLD);
         double tpsFactor = Math.max(0.0, (20.0 - tps) / 20.0);
         
@@ -113,9 +117,13 @@ public class TrafficAnalyzer extends PacketAdapter {
      * Determines current network status
      */
     public NetworkStatus getNetworkStatus() {
-        int packets = getPacketVolume();
-        double tps = getSystemLoad();
-        
+        return networkStatus(getPacketVolume(), getSystemLoad());
+    }
+
+    /**
+     * Network status for a given packet rate and TPS
+     */
+    public static NetworkStatus networkStatus(int packets, double tps) {
         if (packets >= CRITICAL_THRESHOLD || tps < 10) {
             return NetworkStatus.CRITICAL;
         } else if (packets >= WARNING_THRESHOLD || tps < 15) {
@@ -0,0 +1,128 @@
+package com.voidcrypt.security;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free pool of pre-generated random longs for challenge nonces and entropy tokens
+ * {@link #refill()} runs off the packet threads and tops the ring up in one large
+ * SecureRandom batch once it falls below the low-water mark. Consumers claim a value with
+ * one CAS; when the pool is empty they fall back to the calling thread's own DRBG
+ * ({@link SecurityValidator#nextSecureLong()}) instead of waiting.
+ */
+public final class EntropyPool {
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final int lowWater;
+    private final SecureRandom random;
+
+    // Next value to hand out / one past the last value written
+    private final AtomicLong head;
+    private volatile long tail;
+    private final AtomicBoolean refilling;
+
+    // Counters
+    private final LongAdder served;
+    private final LongAdder fallbacks;
+    private final LongAdder refills;
+
+    /**
+     * @param capacity values kept ready, rounded up to a power of two
+     * @param lowWater refill once fewer values than this are left
+     */
+    public EntropyPool(int capacity, int lowWater) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.lowWater = Math.max(0, Math.min(lowWater, size));
+        this.random = new SecureRandom();
+        this.head = new AtomicLong();
+        this.refilling = new AtomicBoolean();
+        this.served = new LongAdder();
+        this.fallbacks = new LongAdder();
+        this.refills = new LongAdder();
+        fill();
+    }
+
+    /**
+     * @return a fresh random long, from the pool if one is ready
+     */
+    public long nextLong() {
+        for (;;) {
+            long h = head.get();
+            if (h >= tail) {
+                fallbacks.increment();
+                return SecurityValidator.nextSecureLong();
+            }
+            // Read before claiming: the slot is only rewritten after head has moved past h,
+            // in which case the CAS fails and the value is not used
+            long value = slots.get((int) h & mask);
+            if (head.compareAndSet(h, h + 1)) {
+                served.increment();
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Tops the pool up if it is below the low-water mark; called from a background task
+     * @return number of values added
+     */
+    public int refill() {
+        if (available() >= lowWater || !refilling.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            return fill();
+        } finally {
+            refilling.set(false);
+        }
+    }
+
+    private int fill() {
+        long start = tail;
+        long end = head.get() + slots.length();
+        int count = (int) (end - start);
+        if (count <= 0) {
+            return 0;
+        }
+        byte[] batch = new byte[count * Long.BYTES];
+        random.nextBytes(batch);
+        ByteBuffer bytes = ByteBuffer.wrap(batch);
+        for (long t = start; t < end; t++) {
+            slots.set((int) t & mask, bytes.getLong());
+        }
+        tail = end;
+        refills.increment();
+        return count;
+    }
+
+    public int available() {
+        return (int) Math.max(0, tail - head.get());
+    }
+
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    public int getLowWater() {
+        return lowWater;
+    }
+
+    public long getServedCount() {
+        return served.sum();
+    }
+
+    public long getFallbackCount() {
+        return fallbacks.sum();
+    }
+
+    public long getRefillCount() {
+        return refills.sum();
+    }
+}
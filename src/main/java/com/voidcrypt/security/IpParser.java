@@ -0,0 +1,195 @@
+package com.voidcrypt.security;
+
+/**
+ * Single-pass IP literal parser
+ * Accepts exactly what validateIP has always accepted: dotted-quad IPv4 (1-3 digit octets)
+ * and IPv6 in full or "::"-compressed hex form, without zone ids or embedded IPv4.
+ * No regexes, exceptions, resolver calls or allocation; the address is written to a
+ * caller-supplied {@code long[2]} in {@link PackedAddress} layout.
+ */
+public final class IpParser {
+
+    public static final int IPV4 = 4;
+    public static final int IPV6 = 6;
+
+    public static final int ERR_EMPTY = -1;
+    public static final int ERR_SYNTAX = -2;
+    public static final int ERR_RANGE = -3;
+
+    private static final long IPV4_MAPPED_PREFIX = 0x0000_FFFF_0000_0000L;
+
+    private IpParser() {
+    }
+
+    /**
+     * Parses {@code text}, ignoring surrounding whitespace
+     * @param out receives hi in out[0] and lo in out[1] on success
+     * @return {@link #IPV4} or {@link #IPV6} for the literal form, or a negative ERR_ code
+     */
+    public static int parse(CharSequence text, long[] out) {
+        if (text == null) {
+            return ERR_EMPTY;
+        }
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return ERR_EMPTY;
+        }
+
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == ':') {
+                return parseIPv6(text, start, end, out);
+            }
+        }
+        return parseIPv4(text, start, end, out);
+    }
+
+    private static int parseIPv4(CharSequence text, int start, int end, long[] out) {
+        long address = 0;
+        int i = start;
+        for (int octet = 0; octet < 4; octet++) {
+            if (octet > 0) {
+                if (i >= end || text.charAt(i) != '.') {
+                    return ERR_SYNTAX;
+                }
+                i++;
+            }
+            int value = 0;
+            int digits = 0;
+            while (i < end && digits < 4) {
+                char c = text.charAt(i);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                value = value * 10 + (c - '0');
+                digits++;
+                i++;
+            }
+            if (digits == 0 || digits > 3) {
+                return ERR_SYNTAX;
+            }
+            if (value > 255) {
+                return ERR_RANGE;
+            }
+            address = (address << 8) | value;
+        }
+        if (i != end) {
+            return ERR_SYNTAX;
+        }
+        out[0] = 0L;
+        out[1] = IPV4_MAPPED_PREFIX | address;
+        return IPV4;
+    }
+
+    private static int parseIPv6(CharSequence text, int start, int end, long[] out) {
+        // Groups before "::" are shifted into head, groups after it into tail
+        long headHi = 0;
+        long headLo = 0;
+        long tailHi = 0;
+        long tailLo = 0;
+        int headCount = 0;
+        int tailCount = 0;
+        boolean compressed = false;
+        int i = start;
+
+        if (text.charAt(i) == ':') {
+            if (i + 1 >= end || text.charAt(i + 1) != ':') {
+                return ERR_SYNTAX;
+            }
+            compressed = true;
+            i += 2;
+            if (i == end) {
+                return ERR_SYNTAX; // "::" alone has never been accepted
+            }
+        }
+
+        while (true) {
+            int group = 0;
+            int digits = 0;
+            while (i < end && digits < 5) {
+                int nibble = hexValue(text.charAt(i));
+                if (nibble < 0) {
+                    break;
+                }
+                group = (group << 4) | nibble;
+                digits++;
+                i++;
+            }
+            if (digits == 0 || digits > 4) {
+                return ERR_SYNTAX;
+            }
+            if (headCount + tailCount == 8) {
+                return ERR_SYNTAX;
+            }
+            if (compressed) {
+                tailHi = (tailHi << 16) | (tailLo >>> 48);
+                tailLo = (tailLo << 16) | group;
+                tailCount++;
+            } else {
+                headHi = (headHi << 16) | (headLo >>> 48);
+                headLo = (headLo << 16) | group;
+                headCount++;
+            }
+
+            if (i == end) {
+                break;
+            }
+            if (text.charAt(i) != ':') {
+                return ERR_SYNTAX;
+            }
+            i++;
+            if (i < end && text.charAt(i) == ':') {
+                if (compressed) {
+                    return ERR_SYNTAX;
+                }
+                compressed = true;
+                i++;
+                if (i == end) {
+                    break;
+                }
+            } else if (i == end) {
+                return ERR_SYNTAX;
+            }
+        }
+
+        if (!compressed) {
+            if (headCount != 8) {
+                return ERR_SYNTAX;
+            }
+            out[0] = headHi;
+            out[1] = headLo;
+            return IPV6;
+        }
+        if (headCount + tailCount > 7) {
+            return ERR_SYNTAX; // "::" must stand for at least one zero group
+        }
+
+        // Move the head groups to the top; the zero groups in between fall out of the shift
+        if (headCount > 0) {
+            int shift = 16 * (8 - headCount);
+            if (shift >= 64) {
+                headHi = headLo << (shift - 64);
+                headLo = 0;
+            } else {
+                headHi = (headHi << shift) | (headLo >>> (64 - shift));
+                headLo <<= shift;
+            }
+        }
+        out[0] = headHi | tailHi;
+        out[1] = headLo | tailLo;
+        return IPV6;
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
+    }
+}
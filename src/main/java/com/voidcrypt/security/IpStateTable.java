@@ -0,0 +1,528 @@
+package com.voidcrypt.security;
+
+import com.voidcrypt.core.TimingWheel;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Unified per-IP state table
+ * One compact record per packed address holding verification, failures, lockout,
+ * suspicion and ban flag, so a packet costs a single lookup instead of one String-keyed
+ * map hit per module. Rate limits live in {@link RateLimits}.
+ *
+ * Records live inline in flat long[] arrays (open addressing, linear probing,
+ * backward-shift deletion). The table is split into independently locked segments.
+ * Time-limited fields expire through the shared timing wheel, so the table is never swept:
+ * each record keeps at most one armed timer, which re-arms for the latest remaining deadline.
+ * Reads compare against the deadlines themselves, so a field is never trusted past its expiry.
+ * Failures and suspicion are forgotten once the address has been idle for the idle period,
+ * so records left by one-off failed attempts are reclaimed too; only bans stay until cleared.
+ */
+public final class IpStateTable {
+
+    // Record layout, in longs per slot
+    private static final int HI = 0;
+    private static final int LO = 1;
+    private static final int FLAGS = 2;
+    private static final int VERIFIED_UNTIL = 3;
+    private static final int LOCKED_UNTIL = 4;
+    private static final int FIRST_SEEN = 5;
+    private static final int LAST_SEEN = 6;
+    private static final int EXPIRY_AT = 7;
+    private static final int STRIDE = 8;
+
+    // FLAGS word: occupied(63) | banned(62) | suspicion(8..39) | failures(0..7)
+    private static final long OCCUPIED = 1L << 63;
+    private static final long BANNED = 1L << 62;
+    private static final int SUSPICION_SHIFT = 8;
+    private static final long SUSPICION_MASK = 0xFFFF_FFFFL << SUSPICION_SHIFT;
+    private static final long FAILURE_MASK = 0xFF;
+
+    private static final long IDLE_BITS = SUSPICION_MASK | FAILURE_MASK;
+    private static final long DEFAULT_IDLE_MS = 60 * 60_000L;
+
+    private static final int SEGMENT_BITS = 6;
+    private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+    private final Segment[] segments;
+    private final TimingWheel expiry;
+    private final long idleMs;
+
+    public IpStateTable(TimingWheel expiry) {
+        this(expiry, DEFAULT_IDLE_MS);
+    }
+
+    /**
+     * @param idleMs failures and suspicion of an address are dropped this long after its last one
+     */
+    public IpStateTable(TimingWheel expiry, long idleMs) {
+        this.expiry = expiry;
+        this.idleMs = idleMs;
+        this.segments = new Segment[1 << SEGMENT_BITS];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Records a successful handshake and clears the failure count
+     */
+    public void markVerified(PackedAddress address, long now, long expiryMs) {
+        long hash = hash(address);
+        Segment seg = segmentFor(hash);
+        synchronized (seg) {
+            int base = seg.findOrInsert(address.hi(), address.lo(), hash);
+            seg.slots[base + VERIFIED_UNTIL] = now + expiryMs;
+            seg.slots[base + FLAGS] &= ~FAILURE_MASK;
+            arm(seg, base, address, now + expiryMs, now);
+        }
+    }
+
+    public boolean isVerified(PackedAddress address, long now) {
+        long hash = hash(address);
+        Segment seg = segmentFor(hash);
+        synchronized (seg) {
+            int base = seg.find(address.hi(), address.lo(), hash);
+            return base >= 0 && now < seg.slots[base + VERIFIED_UNTIL];
+        }
+    }
+
+    /**
+     * @return failure count after this failure (saturates at 255)
+     */
+    public int recordFailure(PackedAddress address, long now) {
+        long hash = hash(address);
+        Segment seg = segmentFor(hash);
+        synchronized (seg) {
+            int base = seg.findOrInsert(address.hi(), address.lo(), hash);
+            long flags = seg.slots[base + FLAGS];
+            long failures = Math.min(FAILURE_MASK, (flags & FAILURE_MASK) + 1);
+            seg.slots[base + FLAGS] = (flags & ~FAILURE_MASK) | failures;
+            touch(seg, base, address, now);
+            return (int) failures;
+        }
+    }
+
+    public int getFailures(PackedAddress address) {
+        long hash = hash(address);
+        Segment seg = segmentFor(hash);
+        synchronized (seg) {
+            int base = seg.find(address.hi(), address.lo(), hash);
+            return base < 0 ? 0 : (int) (seg.slots[base + FLAGS] & FAILURE_MASK);
+        }
+    }
+
+    /**
+     * Starts a lockout and resets the failure count
+     */
+    public void lockOut(PackedAddress address, long now, long durationMs) {
+        long hash = hash(address);
+        Segment seg = segmentFor(hash);
+        synchronized (seg) {
+            int base = seg.findOrInsert(address.hi(), address.lo(), hash);
+            seg.slots[base + LOCKED_UNTIL] = now + durationMs;
+            seg.slots[base + FLAGS] &= ~FAILURE_MASK;
+            arm(seg, base, address, now + durationMs, now);
+        }
+    }
+
+    /**
+     * Checks for an active lockout, clearing it once it has run out
+     */
+    public boolean isLockedOut(PackedAddress address, long now) {
+        long hash = hash(address);
+        Segment seg = segmentFor(hash);
+        synchronized (seg) {
+            int base = seg.find(address.hi(), address.lo(), hash);
+            if (base < 0) return false;
+            long lockedUntil = seg.slots[base + LOCKED_UNTIL];
+            if (lockedUntil == 0) return false;
+            if (now > lockedUntil) {
+                seg.slots[base + LOCKED_UNTIL] = 0;
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @return suspicion level after adding {@code amount}
+     */
+    public int addSuspicion(PackedAddress address, int amount, long now) {
+        long hash = hash(address);
+        Segment seg = segmentFor(hash);
+        synchronized (seg) {
+            int base = seg.findOrInsert(address.hi(), address.lo(), hash);
+            long[] slots = seg.slots;
+            long flags = slots[base + FLAGS];
+            long level = Math.min(0xFFFF_FFFFL, ((flags & SUSPICION_MASK) >>> SUSPICION_SHIFT) + Math.max(0, amount));
+            slots[base + FLAGS] = (flags & ~SUSPICION_MASK) | (level << SUSPICION_SHIFT);
+            touch(seg, base, address, now);
+            return (int) Math.min(Integer.MAX_VALUE, level);
+        }
+    }
+
+    public int getSuspicion(PackedAddress address) {
+        long hash = hash(address);
+        Segment seg = segmentFor(hash);
+        synchronized (seg) {
+            int base = seg.find(address.hi(), address.lo(), hash);
+            return base < 0 ? 0 : suspicionOf(seg.slots[base + FLAGS]);
+        }
+    }
+
+    /**
+     * Visits every address with a non-zero suspicion level.
+     * Runs under the segment lock, so the visitor must not call back into the table.
+     */
+    public void forEachSuspicious(SuspicionVisitor visitor) {
+        for (Segment seg : segments) {
+            synchronized (seg) {
+                long[] slots = seg.slots;
+                for (int base = 0; base < slots.length; base += STRIDE) {
+                    long flags = slots[base + FLAGS];
+                    if ((flags & OCCUPIED) != 0 && (flags & SUSPICION_MASK) != 0) {
+                        visitor.visit(new PackedAddress(slots[base + HI], slots[base + LO]),
+                            suspicionOf(flags), slots[base + FIRST_SEEN], slots[base + LAST_SEEN]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the address was not banned before
+     */
+    public boolean markBanned(PackedAddress address) {
+        long hash = hash(address);
+        Segment seg = segmentFor(hash);
+        synchronized (seg) {
+            int base = seg.findOrInsert(address.hi(), address.lo(), hash);
+            long flags = seg.slots[base + FLAGS];
+            seg.slots[base + FLAGS] = flags | BANNED;
+            return (flags & BANNED) == 0;
+        }
+    }
+
+    public boolean isBanned(PackedAddress address) {
+        long hash = hash(address);
+        Segment seg = segmentFor(hash);
+        synchronized (seg) {
+            int base = seg.find(address.hi(), address.lo(), hash);
+            return base >= 0 && (seg.slots[base + FLAGS] & BANNED) != 0;
+        }
+    }
+
+    public void clearBanned(PackedAddress address) {
+        long hash = hash(address);
+        Segment seg = segmentFor(hash);
+        synchronized (seg) {
+            int base = seg.find(address.hi(), address.lo(), hash);
+            if (base >= 0) {
+                seg.slots[base + FLAGS] &= ~BANNED;
+                if (isIdle(seg.slots, base)) {
+                    seg.remove(base / STRIDE);
+                }
+            }
+        }
+    }
+
+    /**
+     * Visits every banned address. Same locking caveat as {@link #forEachSuspicious}.
+     */
+    public void forEachBanned(Consumer<PackedAddress> visitor) {
+        for (Segment seg : segments) {
+            synchronized (seg) {
+                long[] slots = seg.slots;
+                for (int base = 0; base < slots.length; base += STRIDE) {
+                    long flags = slots[base + FLAGS];
+                    if ((flags & OCCUPIED) != 0 && (flags & BANNED) != 0) {
+                        visitor.accept(new PackedAddress(slots[base + HI], slots[base + LO]));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Visits every record with its raw fields, for snapshots.
+     * Same locking caveat as {@link #forEachSuspicious}.
+     */
+    public void forEachRecord(RecordVisitor visitor) {
+        for (Segment seg : segments) {
+            synchronized (seg) {
+                long[] slots = seg.slots;
+                for (int base = 0; base < slots.length; base += STRIDE) {
+                    long flags = slots[base + FLAGS];
+                    if ((flags & OCCUPIED) != 0) {
+                        visitor.visit(slots[base + HI], slots[base + LO], flags & ~OCCUPIED,
+                            slots[base + VERIFIED_UNTIL], slots[base + LOCKED_UNTIL],
+                            slots[base + FIRST_SEEN], slots[base + LAST_SEEN]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Puts back a record produced by {@link #forEachRecord}, overwriting any live one.
+     * Deadlines that have already passed are dropped; a record with nothing left is skipped.
+     * @return true if the record was kept
+     */
+    public boolean restore(long hi, long lo, long flags, long verifiedUntil, long lockedUntil,
+                           long firstSeen, long lastSeen, long now) {
+        verifiedUntil = verifiedUntil > now ? verifiedUntil : 0;
+        lockedUntil = lockedUntil > now ? lockedUntil : 0;
+        flags &= ~OCCUPIED;
+        long idleUntil = lastSeen + idleMs;
+        if (idleUntil <= now) {
+            flags &= ~IDLE_BITS;
+        }
+        if (flags == 0 && verifiedUntil == 0 && lockedUntil == 0) {
+            return false;
+        }
+        long hash = PackedAddress.hash(hi, lo);
+        Segment seg = segmentFor(hash);
+        synchronized (seg) {
+            int base = seg.findOrInsert(hi, lo, hash);
+            long[] slots = seg.slots;
+            slots[base + FLAGS] = flags | OCCUPIED;
+            slots[base + VERIFIED_UNTIL] = verifiedUntil;
+            slots[base + LOCKED_UNTIL] = lockedUntil;
+            slots[base + FIRST_SEEN] = firstSeen;
+            slots[base + LAST_SEEN] = lastSeen;
+            long deadline = Math.max(verifiedUntil, lockedUntil);
+            if ((flags & IDLE_BITS) != 0) {
+                deadline = Math.max(deadline, idleUntil);
+            }
+            if (deadline != 0) {
+                arm(seg, base, new PackedAddress(hi, lo), deadline, now);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Grows the segments up front for about {@code expected} records, so a bulk restore
+     * does not rehash each segment a dozen times on the way up
+     */
+    public void reserve(int expected) {
+        long perSegment = (long) expected / segments.length + 1;
+        // Same 3/4 load factor as findOrInsert, with headroom for uneven segments
+        long needed = perSegment * 3 / 2 + 1;
+        int capacity = (int) Math.min(1L << 26, Long.highestOneBit(needed - 1) << 1);
+        for (Segment seg : segments) {
+            synchronized (seg) {
+                if (seg.mask + 1 < capacity) {
+                    seg.resize(capacity);
+                }
+            }
+        }
+    }
+
+    /**
+     * Notes activity on the record and makes sure its failures and suspicion will be reclaimed
+     * once it goes idle. Must hold the segment lock.
+     */
+    private void touch(Segment seg, int base, PackedAddress address, long now) {
+        long[] slots = seg.slots;
+        if (slots[base + FIRST_SEEN] == 0) {
+            slots[base + FIRST_SEEN] = now;
+        }
+        slots[base + LAST_SEEN] = now;
+        arm(seg, base, address, now + idleMs, now);
+    }
+
+    /**
+     * Schedules the record's timer unless one is already armed; that one re-arms
+     * for whatever is still live when it fires. Must hold the segment lock.
+     */
+    private void arm(Segment seg, int base, PackedAddress address, long deadline, long now) {
+        if (seg.slots[base + EXPIRY_AT] != 0) {
+            return;
+        }
+        seg.slots[base + EXPIRY_AT] = deadline;
+        expiry.schedule(timeout -> expire(address, deadline), deadline - now);
+    }
+
+    /**
+     * Clears every field whose deadline has passed, including failures and suspicion of an
+     * address idle for the idle period, re-arms for the last one and drops the record once
+     * nothing is left. Ban flags are kept until cleared.
+     */
+    private void expire(PackedAddress address, long now) {
+        long hash = hash(address);
+        Segment seg = segmentFor(hash);
+        synchronized (seg) {
+            int base = seg.find(address.hi(), address.lo(), hash);
+            if (base < 0) return;
+            long[] slots = seg.slots;
+            if (slots[base + EXPIRY_AT] <= now) {
+                slots[base + EXPIRY_AT] = 0;
+            }
+
+            long next = 0;
+            for (int field = VERIFIED_UNTIL; field <= LOCKED_UNTIL; field++) {
+                long until = slots[base + field];
+                if (until != 0 && until <= now) {
+                    slots[base + field] = 0;
+                } else if (until != 0) {
+                    next = Math.max(next, until);
+                }
+            }
+            if ((slots[base + FLAGS] & IDLE_BITS) != 0) {
+                long idleUntil = slots[base + LAST_SEEN] + idleMs;
+                if (idleUntil <= now) {
+                    slots[base + FLAGS] &= ~IDLE_BITS;
+                } else {
+                    next = Math.max(next, idleUntil);
+                }
+            }
+
+            if (isIdle(slots, base)) {
+                seg.remove(base / STRIDE);
+            } else if (next != 0) {
+                arm(seg, base, address, next, now);
+            }
+        }
+    }
+
+    /**
+     * Number of tracked addresses
+     */
+    public int size() {
+        int size = 0;
+        for (Segment seg : segments) {
+            synchronized (seg) {
+                size += seg.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Bytes held by the slot arrays, for diagnostics
+     */
+    public long getFootprintBytes() {
+        long bytes = 0;
+        for (Segment seg : segments) {
+            synchronized (seg) {
+                bytes += 16L + seg.slots.length * 8L;
+            }
+        }
+        return bytes;
+    }
+
+    private static boolean isIdle(long[] slots, int base) {
+        if ((slots[base + FLAGS] & ~OCCUPIED) != 0) return false;
+        return slots[base + VERIFIED_UNTIL] == 0 && slots[base + LOCKED_UNTIL] == 0;
+    }
+
+    private static int suspicionOf(long flags) {
+        return (int) Math.min(Integer.MAX_VALUE, (flags & SUSPICION_MASK) >>> SUSPICION_SHIFT);
+    }
+
+    private static long hash(PackedAddress address) {
+        return PackedAddress.hash(address.hi(), address.lo());
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> (64 - SEGMENT_BITS))];
+    }
+
+    @FunctionalInterface
+    public interface SuspicionVisitor {
+        void visit(PackedAddress address, int level, long firstSeen, long lastSeen);
+    }
+
+    @FunctionalInterface
+    public interface RecordVisitor {
+        void visit(long hi, long lo, long flags, long verifiedUntil, long lockedUntil, long firstSeen, long lastSeen);
+    }
+
+    /**
+     * One open-addressed slot array; all access is under the segment's monitor
+     */
+    private static final class Segment {
+        long[] slots = new long[INITIAL_SEGMENT_CAPACITY * STRIDE];
+        int mask = INITIAL_SEGMENT_CAPACITY - 1;
+        int size;
+
+        /**
+         * @return base offset of the record, or -1 if absent
+         */
+        int find(long hi, long lo, long hash) {
+            int index = (int) hash & mask;
+            while (true) {
+                int base = index * STRIDE;
+                if ((slots[base + FLAGS] & OCCUPIED) == 0) return -1;
+                if (slots[base + HI] == hi && slots[base + LO] == lo) return base;
+                index = (index + 1) & mask;
+            }
+        }
+
+        int findOrInsert(long hi, long lo, long hash) {
+            int base = find(hi, lo, hash);
+            if (base >= 0) return base;
+
+            // Keep the load factor at or below 3/4
+            if ((size + 1) * 4L > (mask + 1) * 3L) {
+                resize();
+            }
+            int index = (int) hash & mask;
+            while ((slots[index * STRIDE + FLAGS] & OCCUPIED) != 0) {
+                index = (index + 1) & mask;
+            }
+            base = index * STRIDE;
+            slots[base + HI] = hi;
+            slots[base + LO] = lo;
+            slots[base + FLAGS] = OCCUPIED;
+            size++;
+            return base;
+        }
+
+        /**
+         * Backward-shift deletion: pulls later records of the same probe run
+         * into the hole so lookups never need tombstones
+         */
+        void remove(int hole) {
+            int index = hole;
+            while (true) {
+                index = (index + 1) & mask;
+                int base = index * STRIDE;
+                if ((slots[base + FLAGS] & OCCUPIED) == 0) break;
+
+                int home = (int) PackedAddress.hash(slots[base + HI], slots[base + LO]) & mask;
+                // Move only if the hole lies cyclically between home and current position
+                boolean movable = hole <= index
+                    ? home <= hole || home > index
+                    : home <= hole && home > index;
+                if (movable) {
+                    System.arraycopy(slots, base, slots, hole * STRIDE, STRIDE);
+                    hole = index;
+                }
+            }
+            Arrays.fill(slots, hole * STRIDE, hole * STRIDE + STRIDE, 0L);
+            size--;
+        }
+
+        private void resize() {
+            resize((mask + 1) * 2);
+        }
+
+        void resize(int capacity) {
+            long[] old = slots;
+            slots = new long[capacity * STRIDE];
+            mask = capacity - 1;
+            for (int base = 0; base < old.length; base += STRIDE) {
+                if ((old[base + FLAGS] & OCCUPIED) == 0) continue;
+                int index = (int) PackedAddress.hash(old[base + HI], old[base + LO]) & mask;
+                while ((slots[index * STRIDE + FLAGS] & OCCUPIED) != 0) {
+                    index = (index + 1) & mask;
+                }
+                System.arraycopy(old, base, slots, index * STRIDE, STRIDE);
+            }
+        }
+    }
+}
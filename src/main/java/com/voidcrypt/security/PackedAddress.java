@@ -0,0 +1,161 @@
+package com.voidcrypt.security;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+/**
+ * IP address packed into two longs (network byte order).
+ * IPv4 is stored in its IPv4-mapped IPv6 form (::ffff:a.b.c.d), so "1.2.3.4" and
+ * "::ffff:1.2.3.4" resolve to the same key: hi = 0, lo = 0x0000FFFF_xxxxxxxx.
+ */
+public record PackedAddress(long hi, long lo) {
+
+    private static final long IPV4_MAPPED_PREFIX = 0x0000_FFFF_0000_0000L;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Packs a textual IP address that already passed {@link SecurityValidator#validateIP(String)}
+     * @return packed address, or null if it is not an IP literal
+     */
+    public static PackedAddress of(String validatedIP) {
+        long[] parsed = new long[2];
+        if (IpParser.parse(validatedIP, parsed) < 0) {
+            return null;
+        }
+        return new PackedAddress(parsed[0], parsed[1]);
+    }
+
+    /**
+     * Packs the remote address ProtocolLib hands us, with no string round trip
+     * @return packed address, or null if there is none or it was never resolved
+     */
+    public static PackedAddress of(InetSocketAddress socketAddress) {
+        if (socketAddress == null || socketAddress.getAddress() == null) {
+            return null;
+        }
+        return of(socketAddress.getAddress());
+    }
+
+    public static PackedAddress of(InetAddress address) {
+        byte[] raw = address.getAddress();
+        if (raw.length == 4) {
+            return ofIPv4(readInt(raw, 0));
+        }
+        return new PackedAddress(readLong(raw, 0), readLong(raw, 8));
+    }
+
+    public static PackedAddress ofIPv4(int address) {
+        return new PackedAddress(0L, IPV4_MAPPED_PREFIX | (address & 0xFFFF_FFFFL));
+    }
+
+    public boolean isIPv4() {
+        return isIPv4(hi, lo);
+    }
+
+    static boolean isIPv4(long hi, long lo) {
+        return hi == 0L && (lo & 0xFFFF_FFFF_0000_0000L) == IPV4_MAPPED_PREFIX;
+    }
+
+    /**
+     * 127.0.0.0/8 or ::1, matching {@link InetAddress#isLoopbackAddress()}
+     */
+    static boolean isLoopback(long hi, long lo) {
+        if (isIPv4(hi, lo)) {
+            return ((lo >>> 24) & 0xFF) == 127;
+        }
+        return hi == 0L && lo == 1L;
+    }
+
+    /**
+     * Loopback, site-local or link-local, matching the InetAddress checks it replaces
+     */
+    static boolean isPrivate(long hi, long lo) {
+        if (isLoopback(hi, lo)) {
+            return true;
+        }
+        if (isIPv4(hi, lo)) {
+            int address = (int) lo;
+            return (address >>> 24) == 10                   // 10.0.0.0/8
+                || (address >>> 20) == 0xAC1                // 172.16.0.0/12
+                || (address >>> 16) == 0xC0A8               // 192.168.0.0/16
+                || (address >>> 16) == 0xA9FE;              // 169.254.0.0/16
+        }
+        int prefix = (int) (hi >>> 54);
+        return prefix == (0xFEC0 >>> 6) || prefix == (0xFE80 >>> 6); // fec0::/10, fe80::/10
+    }
+
+    /**
+     * Network this address belongs to, with host bits cleared
+     * @param ipv4Bits prefix length for IPv4 addresses (0-32)
+     * @param ipv6Bits prefix length for IPv6 addresses (0-128)
+     */
+    public PackedAddress prefix(int ipv4Bits, int ipv6Bits) {
+        if (isIPv4()) {
+            int bits = Math.max(0, Math.min(32, ipv4Bits));
+            long hostMask = bits == 0 ? 0xFFFF_FFFFL : (1L << (32 - bits)) - 1;
+            return new PackedAddress(hi, lo & ~hostMask);
+        }
+        int bits = Math.max(0, Math.min(128, ipv6Bits));
+        long hiMask = bits >= 64 ? -1L : bits == 0 ? 0L : -1L << (64 - bits);
+        long loMask = bits <= 64 ? 0L : bits == 128 ? -1L : -1L << (128 - bits);
+        return new PackedAddress(hi & hiMask, lo & loMask);
+    }
+
+    /**
+     * Spreads both halves over all 64 bits for table indexing
+     */
+    public static long hash(long hi, long lo) {
+        long h = hi * 0x9E37_79B9_7F4A_7C15L ^ lo;
+        h ^= h >>> 33;
+        h *= 0xFF51_AFD7_ED55_8CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CE_B9FE_1A85_EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Formats the address the same way {@link SecurityValidator#validateIP(String)} returns it
+     */
+    public static String format(long hi, long lo) {
+        if (isIPv4(hi, lo)) {
+            return ((lo >>> 24) & 0xFF) + "." + ((lo >>> 16) & 0xFF) + "." + ((lo >>> 8) & 0xFF) + "." + (lo & 0xFF);
+        }
+        // Eight uncompressed lowercase groups without leading zeros, as getHostAddress() prints them
+        char[] buf = new char[39];
+        int length = 0;
+        for (int group = 0; group < 8; group++) {
+            int value = (int) ((group < 4 ? hi >>> (48 - 16 * group) : lo >>> (112 - 16 * group)) & 0xFFFF);
+            if (group > 0) {
+                buf[length++] = ':';
+            }
+            boolean started = false;
+            for (int shift = 12; shift >= 0; shift -= 4) {
+                int nibble = (value >>> shift) & 0xF;
+                if (started || nibble != 0 || shift == 0) {
+                    buf[length++] = HEX[nibble];
+                    started = true;
+                }
+            }
+        }
+        return new String(buf, 0, length);
+    }
+
+    @Override
+    public String toString() {
+        return format(hi, lo);
+    }
+
+    private static int readInt(byte[] buf, int offset) {
+        return ((buf[offset] & 0xFF) << 24) | ((buf[offset + 1] & 0xFF) << 16)
+            | ((buf[offset + 2] & 0xFF) << 8) | (buf[offset + 3] & 0xFF);
+    }
+
+    private static long readLong(byte[] buf, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (buf[offset + i] & 0xFF);
+        }
+        return value;
+    }
+}
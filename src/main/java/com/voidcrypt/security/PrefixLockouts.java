@@ -0,0 +1,267 @@
+package com.voidcrypt.security;
+
+import com.voidcrypt.core.TimingWheel;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * Handshake failures aggregated by network prefix
+ * Exact addresses are counted in {@link IpStateTable}; this counts the same failures for
+ * each configured prefix (e.g. /24 and /16, /64 and /48) in a count-min sketch of fixed size
+ * (conservative update),
+ * so a botnet rotating through a subnet still adds up. Once a prefix's failures in the
+ * current window reach its threshold the whole prefix is locked out; the lockout expires
+ * on the timing wheel.
+ *
+ * The sketch keeps two generations of counters, the current window and the one before,
+ * so a prefix's count covers between one and two windows and never needs a sweep. A new
+ * window swaps in a freshly zeroed array instead of clearing one in place, so an update racing
+ * the rotation lands in the generation that has just become the previous one and still counts.
+ */
+public final class PrefixLockouts {
+
+    private static final VarHandle COUNTERS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private static final int DEPTH = 4;
+
+    private final Level[] levels;
+    private final int width;
+    private final int mask;
+    private final long windowMs;
+    private final long lockoutMs;
+    private final TimingWheel expiry;
+
+    // Current and previous generation of DEPTH rows x width counters, replaced together
+    private final AtomicReference<Generations> generations;
+
+    // One map per level: prefix address -> locked until
+    private final List<Map<PackedAddress, Long>> lockouts;
+
+    /**
+     * @param width counters per sketch row, rounded up to a power of two
+     */
+    public PrefixLockouts(List<Level> levels, int width, long windowMs, long lockoutMs, TimingWheel expiry) {
+        if (windowMs <= 0) {
+            throw new IllegalArgumentException("window must be positive");
+        }
+        this.levels = levels.toArray(new Level[0]);
+        int size = Integer.highestOneBit(Math.max(2, width - 1)) << 1;
+        this.width = size;
+        this.mask = size - 1;
+        this.windowMs = windowMs;
+        this.lockoutMs = lockoutMs;
+        this.expiry = expiry;
+        this.generations = new AtomicReference<>(
+            new Generations(Long.MIN_VALUE, new int[DEPTH * size], new int[DEPTH * size]));
+        this.lockouts = new ArrayList<>();
+        for (int i = 0; i < this.levels.length; i++) {
+            lockouts.add(new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Reads rate-limiting.prefix-lockout; entries under ipv4/ipv6 map "/bits" to a failure threshold
+     */
+    public static PrefixLockouts fromConfig(ConfigurationSection section, long lockoutMs, TimingWheel expiry,
+                                            Logger logger) {
+        List<Level> levels = new ArrayList<>();
+        int width = 16_384;
+        long windowMs = 600_000;
+        if (section != null && section.getBoolean("enabled", true)) {
+            width = section.getInt("sketch-width", width);
+            long windowSeconds = section.getLong("window-seconds", windowMs / 1000);
+            if (windowSeconds > 0) {
+                windowMs = windowSeconds * 1000;
+            } else {
+                logger.warning("Invalid prefix-lockout window-seconds " + windowSeconds + " - using "
+                    + windowMs / 1000);
+            }
+            readLevels(section.getConfigurationSection("ipv4"), false, levels, logger);
+            readLevels(section.getConfigurationSection("ipv6"), true, levels, logger);
+        }
+        return new PrefixLockouts(levels, width, windowMs, lockoutMs, expiry);
+    }
+
+    private static void readLevels(ConfigurationSection section, boolean ipv6, List<Level> levels, Logger logger) {
+        if (section == null) {
+            return;
+        }
+        int maxBits = ipv6 ? 128 : 32;
+        for (String key : section.getKeys(false)) {
+            try {
+                int bits = Integer.parseInt(key.startsWith("/") ? key.substring(1) : key);
+                int threshold = section.getInt(key);
+                if (bits <= 0 || bits >= maxBits || threshold <= 0) {
+                    throw new IllegalArgumentException("prefix must be below /" + maxBits + ", threshold positive");
+                }
+                levels.add(new Level(ipv6, bits, threshold));
+            } catch (IllegalArgumentException e) {
+                logger.warning("Invalid prefix-lockout level '" + key + "': " + e.getMessage() + " - ignored");
+            }
+        }
+    }
+
+    /**
+     * Counts a failure for every prefix containing the address
+     * @return the narrowest prefix this failure locked out, or null if none
+     */
+    public PackedAddress recordFailure(PackedAddress address, long now) {
+        Generations generation = rotate(now);
+        int[] counters = generation.current();
+        int[] previous = generation.previous();
+        boolean ipv6 = !address.isIPv4();
+        PackedAddress escalated = null;
+        for (int i = 0; i < levels.length; i++) {
+            Level level = levels[i];
+            if (level.ipv6() != ipv6) {
+                continue;
+            }
+            PackedAddress prefix = level.prefixOf(address);
+            long hash = hash(prefix, i);
+            // Conservative update: only rows at the current minimum move, which keeps hash
+            // collisions from inflating the other rows
+            int current = Integer.MAX_VALUE;
+            for (int row = 0; row < DEPTH; row++) {
+                current = Math.min(current, (int) COUNTERS.getOpaque(counters, index(hash, row)));
+            }
+            int target = current + 1;
+            int estimate = Integer.MAX_VALUE;
+            for (int row = 0; row < DEPTH; row++) {
+                int index = index(hash, row);
+                int count = (int) COUNTERS.getVolatile(counters, index);
+                while (count < target && !COUNTERS.compareAndSet(counters, index, count, target)) {
+                    count = (int) COUNTERS.getVolatile(counters, index);
+                }
+                estimate = Math.min(estimate, Math.max(count, target) + (int) COUNTERS.getOpaque(previous, index));
+            }
+            if (estimate >= level.threshold() && lockOut(i, prefix, now) && escalated == null) {
+                escalated = prefix;
+            }
+        }
+        return escalated;
+    }
+
+    /**
+     * @return the locked-out prefix containing the address, or null
+     */
+    public PackedAddress lockedPrefix(PackedAddress address, long now) {
+        boolean ipv6 = !address.isIPv4();
+        for (int i = 0; i < levels.length; i++) {
+            if (levels[i].ipv6() != ipv6 || lockouts.get(i).isEmpty()) {
+                continue;
+            }
+            PackedAddress prefix = levels[i].prefixOf(address);
+            Long until = lockouts.get(i).get(prefix);
+            if (until != null && until > now) {
+                return prefix;
+            }
+        }
+        return null;
+    }
+
+    public boolean isLockedOut(PackedAddress address, long now) {
+        return lockedPrefix(address, now) != null;
+    }
+
+    /**
+     * Estimated failures for the prefix at the given level (over-counts, never under-counts)
+     */
+    public int estimate(PackedAddress address, int levelIndex, long now) {
+        Generations generation = rotate(now);
+        int[] counters = generation.current();
+        int[] previous = generation.previous();
+        long hash = hash(levels[levelIndex].prefixOf(address), levelIndex);
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = index(hash, row);
+            estimate = Math.min(estimate,
+                (int) COUNTERS.getOpaque(counters, index) + (int) COUNTERS.getOpaque(previous, index));
+        }
+        return estimate;
+    }
+
+    private boolean lockOut(int levelIndex, PackedAddress prefix, long now) {
+        Map<PackedAddress, Long> locked = lockouts.get(levelIndex);
+        Long until = now + lockoutMs;
+        Long existing = locked.putIfAbsent(prefix, until);
+        if (existing != null) {
+            if (existing > now || !locked.replace(prefix, existing, until)) {
+                return false;
+            }
+        }
+        expiry.schedule(timeout -> locked.remove(prefix, until), lockoutMs);
+        return true;
+    }
+
+    /**
+     * @return the generations for the window containing {@code now}, rotated in if it is new
+     */
+    private Generations rotate(long now) {
+        long window = now / windowMs;
+        while (true) {
+            Generations current = generations.get();
+            if (window <= current.window()) {
+                return current;
+            }
+            // More than a window without failures: the previous generation is stale too
+            int[] previous = window == current.window() + 1 ? current.current() : new int[DEPTH * width];
+            Generations next = new Generations(window, new int[DEPTH * width], previous);
+            if (generations.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    private static long hash(PackedAddress prefix, int levelIndex) {
+        return PackedAddress.hash(prefix.hi() ^ (levelIndex + 1) * 0x9E37_79B9_7F4A_7C15L, prefix.lo());
+    }
+
+    private int index(long hash, int row) {
+        // Double hashing: row i probes h1 + i * h2
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return row * width + ((h1 + row * h2) & mask);
+    }
+
+    public List<Level> getLevels() {
+        return List.of(levels);
+    }
+
+    public int getLockedPrefixCount() {
+        int count = 0;
+        for (Map<PackedAddress, Long> locked : lockouts) {
+            count += locked.size();
+        }
+        return count;
+    }
+
+    public long getFootprintBytes() {
+        return 2L * DEPTH * width * Integer.BYTES;
+    }
+
+    private record Generations(long window, int[] current, int[] previous) {
+    }
+
+    /**
+     * @param bits      prefix length within the address family
+     * @param threshold failures within a window that lock the prefix out
+     */
+    public record Level(boolean ipv6, int bits, int threshold) {
+        PackedAddress prefixOf(PackedAddress address) {
+            return address.prefix(bits, bits);
+        }
+
+        @Override
+        public String toString() {
+            return (ipv6 ? "IPv6 /" : "IPv4 /") + bits;
+        }
+    }
+}
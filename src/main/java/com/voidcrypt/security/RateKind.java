@@ -0,0 +1,24 @@
+package com.voidcrypt.security;
+
+/**
+ * Named rate-limit buckets, each configured under rate-limiting.buckets.&lt;config key&gt;
+ */
+public enum RateKind {
+    CHALLENGE("challenge"),
+    HONEYPOT("honeypot"),
+    FIREWALL("firewall"),
+    LOGIN("login"),                       // login attempts per address, before any other work
+    STATUS("status"),                     // server-list pings per address
+    ADMISSION("admission"),               // new unverified logins, server-wide (one key)
+    ADMISSION_SUBNET("admission-subnet"); // new unverified logins per /24 or /48
+
+    private final String configKey;
+
+    RateKind(String configKey) {
+        this.configKey = configKey;
+    }
+
+    public String getConfigKey() {
+        return configKey;
+    }
+}
@@ -0,0 +1,277 @@
+package com.voidcrypt.security;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free per-key rate limiter
+ * Keys are 64-bit address hashes kept in a fixed-size open-addressed table of (key, state)
+ * long pairs. Each state is one packed word updated with CAS, so concurrent callers never
+ * block and the table never grows: when a probe window is full the least recently active
+ * key in it is evicted, which only ever forgets an attacker's oldest entries.
+ */
+public final class RateLimiter {
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final int PROBE_WINDOW = 8;
+    private static final int MAX_LIMIT = 0xFFFF;
+
+    // Token bucket word: last refill time (44 bits, ms) | tokens in 1/16ths (20 bits)
+    private static final int TOKEN_BITS = 20;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final long TOKEN_UNIT = 16;
+
+    // Sliding window word: window index (32 bits) | previous count (16 bits) | current count (16 bits)
+    private static final int COUNT_BITS = 16;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private final String name;
+    private final Policy policy;
+    private final int limit;
+    private final int burst;
+    private final long periodMs;
+    private final long[] slots;
+    private final int mask;
+    private final LongAdder rejected;
+
+    /**
+     * @param limit    requests allowed per period
+     * @param burst    token bucket capacity; ignored by the sliding window
+     * @param capacity keys tracked at once, rounded up to a power of two
+     */
+    public RateLimiter(String name, Policy policy, int limit, int burst, long periodMs, int capacity) {
+        if (limit < 1 || limit > MAX_LIMIT || burst < 1 || burst > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit and burst must be between 1 and " + MAX_LIMIT);
+        }
+        if (periodMs < 1_000) {
+            throw new IllegalArgumentException("period must be at least one second");
+        }
+        int tableSize = Integer.highestOneBit(Math.max(PROBE_WINDOW, capacity) - 1) << 1;
+        this.name = name;
+        this.policy = policy;
+        this.limit = limit;
+        this.burst = burst;
+        this.periodMs = periodMs;
+        this.slots = new long[tableSize * 2];
+        this.mask = tableSize - 1;
+        this.rejected = new LongAdder();
+    }
+
+    /**
+     * 64-bit key for a free-form identifier (FNV-1a, then mixed)
+     */
+    public static long keyOf(CharSequence identifier) {
+        long h = 0xCBF2_9CE4_8422_2325L;
+        for (int i = 0; i < identifier.length(); i++) {
+            h ^= identifier.charAt(i);
+            h *= 0x0000_0100_0000_01B3L;
+        }
+        return PackedAddress.hash(h, identifier.length());
+    }
+
+    public boolean tryAcquire(PackedAddress address, long now) {
+        return tryAcquire(PackedAddress.hash(address.hi(), address.lo()), now);
+    }
+
+    /**
+     * Takes one permit for {@code key}
+     * @return true if the request is within the limit
+     */
+    public boolean tryAcquire(long key, long now) {
+        if (key == 0) {
+            key = 1; // 0 marks an empty slot
+        }
+        int slot = slotFor(key);
+        int stateIndex = slot * 2 + 1;
+
+        while (true) {
+            long state = (long) SLOTS.getVolatile(slots, stateIndex);
+            long next = policy == Policy.TOKEN_BUCKET ? takeToken(state, now) : countInWindow(state, now);
+            if (next == state) {
+                rejected.increment();
+                return false;
+            }
+            if (SLOTS.compareAndSet(slots, stateIndex, state, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Finds the key's slot, claiming an empty one or evicting the stalest in its probe window
+     */
+    private int slotFor(long key) {
+        int start = (int) (key ^ (key >>> 32)) & mask;
+        while (true) {
+            int victim = -1;
+            long victimKey = 0;
+            long victimActive = Long.MAX_VALUE;
+            for (int probe = 0; probe < PROBE_WINDOW; probe++) {
+                int slot = (start + probe) & mask;
+                long current = (long) SLOTS.getVolatile(slots, slot * 2);
+                if (current == key) {
+                    return slot;
+                }
+                if (current == 0) {
+                    if (SLOTS.compareAndSet(slots, slot * 2, 0L, key)) {
+                        return slot;
+                    }
+                    probe--; // lost the race; look at the same slot again
+                    continue;
+                }
+                long active = lastActive((long) SLOTS.getVolatile(slots, slot * 2 + 1));
+                if (active < victimActive) {
+                    victim = slot;
+                    victimKey = current;
+                    victimActive = active;
+                }
+            }
+            // A caller still holding the evicted key may land one last update on the fresh state
+            if (SLOTS.compareAndSet(slots, victim * 2, victimKey, key)) {
+                SLOTS.setVolatile(slots, victim * 2 + 1, 0L);
+                return victim;
+            }
+        }
+    }
+
+    /**
+     * @return the updated word, or {@code state} itself if no token is available
+     */
+    private long takeToken(long state, long now) {
+        long tokens;
+        if (state == 0) {
+            tokens = burst * TOKEN_UNIT;
+        } else {
+            long last = state >>> TOKEN_BITS;
+            long elapsed = Math.min(Math.max(0, now - last), periodMs);
+            long refill = elapsed * limit * TOKEN_UNIT / periodMs;
+            tokens = (state & TOKEN_MASK) + refill;
+            if (tokens >= burst * TOKEN_UNIT) {
+                tokens = burst * TOKEN_UNIT;
+            } else {
+                // Only advance by the time actually turned into tokens, so slow refills add up
+                now = Math.min(now, last + refill * periodMs / (limit * TOKEN_UNIT));
+            }
+            if (tokens < TOKEN_UNIT) {
+                return state;
+            }
+        }
+        return (now << TOKEN_BITS) | (tokens - TOKEN_UNIT);
+    }
+
+    /**
+     * Two-window approximation: the previous window's count is weighted by how much of it
+     * still overlaps the trailing period
+     */
+    private long countInWindow(long state, long now) {
+        long stateWindow = state >>> (2 * COUNT_BITS);
+        long window = Math.max(now / periodMs, stateWindow); // never step back if the clock does
+        long previous;
+        long current;
+        if (state == 0 || window - stateWindow > 1) {
+            previous = 0;
+            current = 0;
+        } else if (window == stateWindow) {
+            previous = (state >>> COUNT_BITS) & COUNT_MASK;
+            current = state & COUNT_MASK;
+        } else {
+            previous = state & COUNT_MASK;
+            current = 0;
+        }
+        long overlap = periodMs - Math.min(Math.max(0, now - window * periodMs), periodMs);
+        if (previous * overlap + current * periodMs >= (long) limit * periodMs) {
+            return state;
+        }
+        return (window << (2 * COUNT_BITS)) | (previous << COUNT_BITS) | (current + 1);
+    }
+
+    /**
+     * Visits every tracked key with its raw state word, for snapshots.
+     * Entries are read one at a time, so a concurrent update may or may not be seen.
+     */
+    public void forEachEntry(EntryVisitor visitor) {
+        for (int slot = 0; slot <= mask; slot++) {
+            long key = (long) SLOTS.getVolatile(slots, slot * 2);
+            long state = (long) SLOTS.getVolatile(slots, slot * 2 + 1);
+            if (key != 0 && state != 0) {
+                visitor.visit(key, state);
+            }
+        }
+    }
+
+    /**
+     * Puts back a state word produced by {@link #forEachEntry} by a limiter with the same
+     * policy and period. Entries that would already have been fully refilled are skipped.
+     * @return true if the entry was kept
+     */
+    public boolean restore(long key, long state, long now) {
+        if (key == 0 || state == 0 || lastActive(state) + forgetAfterMs() <= now) {
+            return false;
+        }
+        SLOTS.setVolatile(slots, slotFor(key) * 2 + 1, state);
+        return true;
+    }
+
+    /**
+     * Idle time after which a state word is no different from a fresh one
+     */
+    private long forgetAfterMs() {
+        if (policy == Policy.TOKEN_BUCKET) {
+            return periodMs * ((burst + limit - 1) / limit);
+        }
+        return 2 * periodMs;
+    }
+
+    private long lastActive(long state) {
+        if (policy == Policy.TOKEN_BUCKET) {
+            return state >>> TOKEN_BITS;
+        }
+        return (state >>> (2 * COUNT_BITS)) * periodMs;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public long getPeriodMs() {
+        return periodMs;
+    }
+
+    /**
+     * Requests turned away since startup
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @FunctionalInterface
+    public interface EntryVisitor {
+        void visit(long key, long state);
+    }
+
+    public enum Policy {
+        TOKEN_BUCKET,
+        SLIDING_WINDOW;
+
+        public static Policy fromConfig(String value) {
+            if (value != null && value.trim().equalsIgnoreCase("sliding-window")) {
+                return SLIDING_WINDOW;
+            }
+            return TOKEN_BUCKET;
+        }
+    }
+}
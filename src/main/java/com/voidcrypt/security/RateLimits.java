@@ -0,0 +1,73 @@
+package com.voidcrypt.security;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.logging.Logger;
+
+/**
+ * One {@link RateLimiter} per {@link RateKind}, built from the rate-limiting section of config.yml
+ */
+public final class RateLimits {
+
+    private static final int DEFAULT_LIMIT = 30;
+    private static final int DEFAULT_PERIOD_SECONDS = 60;
+    private static final int DEFAULT_TABLE_SIZE = 65_536;
+
+    private final RateLimiter[] limiters;
+
+    public RateLimits(RateLimiter[] limiters) {
+        if (limiters.length != RateKind.values().length) {
+            throw new IllegalArgumentException("Expected one limiter per RateKind");
+        }
+        this.limiters = limiters.clone();
+    }
+
+    /**
+     * Reads rate-limiting.buckets.&lt;kind&gt;; missing values fall back to max-attempts-per-minute
+     * and a token bucket, invalid ones are logged and replaced by the defaults
+     */
+    public static RateLimits fromConfig(ConfigurationSection rateLimiting, Logger logger) {
+        int defaultLimit = rateLimiting != null
+            ? rateLimiting.getInt("max-attempts-per-minute", DEFAULT_LIMIT) : DEFAULT_LIMIT;
+        int tableSize = rateLimiting != null
+            ? rateLimiting.getInt("table-size", DEFAULT_TABLE_SIZE) : DEFAULT_TABLE_SIZE;
+
+        RateLimiter[] limiters = new RateLimiter[RateKind.values().length];
+        for (RateKind kind : RateKind.values()) {
+            ConfigurationSection bucket = rateLimiting != null
+                ? rateLimiting.getConfigurationSection("buckets." + kind.getConfigKey()) : null;
+            RateLimiter.Policy policy = RateLimiter.Policy.TOKEN_BUCKET;
+            int limit = defaultLimit;
+            int burst = -1;
+            long periodSeconds = DEFAULT_PERIOD_SECONDS;
+            if (bucket != null) {
+                policy = RateLimiter.Policy.fromConfig(bucket.getString("policy", "token-bucket"));
+                limit = bucket.getInt("limit", defaultLimit);
+                burst = bucket.getInt("burst", -1);
+                periodSeconds = bucket.getLong("period-seconds", DEFAULT_PERIOD_SECONDS);
+            }
+
+            try {
+                limiters[kind.ordinal()] = new RateLimiter(kind.getConfigKey(), policy, limit,
+                    burst > 0 ? burst : limit, periodSeconds * 1000, tableSize);
+            } catch (IllegalArgumentException e) {
+                logger.warning("Invalid rate-limiting bucket '" + kind.getConfigKey() + "': "
+                    + e.getMessage() + " - using defaults");
+                limiters[kind.ordinal()] = new RateLimiter(kind.getConfigKey(), RateLimiter.Policy.TOKEN_BUCKET,
+                    DEFAULT_LIMIT, DEFAULT_LIMIT, DEFAULT_PERIOD_SECONDS * 1000L, DEFAULT_TABLE_SIZE);
+            }
+        }
+        return new RateLimits(limiters);
+    }
+
+    /**
+     * @return true if the request should be allowed
+     */
+    public boolean tryAcquire(RateKind kind, PackedAddress address, long now) {
+        return limiters[kind.ordinal()].tryAcquire(address, now);
+    }
+
+    public RateLimiter get(RateKind kind) {
+        return limiters[kind.ordinal()];
+    }
+}
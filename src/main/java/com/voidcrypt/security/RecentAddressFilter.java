@@ -0,0 +1,138 @@
+package com.voidcrypt.security;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Addresses seen within a trailing window, in fixed memory
+ * The window is cut into slices; each slice has its own Bloom filter and one more filter
+ * holds the slice being filled. An address is recorded in the current filter only and looked
+ * up in all of them, so it is remembered for between one window and one window plus a slice.
+ * The oldest filter is replaced by a freshly zeroed one when a new slice starts, published
+ * with the rest in one swap, so no thread records into a filter that is being cleared. Memory
+ * never grows with the number of sources; past the sized capacity only the false-positive
+ * rate rises.
+ */
+public final class RecentAddressFilter {
+
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long sliceMs;
+    private final long bits;
+    private final int hashes;
+    private final int words;
+    private final int filters;
+
+    // slices + 1 bit sets; slice number modulo their count picks the one in use
+    private final AtomicReference<Slices> slices;
+
+    /**
+     * @param capacity          distinct addresses per slice at which the false-positive rate is reached
+     * @param falsePositiveRate per filter; a lookup checks slices + 1 filters
+     */
+    public RecentAddressFilter(long windowMs, int slices, int capacity, double falsePositiveRate) {
+        if (windowMs <= 0 || slices <= 0 || capacity <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("window, slices and capacity must be positive, rate in (0, 1)");
+        }
+        this.sliceMs = Math.max(1, windowMs / slices);
+        double ln2 = Math.log(2);
+        long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (ln2 * ln2));
+        // Bit positions come from 32 bits of hash, so one filter holds at most 2^32 bits
+        int words = (int) Math.min(1 << 26, (optimalBits + 63) >>> 6);
+        this.bits = (long) words << 6;
+        this.hashes = Math.max(1, (int) Math.round(-Math.log(falsePositiveRate) / ln2));
+        this.words = words;
+        this.filters = slices + 1;
+        this.slices = new AtomicReference<>(new Slices(Long.MIN_VALUE, new long[filters][words]));
+    }
+
+    public void record(PackedAddress address, long now) {
+        long[] words = rotate(now).generations()[index(now / sliceMs)];
+        long hash = PackedAddress.hash(address.hi(), address.lo());
+        for (int i = 0; i < hashes; i++) {
+            long bit = bit(hash, i);
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            // Most records are repeat pings: skip the atomic write when the bit is already set
+            if (((long) WORDS.getOpaque(words, index) & mask) == 0) {
+                WORDS.getAndBitwiseOr(words, index, mask);
+            }
+        }
+    }
+
+    /**
+     * @return true if the address was recorded within the window (or is a false positive)
+     */
+    public boolean contains(PackedAddress address, long now) {
+        long[][] generations = rotate(now).generations();
+        long hash = PackedAddress.hash(address.hi(), address.lo());
+        for (long[] words : generations) {
+            if (containsIn(words, hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean containsIn(long[] words, long hash) {
+        for (int i = 0; i < hashes; i++) {
+            long bit = bit(hash, i);
+            if (((long) WORDS.getOpaque(words, (int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Double hashing, mapped onto the bit count by multiply-shift instead of a power-of-two mask
+     */
+    private long bit(long hash, int i) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return ((h1 + i * h2) & 0xFFFF_FFFFL) * bits >>> 32;
+    }
+
+    /**
+     * @return the filters for the slice containing {@code now}, rotated in if it is new
+     */
+    private Slices rotate(long now) {
+        long slice = now / sliceMs;
+        while (true) {
+            Slices current = slices.get();
+            if (slice <= current.slice()) {
+                return current;
+            }
+            // Each slice started since the last one gets a fresh filter in place of one now out of the window
+            long[][] generations = current.generations().clone();
+            long from = Math.max(current.slice() + 1, slice - filters + 1);
+            for (long s = from; s <= slice; s++) {
+                generations[index(s)] = new long[words];
+            }
+            Slices next = new Slices(slice, generations);
+            if (slices.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    private int index(long slice) {
+        return (int) Math.floorMod(slice, (long) filters);
+    }
+
+    public int getHashCount() {
+        return hashes;
+    }
+
+    public long getFootprintBytes() {
+        return (long) filters * (bits >>> 3);
+    }
+
+    public long getSliceMs() {
+        return sliceMs;
+    }
+
+    private record Slices(long slice, long[][] generations) {
+    }
+}
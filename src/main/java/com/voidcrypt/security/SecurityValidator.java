@@ -1,11 +1,9 @@
 package com.voidcrypt.security;
 
-import java.net.InetAddress;
-import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Pattern;
+import java.util.HexFormat;
 
 /**
  * Centralized security validation utilities
@@ -13,106 +11,90 @@ import java.util.regex.Pattern;
  */
 public class SecurityValidator {
 
-    private static final Pattern IPV4_PATTERN = Pattern.compile(
-        "^((25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.){3}(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)$"
-    );
-
-    private static final Pattern IPV6_PATTERN = Pattern.compile(
-        "^([0-9a-fA-F]{1,4}:){7}[0-9a-fA-F]{1,4}$|" +
-        "^::([0-9a-fA-F]{1,4}:){0,6}[0-9a-fA-F]{1,4}$|" +
-        "^([0-9a-fA-F]{1,4}:){1,7}:$|" +
-        "^([0-9a-fA-F]{1,4}:){1,6}:[0-9a-fA-F]{1,4}$|" +
-        "^([0-9a-fA-F]{1,4}:){1,5}(:[0-9a-fA-F]{1,4}){1,2}$|" +
-        "^([0-9a-fA-F]{1,4}:){1,4}(:[0-9a-fA-F]{1,4}){1,3}$|" +
-        "^([0-9a-fA-F]{1,4}:){1,3}(:[0-9a-fA-F]{1,4}){1,4}$|" +
-        "^([0-9a-fA-F]{1,4}:){1,2}(:[0-9a-fA-F]{1,4}){1,5}$|" +
-        "^[0-9a-fA-F]{1,4}:(:[0-9a-fA-F]{1,4}){1,6}$|" +
-        "^::1$"
-    );
-
-    private static final Map<String, RateLimitEntry> rateLimitMap = new ConcurrentHashMap<>();
+    // Parse output for validateIP, so the hot path allocates nothing for canonical IPv4
+    private static final ThreadLocal<long[]> PARSED = ThreadLocal.withInitial(() -> new long[2]);
+
     private static final int MAX_ATTEMPTS_PER_MINUTE = 30;
     private static final long RATE_LIMIT_WINDOW_MS = 60_000;
+    private static final int RATE_LIMIT_TABLE_SIZE = 16_384;
+
+    // Free-form identifiers; per-IP module limits are configured in RateLimits
+    private static final RateLimiter rateLimiter = new RateLimiter("generic", RateLimiter.Policy.TOKEN_BUCKET,
+        MAX_ATTEMPTS_PER_MINUTE, MAX_ATTEMPTS_PER_MINUTE, RATE_LIMIT_WINDOW_MS, RATE_LIMIT_TABLE_SIZE);
 
-    private static final SecureRandom secureRandom = new SecureRandom();
+    // One buffered DRBG per thread, so token generation never contends on a shared SecureRandom
+    private static final ThreadLocal<BufferedRandom> THREAD_RANDOM = ThreadLocal.withInitial(BufferedRandom::new);
 
     /**
-     * Validates an IP address using InetAddress (most reliable method)
-     * Rejects null, empty, private, and malformed IPs
+     * Validates an IP literal with a single-pass parser (no regex, no resolver)
+     * Rejects null, empty, and malformed IPs
      * @return validated IP string or null if invalid
      */
     public static String validateIP(String ip) {
-        if (ip == null || ip.isEmpty() || ip.isBlank()) {
+        long[] parsed = PARSED.get();
+        int kind = IpParser.parse(ip, parsed);
+        if (kind < 0) {
             return null;
         }
+        long hi = parsed[0];
+        long lo = parsed[1];
 
-        // Strip any leading/trailing whitespace
-        ip = ip.trim();
-
-        // First check with regex for format
-        boolean isIPv4 = IPV4_PATTERN.matcher(ip).matches();
-        boolean isIPv6 = IPV6_PATTERN.matcher(ip).matches();
-
-        if (!isIPv4 && !isIPv6) {
-            return null;
+        // Allow loopback for local testing, returned as given
+        if (PackedAddress.isLoopback(hi, lo)) {
+            return ip.trim();
         }
 
-        // Then validate with InetAddress (catches edge cases)
-        try {
-            InetAddress address = InetAddress.getByName(ip);
-            
-            // Reject loopback unless explicitly allowed
-            if (address.isLoopbackAddress()) {
-                return ip; // Allow loopback for local testing
-            }
-
-            return address.getHostAddress();
-        } catch (UnknownHostException e) {
-            return null;
+        // Already canonical (no padding, no leading zeros): hand back the same instance
+        if (kind == IpParser.IPV4 && ip.length() == dottedLength(lo)) {
+            return ip;
         }
+        return PackedAddress.format(hi, lo);
     }
 
     /**
      * Checks if IP is from private/local network
      */
     public static boolean isPrivateIP(String ip) {
-        if (ip == null) return false;
-        
-        try {
-            InetAddress address = InetAddress.getByName(ip);
-            return address.isLoopbackAddress() || 
-                   address.isSiteLocalAddress() || 
-                   address.isLinkLocalAddress();
-        } catch (UnknownHostException e) {
+        long[] parsed = PARSED.get();
+        if (IpParser.parse(ip, parsed) < 0) {
             return false;
         }
+        return PackedAddress.isPrivate(parsed[0], parsed[1]);
+    }
+
+    private static int dottedLength(long lo) {
+        int length = 3;
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            int octet = (int) (lo >>> shift) & 0xFF;
+            length += octet >= 100 ? 3 : octet >= 10 ? 2 : 1;
+        }
+        return length;
     }
 
     /**
      * Rate limiting check - returns true if request should be allowed
      */
     public static boolean checkRateLimit(String identifier) {
-        long now = System.currentTimeMillis();
-        
-        RateLimitEntry entry = rateLimitMap.compute(identifier, (key, existing) -> {
-            if (existing == null || now - existing.windowStart > RATE_LIMIT_WINDOW_MS) {
-                return new RateLimitEntry(now, 1);
-            }
-            existing.count++;
-            return existing;
-        });
-
-        return entry.count <= MAX_ATTEMPTS_PER_MINUTE;
+        return rateLimiter.tryAcquire(RateLimiter.keyOf(identifier), System.currentTimeMillis());
     }
 
     /**
      * Escapes shell-dangerous characters from IP for firewall commands
+     * Keeps the leading run of address characters and drops everything from the first other one,
+     * so "1.2.3.4 && cat x" cannot smuggle hex letters onto the address
      */
     public static String escapeForShell(String input) {
         if (input == null) return "";
-        
-        // Only allow safe characters for IPs
-        return input.replaceAll("[^0-9a-fA-F.:]", "");
+
+        int end = 0;
+        while (end < input.length() && isAddressChar(input.charAt(end))) {
+            end++;
+        }
+        return input.substring(0, end);
+    }
+
+    private static boolean isAddressChar(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F') || c == '.' || c == ':';
     }
 
     /**
@@ -132,12 +114,15 @@ public class SecurityValidator {
      */
     public static String generateSecureToken(int length) {
         byte[] bytes = new byte[length];
-        secureRandom.nextBytes(bytes);
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            sb.append(String.format("%02x", b));
-        }
-        return sb.toString();
+        THREAD_RANDOM.get().nextBytes(bytes);
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    /**
+     * Random long from the calling thread's DRBG
+     */
+    public static long nextSecureLong() {
+        return THREAD_RANDOM.get().nextLong();
     }
 
     /**
@@ -154,21 +139,43 @@ public class SecurityValidator {
     }
 
     /**
-     * Cleans up old rate limit entries (call periodically)
+     * Per-thread DRBG that hands out bytes from a small buffer refilled in one call
      */
-    public static void cleanupRateLimits() {
-        long now = System.currentTimeMillis();
-        rateLimitMap.entrySet().removeIf(entry -> 
-            now - entry.getValue().windowStart > RATE_LIMIT_WINDOW_MS * 2);
-    }
+    private static final class BufferedRandom {
+        private static final int BUFFER_SIZE = 256;
+
+        private final SecureRandom random = newDrbg();
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).position(BUFFER_SIZE);
 
-    private static class RateLimitEntry {
-        long windowStart;
-        int count;
+        long nextLong() {
+            if (buffer.remaining() < Long.BYTES) {
+                refill();
+            }
+            return buffer.getLong();
+        }
 
-        RateLimitEntry(long windowStart, int count) {
-            this.windowStart = windowStart;
-            this.count = count;
+        void nextBytes(byte[] out) {
+            if (out.length > BUFFER_SIZE) {
+                random.nextBytes(out);
+                return;
+            }
+            if (buffer.remaining() < out.length) {
+                refill();
+            }
+            buffer.get(out);
+        }
+
+        private void refill() {
+            random.nextBytes(buffer.array());
+            buffer.clear();
+        }
+
+        private static SecureRandom newDrbg() {
+            try {
+                return SecureRandom.getInstance("DRBG");
+            } catch (NoSuchAlgorithmException e) {
+                return new SecureRandom();
+            }
         }
     }
 }
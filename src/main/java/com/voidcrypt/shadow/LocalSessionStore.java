@@ -0,0 +1,50 @@
+package com.voidcrypt.shadow;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Default session store: this server's sessions in a concurrent map
+ */
+public final class LocalSessionStore implements SessionStore {
+
+    private final Map<UUID, SessionFingerprint> sessions = new ConcurrentHashMap<>();
+
+    @Override
+    public SessionFingerprint get(UUID uuid) {
+        return sessions.get(uuid);
+    }
+
+    @Override
+    public void put(SessionFingerprint fingerprint) {
+        sessions.put(fingerprint.getPlayerUUID(), fingerprint);
+    }
+
+    @Override
+    public SessionFingerprint putIfAbsent(SessionFingerprint fingerprint) {
+        return sessions.putIfAbsent(fingerprint.getPlayerUUID(), fingerprint);
+    }
+
+    @Override
+    public void remove(UUID uuid) {
+        sessions.remove(uuid);
+    }
+
+    @Override
+    public void updated(SessionFingerprint fingerprint) {
+        // Fingerprints are shared objects; nothing else to update
+    }
+
+    @Override
+    public Collection<SessionFingerprint> getLocalSessions() {
+        return Collections.unmodifiableCollection(sessions.values());
+    }
+
+    @Override
+    public int size() {
+        return sessions.size();
+    }
+}
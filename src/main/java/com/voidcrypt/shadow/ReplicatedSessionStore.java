@@ -0,0 +1,649 @@
+package com.voidcrypt.shadow;
+
+import com.voidcrypt.security.SecurityValidator;
+import com.voidcrypt.zte.ChallengeEngine;
+import org.bukkit.configuration.ConfigurationSection;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Module 2C: Replicated Session Store
+ * Shares session fingerprints between the backends behind a proxy over UDP.
+ *
+ * Each node owns the sessions created by its own logins and sees everyone else's. Changes are
+ * coalesced per player and sent once per {@link #tick}, batched into authenticated datagrams
+ * (HMAC-SHA256 with a key derived from the shared secret), so a peer sees them within a tick
+ * plus transit. At most {@value #MAX_BURST_DATAGRAMS} datagrams go out per tick; what does not
+ * fit waits for the next one. Every sync interval each node re-announces the sessions it owns, which repairs
+ * lost datagrams; sessions whose owner has not been heard from for three intervals are dropped,
+ * so a crashed backend's view is gone within that bound.
+ *
+ * The signed header carries the sender's send time and a sequence number. Datagrams older than
+ * three intervals, or not newer than the last one seen from their sender, are dropped, so a
+ * captured datagram cannot be replayed. Removed sessions leave a tombstone for the same bound,
+ * so a delayed announcement cannot bring them back.
+ *
+ * Which session a player has is decided by (creation time, owner): a newer session replaces
+ * an older one wherever it was created. Suspicion is merged instead of overwritten: every node
+ * sends only its own share of a session's score, ordered per writer by a Lamport version, and
+ * receivers add the change in that share to the fingerprint they already hold and OR in its
+ * status flags. Concurrent reports on different backends therefore add up, and fingerprints
+ * are updated in place, so references held elsewhere stay current. A node only ever removes
+ * the sessions it owns.
+ */
+public final class ReplicatedSessionStore implements SessionStore {
+
+    private static final int MAGIC = 0x5643_5353; // "VCSS"
+    private static final byte VERSION = 2;
+    // Magic, version, sender, send time, sequence, record count
+    private static final int HEADER_BYTES = 4 + 1 + 3 * 8 + 2;
+    private static final int TAG_BYTES = 16;
+    private static final byte UPSERT = 1;
+    private static final byte REMOVE = 2;
+    private static final int RECORD_HEADER_BYTES = 1 + 3 * 8;
+    private static final int UPSERT_BYTES = RECORD_HEADER_BYTES + SessionFingerprint.WIRE_BYTES;
+    private static final int REMOVE_BYTES = RECORD_HEADER_BYTES + 3 * 8;
+    private static final int MIN_DATAGRAM_BYTES = HEADER_BYTES + UPSERT_BYTES + TAG_BYTES;
+    private static final int MAX_DATAGRAM_BYTES = 65_507;
+    private static final int STALE_INTERVALS = 3;
+    // Per tick, so a re-announce of every session does not overrun the peers' socket buffers
+    private static final int MAX_BURST_DATAGRAMS = 48;
+
+    private final long nodeId;
+    private final DatagramChannel channel;
+    private final List<InetSocketAddress> peers;
+    private final long syncIntervalMs;
+    private final int maxDatagramBytes;
+    private final Logger logger;
+
+    private final Map<UUID, Entry> entries;
+    // Latest change per player not sent yet
+    private final Map<UUID, Change> dirty;
+    // Sessions removed recently, by player
+    private final Map<UUID, Tombstone> tombstones;
+    private final AtomicLong clock;
+    private final AtomicBoolean ticking;
+    private volatile boolean closed;
+    // Written by the ticking thread, read by put and remove to stamp entries and tombstones
+    private volatile long lastTick;
+    private final Collection<SessionFingerprint> localView;
+
+    // Owned by the ticking thread
+    private final Mac mac;
+    private final byte[] tag;
+    private final ByteBuffer outgoing;
+    private final ByteBuffer incoming;
+    private int outgoingRecords;
+    private int burst;
+    private long nextSync;
+    private long sequence;
+    // Latest sequence per sender
+    private final Map<Long, Peer> senders;
+
+    // Counters
+    private final LongAdder sentRecords = new LongAdder();
+    private final LongAdder sentDatagrams = new LongAdder();
+    private final LongAdder receivedRecords = new LongAdder();
+    private final LongAdder appliedRecords = new LongAdder();
+    private final LongAdder rejectedDatagrams = new LongAdder();
+    private final LongAdder staleDatagrams = new LongAdder();
+
+    public ReplicatedSessionStore(long nodeId, DatagramChannel channel, List<InetSocketAddress> peers, String secret,
+                                  long syncIntervalMs, int maxDatagramBytes, Logger logger) {
+        if (maxDatagramBytes < MIN_DATAGRAM_BYTES || maxDatagramBytes > MAX_DATAGRAM_BYTES) {
+            throw new IllegalArgumentException("max datagram bytes must be in [" + MIN_DATAGRAM_BYTES + ", "
+                + MAX_DATAGRAM_BYTES + "]");
+        }
+        this.nodeId = nodeId;
+        this.channel = channel;
+        this.peers = List.copyOf(peers);
+        this.syncIntervalMs = Math.max(1, syncIntervalMs);
+        this.maxDatagramBytes = maxDatagramBytes;
+        this.logger = logger;
+        this.entries = new ConcurrentHashMap<>();
+        this.dirty = new ConcurrentHashMap<>();
+        this.tombstones = new ConcurrentHashMap<>();
+        this.senders = new HashMap<>();
+        this.clock = new AtomicLong();
+        this.ticking = new AtomicBoolean(false);
+        this.localView = new LocalView();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update("voidcrypt-session-sync".getBytes(StandardCharsets.US_ASCII));
+            this.mac = Mac.getInstance("HmacSHA256");
+            this.mac.init(new SecretKeySpec(digest.digest(secret.getBytes(StandardCharsets.UTF_8)), "HmacSHA256"));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 / HMAC not available", e);
+        }
+        this.tag = new byte[mac.getMacLength()];
+        this.outgoing = ByteBuffer.allocate(maxDatagramBytes);
+        this.incoming = ByteBuffer.allocate(MAX_DATAGRAM_BYTES);
+    }
+
+    /**
+     * Binds the configured UDP address, or returns null if replication is disabled
+     * @throws IOException if the address cannot be bound
+     */
+    public static ReplicatedSessionStore fromConfig(ConfigurationSection section, String secret, Logger logger)
+            throws IOException {
+        if (section == null || !section.getBoolean("enabled", false)) {
+            return null;
+        }
+        List<InetSocketAddress> peers = new ArrayList<>();
+        for (String peer : section.getStringList("peers")) {
+            peers.add(parseAddress(peer));
+        }
+        return open(parseAddress(section.getString("bind", "127.0.0.1:25590")), peers, secret,
+            section.getLong("sync-interval-seconds", 10) * 1000,
+            section.getInt("max-datagram-bytes", 1400), logger);
+    }
+
+    public static ReplicatedSessionStore open(InetSocketAddress bind, List<InetSocketAddress> peers, String secret,
+                                              long syncIntervalMs, int maxDatagramBytes, Logger logger)
+            throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.bind(bind);
+            return new ReplicatedSessionStore(SecurityValidator.nextSecureLong(), channel, peers, secret,
+                syncIntervalMs, maxDatagramBytes, logger);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Parses "host:port"; IPv6 hosts go in brackets
+     */
+    static InetSocketAddress parseAddress(String address) {
+        int colon = address.lastIndexOf(':');
+        if (colon <= 0 || colon == address.length() - 1) {
+            throw new IllegalArgumentException("expected host:port, got " + address);
+        }
+        String host = address.substring(0, colon);
+        if (host.startsWith("[") && host.endsWith("]")) {
+            host = host.substring(1, host.length() - 1);
+        }
+        return new InetSocketAddress(host, Integer.parseInt(address.substring(colon + 1)));
+    }
+
+    @Override
+    public SessionFingerprint get(UUID uuid) {
+        Entry entry = entries.get(uuid);
+        return entry != null ? entry.fingerprint : null;
+    }
+
+    @Override
+    public void put(SessionFingerprint fingerprint) {
+        UUID uuid = fingerprint.getPlayerUUID();
+        Entry entry = new Entry(fingerprint, nodeId, lastTick, true);
+        entries.put(uuid, entry);
+        dirty.put(uuid, new Change(entry, clock.incrementAndGet(), false));
+    }
+
+    @Override
+    public SessionFingerprint putIfAbsent(SessionFingerprint fingerprint) {
+        UUID uuid = fingerprint.getPlayerUUID();
+        Entry entry = new Entry(fingerprint, nodeId, lastTick, true);
+        Entry existing = entries.putIfAbsent(uuid, entry);
+        if (existing != null) {
+            return existing.fingerprint;
+        }
+        dirty.put(uuid, new Change(entry, clock.incrementAndGet(), false));
+        return null;
+    }
+
+    @Override
+    public void remove(UUID uuid) {
+        Entry[] removed = new Entry[1];
+        entries.computeIfPresent(uuid, (key, entry) -> {
+            if (entry.owner != nodeId) {
+                return entry;
+            }
+            removed[0] = entry;
+            return null;
+        });
+        if (removed[0] != null) {
+            SessionFingerprint fingerprint = removed[0].fingerprint;
+            tombstones.put(uuid, new Tombstone(fingerprint.getCreationTime(), nodeId, lastTick));
+            dirty.put(uuid, new Change(removed[0], clock.incrementAndGet(), true));
+        }
+    }
+
+    @Override
+    public void updated(SessionFingerprint fingerprint) {
+        Entry entry = entries.get(fingerprint.getPlayerUUID());
+        if (entry != null && entry.fingerprint == fingerprint) {
+            entry.written = true;
+            dirty.put(fingerprint.getPlayerUUID(), new Change(entry, clock.incrementAndGet(), false));
+        }
+    }
+
+    @Override
+    public Collection<SessionFingerprint> getLocalSessions() {
+        return localView;
+    }
+
+    @Override
+    public int size() {
+        return localView.size();
+    }
+
+    /**
+     * Receives peer updates, re-announces owned sessions when due and sends pending changes.
+     * Concurrent calls and calls after {@link #close} are skipped.
+     */
+    @Override
+    public void tick(long now) {
+        if (!ticking.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (closed) {
+                return;
+            }
+            lastTick = now;
+            receive(now);
+            if (now >= nextSync) {
+                nextSync = now + syncIntervalMs;
+                announceAndPrune(now);
+            }
+            flush();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Session sync failed", e);
+        } finally {
+            ticking.set(false);
+        }
+    }
+
+    private void announceAndPrune(long now) {
+        long staleBefore = now - STALE_INTERVALS * syncIntervalMs;
+        for (Map.Entry<UUID, Entry> e : entries.entrySet()) {
+            Entry entry = e.getValue();
+            if (entry.owner != nodeId && entry.heardAt < staleBefore) {
+                entries.remove(e.getKey(), entry);
+            } else if (entry.written) {
+                // Own sessions, and our share of other nodes' sessions
+                dirty.putIfAbsent(e.getKey(), new Change(entry, clock.incrementAndGet(), false));
+            }
+        }
+        tombstones.values().removeIf(tombstone -> tombstone.removedAt < staleBefore);
+        senders.values().removeIf(peer -> peer.heardAt < staleBefore);
+    }
+
+    private void flush() throws IOException {
+        long nowNanos = System.nanoTime();
+        burst = 0;
+        for (UUID uuid : dirty.keySet()) {
+            if (burst >= MAX_BURST_DATAGRAMS) {
+                break;
+            }
+            Change change = dirty.remove(uuid);
+            if (change == null || !change.removed && entries.get(uuid) != change.entry) {
+                // Removed or replaced since
+                continue;
+            }
+            if (outgoing.position() + (change.removed ? REMOVE_BYTES : UPSERT_BYTES) > maxDatagramBytes - TAG_BYTES) {
+                send();
+            }
+            if (outgoingRecords == 0) {
+                outgoing.clear();
+                outgoing.putInt(MAGIC).put(VERSION).putLong(nodeId).putLong(lastTick).putLong(++sequence)
+                    .putShort((short) 0);
+            }
+            Entry entry = change.entry;
+            outgoing.put(change.removed ? REMOVE : UPSERT).putLong(entry.owner).putLong(nodeId)
+                .putLong(change.version);
+            if (change.removed) {
+                UUID id = entry.fingerprint.getPlayerUUID();
+                outgoing.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits())
+                    .putLong(entry.fingerprint.getCreationTime());
+            } else {
+                entry.fingerprint.writeTo(outgoing, entry.ownShare(nowNanos));
+            }
+            outgoingRecords++;
+        }
+        send();
+    }
+
+    private void send() throws IOException {
+        if (outgoingRecords == 0) {
+            return;
+        }
+        outgoing.putShort(HEADER_BYTES - 2, (short) outgoingRecords);
+        mac.update(outgoing.array(), 0, outgoing.position());
+        try {
+            mac.doFinal(tag, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException(e);
+        }
+        outgoing.put(tag, 0, TAG_BYTES).flip();
+        for (InetSocketAddress peer : peers) {
+            channel.send(outgoing.duplicate(), peer);
+        }
+        sentRecords.add(outgoingRecords);
+        sentDatagrams.increment();
+        burst++;
+        outgoingRecords = 0;
+        outgoing.clear();
+    }
+
+    private void receive(long now) throws IOException {
+        while (true) {
+            incoming.clear();
+            if (channel.receive(incoming) == null) {
+                return;
+            }
+            incoming.flip();
+            if (!authentic(incoming)) {
+                rejectedDatagrams.increment();
+                continue;
+            }
+            incoming.position(4 + 1);
+            long sender = incoming.getLong();
+            long sentAt = incoming.getLong();
+            long seq = incoming.getLong();
+            int count = incoming.getShort() & 0xFFFF;
+            if (sender == nodeId) {
+                continue;
+            }
+            if (!fresh(sender, sentAt, seq, now)) {
+                staleDatagrams.increment();
+                continue;
+            }
+            int end = incoming.limit() - TAG_BYTES;
+            for (int i = 0; i < count && incoming.position() < end; i++) {
+                if (!apply(incoming, end, now)) {
+                    rejectedDatagrams.increment();
+                    break;
+                }
+            }
+        }
+    }
+
+    private boolean authentic(ByteBuffer datagram) {
+        int length = datagram.limit();
+        if (length < HEADER_BYTES + TAG_BYTES || datagram.getInt(0) != MAGIC || datagram.get(4) != VERSION) {
+            return false;
+        }
+        mac.update(datagram.array(), 0, length - TAG_BYTES);
+        try {
+            mac.doFinal(tag, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException(e);
+        }
+        return ChallengeEngine.constantTimeEquals(tag, 0, datagram.array(), length - TAG_BYTES, TAG_BYTES);
+    }
+
+    /**
+     * Accepts a datagram sent within the stale bound with a sequence above the sender's last one
+     */
+    private boolean fresh(long sender, long sentAt, long seq, long now) {
+        if (sentAt < now - STALE_INTERVALS * syncIntervalMs) {
+            return false;
+        }
+        Peer peer = senders.get(sender);
+        if (peer != null && seq <= peer.sequence) {
+            return false;
+        }
+        senders.put(sender, new Peer(seq, now));
+        return true;
+    }
+
+    /**
+     * Applies one record: a newer session replaces the stored one, a newer share of the same
+     * session is merged into it, anything else is ignored
+     * @return false if the record is malformed
+     */
+    private boolean apply(ByteBuffer in, int end, long now) {
+        byte type = in.get();
+        int size = type == UPSERT ? UPSERT_BYTES : type == REMOVE ? REMOVE_BYTES : -1;
+        if (size < 0 || in.position() - 1 + size > end) {
+            return false;
+        }
+        long owner = in.getLong();
+        long writer = in.getLong();
+        long version = in.getLong();
+        clock.accumulateAndGet(version, Math::max);
+        receivedRecords.increment();
+
+        if (type == REMOVE) {
+            UUID uuid = new UUID(in.getLong(), in.getLong());
+            long creationTime = in.getLong();
+            Entry removed = entries.computeIfPresent(uuid, (key, current) ->
+                current.owner == owner && compare(creationTime, owner, current) >= 0 ? null : current);
+            if (removed == null) {
+                appliedRecords.increment();
+            }
+            tombstones.merge(uuid, new Tombstone(creationTime, owner, now),
+                (old, next) -> next.creationTime >= old.creationTime ? next : old);
+            return true;
+        }
+
+        SessionFingerprint share = SessionFingerprint.readFrom(in);
+        long nowNanos = System.nanoTime();
+        entries.compute(share.getPlayerUUID(), (key, current) -> {
+            int order = current == null ? 1 : compare(share.getCreationTime(), owner, current);
+            if (order < 0) {
+                return current;
+            }
+            if (order > 0) {
+                Tombstone tombstone = tombstones.get(key);
+                if (tombstone != null && tombstone.covers(share.getCreationTime(), owner)) {
+                    return current;
+                }
+                // A newer session: the record is all we know of it so far
+                Entry entry = new Entry(share, owner, now, false);
+                entry.shares.put(writer, new Share(version, share.getSuspicionScore(nowNanos), nowNanos));
+                appliedRecords.increment();
+                return entry;
+            }
+            if (writer == current.owner) {
+                current.heardAt = now;
+            }
+            Share previous = current.shares.get(writer);
+            if (previous != null && version <= previous.version) {
+                return current;
+            }
+            double score = share.getSuspicionScore(nowNanos);
+            current.fingerprint.merge(share, score - (previous != null ? previous.decayed(nowNanos) : 0), nowNanos);
+            current.shares.put(writer, new Share(version, score, nowNanos));
+            appliedRecords.increment();
+            return current;
+        });
+        return true;
+    }
+
+    /**
+     * Orders sessions of one player: the later creation wins, ties go to the larger owner id
+     */
+    private static int compare(long creationTime, long owner, Entry current) {
+        int order = Long.compare(creationTime, current.fingerprint.getCreationTime());
+        return order != 0 ? order : Long.compare(owner, current.owner);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Could not close session sync channel", e);
+        }
+    }
+
+    public long getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Sessions held for other servers
+     */
+    public int getRemoteCount() {
+        return entries.size() - size();
+    }
+
+    public long getSentRecords() {
+        return sentRecords.sum();
+    }
+
+    public long getSentDatagrams() {
+        return sentDatagrams.sum();
+    }
+
+    public long getReceivedRecords() {
+        return receivedRecords.sum();
+    }
+
+    public long getAppliedRecords() {
+        return appliedRecords.sum();
+    }
+
+    public long getRejectedDatagrams() {
+        return rejectedDatagrams.sum();
+    }
+
+    /**
+     * Authentic datagrams dropped as too old or already seen
+     */
+    public long getStaleDatagrams() {
+        return staleDatagrams.sum();
+    }
+
+    /**
+     * A stored session with its replication state; replaced only by a newer session
+     */
+    private static final class Entry {
+        final SessionFingerprint fingerprint;
+        // Node the session was created on
+        final long owner;
+        // Other nodes' last shares of the score; only the ticking thread touches these
+        final Map<Long, Share> shares = new HashMap<>();
+        // When the owner last announced it, for sessions of other nodes
+        volatile long heardAt;
+        // This node has a share to announce
+        volatile boolean written;
+
+        Entry(SessionFingerprint fingerprint, long owner, long heardAt, boolean written) {
+            this.fingerprint = fingerprint;
+            this.owner = owner;
+            this.heardAt = heardAt;
+            this.written = written;
+        }
+
+        /**
+         * The score minus every other node's share, all decayed to now
+         */
+        double ownShare(long nowNanos) {
+            double score = fingerprint.getSuspicionScore(nowNanos);
+            for (Share share : shares.values()) {
+                score -= share.decayed(nowNanos);
+            }
+            return Math.max(0, score);
+        }
+    }
+
+    /**
+     * Another node's share of a session's score as last received
+     */
+    private record Share(long version, double score, long receivedNanos) {
+        double decayed(long nowNanos) {
+            return SessionFingerprint.decay(score, nowNanos - receivedNanos);
+        }
+    }
+
+    /**
+     * A removed session; it and older sessions of the player are not accepted again
+     */
+    private record Tombstone(long creationTime, long owner, long removedAt) {
+        boolean covers(long creationTime, long owner) {
+            return creationTime < this.creationTime || creationTime == this.creationTime && owner == this.owner;
+        }
+    }
+
+    /**
+     * The last datagram accepted from a sender
+     */
+    private record Peer(long sequence, long heardAt) {
+    }
+
+    /**
+     * A pending announcement or removal in the dirty map
+     */
+    private record Change(Entry entry, long version, boolean removed) {
+    }
+
+    /**
+     * This node's sessions, filtered from all entries without copying
+     */
+    private final class LocalView extends AbstractCollection<SessionFingerprint> {
+        @Override
+        public Iterator<SessionFingerprint> iterator() {
+            Iterator<Entry> all = entries.values().iterator();
+            return new Iterator<>() {
+                private SessionFingerprint next = advance();
+
+                private SessionFingerprint advance() {
+                    while (all.hasNext()) {
+                        Entry entry = all.next();
+                        if (entry.owner == nodeId) {
+                            return entry.fingerprint;
+                        }
+                    }
+                    return null;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public SessionFingerprint next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    SessionFingerprint current = next;
+                    next = advance();
+                    return current;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            int count = 0;
+            for (Entry entry : entries.values()) {
+                if (entry.owner == nodeId) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+}
@@ -1,72 +1,171 @@
 package com.voidcrypt.shadow;
 
+import com.voidcrypt.security.PackedAddress;
 import com.voidcrypt.security.SecurityValidator;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
 import java.util.UUID;
 
 /**
  * Module 2A: Session Digital Fingerprint
  * Stores immutable session data for verification
+ *
+ * Identity is kept as primitives: the UUID as two longs, the bound address packed like
+ * {@link PackedAddress} and the entropy token as one long, about 100 bytes per session with
+ * no child objects. The protocol hash is computed on first access and cached; strings are
+ * only built when something displays or saves them.
+ *
+ * Suspicion is a score that halves every {@link #setSuspicionHalfLifeMs half-life}, kept with
+ * its last update time and status flags in one long that is only changed by CAS, so concurrent
+ * reports from packet threads and the main thread are never lost. Decay is applied when the
+ * score is read or updated; status is derived from the decayed score, except that compromised
+ * is latched when the score reaches it and investigation is an explicit flag.
  */
 public class SessionFingerprint {
 
-    private final UUID playerUUID;
-    private final String boundIP;
-    private final String protocolHash;
+    public static final int SUSPICIOUS_LEVEL = 5;
+    public static final int COMPROMISED_LEVEL = 10;
+
+    // Shown and saved as the bound IP when the address did not validate
+    public static final String INVALID_IP = "INVALID";
+
+    // State layout: score (24 bits, 10 fractional) | compromised | investigated | ticks since base (38 bits)
+    private static final int SCORE_SHIFT = 40;
+    private static final int SCORE_FRACTION_BITS = 10;
+    private static final long MAX_SCORE_BITS = (1L << 24) - 1;
+    private static final long COMPROMISED_FLAG = 1L << 39;
+    private static final long INVESTIGATED_FLAG = 1L << 38;
+    private static final long TICKS_MASK = (1L << 38) - 1;
+    private static final int TICK_SHIFT = 20; // about a millisecond per tick, 8 years of range
+
+    // Replication record: 7 longs, protocol version, flags, score
+    static final int WIRE_BYTES = 7 * 8 + 4 + 1 + 4;
+    private static final int WIRE_VALID_ADDRESS = 1;
+    private static final int WIRE_COMPROMISED = 2;
+    private static final int WIRE_INVESTIGATED = 4;
+
+    private static final VarHandle STATE;
+
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(SessionFingerprint.class, "state", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private static volatile double halfLifeTicks = ticksOfMs(30 * 60_000L);
+
+    private final long uuidHi;
+    private final long uuidLo;
+    private final long addressHi;
+    private final long addressLo;
     private final long creationTime;
+    private final long entropy;
+    // Suspicion ticks count from here
+    private final long baseNanos;
     private final int protocolVersion;
-    
-    private final String entropyToken;
-    
-    // Session status
-    private SessionStatus status;
-    private int suspicionLevel;
+    private final boolean validAddress;
+
+    // First 8 bytes of the protocol hash, 0 until computed
+    private volatile long protocolHash;
+    private volatile long state;
 
     public SessionFingerprint(UUID playerUUID, String boundIP, int protocolVersion) {
-        this.playerUUID = playerUUID;
-        this.boundIP = validateAndSanitizeIP(boundIP);
+        this(playerUUID, parseAddress(boundIP), protocolVersion, System.currentTimeMillis(),
+            SecurityValidator.nextSecureLong(), 0L);
+        if (!validAddress) {
+            // For fingerprinting purposes we need SOME value, but mark it as suspicious
+            this.state = pack(1, 0, 0);
+        }
+    }
+
+    private SessionFingerprint(UUID playerUUID, PackedAddress address, int protocolVersion, long creationTime,
+                               long entropy, long protocolHash) {
+        this.uuidHi = playerUUID.getMostSignificantBits();
+        this.uuidLo = playerUUID.getLeastSignificantBits();
+        this.validAddress = address != null;
+        this.addressHi = validAddress ? address.hi() : 0L;
+        this.addressLo = validAddress ? address.lo() : 0L;
         this.protocolVersion = protocolVersion;
-        this.entropyToken = SecurityValidator.generateSecureToken(8);
-        this.protocolHash = generateProtocolHash();
-        this.creationTime = System.currentTimeMillis();
-        this.status = SessionStatus.ACTIVE;
-        this.suspicionLevel = 0;
+        this.creationTime = creationTime;
+        this.entropy = entropy;
+        this.protocolHash = protocolHash;
+        this.baseNanos = System.nanoTime();
     }
 
     /**
-     * Generates a unique hash based on UUID + IP + Protocol + Entropy
+     * Rebuilds a fingerprint saved in a state snapshot, keeping its original hash and timestamps.
+     * The saved suspicion level starts decaying again from now.
      */
-    private String generateProtocolHash() {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            String input = playerUUID.toString() + boundIP + protocolVersion + creationTime + entropyToken;
-            byte[] hash = digest.digest(input.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder();
-            for (int i = 0; i < 8; i++) { // Only first 8 bytes for brevity
-                sb.append(String.format("%02x", hash[i]));
-            }
-            return sb.toString();
-        } catch (NoSuchAlgorithmException e) {
-            return "error";
-        }
+    public static SessionFingerprint restore(UUID playerUUID, String boundIP, String protocolHash, long creationTime,
+                                             int protocolVersion, String entropyToken, SessionStatus status,
+                                             int suspicionLevel) {
+        SessionFingerprint fingerprint = new SessionFingerprint(playerUUID, parseAddress(boundIP), protocolVersion,
+            creationTime, parseHex(entropyToken), parseHex(protocolHash));
+        long flags = (status == SessionStatus.COMPROMISED ? COMPROMISED_FLAG : 0)
+            | (status == SessionStatus.UNDER_INVESTIGATION ? INVESTIGATED_FLAG : 0);
+        fingerprint.state = pack(suspicionLevel, flags, 0);
+        return fingerprint;
     }
 
     /**
      * Properly validates IP using SecurityValidator
-     * Returns null for invalid IPs instead of 0.0.0.0
+     * @return packed address, or null for invalid IPs
      */
-    private String validateAndSanitizeIP(String ip) {
+    private static PackedAddress parseAddress(String ip) {
         String validated = SecurityValidator.validateIP(ip);
-        if (validated == null) {
-            // For fingerprinting purposes, we need SOME value
-            // But mark it as suspicious
-            this.suspicionLevel = 1;
-            return "INVALID";
+        return validated != null ? PackedAddress.of(validated) : null;
+    }
+
+    /**
+     * @return the 16 hex digits as a long, or 0 if the text is not exactly that
+     */
+    private static long parseHex(String hex) {
+        if (hex == null || hex.length() != 16 || !hex.chars().allMatch(HexFormat::isHexDigit)) {
+            return 0L;
         }
-        return validated;
+        return HexFormat.fromHexDigitsToLong(hex);
+    }
+
+    /**
+     * Unique hash based on UUID + IP + Protocol + Entropy, computed once on first use
+     */
+    private long protocolHash() {
+        long hash = protocolHash;
+        if (hash == 0) {
+            // Racing threads compute the same value
+            String input = getPlayerUUID().toString() + getBoundIP() + protocolVersion + creationTime
+                + getEntropyToken();
+            MessageDigest digest = DIGEST.get();
+            digest.update(input.getBytes(StandardCharsets.UTF_8));
+            byte[] out = new byte[32];
+            try {
+                digest.digest(out, 0, out.length);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            }
+            for (int i = 0; i < 8; i++) { // Only first 8 bytes for brevity
+                hash = (hash << 8) | (out[i] & 0xFF);
+            }
+            protocolHash = hash;
+        }
+        return hash;
     }
 
     /**
@@ -75,41 +174,176 @@ public class SessionFingerprint {
      */
     public boolean validateIP(String currentIP) {
         String validatedCurrent = SecurityValidator.validateIP(currentIP);
-        if (validatedCurrent == null || "INVALID".equals(boundIP)) {
-            return false;
-        }
-        return boundIP.equals(validatedCurrent);
+        return validatedCurrent != null && isBoundTo(PackedAddress.of(validatedCurrent));
+    }
+
+    /**
+     * Verifies an already packed address against the bound IP, with no string round trip
+     */
+    public boolean isBoundTo(PackedAddress address) {
+        return validAddress && address != null && address.hi() == addressHi && address.lo() == addressLo;
     }
 
     /**
      * Increments suspicion level
      */
     public void incrementSuspicion(int amount) {
-        this.suspicionLevel += amount;
-        if (suspicionLevel >= 10) {
-            this.status = SessionStatus.COMPROMISED;
-        } else if (suspicionLevel >= 5) {
-            this.status = SessionStatus.SUSPICIOUS;
-        }
+        incrementSuspicion(amount, System.nanoTime());
+    }
+
+    /**
+     * Adds to the decayed score; latches compromised if the sum reaches {@link #COMPROMISED_LEVEL}
+     */
+    public void incrementSuspicion(double amount, long nowNanos) {
+        add(Math.max(0, amount), 0L, nowNanos);
+    }
+
+    /**
+     * Applies the change in another server's share of the score and ORs in its status flags,
+     * in place, so references held to this fingerprint stay current
+     * @param share record read from that server, carrying only its own share
+     * @param delta its share now minus its previous share decayed to now
+     */
+    void merge(SessionFingerprint share, double delta, long nowNanos) {
+        add(delta, share.state & (COMPROMISED_FLAG | INVESTIGATED_FLAG), nowNanos);
+    }
+
+    private void add(double amount, long extraFlags, long nowNanos) {
+        long now = ticks(nowNanos);
+        long current;
+        long next;
+        do {
+            current = (long) STATE.getVolatile(this);
+            long at = Math.max(now, current & TICKS_MASK);
+            double score = Math.max(0, decayed(current, at) + amount);
+            long flags = current & (COMPROMISED_FLAG | INVESTIGATED_FLAG) | extraFlags;
+            if (level(score) >= COMPROMISED_LEVEL) {
+                flags |= COMPROMISED_FLAG;
+            }
+            next = pack(score, flags, at);
+        } while (!STATE.compareAndSet(this, current, next));
     }
 
     public void markInvestigated() {
-        this.status = SessionStatus.UNDER_INVESTIGATION;
+        STATE.getAndBitwiseOr(this, INVESTIGATED_FLAG);
     }
 
     public void clearSuspicion() {
-        this.suspicionLevel = 0;
-        this.status = SessionStatus.ACTIVE;
+        STATE.setVolatile(this, pack(0, 0, ticks(System.nanoTime())));
+    }
+
+    /**
+     * @return the score decayed to {@code nowNanos}
+     */
+    public double getSuspicionScore(long nowNanos) {
+        long current = (long) STATE.getVolatile(this);
+        return decayed(current, Math.max(ticks(nowNanos), current & TICKS_MASK));
+    }
+
+    public SessionStatus getStatus(long nowNanos) {
+        long current = (long) STATE.getVolatile(this);
+        if ((current & COMPROMISED_FLAG) != 0) {
+            return SessionStatus.COMPROMISED;
+        }
+        if ((current & INVESTIGATED_FLAG) != 0) {
+            return SessionStatus.UNDER_INVESTIGATION;
+        }
+        return level(decayed(current, Math.max(ticks(nowNanos), current & TICKS_MASK))) >= SUSPICIOUS_LEVEL
+            ? SessionStatus.SUSPICIOUS : SessionStatus.ACTIVE;
+    }
+
+    public int getSuspicionLevel(long nowNanos) {
+        return level(getSuspicionScore(nowNanos));
+    }
+
+    /**
+     * Sets how long suspicion takes to halve, for every session
+     */
+    public static void setSuspicionHalfLifeMs(long halfLifeMs) {
+        halfLifeTicks = ticksOfMs(Math.max(1, halfLifeMs));
+    }
+
+    private long ticks(long nowNanos) {
+        return Math.max(0, nowNanos - baseNanos) >>> TICK_SHIFT & TICKS_MASK;
+    }
+
+    private static double ticksOfMs(long ms) {
+        return (double) (ms * 1_000_000L) / (1L << TICK_SHIFT);
+    }
+
+    /**
+     * A score decayed over {@code elapsedNanos} at the current half-life
+     */
+    static double decay(double score, long elapsedNanos) {
+        return elapsedNanos <= 0 ? score
+            : score * Math.exp(-Math.log(2) * (elapsedNanos >>> TICK_SHIFT) / halfLifeTicks);
+    }
+
+    private static int level(double score) {
+        return (int) Math.round(score);
+    }
+
+    private static double decayed(long state, long at) {
+        long scoreBits = state >>> SCORE_SHIFT;
+        if (scoreBits == 0) {
+            return 0.0;
+        }
+        double score = (double) scoreBits / (1 << SCORE_FRACTION_BITS);
+        long elapsed = at - (state & TICKS_MASK);
+        return elapsed <= 0 ? score : score * Math.exp(-Math.log(2) * elapsed / halfLifeTicks);
+    }
+
+    private static long pack(double score, long flags, long ticks) {
+        long scoreBits = Math.max(0L, Math.min(MAX_SCORE_BITS, (long) (score * (1 << SCORE_FRACTION_BITS))));
+        return scoreBits << SCORE_SHIFT | flags | ticks & TICKS_MASK;
+    }
+
+    /**
+     * Writes identity, status flags and a suspicion score, for replication
+     * @param score the writing server's own share of the score
+     */
+    void writeTo(ByteBuffer out, double score) {
+        long current = (long) STATE.getVolatile(this);
+        int flags = (validAddress ? WIRE_VALID_ADDRESS : 0)
+            | ((current & COMPROMISED_FLAG) != 0 ? WIRE_COMPROMISED : 0)
+            | ((current & INVESTIGATED_FLAG) != 0 ? WIRE_INVESTIGATED : 0);
+        out.putLong(uuidHi).putLong(uuidLo).putLong(addressHi).putLong(addressLo)
+            .putLong(creationTime).putLong(entropy).putLong(protocolHash)
+            .putInt(protocolVersion)
+            .put((byte) flags)
+            .putFloat((float) score);
+    }
+
+    /**
+     * Reads a record written by {@link #writeTo}; the score decays again from now
+     */
+    static SessionFingerprint readFrom(ByteBuffer in) {
+        UUID uuid = new UUID(in.getLong(), in.getLong());
+        long hi = in.getLong();
+        long lo = in.getLong();
+        long creationTime = in.getLong();
+        long entropy = in.getLong();
+        long protocolHash = in.getLong();
+        int protocolVersion = in.getInt();
+        int flags = in.get();
+        float score = in.getFloat();
+        SessionFingerprint fingerprint = new SessionFingerprint(uuid,
+            (flags & WIRE_VALID_ADDRESS) != 0 ? new PackedAddress(hi, lo) : null,
+            protocolVersion, creationTime, entropy, protocolHash);
+        fingerprint.state = pack(score, ((flags & WIRE_COMPROMISED) != 0 ? COMPROMISED_FLAG : 0)
+            | ((flags & WIRE_INVESTIGATED) != 0 ? INVESTIGATED_FLAG : 0), 0);
+        return fingerprint;
     }
 
     // Getters
-    public UUID getPlayerUUID() { return playerUUID; }
-    public String getBoundIP() { return boundIP; }
-    public String getProtocolHash() { return protocolHash; }
+    public UUID getPlayerUUID() { return new UUID(uuidHi, uuidLo); }
+    public String getBoundIP() { return validAddress ? PackedAddress.format(addressHi, addressLo) : INVALID_IP; }
+    public String getProtocolHash() { return HexFormat.of().toHexDigits(protocolHash()); }
+    public String getEntropyToken() { return HexFormat.of().toHexDigits(entropy); }
     public long getCreationTime() { return creationTime; }
     public int getProtocolVersion() { return protocolVersion; }
-    public SessionStatus getStatus() { return status; }
-    public int getSuspicionLevel() { return suspicionLevel; }
+    public SessionStatus getStatus() { return getStatus(System.nanoTime()); }
+    public int getSuspicionLevel() { return getSuspicionLevel(System.nanoTime()); }
 
     public long getSessionDurationMs() {
         return System.currentTimeMillis() - creationTime;
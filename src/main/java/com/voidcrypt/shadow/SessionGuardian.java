@@ -1,6 +1,7 @@
 package com.voidcrypt.shadow;
 
 import com.voidcrypt.VoidCryptPlugin;
+import com.voidcrypt.core.RetentionReaper;
 import com.voidcrypt.security.SecurityValidator;
 import org.bukkit.BanList;
 import org.bukkit.Bukkit;
@@ -12,14 +13,18 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.scheduler.BukkitTask;
 
+import java.io.IOException;
 import java.net.InetAddress;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 /**
@@ -30,12 +35,43 @@ public class SessionGuardian implements Listener {
 
     private final VoidCryptPlugin plugin;
     
-    // Thread-safe session fingerprint storage
-    private final Map<UUID, SessionFingerprint> sessionStore;
+    // Sessions of players who left are kept this long to detect quick reconnections
+    private static final long RETENTION_MS = 5 * 60_000L;
+
+    // Thread-safe session fingerprint storage, shared with other backends if session sync is on
+    private final SessionStore sessionStore;
+
+    // Post-quit deadlines; a reconnect cancels its own
+    private final RetentionReaper<UUID> retention;
+
+    // Session sync tick, null without replication
+    private final BukkitTask syncTask;
 
     public SessionGuardian(VoidCryptPlugin plugin) {
         this.plugin = plugin;
-        this.sessionStore = new ConcurrentHashMap<>();
+        this.sessionStore = createStore(plugin);
+        this.retention = new RetentionReaper<>(plugin.getExpiryWheel(), RETENTION_MS, this::release);
+        SessionFingerprint.setSuspicionHalfLifeMs(
+            plugin.getConfig().getLong("shadow-session.suspicion-half-life-minutes", 30) * 60_000);
+        this.syncTask = sessionStore instanceof ReplicatedSessionStore
+            ? Bukkit.getScheduler().runTaskTimerAsynchronously(plugin,
+                () -> sessionStore.tick(System.currentTimeMillis()), 1L, 1L)
+            : null;
+    }
+
+    private static SessionStore createStore(VoidCryptPlugin plugin) {
+        try {
+            SessionStore replicated = ReplicatedSessionStore.fromConfig(
+                plugin.getConfig().getConfigurationSection("session-sync"),
+                plugin.getConfig().getString("void-handshake.secret-key", ""), plugin.getLogger());
+            if (replicated != null) {
+                plugin.getLogger().info("[OK] Session sync enabled");
+                return replicated;
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            plugin.getLogger().log(Level.WARNING, "Session sync disabled: " + e.getMessage(), e);
+        }
+        return new LocalSessionStore();
     }
 
     @EventHandler(priority = EventPriority.HIGHEST)
@@ -67,7 +103,7 @@ public class SessionGuardian implements Listener {
         
         // Create new session fingerprint
         SessionFingerprint fingerprint = new SessionFingerprint(uuid, validatedIP, -1);
-        sessionStore.put(uuid, fingerprint);
+        sessionStore.put(fingerprint);
         
         plugin.getLogger().fine("Session created for " + event.getName() + " from " + validatedIP);
         plugin.auditLog(Level.INFO, "SESSION_CREATED", 
@@ -77,6 +113,7 @@ public class SessionGuardian implements Listener {
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
+        retention.cancel(player.getUniqueId());
         SessionFingerprint fingerprint = sessionStore.get(player.getUniqueId());
         
         if (fingerprint == null) {
@@ -87,22 +124,29 @@ public class SessionGuardian implements Listener {
             fingerprint = new SessionFingerprint(player.getUniqueId(), 
                 validatedIP != null ? validatedIP : "unknown", 
                 player.getProtocolVersion());
-            sessionStore.put(player.getUniqueId(), fingerprint);
+            sessionStore.put(fingerprint);
         }
     }
 
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
         // Keep session for a while to detect quick reconnections
-        UUID uuid = event.getPlayer().getUniqueId();
-        
-        Bukkit.getScheduler().runTaskLaterAsynchronously(plugin, () -> {
-            // Clean up after 5 minutes if not reconnected
-            Player player = Bukkit.getPlayer(uuid);
-            if (player == null || !player.isOnline()) {
-                sessionStore.remove(uuid);
-            }
-        }, 6000L); // 5 minutes
+        scheduleCleanup(event.getPlayer().getUniqueId());
+    }
+
+    private void scheduleCleanup(UUID uuid) {
+        // Clean up after 5 minutes unless the player joins again first
+        retention.retain(uuid);
+    }
+
+    /**
+     * Drops a retained session unless its player is back; a join can race the deadline firing
+     */
+    private void release(UUID uuid) {
+        Player player = Bukkit.getPlayer(uuid);
+        if (player == null || !player.isOnline()) {
+            sessionStore.remove(uuid);
+        }
     }
 
     private void handleSessionSwap(AsyncPlayerPreLoginEvent event, UUID uuid, 
@@ -137,6 +181,7 @@ public class SessionGuardian implements Listener {
         SessionFingerprint fingerprint = sessionStore.get(uuid);
         if (fingerprint != null) {
             fingerprint.incrementSuspicion(10);
+            sessionStore.updated(fingerprint);
         }
     }
 
@@ -165,7 +210,18 @@ public class SessionGuardian implements Listener {
      * Gets all active sessions
      */
     public Map<UUID, SessionFingerprint> getAllSessions() {
-        return Map.copyOf(sessionStore);
+        Map<UUID, SessionFingerprint> sessions = new HashMap<>();
+        for (SessionFingerprint fingerprint : sessionStore.getLocalSessions()) {
+            sessions.put(fingerprint.getPlayerUUID(), fingerprint);
+        }
+        return Map.copyOf(sessions);
+    }
+
+    /**
+     * Live, unmodifiable view of the active sessions, for building snapshots without a copy
+     */
+    public Collection<SessionFingerprint> getSessionView() {
+        return Collections.unmodifiableCollection(sessionStore.getLocalSessions());
     }
 
     /**
@@ -175,6 +231,7 @@ public class SessionGuardian implements Listener {
         SessionFingerprint fingerprint = sessionStore.get(uuid);
         if (fingerprint != null) {
             fingerprint.markInvestigated();
+            sessionStore.updated(fingerprint);
         }
     }
 
@@ -185,10 +242,47 @@ public class SessionGuardian implements Listener {
         SessionFingerprint fingerprint = sessionStore.get(uuid);
         if (fingerprint != null) {
             fingerprint.incrementSuspicion(level);
+            sessionStore.updated(fingerprint);
+        }
+    }
+
+    /**
+     * Puts back a fingerprint from a state snapshot unless the player already has a new one.
+     * Sessions of players who are not online get the usual post-quit cleanup.
+     */
+    public void restoreSession(SessionFingerprint fingerprint) {
+        UUID uuid = fingerprint.getPlayerUUID();
+        if (sessionStore.putIfAbsent(fingerprint) != null) {
+            return;
+        }
+        Player player = Bukkit.getPlayer(uuid);
+        if (player == null || !player.isOnline()) {
+            scheduleCleanup(uuid);
         }
     }
 
     public int getActiveSessionCount() {
         return sessionStore.size();
     }
+
+    /**
+     * Sessions of players who left, waiting out the reconnect window
+     */
+    public int getRetainedSessionCount() {
+        return retention.getPendingCount();
+    }
+
+    public SessionStore getSessionStore() {
+        return sessionStore;
+    }
+
+    /**
+     * Stops session sync; called on disable
+     */
+    public void close() {
+        if (syncTask != null) {
+            syncTask.cancel();
+        }
+        sessionStore.close();
+    }
 }
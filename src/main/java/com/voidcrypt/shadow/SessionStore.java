@@ -0,0 +1,58 @@
+package com.voidcrypt.shadow;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Where {@link SessionGuardian} keeps session fingerprints
+ * {@link LocalSessionStore} holds this server's sessions only; {@link ReplicatedSessionStore}
+ * also sees the sessions of other backends behind the same proxy, so a session swap across
+ * servers is caught. Implementations are safe to call from any thread.
+ */
+public interface SessionStore {
+
+    /**
+     * @return the newest known session of the player, from this server or another; null if none
+     */
+    SessionFingerprint get(UUID uuid);
+
+    /**
+     * Stores a session created on this server, replacing any older one of the player
+     */
+    void put(SessionFingerprint fingerprint);
+
+    /**
+     * Stores the session unless the player already has one
+     * @return the session already stored, or null if this one was added
+     */
+    SessionFingerprint putIfAbsent(SessionFingerprint fingerprint);
+
+    /**
+     * Drops the player's session if it is this server's; sessions held for other servers stay
+     */
+    void remove(UUID uuid);
+
+    /**
+     * Reports that the suspicion or status of a stored session changed
+     */
+    void updated(SessionFingerprint fingerprint);
+
+    /**
+     * Live, unmodifiable view of this server's sessions
+     */
+    Collection<SessionFingerprint> getLocalSessions();
+
+    /**
+     * @return number of this server's sessions
+     */
+    int size();
+
+    /**
+     * Exchanges pending updates with other servers; called every tick off the main thread
+     */
+    default void tick(long now) {
+    }
+
+    default void close() {
+    }
+}
@@ -0,0 +1,230 @@
+package com.voidcrypt.zte;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Module 1K: Admission Pipeline
+ * Runs every new login through an explicit list of stages and stops at the first that
+ * rejects or holds it, measuring each stage's cost and how often it rejects.
+ *
+ * Filter stages (blocklists, lockout lookups) must be read-only: no alerts, no charged
+ * tokens, nothing beyond their own counters. They are reordered by {@link #reorder()} so the
+ * cheapest, most selective checks run first: ascending cost per rejection, the optimal order
+ * for independent filters. Stages with side effects (per-IP rate tokens, cookie, admission
+ * queue, challenge) are fixed, may hold a login and run afterwards in the order they were
+ * added; a held login continues with {@link #resume}.
+ *
+ * @param <A> the login attempt passed to each stage
+ */
+public final class AdmissionPipeline<A> {
+
+    // Evaluations a filter needs since the last reorder before its rank is updated
+    private static final long MIN_SAMPLES = 64;
+
+    // Rejection rate assumed for filters that never rejected, so cost still orders them
+    private static final double MIN_REJECT_RATE = 1e-4;
+
+    // Filters in their current order
+    private final List<StageStats<A>> filters;
+    private final List<StageStats<A>> fixed;
+    private volatile boolean adaptive;
+
+    // Current order: filters by rank, then fixed stages; replaced as a whole on reorder
+    private volatile StageStats<A>[] order;
+
+    public AdmissionPipeline(boolean adaptive) {
+        this.filters = new ArrayList<>();
+        this.fixed = new ArrayList<>();
+        this.adaptive = adaptive;
+        this.order = array(List.of());
+    }
+
+    /**
+     * Adds a side-effect-free check that may be moved by {@link #reorder()}
+     */
+    public synchronized AdmissionPipeline<A> addFilter(String name, Stage<A> stage) {
+        filters.add(new StageStats<>(name, stage, false));
+        publish();
+        return this;
+    }
+
+    /**
+     * Adds a stage that always runs after the filters, in the order added
+     */
+    public synchronized AdmissionPipeline<A> addFixed(String name, Stage<A> stage) {
+        fixed.add(new StageStats<>(name, stage, true));
+        publish();
+        return this;
+    }
+
+    /**
+     * Runs the attempt from the first stage
+     * @return the outcome and the stage that rejected or held the attempt
+     */
+    public Result run(A attempt, long now) {
+        return runFrom(order, 0, attempt, now);
+    }
+
+    /**
+     * Continues a held attempt with the stage after {@code heldBy}
+     */
+    public Result resume(A attempt, Stage<A> heldBy, long now) {
+        StageStats<A>[] stages = order;
+        for (int i = 0; i < stages.length; i++) {
+            if (stages[i].stage == heldBy) {
+                return runFrom(stages, i + 1, attempt, now);
+            }
+        }
+        throw new IllegalArgumentException("Stage is not part of this pipeline");
+    }
+
+    private Result runFrom(StageStats<A>[] stages, int from, A attempt, long now) {
+        for (int i = from; i < stages.length; i++) {
+            StageStats<A> stats = stages[i];
+            long start = System.nanoTime();
+            Outcome outcome = stats.stage.check(attempt, now);
+            stats.nanos.add(System.nanoTime() - start);
+            stats.evaluated.increment();
+            if (outcome == Outcome.REJECT) {
+                stats.rejected.increment();
+                return stats.rejectResult;
+            }
+            if (outcome == Outcome.HOLD) {
+                stats.held.increment();
+                return stats.holdResult;
+            }
+        }
+        return Result.PASSED;
+    }
+
+    /**
+     * Re-ranks the filters from what they cost and rejected since the last call; call once per second
+     */
+    public synchronized void reorder() {
+        if (!adaptive) {
+            return;
+        }
+        for (StageStats<A> stats : filters) {
+            stats.updateRank();
+        }
+        // Stable sort: filters not measured yet keep their place at the end
+        filters.sort(Comparator.comparingDouble(stats -> stats.rank));
+        publish();
+    }
+
+    private void publish() {
+        List<StageStats<A>> all = new ArrayList<>(filters);
+        all.addAll(fixed);
+        order = array(all);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <A> StageStats<A>[] array(List<StageStats<A>> stages) {
+        return stages.toArray(new StageStats[0]);
+    }
+
+    public void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Stages in the order they currently run
+     */
+    public List<StageView> getStages() {
+        StageStats<A>[] stages = order;
+        List<StageView> views = new ArrayList<>(stages.length);
+        for (StageStats<A> stats : stages) {
+            views.add(stats.view());
+        }
+        return views;
+    }
+
+    /**
+     * A single check on a login attempt
+     */
+    @FunctionalInterface
+    public interface Stage<A> {
+        Outcome check(A attempt, long now);
+    }
+
+    public enum Outcome {
+        PASS,   // Next stage, or let the login through after the last one
+        REJECT, // Turn the login away
+        HOLD    // The stage keeps the login and continues it later via resume
+    }
+
+    /**
+     * How a run ended
+     * @param stage name of the stage that rejected or held the attempt, null if it passed
+     */
+    public record Result(Outcome outcome, String stage) {
+        static final Result PASSED = new Result(Outcome.PASS, null);
+    }
+
+    /**
+     * Snapshot of a stage's counters
+     * @param averageNanos mean time spent in the stage per evaluation
+     */
+    public record StageView(String name, boolean fixed, long evaluated, long rejected, long held,
+                            double averageNanos) {
+        public double rejectRate() {
+            return evaluated > 0 ? (double) rejected / evaluated : 0.0;
+        }
+    }
+
+    private static final class StageStats<A> {
+        final String name;
+        final Stage<A> stage;
+        final boolean fixed;
+        final LongAdder evaluated = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder held = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        // Returned as is, so a run allocates nothing
+        final Result rejectResult;
+        final Result holdResult;
+
+        // Totals at the last rank update; only reorder() reads and writes these
+        long lastEvaluated;
+        long lastRejected;
+        long lastNanos;
+        double rank = Double.MAX_VALUE;
+
+        StageStats(String name, Stage<A> stage, boolean fixed) {
+            this.name = name;
+            this.stage = stage;
+            this.fixed = fixed;
+            this.rejectResult = new Result(Outcome.REJECT, name);
+            this.holdResult = new Result(Outcome.HOLD, name);
+        }
+
+        void updateRank() {
+            long evaluatedNow = evaluated.sum();
+            long samples = evaluatedNow - lastEvaluated;
+            if (samples < MIN_SAMPLES) {
+                return;
+            }
+            long rejectedNow = rejected.sum();
+            long nanosNow = nanos.sum();
+            double cost = (double) (nanosNow - lastNanos) / samples;
+            double rejectRate = Math.max(MIN_REJECT_RATE, (double) (rejectedNow - lastRejected) / samples);
+            rank = cost / rejectRate;
+            lastEvaluated = evaluatedNow;
+            lastRejected = rejectedNow;
+            lastNanos = nanosNow;
+        }
+
+        StageView view() {
+            long count = evaluated.sum();
+            return new StageView(name, fixed, count, rejected.sum(), held.sum(),
+                count > 0 ? (double) nanos.sum() / count : 0.0);
+        }
+    }
+}
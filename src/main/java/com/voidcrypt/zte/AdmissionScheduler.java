@@ -0,0 +1,239 @@
+package com.voidcrypt.zte;
+
+import com.voidcrypt.security.PackedAddress;
+import com.voidcrypt.security.RateLimiter;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Module 1H: Login Admission Scheduler
+ * Sits in front of the handshake and meters new, unverified logins. Each subnet has its own
+ * bucket, so one /24 cannot fill the queue; a server-wide bucket sets how many new logins
+ * start per second. Logins over the global rate wait in a bounded FIFO queue that
+ * {@link #drain(long)} empties every tick; known-good clients skip both buckets.
+ */
+public final class AdmissionScheduler {
+
+    private static final long GLOBAL_KEY = 0L;
+
+    private final RateLimiter subnetBucket;
+    private final RateLimiter globalBucket;
+    private final int ipv4Prefix;
+    private final int ipv6Prefix;
+    private final int maxQueue;
+    private final long maxWaitMs;
+
+    private final Queue<Waiting> queue;
+    private final AtomicInteger depth;
+    private final AtomicBoolean draining;
+
+    // Metrics
+    private final LongAdder fastLane;
+    private final LongAdder admitted;
+    private final LongAdder queued;
+    private final LongAdder rejectedSubnet;
+    private final LongAdder rejectedFull;
+    private final LongAdder timedOut;
+    private final LongAdder admittedFromQueue;
+    private final LongAdder totalWaitMs;
+    private volatile int peakDepth;
+    private volatile long maxObservedWaitMs;
+
+    /**
+     * @param maxQueue  logins allowed to wait at once; further ones are rejected
+     * @param maxWaitMs longest a login may wait before it is rejected
+     */
+    public AdmissionScheduler(RateLimiter subnetBucket, RateLimiter globalBucket, int ipv4Prefix, int ipv6Prefix,
+                              int maxQueue, long maxWaitMs) {
+        this.subnetBucket = subnetBucket;
+        this.globalBucket = globalBucket;
+        this.ipv4Prefix = ipv4Prefix;
+        this.ipv6Prefix = ipv6Prefix;
+        this.maxQueue = Math.max(0, maxQueue);
+        this.maxWaitMs = maxWaitMs;
+        this.queue = new ConcurrentLinkedQueue<>();
+        this.depth = new AtomicInteger();
+        this.draining = new AtomicBoolean();
+        this.fastLane = new LongAdder();
+        this.admitted = new LongAdder();
+        this.queued = new LongAdder();
+        this.rejectedSubnet = new LongAdder();
+        this.rejectedFull = new LongAdder();
+        this.timedOut = new LongAdder();
+        this.admittedFromQueue = new LongAdder();
+        this.totalWaitMs = new LongAdder();
+    }
+
+    /**
+     * @param knownGood recently verified IP, or a returning player whose session matches
+     * @param ticket    creates the ticket told later whether a QUEUED login may proceed;
+     *                  only called when the login is queued
+     */
+    public Decision offer(PackedAddress address, boolean knownGood, long now, Supplier<? extends Ticket> ticket) {
+        if (knownGood) {
+            fastLane.increment();
+            return Decision.FAST_LANE;
+        }
+
+        // With logins waiting a new one could only be queued: refuse it while the queue is full
+        // before it spends its subnet's allowance on a login that was never let in
+        int waiting = depth.get();
+        if (waiting > 0 && waiting >= maxQueue) {
+            rejectedFull.increment();
+            return Decision.REJECTED_FULL;
+        }
+
+        PackedAddress subnet = address.prefix(ipv4Prefix, ipv6Prefix);
+        if (!subnetBucket.tryAcquire(subnet, now)) {
+            rejectedSubnet.increment();
+            return Decision.REJECTED_SUBNET;
+        }
+
+        // Logins already waiting go first
+        if (depth.get() == 0 && globalBucket.tryAcquire(GLOBAL_KEY, now)) {
+            admitted.increment();
+            return Decision.ADMITTED;
+        }
+
+        int size = depth.incrementAndGet();
+        if (size > maxQueue) {
+            depth.decrementAndGet();
+            rejectedFull.increment();
+            return Decision.REJECTED_FULL;
+        }
+        if (size > peakDepth) {
+            peakDepth = size;
+        }
+        queue.add(new Waiting(ticket.get(), now));
+        queued.increment();
+        return Decision.QUEUED;
+    }
+
+    /**
+     * Admits waiting logins as far as the global bucket allows and rejects those that
+     * waited too long; called every tick
+     * @return number of logins admitted
+     */
+    public int drain(long now) {
+        if (!draining.compareAndSet(false, true)) {
+            return 0;
+        }
+        int count = 0;
+        try {
+            Waiting next;
+            while ((next = queue.peek()) != null) {
+                long waited = now - next.enqueuedAt;
+                if (waited > maxWaitMs) {
+                    take();
+                    timedOut.increment();
+                    next.ticket.reject();
+                    continue;
+                }
+                if (!globalBucket.tryAcquire(GLOBAL_KEY, now)) {
+                    break;
+                }
+                take();
+                admittedFromQueue.increment();
+                totalWaitMs.add(waited);
+                if (waited > maxObservedWaitMs) {
+                    maxObservedWaitMs = waited;
+                }
+                next.ticket.admit();
+                count++;
+            }
+        } finally {
+            draining.set(false);
+        }
+        return count;
+    }
+
+    private void take() {
+        queue.poll();
+        depth.decrementAndGet();
+    }
+
+    public int getQueueDepth() {
+        return depth.get();
+    }
+
+    public int getPeakQueueDepth() {
+        return peakDepth;
+    }
+
+    public long getFastLaneCount() {
+        return fastLane.sum();
+    }
+
+    /**
+     * Logins let through without waiting, excluding the fast lane
+     */
+    public long getAdmittedCount() {
+        return admitted.sum();
+    }
+
+    public long getQueuedCount() {
+        return queued.sum();
+    }
+
+    public long getAdmittedFromQueueCount() {
+        return admittedFromQueue.sum();
+    }
+
+    public long getRejectedSubnetCount() {
+        return rejectedSubnet.sum();
+    }
+
+    public long getRejectedFullCount() {
+        return rejectedFull.sum();
+    }
+
+    public long getTimedOutCount() {
+        return timedOut.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejectedSubnet.sum() + rejectedFull.sum() + timedOut.sum();
+    }
+
+    public double getAverageWaitMs() {
+        long count = admittedFromQueue.sum();
+        return count == 0 ? 0.0 : (double) totalWaitMs.sum() / count;
+    }
+
+    public long getMaxWaitMs() {
+        return maxObservedWaitMs;
+    }
+
+    /**
+     * A login that was queued; exactly one method is called, from the draining thread
+     */
+    public interface Ticket {
+        void admit();
+
+        void reject();
+    }
+
+    public enum Decision {
+        FAST_LANE,       // Known-good client, buckets skipped
+        ADMITTED,        // Within both buckets, proceed now
+        QUEUED,          // Hold the login; the ticket decides later
+        REJECTED_SUBNET, // Subnet over its rate
+        REJECTED_FULL;   // Queue full
+
+        public boolean proceeds() {
+            return this == FAST_LANE || this == ADMITTED;
+        }
+
+        public boolean rejects() {
+            return this == REJECTED_SUBNET || this == REJECTED_FULL;
+        }
+    }
+
+    private record Waiting(Ticket ticket, long enqueuedAt) {
+    }
+}
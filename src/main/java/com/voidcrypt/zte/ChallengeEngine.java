@@ -0,0 +1,282 @@
+package com.voidcrypt.zte;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Module 1C: Challenge Answer Engine
+ * Computes and verifies handshake answers without per-call allocation.
+ * Answer: SHA-256(Nonce + SecretKey + Difficulty + EntropyHex), identical to the
+ * original String-based construction so existing clients keep working.
+ * Also provides per-thread HMAC-SHA256 for signing stateless challenge tokens.
+ */
+public final class ChallengeEngine {
+
+    public static final int ANSWER_LENGTH = 32;
+    public static final int ANSWER_HEX_LENGTH = ANSWER_LENGTH * 2;
+    public static final int MAC_LENGTH = 32;
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    // ASCII -> nibble, -1 for anything that is not a hex digit
+    private static final byte[] HEX_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(HEX_VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            HEX_VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            HEX_VALUES['a' + i] = (byte) (10 + i);
+            HEX_VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private final byte[] secretKeyBytes;
+    private final SecretKeySpec macKey;
+    private final ThreadLocal<State> state;
+
+    public ChallengeEngine(String secretKey) {
+        this.secretKeyBytes = secretKey.getBytes(StandardCharsets.UTF_8);
+        this.macKey = new SecretKeySpec(deriveMacKey(secretKeyBytes), MAC_ALGORITHM);
+        this.state = ThreadLocal.withInitial(() -> new State(secretKeyBytes.length, macKey));
+
+        // Fail fast on the constructing thread instead of on the first login
+        state.get();
+    }
+
+    /**
+     * Computes the expected answer as raw bytes
+     */
+    public byte[] computeAnswer(long nonce, int difficulty, long entropy) {
+        byte[] answer = new byte[ANSWER_LENGTH];
+        computeAnswer(nonce, difficulty, entropy, answer, 0);
+        return answer;
+    }
+
+    /**
+     * Computes the expected answer into a caller-supplied buffer
+     */
+    public void computeAnswer(long nonce, int difficulty, long entropy, byte[] out, int offset) {
+        State s = state.get();
+        byte[] buf = s.input;
+
+        int pos = writeDecimal(nonce, buf, 0);
+        System.arraycopy(secretKeyBytes, 0, buf, pos, secretKeyBytes.length);
+        pos += secretKeyBytes.length;
+        pos = writeDecimal(difficulty, buf, pos);
+        pos = writeHex(entropy, buf, pos);
+
+        s.digest.update(buf, 0, pos);
+        try {
+            s.digest.digest(out, offset, ANSWER_LENGTH);
+        } catch (DigestException e) {
+            throw new IllegalArgumentException("Answer buffer too small", e);
+        }
+    }
+
+    /**
+     * Computes HMAC-SHA256 over {@code domain || input} into a caller-supplied buffer.
+     * The MAC key is derived from the secret so tokens never share a key with answers, and
+     * each kind of signed message passes its own domain label so one cannot pass for another.
+     */
+    public void mac(byte[] domain, byte[] input, int offset, int length, byte[] out, int outOffset) {
+        Mac mac = state.get().mac;
+        mac.update(domain);
+        mac.update(input, offset, length);
+        try {
+            mac.doFinal(out, outOffset);
+        } catch (ShortBufferException e) {
+            throw new IllegalArgumentException("MAC buffer too small", e);
+        }
+    }
+
+    /**
+     * Checks that a response is exactly 64 hex characters (either case)
+     */
+    public static boolean isWellFormed(CharSequence response) {
+        if (response == null || response.length() != ANSWER_HEX_LENGTH) {
+            return false;
+        }
+        int invalid = 0;
+        for (int i = 0; i < ANSWER_HEX_LENGTH; i++) {
+            invalid |= nibble(response.charAt(i));
+        }
+        return invalid >= 0;
+    }
+
+    /**
+     * Checks that raw ASCII response bytes are exactly 64 hex characters
+     */
+    public static boolean isWellFormed(byte[] response, int offset, int length) {
+        if (response == null || length != ANSWER_HEX_LENGTH || offset < 0 || offset + length > response.length) {
+            return false;
+        }
+        int invalid = 0;
+        for (int i = 0; i < ANSWER_HEX_LENGTH; i++) {
+            invalid |= nibble(response[offset + i]);
+        }
+        return invalid >= 0;
+    }
+
+    /**
+     * Constant-time comparison of an expected answer against a hex response.
+     * The full response is always scanned, regardless of where it differs.
+     */
+    public static boolean verifyHex(byte[] expected, CharSequence response) {
+        if (response == null || response.length() != expected.length * 2) {
+            return false;
+        }
+        int diff = 0;
+        for (int i = 0; i < expected.length; i++) {
+            int hi = nibble(response.charAt(2 * i));
+            int lo = nibble(response.charAt(2 * i + 1));
+            diff |= (hi | lo) & 0x100;
+            diff |= (((hi << 4) | lo) ^ expected[i]) & 0xFF;
+        }
+        return diff == 0;
+    }
+
+    /**
+     * Constant-time comparison against raw ASCII hex bytes straight from a packet
+     */
+    public static boolean verifyHex(byte[] expected, byte[] response, int offset, int length) {
+        if (response == null || length != expected.length * 2 || offset < 0 || offset + length > response.length) {
+            return false;
+        }
+        int diff = 0;
+        for (int i = 0; i < expected.length; i++) {
+            int hi = nibble(response[offset + 2 * i]);
+            int lo = nibble(response[offset + 2 * i + 1]);
+            diff |= (hi | lo) & 0x100;
+            diff |= (((hi << 4) | lo) ^ expected[i]) & 0xFF;
+        }
+        return diff == 0;
+    }
+
+    /**
+     * Parses hex into a caller-supplied buffer
+     * @return false if the length does not match or a character is not hex
+     */
+    public static boolean parseHex(CharSequence hex, byte[] out, int offset, int length) {
+        if (hex == null || hex.length() != length * 2) {
+            return false;
+        }
+        int invalid = 0;
+        for (int i = 0; i < length; i++) {
+            int hi = nibble(hex.charAt(2 * i));
+            int lo = nibble(hex.charAt(2 * i + 1));
+            invalid |= hi | lo;
+            out[offset + i] = (byte) ((hi << 4) | lo);
+        }
+        return invalid >= 0;
+    }
+
+    /**
+     * Parses raw ASCII hex bytes into a caller-supplied buffer
+     * @return false if the range does not fit or a character is not hex
+     */
+    public static boolean parseHex(byte[] hex, int hexOffset, byte[] out, int offset, int length) {
+        if (hex == null || hexOffset < 0 || hexOffset + length * 2 > hex.length) {
+            return false;
+        }
+        int invalid = 0;
+        for (int i = 0; i < length; i++) {
+            int hi = nibble(hex[hexOffset + 2 * i]);
+            int lo = nibble(hex[hexOffset + 2 * i + 1]);
+            invalid |= hi | lo;
+            out[offset + i] = (byte) ((hi << 4) | lo);
+        }
+        return invalid >= 0;
+    }
+
+    /**
+     * Constant-time comparison of two byte ranges of equal length
+     */
+    public static boolean constantTimeEquals(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        int diff = 0;
+        for (int i = 0; i < length; i++) {
+            diff |= a[aOffset + i] ^ b[bOffset + i];
+        }
+        return diff == 0;
+    }
+
+    private static byte[] deriveMacKey(byte[] secret) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update("voidcrypt-challenge-token".getBytes(StandardCharsets.US_ASCII));
+            return digest.digest(secret);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Returns the nibble value, or -1 (all bits set) for non-hex input
+     */
+    private static int nibble(int c) {
+        return (c & ~0x7F) == 0 ? HEX_VALUES[c] : -1;
+    }
+
+    private static int writeDecimal(long value, byte[] buf, int pos) {
+        if (value == 0) {
+            buf[pos] = '0';
+            return pos + 1;
+        }
+        // Work in negative space so Long.MIN_VALUE needs no special case
+        long v = value;
+        if (v > 0) {
+            v = -v;
+        } else {
+            buf[pos++] = '-';
+        }
+        int start = pos;
+        while (v != 0) {
+            buf[pos++] = (byte) ('0' - (v % 10));
+            v /= 10;
+        }
+        for (int i = start, j = pos - 1; i < j; i++, j--) {
+            byte tmp = buf[i];
+            buf[i] = buf[j];
+            buf[j] = tmp;
+        }
+        return pos;
+    }
+
+    private static int writeHex(long value, byte[] buf, int pos) {
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            buf[pos++] = HEX_DIGITS[(int) (value >>> shift) & 0xF];
+        }
+        return pos;
+    }
+
+    /**
+     * Per-thread digest, MAC and input scratch space
+     */
+    private static final class State {
+        final MessageDigest digest;
+        final Mac mac;
+        final byte[] input;
+
+        State(int secretLength, SecretKeySpec macKey) {
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+                this.mac = Mac.getInstance(MAC_ALGORITHM);
+                this.mac.init(macKey);
+            } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+                throw new IllegalStateException("SHA-256 / HMAC not available", e);
+            }
+            // nonce (sign + 19 digits) + secret + difficulty (sign + 10 digits) + 16 hex chars
+            this.input = new byte[20 + secretLength + 11 + 16];
+        }
+    }
+}
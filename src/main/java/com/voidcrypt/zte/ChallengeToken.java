@@ -0,0 +1,164 @@
+package com.voidcrypt.zte;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+
+/**
+ * Module 1D: Stateless Challenge Token
+ * Self-contained challenge carrying its own nonce, timestamp, difficulty and entropy,
+ * authenticated by an HMAC (domain "vc-token") bound to the client address. Verification needs no
+ * server-side state, so a spoofed-IP flood cannot grow the heap. Replay of an answered
+ * token is caught by {@link SpentTokens}, which only holds tokens that were solved.
+ *
+ * Token layout (43 bytes, sent as 86 hex chars):
+ *   version(1) | nonce(8) | issuedAt(8) | difficulty(1) | entropy(8) | workBits(1) | tag(16)
+ * Client response: tokenHex ":" seedHex suffixHex (see {@link ProofOfWork}),
+ * or tokenHex ":" seedHex cycleHex when workBits selects {@link CuckooCycle}
+ */
+public final class ChallengeToken {
+
+    public static final byte VERSION = 2;
+
+    private static final int BODY_LENGTH = 1 + 8 + 8 + 1 + 8 + 1;
+    private static final int TAG_LENGTH = 16;
+    public static final int TOKEN_LENGTH = BODY_LENGTH + TAG_LENGTH;
+    public static final int TOKEN_HEX_LENGTH = TOKEN_LENGTH * 2;
+    public static final int RESPONSE_LENGTH = TOKEN_HEX_LENGTH + 1
+        + Math.max(ProofOfWork.RESPONSE_HEX_LENGTH, CuckooCycle.RESPONSE_HEX_LENGTH);
+
+    // Tolerated clock difference for tokens issued by another backend sharing the key
+    static final long MAX_CLOCK_SKEW_MS = 5_000;
+
+    // Longest textual address we bind to (IPv4-mapped IPv6)
+    private static final int MAX_ADDRESS_LENGTH = 45;
+
+    // MAC domain label, distinct from the verification cookie's
+    private static final byte[] DOMAIN = "vc-token".getBytes(StandardCharsets.US_ASCII);
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private ChallengeToken() {
+    }
+
+    /**
+     * Issues a signed token for the given address
+     */
+    public static byte[] issue(ChallengeEngine engine, String address, long nonce, long issuedAt,
+                               int difficulty, long entropy, int workBits) {
+        if (address.length() > MAX_ADDRESS_LENGTH) {
+            throw new IllegalArgumentException("Address too long for token binding");
+        }
+        byte[] token = new byte[TOKEN_LENGTH];
+        token[0] = VERSION;
+        writeLong(token, 1, nonce);
+        writeLong(token, 9, issuedAt);
+        token[17] = (byte) difficulty;
+        writeLong(token, 18, entropy);
+        token[26] = (byte) workBits;
+
+        Scratch s = SCRATCH.get();
+        sign(engine, token, address, s);
+        System.arraycopy(s.mac, 0, token, BODY_LENGTH, TAG_LENGTH);
+        return token;
+    }
+
+    /**
+     * Formats a token for the challenge payload
+     */
+    public static String toHex(byte[] token) {
+        return HexFormat.of().formatHex(token);
+    }
+
+    /**
+     * Verifies a "tokenHex:seedHex[suffixHex]" response against the address it arrived from
+     */
+    public static CryptographicChallenge.VerificationResult verify(ChallengeEngine engine, String address,
+                                                                   byte[] response, long now, long timeoutMs) {
+        if (response == null || response.length <= TOKEN_HEX_LENGTH || response.length > RESPONSE_LENGTH
+                || response[TOKEN_HEX_LENGTH] != ':') {
+            return CryptographicChallenge.VerificationResult.INVALID_FORMAT;
+        }
+        if (address == null || address.length() > MAX_ADDRESS_LENGTH) {
+            return CryptographicChallenge.VerificationResult.INVALID_FORMAT;
+        }
+
+        Scratch s = SCRATCH.get();
+        byte[] token = s.token;
+        if (!ChallengeEngine.parseHex(response, 0, token, 0, TOKEN_LENGTH) || token[0] != VERSION) {
+            return CryptographicChallenge.VerificationResult.INVALID_FORMAT;
+        }
+
+        // Forged, tampered or replayed-from-elsewhere tokens fail here
+        sign(engine, token, address, s);
+        if (!ChallengeEngine.constantTimeEquals(s.mac, 0, token, BODY_LENGTH, TAG_LENGTH)) {
+            return CryptographicChallenge.VerificationResult.WRONG_ANSWER;
+        }
+
+        long issuedAt = readLong(token, 9);
+        if (issuedAt > now + MAX_CLOCK_SKEW_MS) {
+            return CryptographicChallenge.VerificationResult.WRONG_ANSWER;
+        }
+        if (now - issuedAt > timeoutMs) {
+            return CryptographicChallenge.VerificationResult.TIMEOUT;
+        }
+
+        ProofOfWork.seed(readLong(token, 1), token[17] & 0xFF, readLong(token, 18), token[26] & 0xFF, s.seed, 0);
+        return ProofOfWork.verifyResponse(s.seed, token[26] & 0xFF,
+            response, TOKEN_HEX_LENGTH + 1, response.length - TOKEN_HEX_LENGTH - 1);
+    }
+
+    /**
+     * String entry point for callers that already decoded the payload
+     */
+    public static CryptographicChallenge.VerificationResult verify(ChallengeEngine engine, String address,
+                                                                   String response, long now, long timeoutMs) {
+        if (response == null) {
+            return CryptographicChallenge.VerificationResult.INVALID_FORMAT;
+        }
+        return verify(engine, address, response.getBytes(StandardCharsets.ISO_8859_1), now, timeoutMs);
+    }
+
+    /**
+     * Copies the tag of a response's token into {@code out}
+     * @return false if the response is too short to hold a token
+     */
+    static boolean readTag(byte[] response, byte[] out) {
+        return response != null && response.length > TOKEN_HEX_LENGTH
+            && ChallengeEngine.parseHex(response, BODY_LENGTH * 2, out, 0, TAG_LENGTH);
+    }
+
+    private static void sign(ChallengeEngine engine, byte[] token, String address, Scratch s) {
+        byte[] input = s.macInput;
+        System.arraycopy(token, 0, input, 0, BODY_LENGTH);
+        int length = address.length();
+        for (int i = 0; i < length; i++) {
+            input[BODY_LENGTH + i] = (byte) address.charAt(i);
+        }
+        engine.mac(DOMAIN, input, 0, BODY_LENGTH + length, s.mac, 0);
+    }
+
+    private static void writeLong(byte[] buf, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            buf[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private static long readLong(byte[] buf, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (buf[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Per-thread buffers so verification does not allocate
+     */
+    private static final class Scratch {
+        final byte[] token = new byte[TOKEN_LENGTH];
+        final byte[] macInput = new byte[BODY_LENGTH + MAX_ADDRESS_LENGTH];
+        final byte[] mac = new byte[ChallengeEngine.MAC_LENGTH];
+        final byte[] seed = new byte[ProofOfWork.SEED_LENGTH];
+    }
+}
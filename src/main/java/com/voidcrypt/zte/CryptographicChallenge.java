@@ -1,52 +1,105 @@
 package com.voidcrypt.zte;
 
 import com.voidcrypt.VoidCryptPlugin;
+import com.voidcrypt.core.TimingWheel;
+import com.voidcrypt.security.EntropyPool;
+import com.voidcrypt.security.PackedAddress;
+import com.voidcrypt.security.RateKind;
+import com.voidcrypt.security.RateLimits;
 import com.voidcrypt.security.SecurityValidator;
+import org.bukkit.Bukkit;
 
 import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.Locale;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Pattern;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
 
 /**
  * Module 1A: Cryptographic Challenge Generation
- * Implements lightweight Proof of Work (PoW) to verify legitimate clients
+ * Implements lightweight Proof of Work (PoW) to verify legitimate clients.
+ * Work difficulty (leading zero bits) adapts to threat level and login rate.
  */
 public class CryptographicChallenge {
 
-    private final VoidCryptPlugin plugin;
-    private final SecureRandom secureRandom;
-    private final String secretKey;
+    private final EntropyPool entropyPool;
     private final int difficulty;
+    private final ChallengeEngine engine;
+    private final ChallengeMode mode;
+    private final DifficultyController difficultyController;
+    private final RateLimits rateLimits;
+    private final TimingWheel expiryWheel;
+    private final LongSupplier timeoutMs;
+    private final Logger logger;
     
-    // Pending challenge storage: IP -> ChallengeData
-    private final Map<String, ChallengeData> pendingChallenges;
-    
-    // Regex to validate 64-char hex hash response
-    private static final Pattern HASH_PATTERN = Pattern.compile("^[0-9a-f]{64}$");
+    // Pending challenge storage: IP -> challenge and its expiry (stateful mode only)
+    private final Map<String, Pending> pendingChallenges;
+    // Answered tokens (stateless mode only)
+    private final SpentTokens spentTokens;
     
     private static final long DEFAULT_CHALLENGE_TIMEOUT_MS = 60_000;
 
     public CryptographicChallenge(VoidCryptPlugin plugin) {
-        this.plugin = plugin;
-        this.secureRandom = new SecureRandom();
-        this.secretKey = plugin.getConfig().getString("void-handshake.secret-key", "DEFAULT_KEY");
-        this.difficulty = plugin.getConfig().getInt("void-handshake.difficulty", 2);
+        this(plugin.getConfig().getString("void-handshake.secret-key", "DEFAULT_KEY"),
+            plugin.getConfig().getInt("void-handshake.difficulty", 2),
+            ChallengeMode.fromConfig(plugin.getConfig().getString("void-handshake.challenge-mode", "stateful")),
+            new DifficultyController(
+                plugin.getConfig().getInt("void-handshake.pow.min-bits", 8),
+                plugin.getConfig().getInt("void-handshake.pow.max-bits", 20),
+                plugin.getConfig().getDouble("void-handshake.pow.login-rate-threshold", 20.0),
+                () -> currentThreatLevel(plugin),
+                plugin.getConfig().getInt("void-handshake.pow.memory-hard.from-bits", 0),
+                plugin.getConfig().getInt("void-handshake.pow.memory-hard.edge-bits", 16)),
+            plugin.getRateLimits(),
+            plugin.getEntropyPool(),
+            plugin.getExpiryWheel(),
+            () -> plugin.getConfig().getLong("void-handshake.timeout-ms", DEFAULT_CHALLENGE_TIMEOUT_MS),
+            plugin.getLogger());
+        
+        // Re-evaluate work difficulty every second
+        Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, difficultyController::update, 20L, 20L);
+    }
+
+    /**
+     * Wires the challenge from its parts; the caller drives {@link DifficultyController#update()}.
+     * Used by the plugin constructor and by the load harness, which runs without a server.
+     */
+    CryptographicChallenge(String secretKey, int difficulty, ChallengeMode mode,
+                           DifficultyController difficultyController, RateLimits rateLimits,
+                           EntropyPool entropyPool, TimingWheel expiryWheel, LongSupplier timeoutMs, Logger logger) {
+        this.entropyPool = entropyPool;
+        this.difficulty = difficulty;
+        this.engine = new ChallengeEngine(secretKey);
+        this.mode = mode;
         this.pendingChallenges = new ConcurrentHashMap<>();
+        this.spentTokens = new SpentTokens(expiryWheel);
+        this.difficultyController = difficultyController;
+        this.rateLimits = rateLimits;
+        this.expiryWheel = expiryWheel;
+        this.timeoutMs = timeoutMs;
+        this.logger = logger;
         
         if (!SecurityValidator.isSecretKeyValid(secretKey)) {
-            plugin.getLogger().severe("Invalid secret key configuration detected!");
+            logger.severe("Invalid secret key configuration detected!");
         }
+        logger.info("Challenge mode: " + mode + ", work " +
+            difficultyController.getMinBits() + "-" + difficultyController.getMaxBits() + " bits" +
+            (difficultyController.isMemoryHardEnabled()
+                ? ", memory-hard from " + difficultyController.getMemoryHardFromBits() + " bits" : ""));
+    }
+
+    private static double currentThreatLevel(VoidCryptPlugin plugin) {
+        return plugin.getDefenseSnapshot().threatLevel();
     }
 
     /**
-     * Generates a secure random nonce
+     * Generates a secure random nonce (pre-generated by the entropy pool)
      */
     public long generateNonce() {
-        return secureRandom.nextLong();
+        return entropyPool.nextLong();
     }
 
     /**
@@ -54,16 +107,8 @@ public class CryptographicChallenge {
      * Added random entropy token for unpredictability
      * Algorithm: SHA-256(Nonce + SecretKey + Difficulty + EntropyToken)
      */
-    public String calculateExpectedAnswer(long nonce, String entropyToken) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            String input = nonce + secretKey + difficulty + entropyToken;
-            byte[] hash = digest.digest(input.getBytes(StandardCharsets.UTF_8));
-            return bytesToHex(hash);
-        } catch (NoSuchAlgorithmException e) {
-            plugin.getLogger().severe("Critical error: SHA-256 not available!");
-            return null;
-        }
+    public byte[] calculateExpectedAnswer(long nonce, long entropy) {
+        return engine.computeAnswer(nonce, difficulty, entropy);
     }
 
     /**
@@ -72,23 +117,43 @@ public class CryptographicChallenge {
     public ChallengeData createChallenge(String ip) {
         String validatedIP = SecurityValidator.validateIP(ip);
         if (validatedIP == null) {
-            plugin.getLogger().warning("Rejected invalid IP for challenge: " + 
+            logger.warning("Rejected invalid IP for challenge: " + 
                 SecurityValidator.sanitizeForLog(ip));
             return null;
         }
         
-        if (!SecurityValidator.checkRateLimit("challenge:" + validatedIP)) {
-            plugin.getLogger().warning("Rate limit exceeded for challenge requests from: " + validatedIP);
+        // Rate-limited attempts still count as login pressure
+        difficultyController.recordLogin();
+        
+        if (!rateLimits.tryAcquire(RateKind.CHALLENGE, PackedAddress.of(validatedIP),
+                System.currentTimeMillis())) {
+            logger.warning("Rate limit exceeded for challenge requests from: " + validatedIP);
             return null;
         }
         
         long nonce = generateNonce();
-        String entropyToken = SecurityValidator.generateSecureToken(8);
-        String expectedAnswer = calculateExpectedAnswer(nonce, entropyToken);
+        long entropy = entropyPool.nextLong();
         long timestamp = System.currentTimeMillis();
+        int workBits = difficultyController.getCurrentWork();
+        // Public work input; the secret only authenticates the challenge (map entry or token MAC)
+        byte[] seed = ProofOfWork.seed(nonce, difficulty, entropy, workBits);
         
-        ChallengeData challenge = new ChallengeData(nonce, expectedAnswer, timestamp, difficulty, entropyToken);
-        pendingChallenges.put(validatedIP, challenge);
+        if (mode == ChallengeMode.STATELESS) {
+            // Nothing is stored: the signed token carries everything needed to verify
+            byte[] token = ChallengeToken.issue(engine, validatedIP, nonce, timestamp, difficulty, entropy, workBits);
+            return new ChallengeData(nonce, seed, timestamp, difficulty, entropy, workBits, token);
+        }
+        
+        ChallengeData challenge = new ChallengeData(nonce, seed, timestamp, difficulty, entropy, workBits, null);
+        
+        // Late answers still see the challenge (and fail as TIMEOUT) until twice the timeout;
+        // a newer challenge for the same IP is left alone
+        TimingWheel.Timeout expiry = expiryWheel.schedule(timeout -> pendingChallenges.computeIfPresent(validatedIP,
+            (key, pending) -> pending.challenge() == challenge ? null : pending), getTimeoutMs() * 2);
+        Pending replaced = pendingChallenges.put(validatedIP, new Pending(challenge, expiry));
+        if (replaced != null) {
+            replaced.expiry().cancel();
+        }
         
         return challenge;
     }
@@ -97,64 +162,130 @@ public class CryptographicChallenge {
      * Verifies a client's response
      */
     public VerificationResult verifyResponse(String ip, String response) {
+        return verifyResponse(ip, response != null ? response.getBytes(StandardCharsets.ISO_8859_1) : null);
+    }
+
+    /**
+     * Verifies a client's response straight from the raw payload bytes,
+     * without decoding it into a String first
+     */
+    public VerificationResult verifyResponse(String ip, byte[] response) {
         String validatedIP = SecurityValidator.validateIP(ip);
         if (validatedIP == null) {
             return VerificationResult.INVALID_FORMAT;
         }
         
-        ChallengeData challenge = pendingChallenges.remove(validatedIP);
-        
-        if (challenge == null) {
-            return VerificationResult.NO_CHALLENGE;
+        if (mode == ChallengeMode.STATELESS) {
+            VerificationResult result = ChallengeToken.verify(engine, validatedIP, response,
+                System.currentTimeMillis(), getTimeoutMs());
+            // A replayed answer finds its token spent, like a stateful challenge already consumed
+            if (result == VerificationResult.SUCCESS
+                    && !spentTokens.spend(response, getTimeoutMs() + ChallengeToken.MAX_CLOCK_SKEW_MS)) {
+                return VerificationResult.NO_CHALLENGE;
+            }
+            return result;
         }
         
-        long timeoutMs = plugin.getConfig().getLong("void-handshake.timeout-ms", DEFAULT_CHALLENGE_TIMEOUT_MS);
+        Pending pending = pendingChallenges.remove(validatedIP);
         
-        if (System.currentTimeMillis() - challenge.timestamp() > timeoutMs) {
-            return VerificationResult.TIMEOUT;
-        }
-        
-        // Validate response format
-        if (response == null || !HASH_PATTERN.matcher(response.toLowerCase()).matches()) {
-            return VerificationResult.INVALID_FORMAT;
+        if (pending == null) {
+            return VerificationResult.NO_CHALLENGE;
         }
+        // Consumed: its expiry has nothing left to remove
+        pending.expiry().cancel();
+        ChallengeData challenge = pending.challenge();
         
-        if (MessageDigest.isEqual(
-                challenge.expectedAnswer().toLowerCase().getBytes(StandardCharsets.UTF_8),
-                response.toLowerCase().getBytes(StandardCharsets.UTF_8))) {
-            return VerificationResult.SUCCESS;
+        if (isExpired(challenge)) {
+            return VerificationResult.TIMEOUT;
         }
         
-        return VerificationResult.WRONG_ANSWER;
+        // Seed must match, then SHA-256(seed || suffix) must carry the required zero bits
+        // (or the response must hold a cycle of the challenge's graph)
+        int length = response != null ? response.length : 0;
+        return ProofOfWork.verifyResponse(challenge.seed(), challenge.workBits(), response, 0, length);
     }
 
     /**
-     * Cleans up expired challenges
+     * Signs a verification cookie for a client that passed the handshake
      */
-    public void cleanupExpiredChallenges() {
-        long now = System.currentTimeMillis();
-        long timeoutMs = plugin.getConfig().getLong("void-handshake.timeout-ms", DEFAULT_CHALLENGE_TIMEOUT_MS);
-        
-        pendingChallenges.entrySet().removeIf(entry -> 
-            now - entry.getValue().timestamp() > timeoutMs * 2);
+    public byte[] issueCookie(String ip, UUID player, long now) {
+        return VerificationCookie.issue(engine, ip, player, now);
     }
 
+    public VerificationResult verifyCookie(String ip, UUID player, byte[] cookie, long now, long maxAgeMs) {
+        String validatedIP = SecurityValidator.validateIP(ip);
+        if (validatedIP == null) {
+            return VerificationResult.INVALID_FORMAT;
+        }
+        return VerificationCookie.verify(engine, validatedIP, player, cookie, now, maxAgeMs);
+    }
+
+    private boolean isExpired(ChallengeData challenge) {
+        return System.currentTimeMillis() - challenge.timestamp() > getTimeoutMs();
+    }
+
+    private long getTimeoutMs() {
+        return timeoutMs.getAsLong();
+    }
+
+    /**
+     * Always false in stateless mode, where nothing is kept per IP
+     */
     public boolean hasPendingChallenge(String ip) {
         String validatedIP = SecurityValidator.validateIP(ip);
         return validatedIP != null && pendingChallenges.containsKey(validatedIP);
     }
 
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            sb.append(String.format("%02x", b));
-        }
-        return sb.toString();
+    public ChallengeMode getMode() {
+        return mode;
+    }
+
+    public DifficultyController getDifficultyController() {
+        return difficultyController;
+    }
+
+    public int getPendingChallengeCount() {
+        return pendingChallenges.size();
     }
 
-    public record ChallengeData(long nonce, String expectedAnswer, long timestamp, int difficulty, String entropyToken) {
+    /**
+     * Answered stateless tokens still within their lifetime
+     */
+    public int getSpentTokenCount() {
+        return spentTokens.size();
+    }
+
+    /**
+     * @param seed     public work input, see {@link ProofOfWork#seed}
+     * @param workBits leading zero bits required from SHA-256(seed || suffix),
+     *                 or a {@link CuckooCycle#work(int)} value for the memory-hard puzzle
+     * @param token    signed stateless token, or null in stateful mode
+     */
+    public record ChallengeData(long nonce, byte[] seed, long timestamp, int difficulty, long entropy,
+                                int workBits, byte[] token) {
+        public String entropyToken() {
+            return HexFormat.of().toHexDigits(entropy);
+        }
+
+        /**
+         * nonce:difficulty:entropy:work:seedHex[:tokenHex]; everything the client needs to answer
+         */
         public String toPayload() {
-            return nonce + ":" + difficulty + ":" + entropyToken;
+            String payload = nonce + ":" + difficulty + ":" + entropyToken() + ":" + CuckooCycle.label(workBits)
+                + ":" + HexFormat.of().formatHex(seed);
+            return token != null ? payload + ":" + ChallengeToken.toHex(token) : payload;
+        }
+    }
+
+    private record Pending(ChallengeData challenge, TimingWheel.Timeout expiry) {
+    }
+
+    public enum ChallengeMode {
+        STATEFUL,  // Pending challenge kept per IP until answered or expired
+        STATELESS; // Signed token echoed back by the client, nothing stored
+
+        static ChallengeMode fromConfig(String value) {
+            return value != null && "stateless".equals(value.toLowerCase(Locale.ROOT)) ? STATELESS : STATEFUL;
         }
     }
 
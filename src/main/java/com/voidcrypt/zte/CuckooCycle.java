@@ -0,0 +1,350 @@
+package com.voidcrypt.zte;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Module 1J: Memory-Hard Proof of Work (Cuckoo Cycle)
+ * The challenge's public seed ({@link ProofOfWork#seed}) and a client-chosen graph nonce key a
+ * SipHash-2-4 that maps each of the
+ * 2^E edges to one node on each side of a bipartite graph with 2^E nodes per side.
+ * The client must find a cycle of {@link #CYCLE_LENGTH} edges, which needs the whole graph
+ * in memory (about 2^(E+3) bytes for the reference solver), so GPU and ASIC farms gain far
+ * less than on SHA-256 preimages. The server recomputes {@link #CYCLE_LENGTH} edges and
+ * walks the cycle: a few microseconds, independent of E.
+ *
+ * Response: seedHex(64) + graphNonceHex(8) + edgeHex(8) x {@link #CYCLE_LENGTH}, edges ascending.
+ * Work is sent as "c" + E in the challenge payload and carried as {@link #work(int)} internally.
+ */
+public final class CuckooCycle {
+
+    // Short enough for graphs of 2^10..2^24 edges to hold one every few attempts
+    public static final int CYCLE_LENGTH = 8;
+    public static final int MIN_EDGE_BITS = 10;
+    public static final int MAX_EDGE_BITS = 24;
+
+    private static final int WORK_FLAG = 0x80;
+    private static final int NONCE_HEX_LENGTH = 8;
+    private static final int EDGE_HEX_LENGTH = 8;
+    public static final int RESPONSE_HEX_LENGTH =
+        ChallengeEngine.ANSWER_HEX_LENGTH + NONCE_HEX_LENGTH + CYCLE_LENGTH * EDGE_HEX_LENGTH;
+
+    // Longest path the reference solver follows before dropping an edge
+    private static final int MAX_PATH = 4096;
+
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+    private CuckooCycle() {
+    }
+
+    /**
+     * Encodes a graph size as a work value; fits the token's work byte
+     */
+    public static int work(int edgeBits) {
+        if (edgeBits < MIN_EDGE_BITS || edgeBits > MAX_EDGE_BITS) {
+            throw new IllegalArgumentException("edge bits out of range: " + edgeBits);
+        }
+        return WORK_FLAG | edgeBits;
+    }
+
+    public static boolean isMemoryHard(int work) {
+        return (work & WORK_FLAG) != 0;
+    }
+
+    public static int edgeBits(int work) {
+        return work & ~WORK_FLAG;
+    }
+
+    /**
+     * Work as it appears in the challenge payload: "c" + edge bits, or the zero-bit count
+     */
+    public static String label(int work) {
+        return isMemoryHard(work) ? "c" + edgeBits(work) : String.valueOf(work);
+    }
+
+    /**
+     * Verifies the echoed seed and the cycle from raw ASCII response bytes
+     */
+    public static CryptographicChallenge.VerificationResult verifyResponse(byte[] seed, int edgeBits,
+                                                                           byte[] response, int offset, int length) {
+        if (response == null || length != RESPONSE_HEX_LENGTH
+                || edgeBits < MIN_EDGE_BITS || edgeBits > MAX_EDGE_BITS) {
+            return CryptographicChallenge.VerificationResult.INVALID_FORMAT;
+        }
+        State s = STATE.get();
+        int at = offset + ChallengeEngine.ANSWER_HEX_LENGTH;
+        if (!ChallengeEngine.isWellFormed(response, offset, ChallengeEngine.ANSWER_HEX_LENGTH)
+                || !ChallengeEngine.parseHex(response, at, s.proof, 0, s.proof.length)) {
+            return CryptographicChallenge.VerificationResult.INVALID_FORMAT;
+        }
+
+        if (!ChallengeEngine.verifyHex(seed, response, offset, ChallengeEngine.ANSWER_HEX_LENGTH)) {
+            return CryptographicChallenge.VerificationResult.WRONG_ANSWER;
+        }
+
+        int[] edges = s.edges;
+        for (int i = 0; i < CYCLE_LENGTH; i++) {
+            edges[i] = readInt(s.proof, 4 + i * 4);
+        }
+        s.key(seed, readInt(s.proof, 0));
+        return isCycle(s, edgeBits, edges)
+            ? CryptographicChallenge.VerificationResult.SUCCESS
+            : CryptographicChallenge.VerificationResult.WRONG_ANSWER;
+    }
+
+    /**
+     * Checks that the edges are distinct, in range and form one cycle of {@link #CYCLE_LENGTH}
+     */
+    private static boolean isCycle(State s, int edgeBits, int[] edges) {
+        long edgeCount = 1L << edgeBits;
+        int[] uvs = s.uvs;
+        int xor0 = 0;
+        int xor1 = 0;
+        for (int n = 0; n < CYCLE_LENGTH; n++) {
+            if ((edges[n] & 0xFFFF_FFFFL) >= edgeCount || (n > 0 && edges[n] <= edges[n - 1])) {
+                return false;
+            }
+            uvs[2 * n] = s.node(edges[n], 0, edgeBits);
+            uvs[2 * n + 1] = s.node(edges[n], 1, edgeBits);
+            xor0 ^= uvs[2 * n];
+            xor1 ^= uvs[2 * n + 1];
+        }
+        // Every node of a cycle is visited twice
+        if ((xor0 | xor1) != 0) {
+            return false;
+        }
+
+        // Walk the cycle: each endpoint must meet exactly one other edge on the same side
+        int visited = 0;
+        int i = 0;
+        do {
+            int j = i;
+            for (int k = (i + 2) % (2 * CYCLE_LENGTH); k != i; k = (k + 2) % (2 * CYCLE_LENGTH)) {
+                if (uvs[k] == uvs[i]) {
+                    if (j != i) {
+                        return false; // branch
+                    }
+                    j = k;
+                }
+            }
+            if (j == i) {
+                return false; // dead end
+            }
+            i = j ^ 1;
+            visited++;
+        } while (i != 0);
+        return visited == CYCLE_LENGTH;
+    }
+
+    /**
+     * Reference solver, as a client would run it
+     * Tries graph nonces counting up from {@code start} until a graph holds a cycle of the
+     * required length. Allocates 2^(E+1) ints per call.
+     */
+    public static Solution solve(byte[] seed, int edgeBits, int start) {
+        if (edgeBits < MIN_EDGE_BITS || edgeBits > MAX_EDGE_BITS) {
+            throw new IllegalArgumentException("edge bits out of range: " + edgeBits);
+        }
+        int edgeCount = 1 << edgeBits;
+        State s = new State();
+        // Directed forest over both sides: next[node] = successor + 1, 0 at a root
+        int[] next = new int[2 * edgeCount];
+        int[] us = new int[MAX_PATH];
+        int[] vs = new int[MAX_PATH];
+        for (int nonce = start; ; nonce++) {
+            s.key(seed, nonce);
+            Arrays.fill(next, 0);
+            for (int edge = 0; edge < edgeCount; edge++) {
+                int u0 = s.side(edge, 0, edgeBits);
+                int v0 = s.side(edge, 1, edgeBits) + edgeCount;
+                int nu = path(next, u0, us);
+                int nv = path(next, v0, vs);
+                if (nu < 0 || nv < 0) {
+                    continue;
+                }
+                if (us[nu] == vs[nv]) {
+                    // Same tree: the edge closes a cycle; find where the two paths join
+                    int min = Math.min(nu, nv);
+                    nu -= min;
+                    nv -= min;
+                    while (us[nu] != vs[nv]) {
+                        nu++;
+                        nv++;
+                    }
+                    if (nu + nv + 1 == CYCLE_LENGTH) {
+                        int[] edges = recover(s, edgeBits, us, nu, vs, nv);
+                        if (edges != null) {
+                            return new Solution(nonce, edges);
+                        }
+                    }
+                    continue;
+                }
+                // Different trees: reverse the shorter path and link it to the other root
+                if (nu < nv) {
+                    while (nu-- > 0) {
+                        next[us[nu + 1]] = us[nu] + 1;
+                    }
+                    next[u0] = v0 + 1;
+                } else {
+                    while (nv-- > 0) {
+                        next[vs[nv + 1]] = vs[nv] + 1;
+                    }
+                    next[v0] = u0 + 1;
+                }
+            }
+        }
+    }
+
+    private static int path(int[] next, int node, int[] nodes) {
+        int length = 0;
+        nodes[0] = node;
+        for (int successor = next[node]; successor != 0; successor = next[successor - 1]) {
+            if (++length >= MAX_PATH) {
+                return -1;
+            }
+            nodes[length] = successor - 1;
+        }
+        return length;
+    }
+
+    /**
+     * Finds the indices of the cycle's edges by regenerating the graph
+     */
+    private static int[] recover(State s, int edgeBits, int[] us, int nu, int[] vs, int nv) {
+        int edgeCount = 1 << edgeBits;
+        Map<Long, Boolean> cycle = new HashMap<>();
+        cycle.put(pair(us[0], vs[0], edgeCount), Boolean.TRUE);
+        for (int i = 0; i < nu; i++) {
+            cycle.put(pair(us[i + 1], us[i], edgeCount), Boolean.TRUE);
+        }
+        for (int i = 0; i < nv; i++) {
+            cycle.put(pair(vs[i + 1], vs[i], edgeCount), Boolean.TRUE);
+        }
+        int[] edges = new int[CYCLE_LENGTH];
+        int found = 0;
+        for (int edge = 0; edge < edgeCount && found < CYCLE_LENGTH; edge++) {
+            long key = pair(s.side(edge, 0, edgeBits), s.side(edge, 1, edgeBits) + edgeCount, edgeCount);
+            if (cycle.remove(key) != null) {
+                edges[found++] = edge;
+            }
+        }
+        // Duplicate edges in the graph can leave the set short
+        return found == CYCLE_LENGTH ? edges : null;
+    }
+
+    private static long pair(int a, int b, int edgeCount) {
+        int u = a < edgeCount ? a : b;
+        int v = a < edgeCount ? b : a;
+        return ((long) u << 32) | v;
+    }
+
+    static long sipHash24(long k0, long k1, long input) {
+        long v0 = k0 ^ 0x736f_6d65_7073_6575L;
+        long v1 = k1 ^ 0x646f_7261_6e64_6f6dL;
+        long v2 = k0 ^ 0x6c79_6765_6e65_7261L;
+        long v3 = k1 ^ 0x7465_6462_7974_6573L ^ input;
+        for (int round = 0; round < 2; round++) {
+            v0 += v1; v2 += v3; v1 = Long.rotateLeft(v1, 13); v3 = Long.rotateLeft(v3, 16);
+            v1 ^= v0; v3 ^= v2; v0 = Long.rotateLeft(v0, 32);
+            v2 += v1; v0 += v3; v1 = Long.rotateLeft(v1, 17); v3 = Long.rotateLeft(v3, 21);
+            v1 ^= v2; v3 ^= v0; v2 = Long.rotateLeft(v2, 32);
+        }
+        v0 ^= input;
+        v2 ^= 0xff;
+        for (int round = 0; round < 4; round++) {
+            v0 += v1; v2 += v3; v1 = Long.rotateLeft(v1, 13); v3 = Long.rotateLeft(v3, 16);
+            v1 ^= v0; v3 ^= v2; v0 = Long.rotateLeft(v0, 32);
+            v2 += v1; v0 += v3; v1 = Long.rotateLeft(v1, 17); v3 = Long.rotateLeft(v3, 21);
+            v1 ^= v2; v3 ^= v0; v2 = Long.rotateLeft(v2, 32);
+        }
+        return v0 ^ v1 ^ v2 ^ v3;
+    }
+
+    private static int readInt(byte[] buf, int offset) {
+        return (buf[offset] & 0xFF) << 24 | (buf[offset + 1] & 0xFF) << 16
+            | (buf[offset + 2] & 0xFF) << 8 | (buf[offset + 3] & 0xFF);
+    }
+
+    /**
+     * A found cycle: the graph nonce and its edge indices in ascending order
+     */
+    public record Solution(int nonce, int[] edges) {
+        /**
+         * Formats the solution as it follows the seed on the wire
+         */
+        public String toHex() {
+            HexFormat hex = HexFormat.of();
+            StringBuilder builder = new StringBuilder(NONCE_HEX_LENGTH + CYCLE_LENGTH * EDGE_HEX_LENGTH);
+            builder.append(hex.toHexDigits(nonce));
+            for (int edge : edges) {
+                builder.append(hex.toHexDigits(edge));
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * Per-thread digest, graph key and buffers
+     */
+    private static final class State {
+        final MessageDigest digest;
+        final byte[] keyInput = new byte[ProofOfWork.SEED_LENGTH + 4];
+        final byte[] hash = new byte[32];
+        final byte[] proof = new byte[4 + CYCLE_LENGTH * 4];
+        final int[] edges = new int[CYCLE_LENGTH];
+        final int[] uvs = new int[2 * CYCLE_LENGTH];
+        long k0;
+        long k1;
+
+        State() {
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+
+        /**
+         * SipHash keys = first 16 bytes of SHA-256(seed || graphNonce); no secret involved, so
+         * the client can build the same graph
+         */
+        void key(byte[] seed, int nonce) {
+            System.arraycopy(seed, 0, keyInput, 0, ProofOfWork.SEED_LENGTH);
+            keyInput[32] = (byte) (nonce >>> 24);
+            keyInput[33] = (byte) (nonce >>> 16);
+            keyInput[34] = (byte) (nonce >>> 8);
+            keyInput[35] = (byte) nonce;
+            digest.update(keyInput, 0, keyInput.length);
+            try {
+                digest.digest(hash, 0, hash.length);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            }
+            k0 = 0;
+            k1 = 0;
+            for (int i = 0; i < 8; i++) {
+                k0 = (k0 << 8) | (hash[i] & 0xFF);
+                k1 = (k1 << 8) | (hash[8 + i] & 0xFF);
+            }
+        }
+
+        /**
+         * Endpoint of an edge on one side, as an index within that side
+         */
+        int side(int edge, int side, int edgeBits) {
+            return (int) (sipHash24(k0, k1, 2L * (edge & 0xFFFF_FFFFL) + side) & ((1L << edgeBits) - 1));
+        }
+
+        /**
+         * Endpoint tagged with its side, so nodes of both sides never compare equal
+         */
+        int node(int edge, int side, int edgeBits) {
+            return side(edge, side, edgeBits) << 1 | side;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.voidcrypt.zte;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Module 1F: Adaptive Work Difficulty
+ * Picks the proof-of-work bit count from the radar threat level and the login rate.
+ * Difficulty rises immediately under pressure and decays one bit per update afterwards,
+ * so a burst cannot be waited out by pausing for a single second.
+ * From an optional tier upwards, challenges switch to the memory-hard {@link CuckooCycle}
+ * puzzle, one more edge bit (twice the graph) per bit of difficulty above the tier.
+ */
+public class DifficultyController {
+
+    private final int minBits;
+    private final int maxBits;
+    private final double loginRateThreshold;
+    private final DoubleSupplier threatLevel;
+    private final int memoryHardFromBits;
+    private final int memoryHardEdgeBits;
+
+    private final AtomicInteger loginsThisSecond;
+    private volatile int loginsLastSecond;
+    private volatile int currentBits;
+
+    /**
+     * @param loginRateThreshold logins per second at which the maximum difficulty applies
+     * @param threatLevel        0.0 (normal) to 1.0 (critical)
+     */
+    public DifficultyController(int minBits, int maxBits, double loginRateThreshold, DoubleSupplier threatLevel) {
+        this(minBits, maxBits, loginRateThreshold, threatLevel, 0, CuckooCycle.MIN_EDGE_BITS);
+    }
+
+    /**
+     * @param memoryHardFromBits difficulty at which challenges become memory-hard; 0 disables
+     * @param memoryHardEdgeBits graph size (log2 edges) at that difficulty
+     */
+    public DifficultyController(int minBits, int maxBits, double loginRateThreshold, DoubleSupplier threatLevel,
+                                int memoryHardFromBits, int memoryHardEdgeBits) {
+        this.minBits = clamp(minBits, 0, ProofOfWork.MAX_BITS);
+        this.maxBits = clamp(maxBits, this.minBits, ProofOfWork.MAX_BITS);
+        this.loginRateThreshold = Math.max(1.0, loginRateThreshold);
+        this.threatLevel = threatLevel;
+        this.memoryHardFromBits = Math.max(0, memoryHardFromBits);
+        this.memoryHardEdgeBits = clamp(memoryHardEdgeBits, CuckooCycle.MIN_EDGE_BITS, CuckooCycle.MAX_EDGE_BITS);
+        this.loginsThisSecond = new AtomicInteger(0);
+        this.currentBits = this.minBits;
+    }
+
+    /**
+     * Counts a login attempt towards the current second
+     */
+    public void recordLogin() {
+        loginsThisSecond.incrementAndGet();
+    }
+
+    /**
+     * Recomputes the difficulty; call once per second
+     */
+    public void update() {
+        int logins = loginsThisSecond.getAndSet(0);
+        loginsLastSecond = logins;
+
+        double threat = threatLevel.getAsDouble();
+        double pressure = Math.max(Double.isNaN(threat) ? 0.0 : threat, logins / loginRateThreshold);
+        pressure = Math.min(1.0, Math.max(0.0, pressure));
+
+        int target = minBits + (int) ((maxBits - minBits) * pressure);
+        int current = currentBits;
+        currentBits = target >= current ? target : current - 1;
+    }
+
+    /**
+     * Leading zero bits required from challenges issued now
+     */
+    public int getCurrentBits() {
+        return currentBits;
+    }
+
+    /**
+     * Work for challenges issued now: zero bits, or a {@link CuckooCycle#work(int)} value at
+     * and above the memory-hard tier
+     */
+    public int getCurrentWork() {
+        int bits = currentBits;
+        if (!isMemoryHardEnabled() || bits < memoryHardFromBits) {
+            return bits;
+        }
+        return CuckooCycle.work(Math.min(CuckooCycle.MAX_EDGE_BITS, memoryHardEdgeBits + bits - memoryHardFromBits));
+    }
+
+    public boolean isMemoryHardEnabled() {
+        return memoryHardFromBits > 0;
+    }
+
+    public int getMemoryHardFromBits() {
+        return memoryHardFromBits;
+    }
+
+    public int getLoginsLastSecond() {
+        return loginsLastSecond;
+    }
+
+    public int getMinBits() {
+        return minBits;
+    }
+
+    public int getMaxBits() {
+        return maxBits;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
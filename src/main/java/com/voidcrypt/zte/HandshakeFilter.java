@@ -0,0 +1,181 @@
+package com.voidcrypt.zte;
+
+import com.voidcrypt.security.IpParser;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Module 1L: Handshake Pre-Filter
+ * Checks the host and protocol version a client names in its Handshaking packet, the first
+ * packet of every connection, so bots using a raw IP, a random host or a nonsensical version
+ * are dropped before Login Start. The allowlist is compiled once into an exact-match set and
+ * a list of "*.domain" suffixes; a check is one range test, one scan and one hash lookup.
+ *
+ * Host data appended by Forge ("\0FML\0") or proxy forwarding ("\0ip\0uuid") and a trailing
+ * dot are ignored.
+ */
+public final class HandshakeFilter {
+
+    // DNS names are at most 255 characters
+    private static final int MAX_HOST_LENGTH = 255;
+
+    private final Set<String> exactHosts;
+    private final String[] suffixes;
+    private final boolean rejectIpLiterals;
+    private final int minProtocol;
+    private final int maxProtocol;
+    private final LongAdder[] counters;
+
+    /**
+     * @param allowedHosts hosts clients may name, "*.example.net" for any subdomain; empty allows any host
+     * @param minProtocol  lowest accepted protocol version; 0 for no lower limit
+     * @param maxProtocol  highest accepted protocol version; 0 for no upper limit
+     */
+    public HandshakeFilter(Collection<String> allowedHosts, boolean rejectIpLiterals, int minProtocol,
+                           int maxProtocol) {
+        this.exactHosts = new HashSet<>();
+        List<String> wildcards = new ArrayList<>();
+        for (String host : allowedHosts) {
+            String entry = host.trim().toLowerCase(Locale.ROOT);
+            if (entry.startsWith("*.")) {
+                wildcards.add(entry.substring(1));
+            } else if (!entry.isEmpty()) {
+                exactHosts.add(entry);
+            }
+        }
+        this.suffixes = wildcards.toArray(new String[0]);
+        this.rejectIpLiterals = rejectIpLiterals;
+        this.minProtocol = minProtocol;
+        this.maxProtocol = maxProtocol > 0 ? maxProtocol : Integer.MAX_VALUE;
+        this.counters = new LongAdder[Reason.values().length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Reads the handshake-filter section; null when the section is missing or disabled.
+     * Protocol bounds are only enforced when the operator sets them.
+     */
+    public static HandshakeFilter fromConfig(ConfigurationSection section) {
+        if (section == null || !section.getBoolean("enabled", true)) {
+            return null;
+        }
+        return new HandshakeFilter(section.getStringList("allowed-hosts"),
+            section.getBoolean("reject-ip-literals", false),
+            section.getInt("min-protocol", 0),
+            section.getInt("max-protocol", 0));
+    }
+
+    /**
+     * Checks one handshake and counts the outcome
+     */
+    public Reason check(String host, int protocol) {
+        Reason reason = evaluate(host, protocol);
+        counters[reason.ordinal()].increment();
+        return reason;
+    }
+
+    private Reason evaluate(String host, int protocol) {
+        if (protocol < minProtocol) {
+            return Reason.PROTOCOL_TOO_OLD;
+        }
+        if (protocol > maxProtocol) {
+            return Reason.PROTOCOL_TOO_NEW;
+        }
+        if (host == null) {
+            return Reason.HOST_MISSING;
+        }
+        String name = normalize(host);
+        if (name.isEmpty()) {
+            return Reason.HOST_MISSING;
+        }
+        if (name.length() > MAX_HOST_LENGTH) {
+            return Reason.HOST_NOT_ALLOWED;
+        }
+        if (exactHosts.contains(name)) {
+            return Reason.ACCEPTED;
+        }
+        boolean ipLiteral = isIpLiteral(name);
+        if (ipLiteral && rejectIpLiterals) {
+            return Reason.IP_LITERAL;
+        }
+        if (exactHosts.isEmpty() && suffixes.length == 0) {
+            return Reason.ACCEPTED;
+        }
+        for (String suffix : suffixes) {
+            if (name.length() > suffix.length() && name.endsWith(suffix)) {
+                return Reason.ACCEPTED;
+            }
+        }
+        return ipLiteral ? Reason.IP_LITERAL : Reason.HOST_NOT_ALLOWED;
+    }
+
+    /**
+     * Host without appended forwarding data or trailing dot, in lower case
+     */
+    static String normalize(String host) {
+        int end = host.indexOf('\0');
+        if (end < 0) {
+            end = host.length();
+        }
+        if (end > 0 && host.charAt(end - 1) == '.') {
+            end--;
+        }
+        return host.substring(0, end).toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isIpLiteral(String host) {
+        // Bracketed IPv6 literals are not valid in the handshake either
+        if (host.startsWith("[")) {
+            return true;
+        }
+        return IpParser.parse(host, new long[2]) > 0;
+    }
+
+    public long getCount(Reason reason) {
+        return counters[reason.ordinal()].sum();
+    }
+
+    public long getRejectedCount() {
+        long rejected = 0;
+        for (Reason reason : Reason.values()) {
+            if (reason != Reason.ACCEPTED) {
+                rejected += getCount(reason);
+            }
+        }
+        return rejected;
+    }
+
+    public boolean hasHostAllowlist() {
+        return !exactHosts.isEmpty() || suffixes.length > 0;
+    }
+
+    public int getMinProtocol() {
+        return minProtocol;
+    }
+
+    public int getMaxProtocol() {
+        return maxProtocol;
+    }
+
+    public enum Reason {
+        ACCEPTED,
+        PROTOCOL_TOO_OLD,
+        PROTOCOL_TOO_NEW,
+        HOST_MISSING,
+        IP_LITERAL,       // Raw address instead of a host name
+        HOST_NOT_ALLOWED;
+
+        public boolean rejects() {
+            return this != ACCEPTED;
+        }
+    }
+}
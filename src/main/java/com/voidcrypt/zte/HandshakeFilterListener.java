@@ -0,0 +1,55 @@
+package com.voidcrypt.zte;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.ProtocolManager;
+import com.comphenix.protocol.events.ListenerPriority;
+import com.comphenix.protocol.events.PacketAdapter;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.events.PacketEvent;
+import com.voidcrypt.VoidCryptPlugin;
+
+/**
+ * Module 1L adapter: applies {@link HandshakeFilter} to the Handshaking packet
+ * Runs at the lowest priority, before any other listener, and closes rejected connections
+ * before they reach the login or status phase.
+ */
+public class HandshakeFilterListener extends PacketAdapter {
+
+    private final VoidCryptPlugin plugin;
+    private final HandshakeFilter filter;
+    private final boolean includeStatus;
+
+    public HandshakeFilterListener(VoidCryptPlugin plugin, ProtocolManager protocolManager, HandshakeFilter filter) {
+        super(plugin, ListenerPriority.LOWEST, PacketType.Handshake.Client.SET_PROTOCOL);
+        this.plugin = plugin;
+        this.filter = filter;
+        this.includeStatus = plugin.getConfig().getBoolean("handshake-filter.include-status", false);
+        
+        protocolManager.addPacketListener(this);
+        plugin.getLogger().info("Handshake filter active: protocol " + filter.getMinProtocol() + "-"
+            + filter.getMaxProtocol() + (filter.hasHostAllowlist() ? ", host allowlist" : ""));
+    }
+
+    @Override
+    public void onPacketReceiving(PacketEvent event) {
+        if (event.isCancelled()) return;
+        
+        PacketContainer handshake = event.getPacket();
+        // Server-list pings carry the pinging client's version; outdated clients should still see the server
+        if (!includeStatus && handshake.getProtocols().readSafely(0) == PacketType.Protocol.STATUS) {
+            return;
+        }
+        Integer protocol = handshake.getIntegers().readSafely(0);
+        HandshakeFilter.Reason reason = filter.check(handshake.getStrings().readSafely(0),
+            protocol != null ? protocol : -1);
+        if (!reason.rejects()) return;
+        
+        event.setCancelled(true);
+        try {
+            // There is no disconnect packet in this phase; the connection is just closed
+            event.getPlayer().kickPlayer("");
+        } catch (RuntimeException e) {
+            plugin.getLogger().fine("Could not close filtered handshake: " + e.getMessage());
+        }
+    }
+}
@@ -4,63 +4,129 @@ import com.comphenix.protocol.PacketType;
 import com.comphenix.protocol.ProtocolManager;
 import com.comphenix.protocol.events.ListenerPriority;
 import com.comphenix.protocol.events.PacketAdapter;
+import com.comphenix.protocol.events.PacketContainer;
 import com.comphenix.protocol.events.PacketEvent;
 import com.voidcrypt.VoidCryptPlugin;
+import com.voidcrypt.core.TimingWheel;
+import com.voidcrypt.security.PackedAddress;
+import com.voidcrypt.security.RateKind;
 import com.voidcrypt.security.SecurityValidator;
+import com.voidcrypt.shadow.SessionFingerprint;
+import com.voidcrypt.shadow.SessionGuardian;
+import org.bukkit.BanEntry;
+import org.bukkit.BanList;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
 
-import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 
 /**
  * Module 1B: Zero Trust Handshake Interceptor
- * Intercepts incoming connections and applies cryptographic verification
+ * Intercepts incoming connections and applies cryptographic verification.
+ * Decisions are made by {@link HandshakeProcessor}; this adapter only reads packets,
+ * holds or cancels logins and disconnects or kicks.
+ *
+ * With void-handshake.login-phase the challenge goes out as a login plugin request and the
+ * Login Start packet is held until the answer arrives, so an unverified client is turned away
+ * before Login Success, world join and chunk sends. Otherwise (or when the server's packets
+ * cannot carry the request) the answer is read from the play-phase response channel.
+ *
+ * Verified 1.20.5+ clients also get a signed {@link VerificationCookie}. On their next login
+ * it is requested before admission, and a valid one stands in for the challenge.
+ *
+ * Every Login Start goes through an {@link AdmissionPipeline}: cheap read-only filters (blocklist,
+ * cached IP bans, lockouts, optionally ping-before-join) in measured order, then per-IP login rate,
+ * cookie, admission queue and challenge, so the server's encryption and session authentication
+ * only run for survivors and only they are charged a login token.
  */
-public class HandshakeInterceptor extends PacketAdapter {
+public class HandshakeInterceptor extends PacketAdapter implements Listener {
 
     private final VoidCryptPlugin plugin;
-    private final CryptographicChallenge cryptoChallenge;
+    private final ProtocolManager protocolManager;
+    private final HandshakeProcessor processor;
     
-    // Successfully verified IPs with expiration timestamp
-    private final Map<String, Long> verifiedIPs;
+    private static final String CHALLENGE_CHANNEL = "voidcrypt:challenge";
+    private static final String RESPONSE_CHANNEL = "voidcrypt:response";
     
-    // Failure count per IP
-    private final Map<String, Integer> failureCount;
+    // Clients answer cookie requests at once; a missing answer only means no fast path
+    private static final long COOKIE_TIMEOUT_MS = 5_000;
     
-    private final Map<String, Long> lockedOutIPs;
+    // Login-phase delivery: query message id -> held login
+    private volatile boolean loginPhase;
+    // Below the vanilla client's ~30 s login timeout, so holds do not outlive the client
+    private final long loginQueryTimeoutMs;
+    private final Map<Integer, PendingLogin> pendingLogins;
+    private final AtomicInteger nextMessageId;
     
-    private static final String CHALLENGE_CHANNEL = "voidcrypt:challenge";
-    private static final String RESPONSE_CHANNEL = "voidcrypt:response";
+    // Verification cookies: connection -> held login waiting for its cookie; max age 0 = off
+    private final long cookieMaxAgeMs;
+    private final Map<Player, PendingCookie> pendingCookies;
+    private final LongAdder cookieRequests;
+    private final LongAdder cookiesAccepted;
+    private final LongAdder cookiesStored;
+    
+    // Meters new unverified logins; null when admission is disabled
+    private final AdmissionScheduler admission;
+    
+    // Ordered checks on each Login Start; held stages are referenced to resume after them
+    private final AdmissionPipeline.Stage<LoginAttempt> cookieStage = this::checkCookie;
+    private final AdmissionPipeline.Stage<LoginAttempt> admissionStage = this::checkAdmission;
+    private final AdmissionPipeline<LoginAttempt> pipeline;
+    // Server IP bans and their disconnect messages, refreshed on the main thread so packet
+    // threads never touch the ban list
+    private volatile Map<PackedAddress, String> ipBans = Map.of();
     
-    private static final int MAX_FAILURES = 3;
-    private static final long LOCKOUT_DURATION_MS = 300_000; // 5 minutes
-    private static final long VERIFICATION_EXPIRY_MS = 600_000; // 10 minutes
+    // Per-bot cost of the login-phase path
+    private final LongAdder loginQueriesSent;
+    private final LongAdder loginsRejected;
+    private final LongAdder bytesToRejected;
 
     public HandshakeInterceptor(VoidCryptPlugin plugin, ProtocolManager protocolManager, 
                                  CryptographicChallenge cryptoChallenge) {
         super(plugin, ListenerPriority.HIGHEST,
             PacketType.Login.Client.START,
+            PacketType.Login.Client.CUSTOM_PAYLOAD,
+            PacketType.Login.Client.COOKIE_RESPONSE,
             PacketType.Play.Client.CUSTOM_PAYLOAD);
         
         this.plugin = plugin;
-        this.cryptoChallenge = cryptoChallenge;
-        this.verifiedIPs = new ConcurrentHashMap<>();
-        this.failureCount = new ConcurrentHashMap<>();
-        this.lockedOutIPs = new ConcurrentHashMap<>();
+        this.protocolManager = protocolManager;
+        this.processor = new HandshakeProcessor(plugin.getIpStateTable(), plugin.getPrefixLockouts(),
+            cryptoChallenge, plugin.getAuditPipeline(),
+            plugin.getConfig().getLong("rate-limiting.lockout-duration-minutes", 5) * 60_000,
+            plugin.getLogger());
+        this.loginPhase = plugin.getConfig().getBoolean("void-handshake.login-phase", false);
+        this.loginQueryTimeoutMs = plugin.getConfig().getLong("void-handshake.login-query-timeout-ms", 20_000);
+        this.pendingLogins = new ConcurrentHashMap<>();
+        this.nextMessageId = new AtomicInteger(1);
+        this.loginQueriesSent = new LongAdder();
+        this.loginsRejected = new LongAdder();
+        this.bytesToRejected = new LongAdder();
+        this.cookieMaxAgeMs = plugin.getConfig().getBoolean("void-handshake.cookie.enabled", true)
+            ? plugin.getConfig().getLong("void-handshake.cookie.max-age-hours", 24) * 3_600_000 : 0;
+        this.pendingCookies = new ConcurrentHashMap<>();
+        this.cookieRequests = new LongAdder();
+        this.cookiesAccepted = new LongAdder();
+        this.cookiesStored = new LongAdder();
+        this.admission = createAdmission(plugin);
+        this.pipeline = createPipeline();
         
         protocolManager.addPacketListener(this);
-        
-        Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, () -> {
-            cryptoChallenge.cleanupExpiredChallenges();
-            cleanupExpiredVerifications();
-            cleanupExpiredLockouts();
-        }, 6000L, 6000L); // Every 5 minutes
+        Bukkit.getPluginManager().registerEvents(this, plugin);
     }
 
     @Override
@@ -69,68 +135,335 @@ public class HandshakeInterceptor extends PacketAdapter {
         
         if (event.getPacketType() == PacketType.Login.Client.START) {
             handleLoginStart(event);
+        } else if (event.getPacketType() == PacketType.Login.Client.CUSTOM_PAYLOAD) {
+            handleLoginAnswer(event);
+        } else if (event.getPacketType() == PacketType.Login.Client.COOKIE_RESPONSE) {
+            handleCookieResponse(event);
         } else if (event.getPacketType() == PacketType.Play.Client.CUSTOM_PAYLOAD) {
             handleCustomPayload(event);
         }
     }
 
     private void handleLoginStart(PacketEvent event) {
-        String ip = extractIP(event);
-        
-        String validatedIP = SecurityValidator.validateIP(ip);
-        if (validatedIP == null) {
+        // Packed straight from the socket address; the string form is only built when needed
+        PackedAddress address = extractAddress(event);
+        if (address == null) {
             event.setCancelled(true);
             plugin.auditLog(Level.WARNING, "INVALID_IP_LOGIN", "Rejected invalid IP format");
             return;
         }
         
-        if (isLockedOut(validatedIP)) {
+        LoginAttempt attempt = new LoginAttempt(address, event.getPlayer(), event.getPacket());
+        long now = System.currentTimeMillis();
+        AdmissionPipeline.Result result = pipeline.run(attempt, now);
+        if (result.outcome() != AdmissionPipeline.Outcome.PASS) {
+            // Held logins are re-injected by the stage holding them
             event.setCancelled(true);
-            plugin.alert("Blocked login attempt from locked out IP: " + validatedIP);
-            return;
+            if (result.outcome() == AdmissionPipeline.Outcome.REJECT) {
+                if (LoginStages.LOCKOUT.equals(result.stage())) {
+                    // The lockout filter is silent; alert once for the login it turned away
+                    processor.alertLockout(address, now);
+                }
+                String banMessage = LoginStages.IP_BANS.equals(result.stage()) ? ipBans.get(address) : null;
+                rejectInLogin(attempt.connection(), 0, banMessage != null ? banMessage : kickMessage());
+            }
+        }
+    }
+
+    /**
+     * Runs the rest of the pipeline for a login a stage was holding
+     */
+    private void continueLogin(LoginAttempt attempt, AdmissionPipeline.Stage<LoginAttempt> heldBy) {
+        AdmissionPipeline.Outcome outcome = pipeline.resume(attempt, heldBy, System.currentTimeMillis()).outcome();
+        if (outcome == AdmissionPipeline.Outcome.PASS) {
+            protocolManager.receiveClientPacket(attempt.connection(), attempt.loginStart(), false);
+        } else if (outcome == AdmissionPipeline.Outcome.REJECT) {
+            rejectInLogin(attempt.connection(), 0);
         }
+    }
+
+    private AdmissionPipeline<LoginAttempt> createPipeline() {
+        AdmissionPipeline<LoginAttempt> stages = LoginStages.create(
+            plugin.getConfig().getBoolean("admission.reorder-stages", true), plugin.getIpStateTable(),
+            () -> ipBans, processor, plugin.getPingGate(), plugin.getRateLimits(),
+            cookieMaxAgeMs > 0 ? cookieStage : null, admission != null ? admissionStage : null,
+            attempt -> challenge -> holdLogin(attempt.address(), attempt.connection(), attempt.loginStart(),
+                challenge));
         
-        // If already verified and not expired, allow
-        Long verifiedTime = verifiedIPs.get(validatedIP);
-        if (verifiedTime != null && System.currentTimeMillis() - verifiedTime < VERIFICATION_EXPIRY_MS) {
+        // Cheapest, most selective filters move to the front as traffic changes
+        Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, stages::reorder, 20L, 20L);
+        Bukkit.getScheduler().runTaskTimer(plugin, this::refreshIpBans, 0L, 100L);
+        return stages;
+    }
+
+    /**
+     * Copies the server's active IP bans for the packet threads, parsed once so any textual form
+     * of an address matches; new bans apply within five seconds
+     */
+    private void refreshIpBans() {
+        BanList bans = Bukkit.getBanList(BanList.Type.IP);
+        if (bans == null) {
             return;
         }
+        Date now = new Date();
+        Map<PackedAddress, String> active = new HashMap<>();
+        for (BanEntry entry : bans.getBanEntries()) {
+            PackedAddress address = PackedAddress.of(entry.getTarget());
+            if (address != null && (entry.getExpiration() == null || entry.getExpiration().after(now))) {
+                active.put(address, "Your IP address is banned from this server."
+                    + (entry.getReason() != null ? "\nReason: " + entry.getReason() : ""));
+            }
+        }
+        ipBans = active;
+    }
+
+    private AdmissionPipeline.Outcome checkAdmission(LoginAttempt attempt, long now) {
+        AdmissionScheduler.Decision decision = admission.offer(attempt.address(),
+            isKnownGood(attempt.address(), attempt.loginStart(), now), now, () -> new QueuedLogin(attempt.held()));
+        if (decision.proceeds()) {
+            return AdmissionPipeline.Outcome.PASS;
+        }
+        // Queued logins continue from their ticket once admitted
+        return decision.rejects() ? AdmissionPipeline.Outcome.REJECT : AdmissionPipeline.Outcome.HOLD;
+    }
+
+    private AdmissionPipeline.Outcome checkCookie(LoginAttempt attempt, long now) {
+        return requestCookie(attempt) ? AdmissionPipeline.Outcome.HOLD : AdmissionPipeline.Outcome.PASS;
+    }
+
+    /**
+     * Asks a 1.20.5+ client that is not verified here for its verification cookie
+     * @return true if the login is held until the cookie (or its timeout) arrives
+     */
+    private boolean requestCookie(LoginAttempt attempt) {
+        Player connection = attempt.connection();
+        if (cookieMaxAgeMs <= 0 || processor.isVerified(attempt.address(), System.currentTimeMillis())
+                || attempt.loginStart().getUUIDs().readSafely(0) == null) {
+            return false;
+        }
+        try {
+            if (protocolManager.getProtocolVersion(connection) < LoginQuery.MIN_COOKIE_PROTOCOL) {
+                return false;
+            }
+        } catch (RuntimeException e) {
+            return false;
+        }
         
-        // Check failure count
-        int failures = failureCount.getOrDefault(validatedIP, 0);
-        if (failures >= MAX_FAILURES) {
-            lockoutIP(validatedIP);
-            event.setCancelled(true);
-            plugin.alert("IP locked out due to multiple handshake failures: " + validatedIP);
+        PendingCookie pending = new PendingCookie(attempt.held());
+        if (pendingCookies.putIfAbsent(connection, pending) != null) {
+            return false;
+        }
+        pending.timeout = plugin.getExpiryWheel().schedule(timeout -> {
+            if (pendingCookies.remove(connection, pending)) {
+                resumeLogin(connection, pending);
+            }
+        }, COOKIE_TIMEOUT_MS);
+        
+        try {
+            protocolManager.sendServerPacket(connection, LoginQuery.cookieRequest(protocolManager));
+        } catch (RuntimeException e) {
+            pendingCookies.remove(connection, pending);
+            pending.timeout.cancel();
+            plugin.getLogger().fine("Could not request verification cookie: " + e.getMessage());
+            return false;
+        }
+        cookieRequests.increment();
+        return true;
+    }
+
+    private void handleCookieResponse(PacketEvent event) {
+        PacketContainer response = event.getPacket();
+        if (!LoginQuery.isVerificationCookie(response)) return; // another plugin's cookie
+        
+        // The server never asked for this cookie, so it must not see the response
+        event.setCancelled(true);
+        Player connection = event.getPlayer();
+        PendingCookie pending = pendingCookies.remove(connection);
+        if (pending == null) return;
+        pending.timeout.cancel();
+        
+        UUID uuid = pending.attempt.loginStart().getUUIDs().readSafely(0);
+        if (processor.onCookie(pending.attempt.address(), uuid, LoginQuery.cookie(response), cookieMaxAgeMs,
+                System.currentTimeMillis())) {
+            cookiesAccepted.increment();
+        }
+        resumeLogin(connection, pending);
+    }
+
+    private void resumeLogin(Player connection, PendingCookie pending) {
+        continueLogin(pending.attempt, cookieStage);
+    }
+
+    /**
+     * Refreshes the cookie of a verified 1.20.5+ player
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        Player player = event.getPlayer();
+        PackedAddress address = PackedAddress.of(player.getAddress());
+        if (address != null && processor.isVerified(address, System.currentTimeMillis())) {
+            storeCookie(player, address);
+        }
+    }
+
+    private void storeCookie(Player player, PackedAddress address) {
+        if (cookieMaxAgeMs <= 0 || player.getProtocolVersion() < LoginQuery.MIN_COOKIE_PROTOCOL) {
             return;
         }
+        try {
+            byte[] cookie = processor.issueCookie(address, player.getUniqueId(), System.currentTimeMillis());
+            protocolManager.sendServerPacket(player, LoginQuery.storeCookie(protocolManager, cookie));
+            cookiesStored.increment();
+        } catch (RuntimeException e) {
+            plugin.getLogger().fine("Could not store verification cookie: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recently verified, or a returning player whose session is bound to this address
+     */
+    private boolean isKnownGood(PackedAddress address, PacketContainer loginStart, long now) {
+        if (processor.isVerified(address, now)) {
+            return true;
+        }
+        SessionGuardian sessionGuardian = plugin.getSessionGuardian();
+        UUID uuid = loginStart.getUUIDs().readSafely(0);
+        if (sessionGuardian == null || uuid == null) {
+            return false;
+        }
+        SessionFingerprint fingerprint = sessionGuardian.getFingerprint(uuid);
+        return fingerprint != null && fingerprint.isBoundTo(address);
+    }
+
+    /**
+     * Sends the challenge as a login plugin request and parks the Login Start packet
+     * @return false if the login should go ahead and be checked in the play phase instead
+     */
+    private boolean holdLogin(PackedAddress address, Player connection, PacketContainer loginStart,
+                              CryptographicChallenge.ChallengeData challenge) {
+        if (!loginPhase) {
+            plugin.getLogger().fine("Challenge created for " + address + ": " + challenge.nonce());
+            return false;
+        }
+        
+        int messageId = nextMessageId.getAndIncrement();
+        byte[] payload = challenge.toPayload().getBytes(StandardCharsets.UTF_8);
+        PacketContainer request;
+        try {
+            request = LoginQuery.request(protocolManager, messageId, payload);
+        } catch (RuntimeException e) {
+            disableLoginPhase(e.getMessage());
+            return false;
+        }
+        if (request == null) {
+            disableLoginPhase("login plugin request has no raw data field");
+            return false;
+        }
+        
+        PendingLogin pending = new PendingLogin(address, connection, loginStart.shallowClone(),
+            LoginQuery.requestWireBytes(messageId, payload.length));
+        pendingLogins.put(messageId, pending);
+        pending.timeout = plugin.getExpiryWheel().schedule(timeout -> {
+            if (pendingLogins.remove(messageId, pending)) {
+                processor.onNoAnswer(address, System.currentTimeMillis());
+                rejectInLogin(connection, pending.requestBytes);
+            }
+        }, loginQueryTimeoutMs);
         
-        // Create new challenge
-        CryptographicChallenge.ChallengeData challenge = cryptoChallenge.createChallenge(validatedIP);
+        protocolManager.sendServerPacket(connection, request);
+        loginQueriesSent.increment();
+        return true;
+    }
+
+    private void disableLoginPhase(String reason) {
+        loginPhase = false;
+        plugin.getLogger().warning("Login-phase challenges are not supported on this server (" + reason
+            + "); verifying after join instead");
+    }
+
+    private void handleLoginAnswer(PacketEvent event) {
+        PacketContainer answer = event.getPacket();
+        int messageId = LoginQuery.messageId(answer);
+        PendingLogin pending = pendingLogins.get(messageId);
+        if (pending == null) return; // another plugin's query
         
-        if (challenge != null) {
-            plugin.getLogger().fine("Challenge created for " + validatedIP + ": " + challenge.nonce());
+        // The server never asked for this, so it must not see the answer
+        event.setCancelled(true);
+        PackedAddress address = extractAddress(event);
+        if (!pending.address.equals(address) || !pendingLogins.remove(messageId, pending)) {
+            return;
+        }
+        pending.timeout.cancel();
+        
+        byte[] data = LoginQuery.data(answer);
+        if (data == null) {
+            // Vanilla clients answer "not understood": let them in as the play-phase path would
+            processor.onUnsupported(pending.address, System.currentTimeMillis());
+            protocolManager.receiveClientPacket(pending.connection, pending.loginStart, false);
+            return;
+        }
+        HandshakeProcessor.ResponseVerdict verdict = processor.onResponse(pending.address, data,
+            System.currentTimeMillis());
+        if (verdict == HandshakeProcessor.ResponseVerdict.VERIFIED) {
+            // Let the server see the original Login Start, past this listener
+            protocolManager.receiveClientPacket(pending.connection, pending.loginStart, false);
+        } else {
+            rejectInLogin(pending.connection, pending.requestBytes);
+        }
+    }
+
+    private void rejectInLogin(Player connection, int requestBytes) {
+        rejectInLogin(connection, requestBytes, kickMessage());
+    }
+
+    private void rejectInLogin(Player connection, int requestBytes, String message) {
+        try {
+            protocolManager.sendServerPacket(connection, LoginQuery.disconnect(protocolManager, message));
+        } catch (RuntimeException e) {
+            plugin.getLogger().fine("Could not disconnect during login: " + e.getMessage());
         }
+        loginsRejected.increment();
+        bytesToRejected.add(requestBytes + LoginQuery.disconnectWireBytes(message));
+    }
+
+    private static AdmissionScheduler createAdmission(VoidCryptPlugin plugin) {
+        if (!plugin.getConfig().getBoolean("admission.enabled", true)) {
+            return null;
+        }
+        AdmissionScheduler scheduler = new AdmissionScheduler(
+            plugin.getRateLimits().get(RateKind.ADMISSION_SUBNET),
+            plugin.getRateLimits().get(RateKind.ADMISSION),
+            plugin.getConfig().getInt("admission.ipv4-prefix", 24),
+            plugin.getConfig().getInt("admission.ipv6-prefix", 48),
+            plugin.getConfig().getInt("admission.max-queue", 1024),
+            plugin.getConfig().getLong("admission.max-wait-ms", 10_000));
+        
+        // Waiting logins are let in as the global bucket refills
+        Bukkit.getScheduler().runTaskTimerAsynchronously(plugin,
+            () -> scheduler.drain(System.currentTimeMillis()), 1L, 1L);
+        return scheduler;
     }
 
     private void handleCustomPayload(PacketEvent event) {
         Player player = event.getPlayer();
         if (player == null) return;
         
-        String ip = extractPlayerIP(player);
-        String validatedIP = SecurityValidator.validateIP(ip);
-        if (validatedIP == null) return;
-        
         try {
             // Read channel from packet
             String channel = event.getPacket().getStrings().readSafely(0);
             
             if (RESPONSE_CHANNEL.equals(channel)) {
+                PackedAddress address = PackedAddress.of(player.getAddress());
+                if (address == null) return;
+                
                 // Read client response
                 byte[] data = event.getPacket().getByteArrays().readSafely(0);
-                if (data != null) {
-                    String response = new String(data, StandardCharsets.UTF_8);
-                    processResponse(validatedIP, response, player);
+                if (data == null) return;
+                HandshakeProcessor.ResponseVerdict verdict = processor.onResponse(address, data, System.currentTimeMillis());
+                if (verdict == HandshakeProcessor.ResponseVerdict.VERIFIED) {
+                    storeCookie(player, address);
+                } else if (verdict.kicks()) {
+                    kickPlayer(player);
                 }
             }
         } catch (Exception e) {
@@ -138,101 +471,157 @@ public class HandshakeInterceptor extends PacketAdapter {
         }
     }
 
-    private void processResponse(String ip, String response, Player player) {
-        CryptographicChallenge.VerificationResult result = cryptoChallenge.verifyResponse(ip, response);
-        
-        switch (result) {
-            case SUCCESS -> {
-                verifiedIPs.put(ip, System.currentTimeMillis());
-                failureCount.remove(ip);
-                plugin.getLogger().fine("Verification successful for " + ip);
-                plugin.auditLog(Level.INFO, "HANDSHAKE_SUCCESS", "IP: " + ip);
-            }
-            case TIMEOUT -> {
-                incrementFailure(ip);
-                kickPlayer(player, "timeout");
-                plugin.auditLog(Level.WARNING, "HANDSHAKE_TIMEOUT", "IP: " + ip);
-            }
-            case WRONG_ANSWER, INVALID_FORMAT -> {
-                incrementFailure(ip);
-                plugin.alert("Invalid handshake response from: " + ip);
-                kickPlayer(player, "invalid");
-                plugin.auditLog(Level.WARNING, "HANDSHAKE_INVALID", "IP: " + ip);
-            }
-            case NO_CHALLENGE -> {
-                // Ignore if no pending challenge
-            }
-        }
+    private void kickPlayer(Player player) {
+        String message = kickMessage();
+        Bukkit.getScheduler().runTask(plugin, () -> player.kickPlayer(message));
     }
 
-    private void incrementFailure(String ip) {
-        failureCount.merge(ip, 1, Integer::sum);
+    private String kickMessage() {
+        return ChatColor.translateAlternateColorCodes('&',
+            plugin.getConfig().getString("messages.kick-handshake-failed", "&cConnection rejected."));
     }
 
-    private void lockoutIP(String ip) {
-        lockedOutIPs.put(ip, System.currentTimeMillis());
-        failureCount.remove(ip);
+    private PackedAddress extractAddress(PacketEvent event) {
+        try {
+            return PackedAddress.of(event.getPlayer().getAddress());
+        } catch (Exception e) {
+            // Silent fallback
+        }
+        return null;
     }
 
-    private boolean isLockedOut(String ip) {
-        Long lockoutTime = lockedOutIPs.get(ip);
-        if (lockoutTime == null) return false;
+    public boolean isVerified(String ip) {
+        String validatedIP = SecurityValidator.validateIP(ip);
+        if (validatedIP == null) return false;
         
-        if (System.currentTimeMillis() - lockoutTime > LOCKOUT_DURATION_MS) {
-            lockedOutIPs.remove(ip);
-            return false;
-        }
-        return true;
+        return processor.isVerified(PackedAddress.of(validatedIP), System.currentTimeMillis());
     }
 
-    private void cleanupExpiredVerifications() {
-        long now = System.currentTimeMillis();
-        verifiedIPs.entrySet().removeIf(entry -> 
-            now - entry.getValue() > VERIFICATION_EXPIRY_MS);
+    public int getFailureCount(String ip) {
+        String validatedIP = SecurityValidator.validateIP(ip);
+        return validatedIP != null ? processor.getFailureCount(PackedAddress.of(validatedIP)) : 0;
     }
 
-    private void cleanupExpiredLockouts() {
-        long now = System.currentTimeMillis();
-        lockedOutIPs.entrySet().removeIf(entry -> 
-            now - entry.getValue() > LOCKOUT_DURATION_MS);
+    public HandshakeProcessor getProcessor() {
+        return processor;
     }
 
-    private void kickPlayer(Player player, String reason) {
-        String message = ChatColor.translateAlternateColorCodes('&',
-            plugin.getConfig().getString("messages.kick-handshake-failed", "&cConnection rejected."));
-        
-        Bukkit.getScheduler().runTask(plugin, () -> player.kickPlayer(message));
+    /**
+     * Stages every Login Start goes through, in their current order
+     */
+    public List<AdmissionPipeline.StageView> getPipelineStages() {
+        return pipeline.getStages();
     }
 
-    private String extractIP(PacketEvent event) {
-        try {
-            InetSocketAddress address = event.getPlayer().getAddress();
-            if (address != null) {
-                return address.getAddress().getHostAddress();
-            }
-        } catch (Exception e) {
-            // Silent fallback
+    /**
+     * @return the admission scheduler, or null if admission is disabled
+     */
+    public AdmissionScheduler getAdmission() {
+        return admission;
+    }
+
+    public long getCookieRequests() {
+        return cookieRequests.sum();
+    }
+
+    /**
+     * Logins verified by their cookie instead of a challenge
+     */
+    public long getCookiesAccepted() {
+        return cookiesAccepted.sum();
+    }
+
+    public long getCookiesStored() {
+        return cookiesStored.sum();
+    }
+
+    public boolean isLoginPhaseActive() {
+        return loginPhase;
+    }
+
+    public int getHeldLoginCount() {
+        return pendingLogins.size();
+    }
+
+    public long getLoginQueriesSent() {
+        return loginQueriesSent.sum();
+    }
+
+    /**
+     * Connections turned away during login, before any world data was sent
+     */
+    public long getLoginsRejected() {
+        return loginsRejected.sum();
+    }
+
+    /**
+     * Bytes sent to connections rejected during login (request + disconnect, uncompressed)
+     */
+    public long getBytesSentToRejected() {
+        return bytesToRejected.sum();
+    }
+
+    /**
+     * A Login Start packet waiting in the admission queue
+     */
+    private final class QueuedLogin implements AdmissionScheduler.Ticket {
+        private final LoginAttempt attempt;
+
+        QueuedLogin(LoginAttempt attempt) {
+            this.attempt = attempt;
+        }
+
+        @Override
+        public void admit() {
+            continueLogin(attempt, admissionStage);
+        }
+
+        @Override
+        public void reject() {
+            rejectInLogin(attempt.connection(), 0);
         }
-        return null;
     }
 
-    private String extractPlayerIP(Player player) {
-        InetSocketAddress address = player.getAddress();
-        if (address != null) {
-            return address.getAddress().getHostAddress();
+    /**
+     * A Login Start packet waiting for the client's verification cookie
+     */
+    private static final class PendingCookie {
+        final LoginAttempt attempt;
+        volatile TimingWheel.Timeout timeout;
+
+        PendingCookie(LoginAttempt attempt) {
+            this.attempt = attempt;
         }
-        return "unknown";
     }
 
-    public boolean isVerified(String ip) {
-        String validatedIP = SecurityValidator.validateIP(ip);
-        if (validatedIP == null) return false;
-        
-        Long verifiedTime = verifiedIPs.get(validatedIP);
-        return verifiedTime != null && System.currentTimeMillis() - verifiedTime < VERIFICATION_EXPIRY_MS;
+    /**
+     * A Login Start packet on its way through the pipeline
+     */
+    private record LoginAttempt(PackedAddress address, Player connection, PacketContainer loginStart)
+            implements LoginStages.Attempt {
+        /**
+         * Copy to keep while the login is held; the event's packet is not ours after it returns
+         */
+        LoginAttempt held() {
+            return new LoginAttempt(address, connection, loginStart.shallowClone());
+        }
     }
 
-    public int getFailureCount(String ip) {
-        return failureCount.getOrDefault(ip, 0);
+    /**
+     * A Login Start packet waiting for its challenge answer
+     */
+    private static final class PendingLogin {
+        final PackedAddress address;
+        final Player connection;
+        final PacketContainer loginStart;
+        final int requestBytes;
+        volatile TimingWheel.Timeout timeout;
+
+        PendingLogin(PackedAddress address, Player connection, PacketContainer loginStart, int requestBytes) {
+            this.address = address;
+            this.connection = connection;
+            this.loginStart = loginStart;
+            this.requestBytes = requestBytes;
+        }
     }
 }
@@ -0,0 +1,245 @@
+package com.voidcrypt.zte;
+
+import com.voidcrypt.core.AuditPipeline;
+import com.voidcrypt.security.IpStateTable;
+import com.voidcrypt.security.PackedAddress;
+import com.voidcrypt.security.PrefixLockouts;
+
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Module 1B core: handshake decisions, independent of ProtocolLib and Bukkit
+ * {@link HandshakeInterceptor} feeds it packed addresses and response payloads and acts on
+ * the returned verdicts (hold or cancel the login, disconnect or kick); the load harness
+ * drives it directly.
+ */
+public class HandshakeProcessor {
+
+    private static final int MAX_FAILURES = 3;
+    private static final long VERIFICATION_EXPIRY_MS = 600_000; // 10 minutes
+
+    // Verification time, failure count and lockout live in the shared per-IP record
+    private final IpStateTable ipState;
+    // The same failures counted per subnet, for floods that rotate addresses
+    private final PrefixLockouts prefixLockouts;
+    private final CryptographicChallenge cryptoChallenge;
+    private final AuditPipeline audit;
+    private final long lockoutDurationMs;
+    private final Logger logger;
+
+    public HandshakeProcessor(IpStateTable ipState, PrefixLockouts prefixLockouts,
+                              CryptographicChallenge cryptoChallenge, AuditPipeline audit,
+                              long lockoutDurationMs, Logger logger) {
+        this.ipState = ipState;
+        this.prefixLockouts = prefixLockouts;
+        this.cryptoChallenge = cryptoChallenge;
+        this.audit = audit;
+        this.lockoutDurationMs = lockoutDurationMs;
+        this.logger = logger;
+    }
+
+    /**
+     * @param delivery sends a newly issued challenge to the client
+     */
+    public LoginVerdict onLoginStart(PackedAddress address, long now, ChallengeDelivery delivery) {
+        if (isLockedOut(address, now)) {
+            return LoginVerdict.LOCKED_OUT;
+        }
+
+        // If already verified and not expired, allow
+        if (ipState.isVerified(address, now)) {
+            return LoginVerdict.VERIFIED;
+        }
+
+        // Check failure count
+        if (ipState.getFailures(address) >= MAX_FAILURES) {
+            ipState.lockOut(address, now, lockoutDurationMs);
+            audit.alert("IP locked out due to multiple handshake failures: ", address);
+            return LoginVerdict.LOCKOUT_STARTED;
+        }
+
+        // Create new challenge
+        CryptographicChallenge.ChallengeData challenge = cryptoChallenge.createChallenge(address.toString());
+        if (challenge == null) {
+            return LoginVerdict.NOT_CHALLENGED;
+        }
+        return delivery.deliver(challenge) ? LoginVerdict.HELD : LoginVerdict.CHALLENGED;
+    }
+
+    /**
+     * The address is locked out, or its prefix is and the address is not verified; alerts on a hit
+     */
+    public boolean isLockedOut(PackedAddress address, long now) {
+        PackedAddress lockout = lockout(address, now);
+        if (lockout != null) {
+            alert(address, lockout);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Same check as {@link #isLockedOut} without the alert, for filters that may run it repeatedly
+     * @return {@code address} itself for an IP lockout, the locked prefix for a prefix lockout,
+     *         or null when neither applies
+     */
+    public PackedAddress lockout(PackedAddress address, long now) {
+        return ipState.isLockedOut(address, now) ? address : lockedPrefix(address, now);
+    }
+
+    /**
+     * Sends the alert for a login a {@link #lockout} filter turned away; the lockout is looked up
+     * again, which only costs anything on this rare path
+     */
+    public void alertLockout(PackedAddress address, long now) {
+        PackedAddress lockout = lockout(address, now);
+        if (lockout != null) {
+            alert(address, lockout);
+        }
+    }
+
+    private void alert(PackedAddress address, PackedAddress lockout) {
+        // Identity, not equals: a /24 prefix can equal an address ending in .0
+        if (lockout == address) {
+            audit.alert("Blocked login attempt from locked out IP: ", address);
+        } else {
+            audit.alert("Blocked login attempt from locked out prefix: ", lockout);
+        }
+    }
+
+    private PackedAddress lockedPrefix(PackedAddress address, long now) {
+        // Verified players are let through even when their subnet is locked out
+        return ipState.isVerified(address, now) ? null : prefixLockouts.lockedPrefix(address, now);
+    }
+
+    public ResponseVerdict onResponse(PackedAddress address, byte[] response, long now) {
+        CryptographicChallenge.VerificationResult result = cryptoChallenge.verifyResponse(address.toString(), response);
+
+        switch (result) {
+            case SUCCESS -> {
+                ipState.markVerified(address, now, VERIFICATION_EXPIRY_MS);
+                logger.fine("Verification successful for " + address);
+                audit.audit(Level.INFO, "HANDSHAKE_SUCCESS", "IP: ", address);
+                return ResponseVerdict.VERIFIED;
+            }
+            case TIMEOUT -> {
+                recordFailure(address, now);
+                audit.audit(Level.WARNING, "HANDSHAKE_TIMEOUT", "IP: ", address);
+                return ResponseVerdict.KICK_TIMEOUT;
+            }
+            case WRONG_ANSWER, INVALID_FORMAT -> {
+                recordFailure(address, now);
+                audit.alert("Invalid handshake response from: ", address);
+                audit.audit(Level.WARNING, "HANDSHAKE_INVALID", "IP: ", address);
+                return ResponseVerdict.KICK_INVALID;
+            }
+            default -> {
+                // Ignore if no pending challenge
+                return ResponseVerdict.IGNORED;
+            }
+        }
+    }
+
+    /**
+     * A returning client's verification cookie; a valid one verifies the address like a solved challenge
+     * @return true if the client is verified and may log in without a challenge
+     */
+    public boolean onCookie(PackedAddress address, UUID player, byte[] cookie, long maxAgeMs, long now) {
+        if (player == null || ipState.isLockedOut(address, now) || prefixLockouts.isLockedOut(address, now)) {
+            return false;
+        }
+        CryptographicChallenge.VerificationResult result =
+            cryptoChallenge.verifyCookie(address.toString(), player, cookie, now, maxAgeMs);
+        switch (result) {
+            case SUCCESS -> {
+                ipState.markVerified(address, now, VERIFICATION_EXPIRY_MS);
+                audit.audit(Level.INFO, "HANDSHAKE_COOKIE", "IP: ", address);
+                return true;
+            }
+            case WRONG_ANSWER, INVALID_FORMAT -> {
+                // Not a failure: a rotated secret key invalidates honest cookies too, and the
+                // client still has to pass the challenge
+                audit.audit(Level.WARNING, "COOKIE_INVALID", "IP: ", address);
+                return false;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    public byte[] issueCookie(PackedAddress address, UUID player, long now) {
+        return cryptoChallenge.issueCookie(address.toString(), player, now);
+    }
+
+    /**
+     * A held login whose client did not understand the login query; not a failure, the login
+     * goes ahead and the challenge stays open for the play-phase response channel
+     */
+    public void onUnsupported(PackedAddress address, long now) {
+        audit.audit(Level.INFO, "HANDSHAKE_UNSUPPORTED", "IP: ", address);
+    }
+
+    /**
+     * A held login whose client never answered
+     */
+    public void onNoAnswer(PackedAddress address, long now) {
+        recordFailure(address, now);
+        audit.audit(Level.WARNING, "HANDSHAKE_TIMEOUT", "IP: ", address);
+    }
+
+    private void recordFailure(PackedAddress address, long now) {
+        ipState.recordFailure(address, now);
+        PackedAddress escalated = prefixLockouts.recordFailure(address, now);
+        if (escalated != null) {
+            audit.alert("Prefix locked out due to handshake failures across its addresses: ", escalated);
+            audit.audit(Level.WARNING, "PREFIX_LOCKOUT", "Prefix: ", escalated);
+        }
+    }
+
+    public boolean isVerified(PackedAddress address, long now) {
+        return ipState.isVerified(address, now);
+    }
+
+    public int getFailureCount(PackedAddress address) {
+        return ipState.getFailures(address);
+    }
+
+    @FunctionalInterface
+    public interface ChallengeDelivery {
+        /**
+         * @return true if the login is held until the client answers, false if it may proceed
+         */
+        boolean deliver(CryptographicChallenge.ChallengeData challenge);
+    }
+
+    public enum LoginVerdict {
+        VERIFIED,        // Verified recently, let through
+        CHALLENGED,      // Challenge issued, answer expected after join
+        HELD,            // Challenge issued in the login phase, login waits for the answer
+        NOT_CHALLENGED,  // Challenge refused (rate limited), let through as before
+        LOCKED_OUT,      // Reject: lockout still running
+        LOCKOUT_STARTED; // Reject: too many failures, lockout begins now
+
+        public boolean cancelsLogin() {
+            return this == HELD || rejects();
+        }
+
+        public boolean rejects() {
+            return this == LOCKED_OUT || this == LOCKOUT_STARTED;
+        }
+    }
+
+    public enum ResponseVerdict {
+        VERIFIED,
+        KICK_TIMEOUT,
+        KICK_INVALID,
+        IGNORED;
+
+        public boolean kicks() {
+            return this == KICK_TIMEOUT || this == KICK_INVALID;
+        }
+    }
+}
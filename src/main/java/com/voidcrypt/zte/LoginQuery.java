@@ -0,0 +1,139 @@
+package com.voidcrypt.zte;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.ProtocolManager;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.reflect.StructureModifier;
+import com.comphenix.protocol.utility.MinecraftReflection;
+import com.comphenix.protocol.wrappers.MinecraftKey;
+import com.comphenix.protocol.wrappers.WrappedChatComponent;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Module 1G: Login-phase plugin messages
+ * Builds the login plugin request that carries a challenge and reads the client's answer,
+ * so the handshake is settled before the server sends Login Success and spawns the player.
+ * Also builds the cookie request/store packets (1.20.5+) that carry verification cookies.
+ * The packets carry their data in a raw buffer field up to 1.20.1; on servers whose query packets
+ * only hold typed payloads {@link #request} returns null, and the caller falls back to the
+ * play-phase response channel.
+ */
+final class LoginQuery {
+
+    static final String NAMESPACE = "voidcrypt";
+    static final String KEY = "challenge";
+    static final String COOKIE_KEY = "verified";
+
+    // Cookie packets exist from 1.20.5 (protocol 766)
+    static final int MIN_COOKIE_PROTOCOL = 766;
+
+    // Login plugin request / login disconnect packet ids (clientbound, login state)
+    private static final int REQUEST_PACKET_ID = 0x04;
+    private static final int DISCONNECT_PACKET_ID = 0x00;
+
+    private LoginQuery() {
+    }
+
+    /**
+     * @return the request, or null if this server's packet has no raw data field to carry it
+     */
+    static PacketContainer request(ProtocolManager protocolManager, int messageId, byte[] payload) {
+        PacketContainer packet = protocolManager.createPacket(PacketType.Login.Server.CUSTOM_PAYLOAD);
+        StructureModifier<Object> data = dataField(packet);
+        if (data.size() == 0) {
+            return null;
+        }
+        packet.getIntegers().write(0, messageId);
+        packet.getMinecraftKeys().write(0, new MinecraftKey(NAMESPACE, KEY));
+        data.write(0, MinecraftReflection.getPacketDataSerializer(Unpooled.wrappedBuffer(payload)));
+        return packet;
+    }
+
+    static PacketContainer disconnect(ProtocolManager protocolManager, String message) {
+        PacketContainer packet = protocolManager.createPacket(PacketType.Login.Server.DISCONNECT);
+        packet.getChatComponents().write(0, WrappedChatComponent.fromText(message));
+        return packet;
+    }
+
+    static PacketContainer cookieRequest(ProtocolManager protocolManager) {
+        PacketContainer packet = protocolManager.createPacket(PacketType.Login.Server.COOKIE_REQUEST);
+        packet.getMinecraftKeys().write(0, new MinecraftKey(NAMESPACE, COOKIE_KEY));
+        return packet;
+    }
+
+    /**
+     * Play-state store packet; the client keeps the cookie across servers and restarts of this one
+     */
+    static PacketContainer storeCookie(ProtocolManager protocolManager, byte[] cookie) {
+        PacketContainer packet = protocolManager.createPacket(PacketType.Play.Server.STORE_COOKIE);
+        packet.getMinecraftKeys().write(0, new MinecraftKey(NAMESPACE, COOKIE_KEY));
+        packet.getByteArrays().write(0, cookie);
+        return packet;
+    }
+
+    static boolean isVerificationCookie(PacketContainer response) {
+        MinecraftKey key = response.getMinecraftKeys().readSafely(0);
+        return key != null && NAMESPACE.equals(key.getPrefix()) && COOKIE_KEY.equals(key.getKey());
+    }
+
+    /**
+     * @return the cookie the client returned, or null if it had none
+     */
+    static byte[] cookie(PacketContainer response) {
+        return response.getByteArrays().readSafely(0);
+    }
+
+    static int messageId(PacketContainer answer) {
+        Integer id = answer.getIntegers().readSafely(0);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * @return the answer's data, or null if the client did not understand the channel
+     */
+    static byte[] data(PacketContainer answer) {
+        StructureModifier<Object> data = dataField(answer);
+        Object buffer = data.size() > 0 ? data.readSafely(0) : null;
+        if (!(buffer instanceof ByteBuf byteBuf)) {
+            return null;
+        }
+        byte[] bytes = new byte[byteBuf.readableBytes()];
+        byteBuf.getBytes(byteBuf.readerIndex(), bytes);
+        return bytes;
+    }
+
+    private static StructureModifier<Object> dataField(PacketContainer packet) {
+        return packet.getModifier().withType(MinecraftReflection.getPacketDataSerializerClass());
+    }
+
+    /**
+     * Bytes on the wire for a request, including the frame length (uncompressed)
+     */
+    static int requestWireBytes(int messageId, int payloadLength) {
+        int channelLength = NAMESPACE.length() + 1 + KEY.length();
+        int body = varIntSize(REQUEST_PACKET_ID) + varIntSize(messageId)
+            + varIntSize(channelLength) + channelLength + payloadLength;
+        return varIntSize(body) + body;
+    }
+
+    /**
+     * Bytes on the wire for a login disconnect with a plain text reason (uncompressed)
+     */
+    static int disconnectWireBytes(String message) {
+        int json = ("{\"text\":\"" + message + "\"}").getBytes(StandardCharsets.UTF_8).length;
+        int body = varIntSize(DISCONNECT_PACKET_ID) + varIntSize(json) + json;
+        return varIntSize(body) + body;
+    }
+
+    static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+}
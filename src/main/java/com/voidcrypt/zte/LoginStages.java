@@ -0,0 +1,86 @@
+package com.voidcrypt.zte;
+
+import com.voidcrypt.security.IpStateTable;
+import com.voidcrypt.security.PackedAddress;
+import com.voidcrypt.security.RateKind;
+import com.voidcrypt.security.RateLimits;
+import com.voidcrypt.security.RecentAddressFilter;
+
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The stages every Login Start goes through, with their names and order. Built here from their
+ * dependencies so {@link HandshakeInterceptor} and the load harness run the same pipeline; the
+ * caller keeps the packet handling and supplies the stages that hold a login.
+ */
+final class LoginStages {
+
+    static final String BLOCKLIST = "blocklist";
+    static final String IP_BANS = "ip-bans";
+    static final String LOCKOUT = "lockout";
+    static final String PING_GATE = "ping-gate";
+    static final String LOGIN_RATE = "login-rate";
+    static final String COOKIE = "cookie";
+    static final String ADMISSION = "admission";
+    static final String CHALLENGE = "challenge";
+
+    private LoginStages() {
+    }
+
+    /**
+     * @param ipBans    the server's current IP bans, read on every login
+     * @param pingGate  null when ping-before-join is off
+     * @param cookie    null when verification cookies are off
+     * @param admission null when admission is disabled
+     * @param delivery  sends an attempt's challenge; delivering true holds the login for the answer
+     */
+    static <A extends Attempt> AdmissionPipeline<A> create(boolean adaptive, IpStateTable ipState,
+                                                           Supplier<Map<PackedAddress, String>> ipBans,
+                                                           HandshakeProcessor processor, RecentAddressFilter pingGate,
+                                                           RateLimits rateLimits, AdmissionPipeline.Stage<A> cookie,
+                                                           AdmissionPipeline.Stage<A> admission,
+                                                           Function<A, HandshakeProcessor.ChallengeDelivery> delivery) {
+        AdmissionPipeline<A> stages = new AdmissionPipeline<>(adaptive);
+        stages.addFilter(BLOCKLIST, (attempt, now) -> ipState.isBanned(attempt.address())
+            ? AdmissionPipeline.Outcome.REJECT : AdmissionPipeline.Outcome.PASS);
+        stages.addFilter(IP_BANS, (attempt, now) -> ipBans.get().containsKey(attempt.address())
+            ? AdmissionPipeline.Outcome.REJECT : AdmissionPipeline.Outcome.PASS);
+        // Silent; the caller alerts for a login this filter rejected
+        stages.addFilter(LOCKOUT, (attempt, now) -> processor.lockout(attempt.address(), now) != null
+            ? AdmissionPipeline.Outcome.REJECT : AdmissionPipeline.Outcome.PASS);
+        if (pingGate != null) {
+            // Recently verified addresses may join without pinging first (e.g. after a reconnect)
+            stages.addFilter(PING_GATE, (attempt, now) ->
+                pingGate.contains(attempt.address(), now) || processor.isVerified(attempt.address(), now)
+                    ? AdmissionPipeline.Outcome.PASS : AdmissionPipeline.Outcome.REJECT);
+        }
+        // Charges a token, so only logins every filter let through spend one
+        stages.addFixed(LOGIN_RATE, (attempt, now) -> rateLimits.tryAcquire(RateKind.LOGIN, attempt.address(), now)
+            ? AdmissionPipeline.Outcome.PASS : AdmissionPipeline.Outcome.REJECT);
+        // A returning client's cookie is checked before admission, so it arrives there as known-good
+        if (cookie != null) {
+            stages.addFixed(COOKIE, cookie);
+        }
+        if (admission != null) {
+            stages.addFixed(ADMISSION, admission);
+        }
+        stages.addFixed(CHALLENGE, (attempt, now) -> {
+            HandshakeProcessor.LoginVerdict verdict = processor.onLoginStart(attempt.address(), now,
+                delivery.apply(attempt));
+            if (verdict.rejects()) {
+                return AdmissionPipeline.Outcome.REJECT;
+            }
+            return verdict.cancelsLogin() ? AdmissionPipeline.Outcome.HOLD : AdmissionPipeline.Outcome.PASS;
+        });
+        return stages;
+    }
+
+    /**
+     * What the stages read from a login
+     */
+    interface Attempt {
+        PackedAddress address();
+    }
+}
@@ -0,0 +1,184 @@
+package com.voidcrypt.zte;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Module 1E: Leading-Zero Proof of Work
+ * The client searches for an 8-byte suffix such that
+ * SHA-256(Seed || Suffix) starts with N zero bits; the server checks it with one hash.
+ * Expected client cost is 2^N hashes, so N is the real knob for how much a login costs.
+ *
+ * The seed is derived from the challenge's public fields only ({@link #seed}) and sent in the
+ * payload, so a client can do the work without the server secret; the secret only authenticates
+ * the challenge (the pending map or the token MAC).
+ *
+ * Response: seedHex(64) + suffixHex(16). At N = 0 the bare 64-char seed is accepted.
+ * Work values flagged by {@link CuckooCycle#work(int)} select the memory-hard puzzle instead.
+ */
+public final class ProofOfWork {
+
+    public static final int SEED_LENGTH = ChallengeEngine.ANSWER_LENGTH;
+    public static final int SUFFIX_LENGTH = 8;
+    public static final int SUFFIX_HEX_LENGTH = SUFFIX_LENGTH * 2;
+    public static final int RESPONSE_HEX_LENGTH = ChallengeEngine.ANSWER_HEX_LENGTH + SUFFIX_HEX_LENGTH;
+    public static final int MAX_BITS = 32;
+
+    // Hash domain label, so a seed is never another construction's hash of the same fields
+    private static final byte[] SEED_DOMAIN = "vc-seed".getBytes(StandardCharsets.US_ASCII);
+
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+    private ProofOfWork() {
+    }
+
+    /**
+     * Work input for a challenge: SHA-256("vc-seed" || nonce || difficulty || entropy || work)
+     */
+    public static byte[] seed(long nonce, int difficulty, long entropy, int work) {
+        byte[] seed = new byte[SEED_LENGTH];
+        seed(nonce, difficulty, entropy, work, seed, 0);
+        return seed;
+    }
+
+    /**
+     * Computes the seed into a caller-supplied buffer
+     */
+    public static void seed(long nonce, int difficulty, long entropy, int work, byte[] out, int offset) {
+        State s = STATE.get();
+        byte[] buf = s.seedInput;
+        System.arraycopy(SEED_DOMAIN, 0, buf, 0, SEED_DOMAIN.length);
+        int pos = SEED_DOMAIN.length;
+        writeLong(buf, pos, nonce);
+        buf[pos + 8] = (byte) difficulty;
+        writeLong(buf, pos + 9, entropy);
+        buf[pos + 17] = (byte) work;
+        s.digest.update(buf, 0, buf.length);
+        try {
+            s.digest.digest(out, offset, SEED_LENGTH);
+        } catch (DigestException e) {
+            throw new IllegalArgumentException("Seed buffer too small", e);
+        }
+    }
+
+    /**
+     * Verifies the echoed seed and the work from raw ASCII response bytes
+     */
+    public static CryptographicChallenge.VerificationResult verifyResponse(byte[] seed, int bits,
+                                                                           byte[] response, int offset, int length) {
+        if (CuckooCycle.isMemoryHard(bits)) {
+            return CuckooCycle.verifyResponse(seed, CuckooCycle.edgeBits(bits), response, offset, length);
+        }
+        if (bits == 0 && length == ChallengeEngine.ANSWER_HEX_LENGTH) {
+            if (!ChallengeEngine.isWellFormed(response, offset, length)) {
+                return CryptographicChallenge.VerificationResult.INVALID_FORMAT;
+            }
+            return ChallengeEngine.verifyHex(seed, response, offset, length)
+                ? CryptographicChallenge.VerificationResult.SUCCESS
+                : CryptographicChallenge.VerificationResult.WRONG_ANSWER;
+        }
+
+        if (response == null || length != RESPONSE_HEX_LENGTH) {
+            return CryptographicChallenge.VerificationResult.INVALID_FORMAT;
+        }
+        State s = STATE.get();
+        if (!ChallengeEngine.isWellFormed(response, offset, ChallengeEngine.ANSWER_HEX_LENGTH)
+                || !ChallengeEngine.parseHex(response, offset + ChallengeEngine.ANSWER_HEX_LENGTH,
+                    s.input, ChallengeEngine.ANSWER_LENGTH, SUFFIX_LENGTH)) {
+            return CryptographicChallenge.VerificationResult.INVALID_FORMAT;
+        }
+
+        if (!ChallengeEngine.verifyHex(seed, response, offset, ChallengeEngine.ANSWER_HEX_LENGTH)) {
+            return CryptographicChallenge.VerificationResult.WRONG_ANSWER;
+        }
+
+        System.arraycopy(seed, 0, s.input, 0, SEED_LENGTH);
+        return leadingZeroBits(s.hash(s.input.length)) >= bits
+            ? CryptographicChallenge.VerificationResult.SUCCESS
+            : CryptographicChallenge.VerificationResult.WRONG_ANSWER;
+    }
+
+    /**
+     * Checks a single suffix (one hash)
+     */
+    public static boolean isSolution(byte[] seed, long suffix, int bits) {
+        State s = STATE.get();
+        System.arraycopy(seed, 0, s.input, 0, SEED_LENGTH);
+        writeLong(s.input, ChallengeEngine.ANSWER_LENGTH, suffix);
+        return leadingZeroBits(s.hash(s.input.length)) >= bits;
+    }
+
+    /**
+     * Reference solver, as a client would run it
+     * @return the first suffix counting up from {@code start} that satisfies {@code bits}
+     */
+    public static long solve(byte[] seed, int bits, long start) {
+        if (bits < 0 || bits > MAX_BITS) {
+            throw new IllegalArgumentException("bits out of range: " + bits);
+        }
+        State s = STATE.get();
+        System.arraycopy(seed, 0, s.input, 0, SEED_LENGTH);
+        for (long suffix = start; ; suffix++) {
+            writeLong(s.input, ChallengeEngine.ANSWER_LENGTH, suffix);
+            if (leadingZeroBits(s.hash(s.input.length)) >= bits) {
+                return suffix;
+            }
+        }
+    }
+
+    /**
+     * Formats a solved suffix as it goes on the wire
+     */
+    public static String suffixHex(long suffix) {
+        return HexFormat.of().toHexDigits(suffix);
+    }
+
+    static int leadingZeroBits(byte[] hash) {
+        int bits = 0;
+        for (byte b : hash) {
+            if (b != 0) {
+                return bits + Integer.numberOfLeadingZeros(b & 0xFF) - 24;
+            }
+            bits += 8;
+        }
+        return bits;
+    }
+
+    private static void writeLong(byte[] buf, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            buf[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    /**
+     * Per-thread digest and buffers
+     */
+    private static final class State {
+        final MessageDigest digest;
+        final byte[] input = new byte[SEED_LENGTH + SUFFIX_LENGTH];
+        final byte[] seedInput = new byte[SEED_DOMAIN.length + 8 + 1 + 8 + 1];
+        final byte[] output = new byte[32];
+
+        State() {
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+
+        byte[] hash(int length) {
+            digest.update(input, 0, length);
+            try {
+                digest.digest(output, 0, output.length);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            }
+            return output;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.voidcrypt.zte;
+
+import com.voidcrypt.core.TimingWheel;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stateless challenge tokens that have already been answered, so each one verifies once
+ * Keyed by the token's tag. Only correct answers are recorded, so the set grows with solved
+ * work rather than with traffic, and an entry leaves on the timing wheel once its token
+ * would fail as expired anyway. Tokens are only tracked per server: a backend sharing the
+ * secret key does not see what this one has spent.
+ */
+final class SpentTokens {
+
+    private final Map<Tag, Boolean> spent;
+    private final TimingWheel expiry;
+
+    SpentTokens(TimingWheel expiry) {
+        this.spent = new ConcurrentHashMap<>();
+        this.expiry = expiry;
+    }
+
+    /**
+     * Marks the token of a verified response as spent
+     * @param lifetimeMs how long the token could still verify
+     * @return false if it had been spent already
+     */
+    boolean spend(byte[] response, long lifetimeMs) {
+        Tag tag = Tag.of(response);
+        if (tag == null) {
+            return false;
+        }
+        if (spent.putIfAbsent(tag, Boolean.TRUE) != null) {
+            return false;
+        }
+        expiry.schedule(timeout -> spent.remove(tag), lifetimeMs);
+        return true;
+    }
+
+    int size() {
+        return spent.size();
+    }
+
+    private record Tag(long hi, long lo) {
+        static Tag of(byte[] response) {
+            byte[] tag = new byte[16];
+            if (!ChallengeToken.readTag(response, tag)) {
+                return null;
+            }
+            long hi = 0;
+            long lo = 0;
+            for (int i = 0; i < 8; i++) {
+                hi = (hi << 8) | (tag[i] & 0xFF);
+                lo = (lo << 8) | (tag[8 + i] & 0xFF);
+            }
+            return new Tag(hi, lo);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.voidcrypt.zte;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.ProtocolManager;
+import com.comphenix.protocol.events.ListenerPriority;
+import com.comphenix.protocol.events.PacketAdapter;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.events.PacketEvent;
+import com.comphenix.protocol.wrappers.WrappedServerPing;
+import com.voidcrypt.VoidCryptPlugin;
+import com.voidcrypt.security.PackedAddress;
+import com.voidcrypt.security.RateKind;
+import com.voidcrypt.security.RecentAddressFilter;
+import org.bukkit.entity.Player;
+
+import java.util.List;
+
+/**
+ * Module 1M adapter: answers status requests from the {@link StatusResponder} cache
+ * It also records each pinging address for the ping-before-join gate, if enabled.
+ * Status requests answered from the cache are cancelled before the server sees them, and the
+ * cached packet is sent past all listeners. The response to a passed-through request is
+ * copied into the cache on its way out, after other plugins have edited it.
+ *
+ * The cache holds the built response object, so the server skips the ping event, player
+ * sample and favicon; the JSON is still written by the network encoder for each send.
+ * Entries are keyed by the protocol the client sent in its handshake, so a version field
+ * written for one client version is never shown to another.
+ */
+public class StatusInterceptor extends PacketAdapter {
+
+    private final VoidCryptPlugin plugin;
+    private final ProtocolManager protocolManager;
+    // Null when only the ping gate needs status requests
+    private final StatusResponder<PacketContainer> responder;
+    private final RecentAddressFilter pingGate;
+
+    public StatusInterceptor(VoidCryptPlugin plugin, ProtocolManager protocolManager) {
+        super(plugin, ListenerPriority.LOWEST, PacketType.Status.Client.START);
+        
+        this.plugin = plugin;
+        this.protocolManager = protocolManager;
+        this.responder = plugin.getConfig().getBoolean("status-cache.enabled", true)
+            ? new StatusResponder<>(plugin.getConfig().getLong("status-cache.refresh-ms", 1_000),
+                StatusResponder.OverLimitAction.fromConfig(plugin.getConfig().getString("status-cache.over-limit", "reduce")))
+            : null;
+        this.pingGate = plugin.getPingGate();
+        
+        protocolManager.addPacketListener(this);
+        if (responder == null) return;
+        // Captured last, after other plugins have edited the response
+        protocolManager.addPacketListener(new PacketAdapter(plugin, ListenerPriority.MONITOR,
+                PacketType.Status.Server.SERVER_INFO) {
+            @Override
+            public void onPacketSending(PacketEvent event) {
+                capture(event);
+            }
+        });
+    }
+
+    @Override
+    public void onPacketReceiving(PacketEvent event) {
+        if (event.isCancelled()) return;
+        
+        Player connection = event.getPlayer();
+        PackedAddress address = extractAddress(connection);
+        long now = System.currentTimeMillis();
+        boolean withinLimit = address == null || plugin.getRateLimits().tryAcquire(RateKind.STATUS, address, now);
+        // Flooding sources are not remembered, so they cannot fill the gate's filters
+        if (pingGate != null && address != null && withinLimit) {
+            pingGate.record(address, now);
+        }
+        if (responder == null) return;
+        
+        int protocol = protocolOf(connection);
+        StatusResponder.Decision decision = responder.onRequest(protocol, withinLimit, now);
+        if (decision == StatusResponder.Decision.PASS_TO_SERVER) return;
+        
+        event.setCancelled(true);
+        PacketContainer response = responder.get(protocol, decision);
+        try {
+            if (response != null) {
+                protocolManager.sendServerPacket(connection, response, false);
+            } else {
+                connection.kickPlayer("");
+            }
+        } catch (RuntimeException e) {
+            plugin.getLogger().fine("Could not answer status request: " + e.getMessage());
+        }
+    }
+
+    private void capture(PacketEvent event) {
+        if (event.isCancelled()) return;
+        
+        WrappedServerPing ping = event.getPacket().getServerPings().readSafely(0);
+        if (ping == null) return;
+        try {
+            PacketContainer full = protocolManager.createPacket(PacketType.Status.Server.SERVER_INFO);
+            full.getServerPings().write(0, ping.deepClone());
+            
+            WrappedServerPing withoutSample = ping.deepClone();
+            withoutSample.setPlayers(List.of());
+            PacketContainer reduced = protocolManager.createPacket(PacketType.Status.Server.SERVER_INFO);
+            reduced.getServerPings().write(0, withoutSample);
+            
+            responder.update(protocolOf(event.getPlayer()), full, reduced, System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            plugin.getLogger().fine("Could not cache status response: " + e.getMessage());
+        }
+    }
+
+    private int protocolOf(Player connection) {
+        try {
+            return protocolManager.getProtocolVersion(connection);
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private static PackedAddress extractAddress(Player connection) {
+        try {
+            return PackedAddress.of(connection.getAddress());
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the status cache, or null if only the ping gate is enabled
+     */
+    public StatusResponder<PacketContainer> getResponder() {
+        return responder;
+    }
+}
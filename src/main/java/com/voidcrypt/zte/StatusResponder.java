@@ -0,0 +1,217 @@
+package com.voidcrypt.zte;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Module 1M: Cached Status Responder
+ * Decides how each server-list ping is answered. At most one ping per refresh interval is
+ * passed to the server, which builds the status (MOTD, player sample, favicon) as usual;
+ * that response is cached and every other ping is answered from the cache. Sources over
+ * their ping rate get a copy without the player sample, or are dropped.
+ *
+ * Responses are cached per client protocol, since the server (or a plugin such as ViaVersion)
+ * may fill in the version field for the client. At most {@value #MAX_PROTOCOLS} protocols have
+ * their own entry. Since the protocol number comes from the client, a full table makes room by
+ * evicting its least recently pinged entry, but only one idle for a whole refresh interval, so
+ * cycling through junk protocols costs at most one rebuild per entry per interval. Otherwise,
+ * and for sources over their limit, the ping gets the latest cached response.
+ *
+ * @param <R> the prepared response, e.g. a ready-to-send packet
+ */
+public final class StatusResponder<R> {
+
+    static final int MAX_PROTOCOLS = 32;
+
+    private final long refreshIntervalMs;
+    private final OverLimitAction overLimitAction;
+
+    private final Map<Integer, Entry<R>> entries;
+    // Most recent response of any protocol
+    private volatile Cached<R> latest;
+
+    private final LongAdder passedToServer;
+    private final LongAdder servedCached;
+    private final LongAdder servedReduced;
+    private final LongAdder dropped;
+
+    public StatusResponder(long refreshIntervalMs, OverLimitAction overLimitAction) {
+        this.refreshIntervalMs = Math.max(1, refreshIntervalMs);
+        this.overLimitAction = overLimitAction;
+        this.entries = new ConcurrentHashMap<>();
+        this.passedToServer = new LongAdder();
+        this.servedCached = new LongAdder();
+        this.servedReduced = new LongAdder();
+        this.dropped = new LongAdder();
+    }
+
+    /**
+     * @param protocol    protocol version the client sent in its handshake
+     * @param withinLimit the source is within its ping rate
+     */
+    public Decision onRequest(int protocol, boolean withinLimit, long now) {
+        if (!withinLimit) {
+            // Abusive sources never claim an entry either
+            Entry<R> entry = entries.get(protocol);
+            // Abusive sources never trigger a rebuild
+            if (overLimitAction == OverLimitAction.REDUCE && resolve(entry) != null) {
+                servedReduced.increment();
+                return Decision.REDUCED;
+            }
+            dropped.increment();
+            return Decision.DROP;
+        }
+
+        Entry<R> entry = entry(protocol, now);
+        if (entry == null) {
+            // No room for another protocol: share the latest response, once there is one
+            if (latest == null) {
+                passedToServer.increment();
+                return Decision.PASS_TO_SERVER;
+            }
+            servedCached.increment();
+            return Decision.CACHED;
+        }
+        entry.lastUsed = now;
+        long next = entry.nextRefreshAt.get();
+        if (now >= next && entry.nextRefreshAt.compareAndSet(next, now + refreshIntervalMs)) {
+            passedToServer.increment();
+            return Decision.PASS_TO_SERVER;
+        }
+        if (entry.cached == null) {
+            // Nothing cached yet and a rebuild is under way: let the server answer this one too
+            passedToServer.increment();
+            return Decision.PASS_TO_SERVER;
+        }
+        servedCached.increment();
+        return Decision.CACHED;
+    }
+
+    /**
+     * Stores the response the server just built for a passed-through ping
+     */
+    public void update(int protocol, R full, R reduced, long now) {
+        Cached<R> built = new Cached<>(full, reduced, now);
+        Entry<R> entry = entry(protocol, now);
+        if (entry != null) {
+            entry.cached = built;
+        }
+        latest = built;
+    }
+
+    /**
+     * @return the response for a CACHED or REDUCED decision, or null if none is cached
+     */
+    public R get(int protocol, Decision decision) {
+        Cached<R> current = resolve(entries.get(protocol));
+        if (current == null) {
+            return null;
+        }
+        return decision == Decision.REDUCED ? current.reduced : current.full;
+    }
+
+    /**
+     * @return the protocol's entry, created if there is or can be made room, or null
+     */
+    private Entry<R> entry(int protocol, long now) {
+        Entry<R> entry = entries.get(protocol);
+        if (entry != null) {
+            return entry;
+        }
+        // New protocols are rare; serialise them so the table never grows past its size
+        synchronized (entries) {
+            entry = entries.get(protocol);
+            if (entry != null) {
+                return entry;
+            }
+            if (entries.size() >= MAX_PROTOCOLS && !evictIdle(now)) {
+                return null;
+            }
+            entry = new Entry<>();
+            entry.lastUsed = now;
+            entries.put(protocol, entry);
+            return entry;
+        }
+    }
+
+    /**
+     * Removes the least recently pinged entry if it has been idle for a refresh interval
+     */
+    private boolean evictIdle(long now) {
+        Map.Entry<Integer, Entry<R>> oldest = null;
+        for (Map.Entry<Integer, Entry<R>> candidate : entries.entrySet()) {
+            if (oldest == null || candidate.getValue().lastUsed < oldest.getValue().lastUsed) {
+                oldest = candidate;
+            }
+        }
+        if (oldest == null || now - oldest.getValue().lastUsed < refreshIntervalMs) {
+            return false;
+        }
+        return entries.remove(oldest.getKey(), oldest.getValue());
+    }
+
+    private Cached<R> resolve(Entry<R> entry) {
+        Cached<R> cached = entry != null ? entry.cached : null;
+        return cached != null ? cached : latest;
+    }
+
+    public long getPassedToServerCount() {
+        return passedToServer.sum();
+    }
+
+    public long getServedCachedCount() {
+        return servedCached.sum();
+    }
+
+    public long getServedReducedCount() {
+        return servedReduced.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return when the latest cached response was built, or -1 if none is cached
+     */
+    public long getCachedAt() {
+        Cached<R> current = latest;
+        return current != null ? current.builtAt : -1;
+    }
+
+    /**
+     * Client protocols with their own cached response
+     */
+    public int getProtocolCount() {
+        return entries.size();
+    }
+
+    public enum Decision {
+        PASS_TO_SERVER, // Server builds the response; it is cached on the way out
+        CACHED,         // Answer with the cached response
+        REDUCED,        // Answer with the cached response without player sample
+        DROP            // Close the connection without an answer
+    }
+
+    public enum OverLimitAction {
+        REDUCE,
+        DROP;
+
+        public static OverLimitAction fromConfig(String value) {
+            return value != null && "drop".equals(value.trim().toLowerCase(Locale.ROOT)) ? DROP : REDUCE;
+        }
+    }
+
+    // Full response and the same without player sample, replaced together
+    private record Cached<R>(R full, R reduced, long builtAt) {
+    }
+
+    private static final class Entry<R> {
+        final AtomicLong nextRefreshAt = new AtomicLong(Long.MIN_VALUE);
+        volatile Cached<R> cached;
+        volatile long lastUsed;
+    }
+}
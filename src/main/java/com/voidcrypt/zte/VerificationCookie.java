@@ -0,0 +1,120 @@
+package com.voidcrypt.zte;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Module 1I: Verification Cookie
+ * Proof of a passed handshake kept by the client (1.20.5+ cookie store) instead of the server.
+ * A returning client hands it back during login and is re-verified with one MAC check, so a
+ * restart or another backend sharing the secret key does not force the challenge again.
+ *
+ * Cookie layout (25 bytes): version(1) | issuedAt(8) | tag(16)
+ * The tag is HMAC-SHA256 over the domain label "vc-cookie", the body, the player's UUID and
+ * the client address, so a cookie copied to another account or address does not verify, and
+ * no challenge token can pass for a cookie.
+ */
+public final class VerificationCookie {
+
+    public static final byte VERSION = 1;
+
+    private static final int BODY_LENGTH = 1 + 8;
+    private static final int TAG_LENGTH = 16;
+    public static final int COOKIE_LENGTH = BODY_LENGTH + TAG_LENGTH;
+
+    // Tolerated clock difference for cookies issued by another backend sharing the key
+    private static final long MAX_CLOCK_SKEW_MS = 5_000;
+
+    // Longest textual address we bind to (IPv4-mapped IPv6)
+    private static final int MAX_ADDRESS_LENGTH = 45;
+
+    // MAC domain label, distinct from the challenge token's
+    private static final byte[] DOMAIN = "vc-cookie".getBytes(StandardCharsets.US_ASCII);
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private VerificationCookie() {
+    }
+
+    /**
+     * Issues a cookie for a verified client
+     */
+    public static byte[] issue(ChallengeEngine engine, String address, UUID player, long issuedAt) {
+        if (address.length() > MAX_ADDRESS_LENGTH) {
+            throw new IllegalArgumentException("Address too long for cookie binding");
+        }
+        byte[] cookie = new byte[COOKIE_LENGTH];
+        cookie[0] = VERSION;
+        writeLong(cookie, 1, issuedAt);
+
+        Scratch s = SCRATCH.get();
+        sign(engine, cookie, address, player, s);
+        System.arraycopy(s.mac, 0, cookie, BODY_LENGTH, TAG_LENGTH);
+        return cookie;
+    }
+
+    /**
+     * @param cookie what the client returned; null or empty if it had none
+     */
+    public static CryptographicChallenge.VerificationResult verify(ChallengeEngine engine, String address, UUID player,
+                                                                   byte[] cookie, long now, long maxAgeMs) {
+        if (cookie == null || cookie.length == 0) {
+            return CryptographicChallenge.VerificationResult.NO_CHALLENGE;
+        }
+        if (cookie.length != COOKIE_LENGTH || cookie[0] != VERSION
+                || address == null || address.length() > MAX_ADDRESS_LENGTH || player == null) {
+            return CryptographicChallenge.VerificationResult.INVALID_FORMAT;
+        }
+
+        Scratch s = SCRATCH.get();
+        sign(engine, cookie, address, player, s);
+        if (!ChallengeEngine.constantTimeEquals(s.mac, 0, cookie, BODY_LENGTH, TAG_LENGTH)) {
+            return CryptographicChallenge.VerificationResult.WRONG_ANSWER;
+        }
+
+        long issuedAt = readLong(cookie, 1);
+        if (issuedAt > now + MAX_CLOCK_SKEW_MS) {
+            return CryptographicChallenge.VerificationResult.WRONG_ANSWER;
+        }
+        if (now - issuedAt > maxAgeMs) {
+            return CryptographicChallenge.VerificationResult.TIMEOUT;
+        }
+        return CryptographicChallenge.VerificationResult.SUCCESS;
+    }
+
+    private static void sign(ChallengeEngine engine, byte[] cookie, String address, UUID player, Scratch s) {
+        byte[] input = s.macInput;
+        System.arraycopy(cookie, 0, input, 0, BODY_LENGTH);
+        writeLong(input, BODY_LENGTH, player.getMostSignificantBits());
+        writeLong(input, BODY_LENGTH + 8, player.getLeastSignificantBits());
+        int offset = BODY_LENGTH + 16;
+        int length = address.length();
+        for (int i = 0; i < length; i++) {
+            input[offset + i] = (byte) address.charAt(i);
+        }
+        engine.mac(DOMAIN, input, 0, offset + length, s.mac, 0);
+    }
+
+    private static void writeLong(byte[] buf, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            buf[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private static long readLong(byte[] buf, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (buf[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Per-thread buffers so verification does not allocate
+     */
+    private static final class Scratch {
+        final byte[] macInput = new byte[BODY_LENGTH + 16 + MAX_ADDRESS_LENGTH];
+        final byte[] mac = new byte[ChallengeEngine.MAC_LENGTH];
+    }
+}
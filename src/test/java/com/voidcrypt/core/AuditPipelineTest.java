@@ -0,0 +1,239 @@
+package com.voidcrypt.core;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests and producer-cost benchmark for AuditPipeline
+ */
+class AuditPipelineTest {
+
+    private static final Logger LOGGER = Logger.getLogger("AuditPipelineTest");
+
+    private final List<String> lines = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger batches = new AtomicInteger();
+
+    private final AuditPipeline.AuditSink collector = new AuditPipeline.AuditSink() {
+        @Override
+        public void write(AuditPipeline.Kind kind, Level level, String line) {
+            lines.add(kind + " " + line);
+        }
+
+        @Override
+        public void endBatch() {
+            batches.incrementAndGet();
+        }
+    };
+
+    @Test
+    @DisplayName("Events should be formatted on drain, in publish order")
+    void testFormatting() {
+        AuditPipeline pipeline = new AuditPipeline(16, List.of(collector), LOGGER);
+        assertTrue(pipeline.audit(Level.WARNING, "HANDSHAKE_INVALID", "IP: ", "203.0.113.9"));
+        assertTrue(pipeline.alert("Blocked login attempt from locked out IP: ", "198.51.100.4"));
+        assertTrue(pipeline.audit(Level.INFO, "SESSION_CREATED", "Player: Steve", null));
+        assertTrue(lines.isEmpty());
+        assertEquals(3, pipeline.getBacklog());
+
+        assertEquals(3, pipeline.drain());
+        assertEquals(List.of(
+            "AUDIT AUDIT [WARNING]: HANDSHAKE_INVALID | IP: 203.0.113.9",
+            "ALERT Blocked login attempt from locked out IP: 198.51.100.4",
+            "AUDIT AUDIT [INFO]: SESSION_CREATED | Player: Steve"), lines);
+        assertEquals(1, batches.get());
+        assertEquals(0, pipeline.getBacklog());
+        assertEquals(0, pipeline.drain());
+    }
+
+    @Test
+    @DisplayName("A full ring should drop and count new events instead of blocking")
+    void testOverload() {
+        AuditPipeline pipeline = new AuditPipeline(8, List.of(collector), LOGGER);
+        for (int i = 0; i < 8; i++) {
+            assertTrue(pipeline.audit(Level.INFO, "E", "n=", i));
+        }
+        assertFalse(pipeline.audit(Level.INFO, "E", "n=", 8));
+        assertFalse(pipeline.alert("lost", null));
+        assertEquals(2, pipeline.getDroppedCount());
+        assertEquals(8, pipeline.getPublishedCount());
+
+        assertEquals(8, pipeline.drain());
+        assertTrue(pipeline.audit(Level.INFO, "E", "n=", 9));
+        assertEquals(1, pipeline.drain());
+        assertEquals("AUDIT AUDIT [INFO]: E | n=9", lines.get(8));
+    }
+
+    @Test
+    @DisplayName("A failing sink should not stop the other sinks or the pipeline")
+    void testFailingSink() {
+        AuditPipeline.AuditSink failing = (kind, level, line) -> {
+            throw new IllegalStateException("sink down");
+        };
+        AuditPipeline pipeline = new AuditPipeline(16, List.of(failing, collector), LOGGER);
+        pipeline.alert("first", null);
+        pipeline.alert("second", null);
+
+        assertEquals(2, pipeline.drain());
+        assertEquals(List.of("ALERT first", "ALERT second"), lines);
+        assertEquals(0, pipeline.getBacklog());
+    }
+
+    @Test
+    @DisplayName("A full drain should wait for a running drain and then deliver the rest")
+    void testDrainFully() throws InterruptedException {
+        CountDownLatch inSink = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AuditPipeline.AuditSink slow = (kind, level, line) -> {
+            if (line.equals("first")) {
+                inSink.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            lines.add(line);
+        };
+        AuditPipeline pipeline = new AuditPipeline(16, List.of(slow), LOGGER);
+        pipeline.alert("first", null);
+        Thread background = new Thread(pipeline::drain);
+        background.start();
+        assertTrue(inSink.await(5, TimeUnit.SECONDS));
+
+        // Published while the background drain is busy
+        pipeline.alert("last", null);
+        assertEquals(0, pipeline.drain(), "a plain drain gives up while another one runs");
+
+        release.countDown();
+        pipeline.drainFully(5_000);
+        background.join();
+        assertEquals(List.of("first", "last"), lines);
+        assertEquals(0, pipeline.getBacklog());
+    }
+
+    @Test
+    @DisplayName("Events from many producers should each be delivered exactly once, in per-thread order")
+    void testConcurrentProducers() throws InterruptedException {
+        int threads = 8;
+        int perThread = 20_000;
+        List<int[]> seen = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            seen.add(new int[]{-1});
+        }
+        AtomicBoolean ordered = new AtomicBoolean(true);
+        AuditPipeline.AuditSink checker = (kind, level, line) -> {
+            String[] parts = line.substring(line.lastIndexOf('|') + 2).split(":");
+            int[] last = seen.get(Integer.parseInt(parts[0]));
+            int value = Integer.parseInt(parts[1]);
+            if (value != last[0] + 1) {
+                ordered.set(false);
+            }
+            last[0] = value;
+        };
+        AuditPipeline pipeline = new AuditPipeline(1 << 10, List.of(checker), LOGGER);
+
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String prefix = t + ":";
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    while (!pipeline.audit(Level.INFO, "E", prefix, i)) {
+                        Thread.onSpinWait(); // retry only so the test can count every event
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        long delivered = 0;
+        while (workers.stream().anyMatch(Thread::isAlive) || pipeline.getBacklog() > 0) {
+            delivered += pipeline.drain();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        delivered += pipeline.drain();
+
+        assertEquals((long) threads * perThread, delivered);
+        assertTrue(ordered.get());
+        for (int[] last : seen) {
+            assertEquals(perThread - 1, last[0]);
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "voidcrypt.bench", matches = "true")
+    @DisplayName("Benchmark: caller-thread cost of a synchronous audit vs publishing to the ring")
+    void benchmarkProducerCost() {
+        Logger direct = Logger.getLogger("AuditPipelineTest.direct");
+        direct.setUseParentHandlers(false);
+        direct.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        ConcurrentLinkedDeque<String> guiLog = new ConcurrentLinkedDeque<>();
+        AuditPipeline.AuditSink sink = (kind, level, line) -> {
+            direct.log(level, line);
+            guiLog.addFirst(line);
+            while (guiLog.size() > 100) {
+                guiLog.removeLast();
+            }
+        };
+
+        int events = 1 << 20;
+        AuditPipeline pipeline = new AuditPipeline(events, List.of(sink), LOGGER);
+        String[] ips = new String[1024];
+        for (int i = 0; i < ips.length; i++) {
+            ips[i] = "10.0." + (i >>> 8) + "." + (i & 0xFF);
+        }
+
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < events; i++) {
+                String message = String.format("AUDIT [%s]: %s | %s", Level.WARNING.getName(),
+                    "HANDSHAKE_INVALID", "IP: " + ips[i & 1023]);
+                sink.write(AuditPipeline.Kind.AUDIT, Level.WARNING, message);
+            }
+            long syncNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < events; i++) {
+                pipeline.audit(Level.WARNING, "HANDSHAKE_INVALID", "IP: ", ips[i & 1023]);
+            }
+            long publishNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            assertEquals(events, pipeline.drain());
+            long drainNanos = System.nanoTime() - start;
+
+            System.out.printf("Audit per event: synchronous %.0f ns, publish %.0f ns (drain %.0f ns on the consumer)%n",
+                syncNanos / (double) events, publishNanos / (double) events, drainNanos / (double) events);
+        }
+        assertEquals(0, pipeline.getDroppedCount());
+    }
+}
@@ -0,0 +1,76 @@
+package com.voidcrypt.core;
+
+import com.voidcrypt.radar.TrafficAnalyzer;
+import com.voidcrypt.shadow.SessionFingerprint;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DefenseSnapshot
+ */
+class DefenseSnapshotTest {
+
+    @Test
+    @DisplayName("Counts by status and suspicion should match the sessions")
+    void testCounts() {
+        List<SessionFingerprint> sessions = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            sessions.add(new SessionFingerprint(UUID.randomUUID(), "198.51.100." + i, 765));
+        }
+        sessions.get(0).incrementSuspicion(2);
+        sessions.get(1).incrementSuspicion(6);
+        sessions.get(2).incrementSuspicion(12);
+        sessions.get(3).markInvestigated();
+
+        DefenseSnapshot snapshot = DefenseSnapshot.build(1_000L, sessions, 19.5, 10, 40, 5_000L, 85);
+
+        assertEquals(6, snapshot.sessionCount());
+        assertEquals(3, snapshot.suspicious());
+        assertEquals(3, snapshot.count(SessionFingerprint.SessionStatus.ACTIVE));
+        assertEquals(1, snapshot.count(SessionFingerprint.SessionStatus.SUSPICIOUS));
+        assertEquals(1, snapshot.count(SessionFingerprint.SessionStatus.COMPROMISED));
+        assertEquals(1, snapshot.count(SessionFingerprint.SessionStatus.UNDER_INVESTIGATION));
+        assertTrue(snapshot.hasSecurityScore());
+        assertEquals(85, snapshot.securityScore());
+        assertEquals(sessions.get(1).getPlayerUUID(), snapshot.sessions().get(1).uuid());
+        assertEquals("198.51.100.1", snapshot.sessions().get(1).boundIP());
+    }
+
+    @Test
+    @DisplayName("Snapshots should not change when the sessions do")
+    void testImmutable() {
+        List<SessionFingerprint> sessions = new ArrayList<>();
+        sessions.add(new SessionFingerprint(UUID.randomUUID(), "203.0.113.9", 765));
+        DefenseSnapshot snapshot = DefenseSnapshot.build(1_000L, sessions, 20.0, 0, 0, 0L, DefenseSnapshot.NO_SCORE);
+
+        sessions.get(0).incrementSuspicion(12);
+        sessions.add(new SessionFingerprint(UUID.randomUUID(), "203.0.113.10", 765));
+
+        assertEquals(1, snapshot.sessionCount());
+        assertEquals(SessionFingerprint.SessionStatus.ACTIVE, snapshot.sessions().get(0).status());
+        assertEquals(0, snapshot.sessions().get(0).suspicionLevel());
+        assertFalse(snapshot.hasSecurityScore());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.sessions().clear());
+    }
+
+    @Test
+    @DisplayName("Network status and threat level should follow traffic and TPS")
+    void testTraffic() {
+        DefenseSnapshot quiet = DefenseSnapshot.build(0L, List.of(), 20.0, 100, 100, 100L, 100);
+        assertEquals(TrafficAnalyzer.NetworkStatus.NORMAL, quiet.networkStatus());
+        assertEquals(TrafficAnalyzer.threatLevel(100, 20.0), quiet.threatLevel(), 1e-9);
+
+        DefenseSnapshot flood = DefenseSnapshot.build(0L, List.of(), 9.0, 6_000, 6_000, 6_000L, 100);
+        assertEquals(TrafficAnalyzer.NetworkStatus.CRITICAL, flood.networkStatus());
+        assertTrue(flood.threatLevel() > quiet.threatLevel());
+
+        assertEquals(0, DefenseSnapshot.EMPTY.sessionCount());
+        assertEquals(TrafficAnalyzer.NetworkStatus.NORMAL, DefenseSnapshot.EMPTY.networkStatus());
+    }
+}
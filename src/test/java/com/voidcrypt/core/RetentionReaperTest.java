@@ -0,0 +1,82 @@
+package com.voidcrypt.core;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RetentionReaper
+ */
+class RetentionReaperTest {
+
+    private static final long TICK_MS = 50;
+    private static final long RETENTION_MS = 5 * 60_000L;
+
+    private final AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+    private final TimingWheel wheel = new TimingWheel(TICK_MS, clock::get, Logger.getLogger("RetentionReaperTest"));
+    private final List<UUID> released = new ArrayList<>();
+    private final RetentionReaper<UUID> reaper = new RetentionReaper<>(wheel, RETENTION_MS, released::add);
+
+    private void advance(long ms) {
+        for (long elapsed = 0; elapsed < ms; elapsed += TICK_MS) {
+            clock.addAndGet(TICK_MS);
+            wheel.advance();
+        }
+    }
+
+    @Test
+    @DisplayName("Keys should be released once the retention period has passed")
+    void testRelease() {
+        UUID player = UUID.randomUUID();
+        reaper.retain(player);
+        assertTrue(reaper.isPending(player));
+
+        advance(RETENTION_MS - 2 * TICK_MS);
+        assertTrue(released.isEmpty());
+
+        advance(3 * TICK_MS);
+        assertEquals(List.of(player), released);
+        assertFalse(reaper.isPending(player));
+        assertEquals(0, reaper.getPendingCount());
+    }
+
+    @Test
+    @DisplayName("A reconnect should cancel its own deadline and leave the others")
+    void testCancel() {
+        UUID back = UUID.randomUUID();
+        UUID gone = UUID.randomUUID();
+        reaper.retain(back);
+        reaper.retain(gone);
+
+        assertTrue(reaper.cancel(back));
+        assertFalse(reaper.cancel(back));
+        advance(RETENTION_MS + TICK_MS);
+
+        assertEquals(List.of(gone), released);
+        assertEquals(0, wheel.getPendingTimeouts());
+    }
+
+    @Test
+    @DisplayName("Retaining a key again should replace its deadline, not add a second one")
+    void testRetainAgain() {
+        UUID player = UUID.randomUUID();
+        reaper.retain(player);
+        advance(RETENTION_MS / 2);
+        reaper.retain(player);
+
+        assertEquals(1, reaper.getPendingCount());
+        assertEquals(1, wheel.getPendingTimeouts());
+        advance(RETENTION_MS / 2 + TICK_MS);
+        assertTrue(released.isEmpty());
+
+        advance(RETENTION_MS / 2 + TICK_MS);
+        assertEquals(List.of(player), released);
+    }
+}
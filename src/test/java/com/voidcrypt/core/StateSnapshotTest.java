@@ -0,0 +1,204 @@
+package com.voidcrypt.core;
+
+import com.voidcrypt.security.IpStateTable;
+import com.voidcrypt.security.PackedAddress;
+import com.voidcrypt.security.RateKind;
+import com.voidcrypt.security.RateLimiter;
+import com.voidcrypt.security.RateLimits;
+import com.voidcrypt.shadow.SessionFingerprint;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests and restore-time benchmark for StateSnapshot
+ */
+class StateSnapshotTest {
+
+    private static final Logger LOGGER = Logger.getLogger("StateSnapshotTest");
+    private static final long MINUTE = 60_000;
+    private static final long NOW = 1_700_000_000_000L;
+
+    @TempDir
+    Path dir;
+
+    private final AtomicLong clock = new AtomicLong(NOW);
+
+    private IpStateTable newTable() {
+        return new IpStateTable(new TimingWheel(50, clock::get, LOGGER));
+    }
+
+    private static RateLimits newLimits(int challengeLimit) {
+        RateLimiter[] limiters = new RateLimiter[RateKind.values().length];
+        for (RateKind kind : RateKind.values()) {
+            int limit = kind == RateKind.CHALLENGE ? challengeLimit : 30;
+            limiters[kind.ordinal()] = new RateLimiter(kind.getConfigKey(),
+                RateLimiter.Policy.TOKEN_BUCKET, limit, limit, MINUTE, 1024);
+        }
+        return new RateLimits(limiters);
+    }
+
+    @Test
+    @DisplayName("Table records, rate-limit windows and sessions should survive a save and load")
+    void testRoundTrip() throws IOException {
+        IpStateTable table = newTable();
+        PackedAddress verified = PackedAddress.of("198.51.100.1");
+        PackedAddress locked = PackedAddress.of("2001:db8::7");
+        PackedAddress suspect = PackedAddress.of("203.0.113.50");
+        table.markVerified(verified, NOW, 10 * MINUTE);
+        table.lockOut(locked, NOW, 5 * MINUTE);
+        table.addSuspicion(suspect, 7, NOW - MINUTE);
+        table.markBanned(suspect);
+        table.recordFailure(suspect, NOW);
+
+        RateLimits limits = newLimits(3);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limits.tryAcquire(RateKind.CHALLENGE, suspect, NOW));
+        }
+        assertFalse(limits.tryAcquire(RateKind.CHALLENGE, suspect, NOW));
+
+        SessionFingerprint session = new SessionFingerprint(UUID.randomUUID(), "198.51.100.1", 765);
+        session.incrementSuspicion(6);
+
+        StateSnapshot snapshot = new StateSnapshot(dir.resolve("state.bin"), LOGGER);
+        StateSnapshot.Result saved = snapshot.save(table, limits, List.of(session), NOW);
+        assertEquals(3, saved.ipRecords());
+        assertEquals(1, saved.rateEntries());
+        assertEquals(1, saved.sessions());
+        assertEquals(Files.size(snapshot.getFile()), saved.bytes());
+        assertFalse(Files.exists(dir.resolve("state.bin.tmp")));
+
+        // Six minutes later the lockout has run out while the server was down
+        long later = NOW + 6 * MINUTE;
+        clock.set(later);
+        TimingWheel wheel = new TimingWheel(50, clock::get, LOGGER);
+        IpStateTable restored = new IpStateTable(wheel);
+        RateLimits restoredLimits = newLimits(3);
+        List<SessionFingerprint> sessions = new ArrayList<>();
+        StateSnapshot.Result loaded = snapshot.load(restored, restoredLimits, sessions::add, later);
+
+        assertNotNull(loaded);
+        assertEquals(2, loaded.ipRecords());
+        assertTrue(restored.isVerified(verified, later));
+        assertFalse(restored.isLockedOut(locked, later));
+        assertEquals(7, restored.getSuspicion(suspect));
+        assertEquals(1, restored.getFailures(suspect));
+        assertTrue(restored.isBanned(suspect));
+
+        // Six minutes at 3 per minute refills the bucket, so the entry is not worth keeping
+        assertEquals(0, loaded.rateEntries());
+        RateLimits strict = newLimits(3);
+        assertEquals(1, snapshot.load(newTable(), strict, s -> { }, NOW + 1_000).rateEntries());
+        assertFalse(strict.tryAcquire(RateKind.CHALLENGE, suspect, NOW + 1_000));
+
+        assertEquals(1, sessions.size());
+        SessionFingerprint copy = sessions.get(0);
+        assertEquals(session.getPlayerUUID(), copy.getPlayerUUID());
+        assertEquals(session.getBoundIP(), copy.getBoundIP());
+        assertEquals(session.getProtocolHash(), copy.getProtocolHash());
+        assertEquals(session.getCreationTime(), copy.getCreationTime());
+        assertEquals(765, copy.getProtocolVersion());
+        assertEquals(SessionFingerprint.SessionStatus.SUSPICIOUS, copy.getStatus());
+        assertEquals(6, copy.getSuspicionLevel());
+
+        // Restored deadlines are armed on the wheel like live ones
+        clock.set(NOW + 11 * MINUTE);
+        wheel.advance();
+        assertFalse(restored.isVerified(verified, NOW + 11 * MINUTE));
+        assertEquals(1, restored.size());
+    }
+
+    @Test
+    @DisplayName("Rate-limit entries should be skipped when the bucket's rules changed")
+    void testChangedLimits() throws IOException {
+        RateLimits limits = newLimits(1);
+        PackedAddress ip = PackedAddress.of("198.51.100.9");
+        assertTrue(limits.tryAcquire(RateKind.CHALLENGE, ip, NOW));
+
+        StateSnapshot snapshot = new StateSnapshot(dir.resolve("state.bin"), LOGGER);
+        snapshot.save(newTable(), limits, List.of(), NOW);
+
+        RateLimits same = newLimits(1);
+        assertEquals(1, snapshot.load(newTable(), same, s -> { }, NOW).rateEntries());
+        assertFalse(same.tryAcquire(RateKind.CHALLENGE, ip, NOW));
+
+        RateLimits changed = newLimits(2);
+        assertEquals(0, snapshot.load(newTable(), changed, s -> { }, NOW).rateEntries());
+        assertTrue(changed.tryAcquire(RateKind.CHALLENGE, ip, NOW));
+    }
+
+    @Test
+    @DisplayName("Missing, corrupt and foreign-version files should be ignored")
+    void testInvalidFiles() throws IOException {
+        Path file = dir.resolve("state.bin");
+        StateSnapshot snapshot = new StateSnapshot(file, LOGGER);
+        assertNull(snapshot.load(newTable(), newLimits(30), s -> { }, NOW));
+
+        IpStateTable table = newTable();
+        table.markVerified(PackedAddress.of("198.51.100.1"), NOW, MINUTE);
+        snapshot.save(table, newLimits(30), List.of(), NOW);
+        byte[] valid = Files.readAllBytes(file);
+
+        byte[] flipped = valid.clone();
+        flipped[20] ^= 0x01;
+        Files.write(file, flipped);
+        IpStateTable target = newTable();
+        assertNull(snapshot.load(target, newLimits(30), s -> { }, NOW));
+        assertEquals(0, target.size());
+
+        byte[] version = valid.clone();
+        version[5] = 99;
+        Files.write(file, version);
+        assertNull(snapshot.load(target, newLimits(30), s -> { }, NOW));
+
+        Files.write(file, Arrays.copyOf(valid, valid.length - 9));
+        assertNull(snapshot.load(target, newLimits(30), s -> { }, NOW));
+        assertEquals(0, target.size());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "voidcrypt.bench", matches = "true")
+    @DisplayName("Benchmark: save and restore one million IP records")
+    void benchmarkRestore() throws IOException {
+        int entries = 1_000_000;
+        IpStateTable table = newTable();
+        for (int i = 0; i < entries; i++) {
+            PackedAddress ip = PackedAddress.ofIPv4(0x0A00_0000 + i);
+            if ((i & 1) == 0) {
+                table.markVerified(ip, NOW, 10 * MINUTE);
+            } else {
+                table.addSuspicion(ip, 1 + (i & 7), NOW);
+            }
+        }
+        StateSnapshot snapshot = new StateSnapshot(dir.resolve("state.bin"), LOGGER);
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            StateSnapshot.Result saved = snapshot.save(table, newLimits(30), List.of(), NOW);
+            long saveNanos = System.nanoTime() - start;
+
+            IpStateTable restored = newTable();
+            start = System.nanoTime();
+            StateSnapshot.Result loaded = snapshot.load(restored, newLimits(30), s -> { }, NOW);
+            long loadNanos = System.nanoTime() - start;
+
+            assertEquals(entries, loaded.ipRecords());
+            assertEquals(entries, restored.size());
+            System.out.printf("%,d records (%,d bytes): save %d ms, restore %d ms%n",
+                saved.ipRecords(), saved.bytes(), saveNanos / 1_000_000, loadNanos / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.voidcrypt.core;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests and throughput benchmark for TimingWheel
+ */
+class TimingWheelTest {
+
+    private static final long TICK_MS = 50;
+
+    private final AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+    private final TimingWheel wheel = new TimingWheel(TICK_MS, clock::get, Logger.getLogger("TimingWheelTest"));
+
+    /**
+     * Advances the clock one tick at a time, returning the time the task fired
+     */
+    private long runUntilFired(AtomicLong firedAt, long limitMs) {
+        long start = clock.get();
+        while (firedAt.get() == 0 && clock.get() - start <= limitMs) {
+            clock.addAndGet(TICK_MS);
+            wheel.advance();
+        }
+        return firedAt.get();
+    }
+
+    @Test
+    @DisplayName("Tasks should fire within one tick of their deadline at every level")
+    void testDeadlinesAcrossLevels() {
+        long[] delays = {0, 1, 49, 50, 51, 3_150, 3_200, 3_250, 204_800, 300_000, 600_000, 13_107_200};
+        for (long delay : delays) {
+            AtomicLong firedAt = new AtomicLong();
+            long scheduledAt = clock.get();
+            wheel.schedule(timeout -> firedAt.set(clock.get()), delay);
+            wheel.advance();
+
+            long fired = runUntilFired(firedAt, delay + 10 * TICK_MS);
+            assertTrue(fired >= scheduledAt + delay, "fired early for delay " + delay);
+            assertTrue(fired <= scheduledAt + delay + TICK_MS, "fired late for delay " + delay);
+        }
+    }
+
+    @Test
+    @DisplayName("Delays beyond the top level should still fire on time")
+    void testOverflow() {
+        long delay = 12L * 24 * 3600 * 1000; // 12 days
+        AtomicLong firedAt = new AtomicLong();
+        long scheduledAt = clock.get();
+        wheel.schedule(timeout -> firedAt.set(clock.get()), delay);
+
+        // Jump close to the deadline in one go, as after a long pause
+        clock.addAndGet(delay - 1_000);
+        wheel.advance();
+        assertEquals(0, firedAt.get());
+
+        long fired = runUntilFired(firedAt, 2_000);
+        assertTrue(fired >= scheduledAt + delay && fired <= scheduledAt + delay + TICK_MS);
+    }
+
+    @Test
+    @DisplayName("Cancelled tasks should never run and counters should track outcomes")
+    void testCancelAndCounters() {
+        AtomicInteger runs = new AtomicInteger();
+        List<TimingWheel.Timeout> timeouts = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            timeouts.add(wheel.schedule(timeout -> runs.incrementAndGet(), 1_000));
+        }
+        wheel.advance();
+
+        // Cancel half before and half of those again after they were filed
+        for (int i = 0; i < 50; i++) {
+            assertTrue(timeouts.get(i).cancel());
+            assertFalse(timeouts.get(i).cancel());
+        }
+        assertEquals(50, wheel.getPendingTimeouts());
+
+        clock.addAndGet(1_000);
+        wheel.advance();
+
+        assertEquals(50, runs.get());
+        assertEquals(50, wheel.getExpirationsLastTick());
+        assertEquals(50, wheel.getPeakExpirationsPerTick());
+        assertEquals(50, wheel.getTotalExpirations());
+        assertEquals(0, wheel.getPendingTimeouts());
+        assertTrue(timeouts.get(99).isExpired());
+        assertTrue(timeouts.get(0).isCancelled());
+        assertFalse(timeouts.get(99).cancel());
+    }
+
+    @Test
+    @DisplayName("A failing task should not stop the others")
+    void testFailingTask() {
+        AtomicInteger runs = new AtomicInteger();
+        wheel.schedule(timeout -> {
+            throw new IllegalStateException("boom");
+        }, 100);
+        wheel.schedule(timeout -> runs.incrementAndGet(), 100);
+
+        clock.addAndGet(100);
+        wheel.advance();
+        assertEquals(1, runs.get());
+        assertEquals(2, wheel.getExpirationsLastTick());
+    }
+
+    @Test
+    @DisplayName("Tasks scheduled from many threads should all fire exactly once")
+    void testConcurrentScheduling() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        int threads = 8;
+        int perThread = 5_000;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    wheel.schedule(timeout -> runs.incrementAndGet(), (i % 40) * TICK_MS);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        for (int i = 0; i < 45; i++) {
+            clock.addAndGet(TICK_MS);
+            wheel.advance();
+        }
+        assertEquals(threads * perThread, runs.get());
+        assertEquals(0, wheel.getPendingTimeouts());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "voidcrypt.bench", matches = "true")
+    @DisplayName("Benchmark: schedule, cancel and per-tick expiry cost with 1M live entries")
+    void benchmarkWheel() {
+        int entries = 1_000_000;
+        AtomicInteger runs = new AtomicInteger();
+        TimingWheel.Timeout[] timeouts = new TimingWheel.Timeout[entries];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < entries; i++) {
+            // Spread over 10 minutes, like verification TTLs under a join flood
+            timeouts[i] = wheel.schedule(timeout -> runs.incrementAndGet(), 1 + (i % 12_000) * TICK_MS);
+        }
+        wheel.advance();
+        long scheduleNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < entries; i += 2) {
+            timeouts[i].cancel();
+        }
+        wheel.advance();
+        long cancelNanos = System.nanoTime() - start;
+
+        long worstTickNanos = 0;
+        long totalTickNanos = 0;
+        int ticks = 12_001;
+        for (int i = 0; i < ticks; i++) {
+            clock.addAndGet(TICK_MS);
+            long tickStart = System.nanoTime();
+            wheel.advance();
+            long tickNanos = System.nanoTime() - tickStart;
+            totalTickNanos += tickNanos;
+            worstTickNanos = Math.max(worstTickNanos, tickNanos);
+        }
+
+        assertEquals(entries / 2, runs.get());
+        System.out.printf("Schedule: %.0f ns/op, cancel: %.0f ns/op%n",
+            scheduleNanos / (double) entries, cancelNanos / (entries / 2.0));
+        System.out.printf("Tick: avg %.1f us, worst %.1f us, peak %d expirations/tick%n",
+            totalTickNanos / 1e3 / ticks, worstTickNanos / 1e3, wheel.getPeakExpirationsPerTick());
+    }
+}
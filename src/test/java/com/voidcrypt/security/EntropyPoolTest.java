@@ -0,0 +1,182 @@
+package com.voidcrypt.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.security.SecureRandom;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests and contention benchmark for EntropyPool
+ */
+class EntropyPoolTest {
+
+    @Test
+    @DisplayName("A new pool should be full and hand out distinct values")
+    void testInitialFill() {
+        EntropyPool pool = new EntropyPool(1000, 256);
+        assertEquals(1024, pool.getCapacity());
+        assertEquals(1024, pool.available());
+
+        Set<Long> values = new HashSet<>();
+        for (int i = 0; i < 1024; i++) {
+            values.add(pool.nextLong());
+        }
+        assertEquals(1024, values.size());
+        assertEquals(1024, pool.getServedCount());
+        assertEquals(0, pool.getFallbackCount());
+    }
+
+    @Test
+    @DisplayName("An empty pool should fall back to the thread's generator until refilled")
+    void testFallback() {
+        EntropyPool pool = new EntropyPool(64, 16);
+        for (int i = 0; i < 64; i++) {
+            pool.nextLong();
+        }
+        assertEquals(0, pool.available());
+        assertNotEquals(pool.nextLong(), pool.nextLong());
+        assertEquals(2, pool.getFallbackCount());
+
+        assertEquals(64, pool.refill());
+        assertEquals(64, pool.available());
+        pool.nextLong();
+        assertEquals(64, pool.getServedCount() - 1);
+        assertEquals(2, pool.getFallbackCount());
+    }
+
+    @Test
+    @DisplayName("Refill should wait for the low-water mark and only top the pool up")
+    void testLowWater() {
+        EntropyPool pool = new EntropyPool(64, 16);
+        long refills = pool.getRefillCount();
+        for (int i = 0; i < 48; i++) {
+            pool.nextLong();
+        }
+        assertEquals(0, pool.refill());
+        assertEquals(16, pool.available());
+
+        pool.nextLong();
+        assertEquals(49, pool.refill());
+        assertEquals(64, pool.available());
+        assertEquals(refills + 1, pool.getRefillCount());
+    }
+
+    @Test
+    @DisplayName("Concurrent consumers and a refiller should never receive the same slot twice")
+    void testConcurrentConsumers() throws InterruptedException {
+        EntropyPool pool = new EntropyPool(256, 128);
+        int threads = 4;
+        int perThread = 20_000;
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                awaitQuietly(start);
+                for (int i = 0; i < perThread; i++) {
+                    seen.add(pool.nextLong());
+                }
+            });
+            workers[t].start();
+        }
+        Thread refiller = new Thread(() -> {
+            awaitQuietly(start);
+            while (!Thread.currentThread().isInterrupted()) {
+                pool.refill();
+                Thread.yield();
+            }
+        });
+        refiller.start();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        refiller.interrupt();
+        refiller.join();
+
+        assertEquals((long) threads * perThread, pool.getServedCount() + pool.getFallbackCount());
+        // Random longs do not collide in practice, so a duplicate means a slot was handed out twice
+        assertEquals(threads * perThread, seen.size());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "voidcrypt.bench", matches = "true")
+    @DisplayName("Benchmark: nonce generation under contention, shared SecureRandom vs thread DRBG vs pool")
+    void benchmarkContention() throws InterruptedException {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        int perThread = 200_000;
+        SecureRandom shared = new SecureRandom();
+        // Sized so most draws hit the pool; the tick-paced refill cannot keep up with a tight loop
+        EntropyPool pool = new EntropyPool(1 << 20, 1 << 18);
+
+        for (int round = 0; round < 2; round++) {
+            report("shared SecureRandom", threads, perThread, shared::nextLong, null);
+            report("thread DRBG", threads, perThread, SecurityValidator::nextSecureLong, null);
+            report("entropy pool", threads, perThread, pool::nextLong, pool);
+        }
+        System.out.printf("pool: %,d served, %,d fallbacks, %,d refills%n",
+            pool.getServedCount(), pool.getFallbackCount(), pool.getRefillCount());
+    }
+
+    private static void report(String name, int threads, int perThread, LongSupplier source, EntropyPool pool)
+            throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        long[] sink = new long[threads];
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            workers[t] = new Thread(() -> {
+                awaitQuietly(start);
+                long x = 0;
+                for (int i = 0; i < perThread; i++) {
+                    x ^= source.getAsLong();
+                }
+                sink[index] = x;
+            });
+            workers[t].start();
+        }
+        // Stand-in for the once-per-tick async refill task
+        Thread refiller = pool == null ? null : new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                pool.refill();
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        long begin = System.nanoTime();
+        if (refiller != null) {
+            refiller.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+        if (refiller != null) {
+            refiller.interrupt();
+            refiller.join();
+        }
+        long total = (long) threads * perThread;
+        System.out.printf("%-20s %d threads: %,.0f values/s, %,d ns per value%n",
+            name, threads, total / (elapsed / 1e9), elapsed / total);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
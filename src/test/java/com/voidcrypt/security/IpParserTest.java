@@ -0,0 +1,211 @@
+package com.voidcrypt.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests and throughput benchmark for IpParser
+ */
+class IpParserTest {
+
+    // The regex + InetAddress implementation IpParser replaced, kept as the reference
+    private static final Pattern LEGACY_IPV4 = Pattern.compile(
+        "^((25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.){3}(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)$"
+    );
+
+    private static final Pattern LEGACY_IPV6 = Pattern.compile(
+        "^([0-9a-fA-F]{1,4}:){7}[0-9a-fA-F]{1,4}$|" +
+        "^::([0-9a-fA-F]{1,4}:){0,6}[0-9a-fA-F]{1,4}$|" +
+        "^([0-9a-fA-F]{1,4}:){1,7}:$|" +
+        "^([0-9a-fA-F]{1,4}:){1,6}:[0-9a-fA-F]{1,4}$|" +
+        "^([0-9a-fA-F]{1,4}:){1,5}(:[0-9a-fA-F]{1,4}){1,2}$|" +
+        "^([0-9a-fA-F]{1,4}:){1,4}(:[0-9a-fA-F]{1,4}){1,3}$|" +
+        "^([0-9a-fA-F]{1,4}:){1,3}(:[0-9a-fA-F]{1,4}){1,4}$|" +
+        "^([0-9a-fA-F]{1,4}:){1,2}(:[0-9a-fA-F]{1,4}){1,5}$|" +
+        "^[0-9a-fA-F]{1,4}:(:[0-9a-fA-F]{1,4}){1,6}$|" +
+        "^::1$"
+    );
+
+    private static String legacyValidateIP(String ip) {
+        if (ip == null || ip.isEmpty() || ip.isBlank()) {
+            return null;
+        }
+        ip = ip.trim();
+        if (!LEGACY_IPV4.matcher(ip).matches() && !LEGACY_IPV6.matcher(ip).matches()) {
+            return null;
+        }
+        try {
+            InetAddress address = InetAddress.getByName(ip);
+            return address.isLoopbackAddress() ? ip : address.getHostAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    @Test
+    @DisplayName("Literals should parse into the packed layout")
+    void testParse() {
+        long[] out = new long[2];
+        assertEquals(IpParser.IPV4, IpParser.parse("203.0.113.7", out));
+        assertEquals(PackedAddress.of("::ffff:cb00:7107"), new PackedAddress(out[0], out[1]));
+
+        assertEquals(IpParser.IPV6, IpParser.parse("2001:DB8::1", out));
+        assertEquals(0x2001_0db8_0000_0000L, out[0]);
+        assertEquals(1L, out[1]);
+
+        assertEquals(IpParser.IPV6, IpParser.parse("1:2:3:4:5:6:7::", out));
+        assertEquals(0x0001_0002_0003_0004L, out[0]);
+        assertEquals(0x0005_0006_0007_0000L, out[1]);
+
+        assertEquals(IpParser.ERR_EMPTY, IpParser.parse("  ", out));
+        assertEquals(IpParser.ERR_RANGE, IpParser.parse("10.0.0.256", out));
+        assertEquals(IpParser.ERR_SYNTAX, IpParser.parse("::", out));
+        assertEquals(IpParser.ERR_SYNTAX, IpParser.parse("1::2::3", out));
+        assertEquals(IpParser.ERR_SYNTAX, IpParser.parse("::ffff:1.2.3.4", out));
+        assertEquals(IpParser.ERR_SYNTAX, IpParser.parse("fe80::1%eth0", out));
+        assertEquals(IpParser.ERR_SYNTAX, IpParser.parse("1:2:3:4:5:6:7:8:9", out));
+        assertEquals(IpParser.ERR_SYNTAX, IpParser.parse("1::2:3:4:5:6:7:8", out));
+        assertEquals(IpParser.ERR_SYNTAX, IpParser.parse("localhost", out));
+    }
+
+    @Test
+    @DisplayName("validateIP should return exactly what the regex and InetAddress version returned")
+    void testParityWithLegacy() {
+        List<String> inputs = new ArrayList<>(List.of(
+            "01.2.3.4", "1.2.3.04", "000.0.0.0", " 8.8.8.8 ", "127.0.0.1", "127.01.0.1",
+            "::1", "0:0:0:0:0:0:0:1", "0000:0:0:0:0:0:0:1", "::ffff:102:304", "::ffff:7f00:1",
+            "::1:2:3:4:5:6:7", "1::", "FE80::1", "2001:db8:0:0:0:0:2:1", "::0102:0304", "1.2.3.4.",
+            ".1.2.3.4", "1..2.3", "1.2.3.4:25565", "12345::", ":1::", "1:::", "1:2:3:4:5:6:7:8::"
+        ));
+        Random random = new Random(42);
+        String alphabet = "0123456789abcdefABCDEF.: ";
+        for (int i = 0; i < 100_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = 1 + random.nextInt(24);
+            for (int j = 0; j < length; j++) {
+                sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            inputs.add(sb.toString());
+        }
+        for (int i = 0; i < 20_000; i++) {
+            inputs.add(randomIPv4(random));
+            inputs.add(randomIPv6(random));
+        }
+
+        for (String input : inputs) {
+            assertEquals(legacyValidateIP(input), SecurityValidator.validateIP(input), "input: [" + input + "]");
+        }
+    }
+
+    @Test
+    @DisplayName("Private range checks should agree with InetAddress")
+    void testPrivateParity() throws UnknownHostException {
+        String[] inputs = {
+            "10.1.2.3", "172.16.0.1", "172.31.255.255", "172.32.0.1", "192.168.0.1", "192.169.0.1",
+            "169.254.1.1", "127.0.0.1", "8.8.8.8", "::1", "fe80::1", "febf::1", "fec0::1", "feff::1",
+            "fc00::1", "2001:db8::1", "::ffff:a00:1"
+        };
+        for (String input : inputs) {
+            InetAddress address = InetAddress.getByName(input);
+            boolean expected = address.isLoopbackAddress() || address.isSiteLocalAddress()
+                || address.isLinkLocalAddress();
+            assertEquals(expected, SecurityValidator.isPrivateIP(input), input);
+        }
+        assertFalse(SecurityValidator.isPrivateIP("localhost"));
+    }
+
+    @Test
+    @DisplayName("Socket addresses should pack without a string round trip")
+    void testSocketAddress() throws UnknownHostException {
+        InetSocketAddress v4 = new InetSocketAddress(InetAddress.getByName("198.51.100.9"), 25565);
+        assertEquals(PackedAddress.of("198.51.100.9"), PackedAddress.of(v4));
+
+        InetSocketAddress v6 = new InetSocketAddress(InetAddress.getByName("2001:db8::9"), 25565);
+        assertEquals(PackedAddress.of("2001:db8::9"), PackedAddress.of(v6));
+
+        assertNull(PackedAddress.of(InetSocketAddress.createUnresolved("example.invalid", 25565)));
+        assertNull(PackedAddress.of((InetSocketAddress) null));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "voidcrypt.bench", matches = "true")
+    @DisplayName("Benchmark: regex + InetAddress validation vs the single-pass parser")
+    void benchmarkValidateIP() throws UnknownHostException {
+        Random random = new Random(7);
+        String[] ipv4 = new String[4096];
+        String[] ipv6 = new String[4096];
+        InetSocketAddress[] sockets = new InetSocketAddress[4096];
+        for (int i = 0; i < ipv4.length; i++) {
+            ipv4[i] = PackedAddress.ofIPv4(random.nextInt()).toString();
+            ipv6[i] = randomIPv6(random);
+            sockets[i] = new InetSocketAddress(InetAddress.getByName(ipv4[i]), 25565);
+        }
+
+        int iterations = 2_000_000;
+        for (int round = 0; round < 3; round++) {
+            long legacyV4 = time(i -> legacyValidateIP(ipv4[i & 4095]), iterations);
+            long parserV4 = time(i -> SecurityValidator.validateIP(ipv4[i & 4095]), iterations);
+            long legacyV6 = time(i -> legacyValidateIP(ipv6[i & 4095]), iterations);
+            long parserV6 = time(i -> SecurityValidator.validateIP(ipv6[i & 4095]), iterations);
+            long socket = time(i -> PackedAddress.of(sockets[i & 4095]), iterations);
+            System.out.printf("validateIP IPv4: legacy %.0f ns, parser %.0f ns | IPv6: legacy %.0f ns, parser %.0f ns"
+                    + " | packed from socket %.0f ns%n",
+                legacyV4 / (double) iterations, parserV4 / (double) iterations,
+                legacyV6 / (double) iterations, parserV6 / (double) iterations, socket / (double) iterations);
+        }
+    }
+
+    private static long time(IntFunction<Object> op, int iterations) {
+        int sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            Object result = op.apply(i);
+            sink += result == null ? 0 : 1;
+        }
+        long elapsed = System.nanoTime() - start;
+        assertTrue(sink > 0);
+        return elapsed;
+    }
+
+    private static String randomIPv4(Random random) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 4; i++) {
+            if (i > 0) sb.append('.');
+            int octet = random.nextInt(random.nextInt(10) == 0 ? 300 : 256);
+            // Occasionally pad with zeros to exercise the leading-zero forms
+            sb.append(random.nextInt(10) == 0 ? String.format("%03d", octet) : String.valueOf(octet));
+        }
+        return sb.toString();
+    }
+
+    private static String randomIPv6(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int groups = 8;
+        int compressAt = random.nextInt(3) == 0 ? -1 : random.nextInt(8);
+        int skipped = compressAt < 0 ? 0 : 1 + random.nextInt(8 - compressAt);
+        for (int i = 0; i < groups; i++) {
+            if (i == compressAt) {
+                sb.append("::");
+                i += skipped - 1;
+                continue;
+            }
+            if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ':') sb.append(':');
+            int group = random.nextInt(4) == 0 ? 0 : random.nextInt(0x10000);
+            String hex = Integer.toHexString(group);
+            sb.append(random.nextBoolean() ? hex.toUpperCase() : hex);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,269 @@
+package com.voidcrypt.security;
+
+import com.voidcrypt.core.TimingWheel;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests and heap footprint benchmark for IpStateTable
+ */
+class IpStateTableTest {
+
+    private static final long VERIFY_TTL = 600_000;
+    private static final long LOCKOUT_TTL = 300_000;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private final TimingWheel wheel = new TimingWheel(50, clock::get, Logger.getLogger("IpStateTableTest"));
+
+    @Test
+    @DisplayName("Packed addresses should normalize IPv4-mapped forms and format like validateIP")
+    void testPackedAddress() {
+        PackedAddress v4 = PackedAddress.of("203.0.113.7");
+        assertTrue(v4.isIPv4());
+        assertEquals(v4, PackedAddress.of("::ffff:cb00:7107"));
+        assertEquals("203.0.113.7", v4.toString());
+
+        PackedAddress v6 = PackedAddress.of("2001:db8::1");
+        assertFalse(v6.isIPv4());
+        assertEquals(SecurityValidator.validateIP("2001:db8::1"), v6.toString());
+        assertNull(PackedAddress.of((String) null));
+    }
+
+    @Test
+    @DisplayName("All per-IP fields should live in one record")
+    void testRecordFields() {
+        IpStateTable table = new IpStateTable(wheel);
+        PackedAddress ip = PackedAddress.of("198.51.100.20");
+        long now = 1_000_000;
+
+        assertEquals(1, table.recordFailure(ip, now));
+        assertEquals(2, table.recordFailure(ip, now));
+        assertEquals(5, table.addSuspicion(ip, 5, now));
+        assertTrue(table.markBanned(ip));
+        assertFalse(table.markBanned(ip));
+        table.markVerified(ip, now, VERIFY_TTL);
+
+        assertEquals(1, table.size());
+        assertEquals(0, table.getFailures(ip));
+        assertEquals(5, table.getSuspicion(ip));
+        assertTrue(table.isBanned(ip));
+        assertTrue(table.isVerified(ip, now + 1));
+        assertFalse(table.isVerified(ip, now + VERIFY_TTL));
+        assertFalse(table.isVerified(PackedAddress.of("198.51.100.21"), now));
+    }
+
+    @Test
+    @DisplayName("Lockouts should expire after their duration")
+    void testLockout() {
+        IpStateTable table = new IpStateTable(wheel);
+        PackedAddress ip = PackedAddress.of("2001:db8::42");
+
+        table.recordFailure(ip, 10_000);
+        table.lockOut(ip, 10_000, LOCKOUT_TTL);
+        assertEquals(0, table.getFailures(ip));
+        assertTrue(table.isLockedOut(ip, 10_000 + LOCKOUT_TTL));
+        assertFalse(table.isLockedOut(ip, 10_001 + LOCKOUT_TTL));
+        assertFalse(table.isLockedOut(ip, 10_000));
+    }
+
+    @Test
+    @DisplayName("Expiry should drop idle records and keep every remaining one reachable")
+    void testExpiry() {
+        IpStateTable table = new IpStateTable(wheel);
+        long now = clock.get();
+        int count = 20_000;
+
+        for (int i = 0; i < count; i++) {
+            PackedAddress ip = PackedAddress.ofIPv4(0x0A000000 | i);
+            if (i % 3 == 0) {
+                table.markBanned(ip);
+            } else {
+                table.markVerified(ip, now, VERIFY_TTL);
+            }
+        }
+        wheel.advance();
+        assertEquals(count, table.size());
+
+        clock.addAndGet(VERIFY_TTL - 1_000);
+        wheel.advance();
+        assertEquals(count, table.size());
+
+        clock.addAndGet(1_050);
+        wheel.advance();
+        int banned = (count + 2) / 3;
+        assertEquals(count - banned, wheel.getExpirationsLastTick());
+        assertEquals(banned, table.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i % 3 == 0, table.isBanned(PackedAddress.ofIPv4(0x0A000000 | i)));
+        }
+
+        Set<PackedAddress> visited = new HashSet<>();
+        table.forEachBanned(visited::add);
+        assertEquals(banned, visited.size());
+    }
+
+    @Test
+    @DisplayName("Re-verification should not be cut short by the earlier expiry")
+    void testRefreshedVerification() {
+        IpStateTable table = new IpStateTable(wheel);
+        PackedAddress ip = PackedAddress.of("203.0.113.50");
+
+        table.markVerified(ip, clock.get(), VERIFY_TTL);
+        clock.addAndGet(VERIFY_TTL / 2);
+        table.markVerified(ip, clock.get(), VERIFY_TTL);
+
+        clock.addAndGet(VERIFY_TTL / 2 + 100);
+        wheel.advance();
+        assertTrue(table.isVerified(ip, clock.get()));
+
+        clock.addAndGet(VERIFY_TTL / 2);
+        wheel.advance();
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    @DisplayName("Records holding only failures or suspicion should be reclaimed once idle")
+    void testIdleReclaim() {
+        long idle = 30 * 60_000L;
+        IpStateTable table = new IpStateTable(wheel, idle);
+        int count = 5_000;
+        for (int i = 0; i < count; i++) {
+            table.recordFailure(PackedAddress.ofIPv4(0x0A000000 | i), clock.get());
+        }
+        PackedAddress suspect = PackedAddress.of("203.0.113.9");
+        PackedAddress banned = PackedAddress.of("203.0.113.10");
+        table.addSuspicion(suspect, 3, clock.get());
+        table.recordFailure(banned, clock.get());
+        table.markBanned(banned);
+        assertEquals(count + 2, table.size());
+
+        // The suspect stays active, the sprayed addresses do not
+        clock.addAndGet(idle / 2);
+        wheel.advance();
+        table.addSuspicion(suspect, 1, clock.get());
+        clock.addAndGet(idle / 2 + 100);
+        wheel.advance();
+
+        assertEquals(2, table.size());
+        assertEquals(0, table.getFailures(PackedAddress.ofIPv4(0x0A000000)));
+        assertEquals(4, table.getSuspicion(suspect));
+        assertTrue(table.isBanned(banned));
+        assertEquals(0, table.getFailures(banned), "a ban outlives the failures that led to it");
+
+        clock.addAndGet(idle);
+        wheel.advance();
+        assertEquals(1, table.size());
+        assertEquals(0, table.getSuspicion(suspect));
+    }
+
+    @Test
+    @DisplayName("Concurrent updates to shared addresses should not be lost")
+    void testConcurrentUpdates() throws InterruptedException {
+        IpStateTable table = new IpStateTable(wheel);
+        int threads = 8;
+        int perThread = 10_000;
+        List<Thread> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    table.addSuspicion(PackedAddress.ofIPv4(i % 500), 1, 1L);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        long total = 0;
+        for (int i = 0; i < 500; i++) {
+            total += table.getSuspicion(PackedAddress.ofIPv4(i));
+        }
+        assertEquals((long) threads * perThread, total);
+        assertEquals(500, table.size());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "voidcrypt.bench", matches = "true")
+    @DisplayName("Benchmark: heap footprint of String-keyed maps vs the packed table")
+    void benchmarkHeapFootprint() {
+        for (int addresses : new int[]{100_000, 1_000_000}) {
+            long mapBytes = measureLegacyMaps(addresses);
+            long tableBytes = measureTable(addresses);
+            System.out.printf("%,9d addresses: maps %,d bytes (%.0f B/IP), table %,d bytes (%.0f B/IP)%n",
+                addresses, mapBytes, mapBytes / (double) addresses, tableBytes, tableBytes / (double) addresses);
+            assertTrue(tableBytes < mapBytes);
+        }
+    }
+
+    /**
+     * Every field set for every address, spread over the original per-module maps
+     */
+    private static long measureLegacyMaps(int addresses) {
+        long baseline = usedHeapAfterGc();
+        Map<String, Long> verified = new ConcurrentHashMap<>();
+        Map<String, Integer> failures = new ConcurrentHashMap<>();
+        Map<String, Long> lockedOut = new ConcurrentHashMap<>();
+        Map<String, long[]> suspicion = new ConcurrentHashMap<>();
+        Set<String> banned = ConcurrentHashMap.newKeySet();
+        long now = System.currentTimeMillis();
+
+        for (int i = 0; i < addresses; i++) {
+            String ip = ipv4(i);
+            verified.put(ip, now + i);
+            failures.put(ip, i & 3);
+            lockedOut.put(ip, now + i);
+            suspicion.put(ip, new long[]{i, now, now});           // SuspicionData: level + 2 longs
+            banned.add(ip);
+        }
+        long bytes = usedHeapAfterGc() - baseline;
+        assertEquals(5L * addresses, (long) verified.size() + failures.size() + lockedOut.size()
+            + suspicion.size() + banned.size());
+        return bytes;
+    }
+
+    private long measureTable(int addresses) {
+        long baseline = usedHeapAfterGc();
+        IpStateTable table = new IpStateTable(wheel);
+        long now = System.currentTimeMillis();
+
+        for (int i = 0; i < addresses; i++) {
+            PackedAddress ip = PackedAddress.of(ipv4(i));
+            table.markVerified(ip, now + i, VERIFY_TTL);
+            table.recordFailure(ip, now);
+            table.lockOut(ip, now + i, LOCKOUT_TTL);
+            table.addSuspicion(ip, i, now);
+            table.markBanned(ip);
+        }
+        wheel.advance(); // pending expiries are part of the footprint
+        long bytes = usedHeapAfterGc() - baseline;
+        assertEquals(addresses, table.size());
+        return bytes;
+    }
+
+    private static String ipv4(int i) {
+        return "10." + ((i >>> 16) & 0xFF) + "." + ((i >>> 8) & 0xFF) + "." + (i & 0xFF);
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
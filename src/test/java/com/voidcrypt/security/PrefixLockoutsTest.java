@@ -0,0 +1,158 @@
+package com.voidcrypt.security;
+
+import com.voidcrypt.core.TimingWheel;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests and accuracy benchmark for PrefixLockouts
+ */
+class PrefixLockoutsTest {
+
+    private static final Logger LOGGER = Logger.getLogger("PrefixLockoutsTest");
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long WINDOW = 600_000;
+    private static final long LOCKOUT = 300_000;
+
+    private final AtomicLong clock = new AtomicLong(NOW);
+    private final TimingWheel wheel = new TimingWheel(50, clock::get, LOGGER);
+
+    private PrefixLockouts newLockouts(int width) {
+        return new PrefixLockouts(List.of(
+            new PrefixLockouts.Level(false, 24, 10), new PrefixLockouts.Level(false, 16, 50),
+            new PrefixLockouts.Level(true, 64, 10), new PrefixLockouts.Level(true, 48, 50)),
+            width, WINDOW, LOCKOUT, wheel);
+    }
+
+    @Test
+    @DisplayName("A /24 should lock out once its failures reach the threshold")
+    void testIPv4Escalation() {
+        PrefixLockouts lockouts = newLockouts(4096);
+        for (int i = 1; i < 10; i++) {
+            assertNull(lockouts.recordFailure(PackedAddress.of("198.51.100." + i), NOW));
+        }
+        assertFalse(lockouts.isLockedOut(PackedAddress.of("198.51.100.200"), NOW));
+        assertEquals(PackedAddress.of("198.51.100.0"), lockouts.recordFailure(PackedAddress.of("198.51.100.10"), NOW));
+
+        assertEquals(PackedAddress.of("198.51.100.0"), lockouts.lockedPrefix(PackedAddress.of("198.51.100.200"), NOW));
+        assertFalse(lockouts.isLockedOut(PackedAddress.of("198.51.101.1"), NOW));
+        assertEquals(10, lockouts.estimate(PackedAddress.of("198.51.101.1"), 1, NOW));
+        // Further failures do not escalate the same prefix twice
+        assertNull(lockouts.recordFailure(PackedAddress.of("198.51.100.11"), NOW));
+    }
+
+    @Test
+    @DisplayName("Rotating through many /24s should lock out the /16 above them")
+    void testWiderPrefix() {
+        PrefixLockouts lockouts = newLockouts(4096);
+        for (int i = 0; i < 50; i++) {
+            lockouts.recordFailure(PackedAddress.of("203.0." + i + ".7"), NOW);
+        }
+        assertTrue(lockouts.isLockedOut(PackedAddress.of("203.0.200.1"), NOW));
+        assertEquals(PackedAddress.of("203.0.0.0"), lockouts.lockedPrefix(PackedAddress.of("203.0.200.1"), NOW));
+        assertFalse(lockouts.isLockedOut(PackedAddress.of("203.1.0.1"), NOW));
+    }
+
+    @Test
+    @DisplayName("IPv6 failures should aggregate per /64 regardless of the interface id")
+    void testIPv6() {
+        PrefixLockouts lockouts = newLockouts(4096);
+        for (int i = 1; i <= 10; i++) {
+            lockouts.recordFailure(PackedAddress.of("2001:db8:5:6::" + Integer.toHexString(i * 4099)), NOW);
+        }
+        assertTrue(lockouts.isLockedOut(PackedAddress.of("2001:db8:5:6:aaaa::1"), NOW));
+        assertFalse(lockouts.isLockedOut(PackedAddress.of("2001:db8:5:7::1"), NOW));
+        // The IPv4 levels never see IPv6 failures
+        assertEquals(0, lockouts.estimate(PackedAddress.of("0.0.0.0"), 0, NOW));
+    }
+
+    @Test
+    @DisplayName("Counts should age out after two windows and lockouts expire on the wheel")
+    void testExpiry() {
+        PrefixLockouts lockouts = newLockouts(4096);
+        PackedAddress ip = PackedAddress.of("192.0.2.1");
+        for (int i = 0; i < 10; i++) {
+            lockouts.recordFailure(ip, NOW);
+        }
+        assertTrue(lockouts.isLockedOut(ip, NOW));
+
+        clock.set(NOW + LOCKOUT + 1_000);
+        wheel.advance();
+        assertFalse(lockouts.isLockedOut(ip, clock.get()));
+        assertEquals(0, lockouts.getLockedPrefixCount());
+
+        // Still counted one window later, gone two windows later
+        long nextWindow = (NOW / WINDOW + 1) * WINDOW;
+        assertEquals(10, lockouts.estimate(ip, 0, nextWindow));
+        assertEquals(0, lockouts.estimate(ip, 0, nextWindow + WINDOW));
+    }
+
+    @Test
+    @DisplayName("A window that is not positive should be rejected")
+    void testInvalidWindow() {
+        List<PrefixLockouts.Level> levels = List.of(new PrefixLockouts.Level(false, 24, 10));
+        assertThrows(IllegalArgumentException.class, () -> new PrefixLockouts(levels, 4096, 0, LOCKOUT, wheel));
+        assertThrows(IllegalArgumentException.class, () -> new PrefixLockouts(levels, 4096, -1_000, LOCKOUT, wheel));
+    }
+
+    @Test
+    @DisplayName("Failures recorded while another thread rotates the window should not be lost")
+    void testConcurrentRotation() throws InterruptedException {
+        PrefixLockouts lockouts = new PrefixLockouts(List.of(new PrefixLockouts.Level(false, 16, Integer.MAX_VALUE)),
+            1 << 16, WINDOW, LOCKOUT, wheel);
+        PackedAddress ip = PackedAddress.of("192.0.2.1");
+        int windows = 50;
+        int perWindow = 200;
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int w = 0; w < windows; w++) {
+                    for (int i = 0; i < perWindow; i++) {
+                        lockouts.recordFailure(ip, NOW + w * WINDOW);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // Every thread's failures in the last window, whoever rotated into it
+        assertTrue(lockouts.estimate(ip, 0, NOW + (windows - 1) * WINDOW) >= threads.length * perWindow);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "voidcrypt.bench", matches = "true")
+    @DisplayName("Benchmark: sketch over-count and false lockouts under a wide spray")
+    void benchmarkAccuracy() {
+        for (int width : new int[]{1024, 8192, 65_536}) {
+            PrefixLockouts lockouts = new PrefixLockouts(List.of(new PrefixLockouts.Level(false, 24, 20)),
+                width, WINDOW, LOCKOUT, wheel);
+            // 200,000 failures spread one per address across 100,000 /24s: no /24 should lock
+            int failures = 200_000;
+            long start = System.nanoTime();
+            for (int i = 0; i < failures; i++) {
+                lockouts.recordFailure(PackedAddress.ofIPv4(0x0A00_0000 + ((i % 100_000) << 8) + (i & 0xFF)), NOW);
+            }
+            long elapsed = System.nanoTime() - start;
+            long overCount = 0;
+            int maxEstimate = 0;
+            for (int p = 0; p < 100_000; p++) {
+                int estimate = lockouts.estimate(PackedAddress.ofIPv4(0x0A00_0000 + (p << 8)), 0, NOW);
+                overCount += estimate - 2;
+                maxEstimate = Math.max(maxEstimate, estimate);
+            }
+            System.out.printf("width %,6d (%,d KB): %,d ns per failure, mean over-count %.2f, max estimate %d,"
+                    + " falsely locked /24s %,d%n",
+                width, lockouts.getFootprintBytes() / 1024, elapsed / failures, overCount / 100_000.0,
+                maxEstimate, lockouts.getLockedPrefixCount());
+        }
+    }
+}
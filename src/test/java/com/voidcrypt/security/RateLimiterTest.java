@@ -0,0 +1,233 @@
+package com.voidcrypt.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests and contention benchmark for RateLimiter
+ */
+class RateLimiterTest {
+
+    private static final long MINUTE = 60_000;
+    private static final long NOW = 1_700_000_040_000L; // two thirds into a minute window
+
+    @Test
+    @DisplayName("Token bucket should allow a burst and then refill at the configured rate")
+    void testTokenBucket() {
+        RateLimiter limiter = new RateLimiter("test", RateLimiter.Policy.TOKEN_BUCKET, 30, 10, MINUTE, 1024);
+        long key = 42;
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire(key, NOW));
+        }
+        assertFalse(limiter.tryAcquire(key, NOW));
+        assertFalse(limiter.tryAcquire(key, NOW + 1_000));
+
+        // 30 per minute is one token every 2 seconds
+        assertTrue(limiter.tryAcquire(key, NOW + 2_000));
+        assertFalse(limiter.tryAcquire(key, NOW + 2_000));
+
+        // A long pause refills up to the burst, not beyond
+        int allowed = 0;
+        while (limiter.tryAcquire(key, NOW + 10 * MINUTE)) {
+            allowed++;
+        }
+        assertEquals(10, allowed);
+        assertEquals(4, limiter.getRejectedCount());
+    }
+
+    @Test
+    @DisplayName("Slow trickles of refill should not be lost to rounding")
+    void testFractionalRefill() {
+        RateLimiter limiter = new RateLimiter("test", RateLimiter.Policy.TOKEN_BUCKET, 1, 1, MINUTE, 1024);
+        assertTrue(limiter.tryAcquire(7, NOW));
+        for (long t = NOW + 1_000; t < NOW + MINUTE; t += 1_000) {
+            assertFalse(limiter.tryAcquire(7, t));
+        }
+        assertTrue(limiter.tryAcquire(7, NOW + MINUTE));
+    }
+
+    @Test
+    @DisplayName("Sliding window should weight the previous window by its overlap")
+    void testSlidingWindow() {
+        RateLimiter limiter = new RateLimiter("test", RateLimiter.Policy.SLIDING_WINDOW, 30, 30, MINUTE, 1024);
+        long key = 99;
+        long windowStart = NOW - NOW % MINUTE;
+
+        for (int i = 0; i < 30; i++) {
+            assertTrue(limiter.tryAcquire(key, windowStart + 59_000));
+        }
+        assertFalse(limiter.tryAcquire(key, windowStart + 59_999));
+
+        // Halfway into the next window, half of the previous 30 still count
+        long halfway = windowStart + MINUTE + MINUTE / 2;
+        int allowed = 0;
+        while (limiter.tryAcquire(key, halfway)) {
+            allowed++;
+        }
+        assertEquals(15, allowed);
+
+        // Two windows later nothing carries over
+        allowed = 0;
+        while (limiter.tryAcquire(key, windowStart + 3 * MINUTE)) {
+            allowed++;
+        }
+        assertEquals(30, allowed);
+    }
+
+    @Test
+    @DisplayName("Keys should be limited independently")
+    void testIndependentKeys() {
+        RateLimiter limiter = new RateLimiter("test", RateLimiter.Policy.SLIDING_WINDOW, 2, 2, MINUTE, 1024);
+        PackedAddress a = PackedAddress.of("198.51.100.1");
+        PackedAddress b = PackedAddress.of("198.51.100.2");
+
+        assertTrue(limiter.tryAcquire(a, NOW));
+        assertTrue(limiter.tryAcquire(a, NOW));
+        assertFalse(limiter.tryAcquire(a, NOW));
+        assertTrue(limiter.tryAcquire(b, NOW));
+        assertNotEquals(RateLimiter.keyOf("challenge:1.2.3.4"), RateLimiter.keyOf("honeypot:1.2.3.4"));
+    }
+
+    @Test
+    @DisplayName("A full table should evict the least recently active keys")
+    void testEviction() {
+        RateLimiter limiter = new RateLimiter("test", RateLimiter.Policy.TOKEN_BUCKET, 1, 1, MINUTE, 8);
+        long hot = 1;
+        assertTrue(limiter.tryAcquire(hot, NOW + 5_000));
+
+        // Far more keys than slots, all older than the hot key
+        for (long key = 2; key < 10_000; key++) {
+            assertTrue(limiter.tryAcquire(key, NOW));
+        }
+        assertFalse(limiter.tryAcquire(hot, NOW + 5_000));
+
+        // A newcomer always gets a slot with a fresh quota
+        assertTrue(limiter.tryAcquire(123_456_789L, NOW + 6_000));
+    }
+
+    @Test
+    @DisplayName("Concurrent callers on one key should never exceed the limit")
+    void testConcurrentAcquire() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter("test", RateLimiter.Policy.TOKEN_BUCKET, 5_000, 5_000, MINUTE, 1024);
+        AtomicInteger allowed = new AtomicInteger();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    if (limiter.tryAcquire(5, NOW)) {
+                        allowed.incrementAndGet();
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(5_000, allowed.get());
+        assertEquals(11_000, limiter.getRejectedCount());
+    }
+
+    @Test
+    @DisplayName("Missing config should fall back to one default token bucket per kind")
+    void testDefaults() {
+        RateLimits limits = RateLimits.fromConfig(null, Logger.getLogger("RateLimiterTest"));
+        for (RateKind kind : RateKind.values()) {
+            RateLimiter limiter = limits.get(kind);
+            assertEquals(kind.getConfigKey(), limiter.getName());
+            assertEquals(RateLimiter.Policy.TOKEN_BUCKET, limiter.getPolicy());
+            assertEquals(30, limiter.getLimit());
+            assertEquals(MINUTE, limiter.getPeriodMs());
+        }
+        assertEquals(RateLimiter.Policy.SLIDING_WINDOW, RateLimiter.Policy.fromConfig(" Sliding-Window"));
+        assertEquals(RateLimiter.Policy.TOKEN_BUCKET, RateLimiter.Policy.fromConfig(null));
+        assertThrows(IllegalArgumentException.class,
+            () -> new RateLimiter("bad", RateLimiter.Policy.TOKEN_BUCKET, 0, 1, MINUTE, 8));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "voidcrypt.bench", matches = "true")
+    @DisplayName("Benchmark: compute()-locked String map vs CAS limiter under 16 and 32 threads")
+    void benchmarkContention() throws InterruptedException {
+        int opsPerThread = 500_000;
+        String[] ips = new String[1 << 16];
+        PackedAddress[] addresses = new PackedAddress[ips.length];
+        for (int i = 0; i < ips.length; i++) {
+            ips[i] = "10." + ((i >>> 8) & 0xFF) + "." + (i & 0xFF) + ".1";
+            addresses[i] = PackedAddress.of(ips[i]);
+        }
+
+        for (int threads : new int[]{16, 32}) {
+            for (int hotKeys : new int[]{16, ips.length}) {
+                int keyMask = hotKeys - 1;
+                Map<String, long[]> legacy = new ConcurrentHashMap<>();
+                RateLimiter limiter = new RateLimiter("bench", RateLimiter.Policy.TOKEN_BUCKET,
+                    30, 30, MINUTE, 1 << 17);
+
+                double legacyOps = run(threads, opsPerThread, i -> {
+                    long now = System.currentTimeMillis();
+                    long[] entry = legacy.compute("challenge:" + ips[i & keyMask], (key, existing) -> {
+                        if (existing == null || now - existing[0] > MINUTE) {
+                            return new long[]{now, 1};
+                        }
+                        existing[1]++;
+                        return existing;
+                    });
+                    return entry[1] <= 30;
+                });
+                double limiterOps = run(threads, opsPerThread,
+                    i -> limiter.tryAcquire(addresses[i & keyMask], System.currentTimeMillis()));
+
+                System.out.printf("%d threads, %,d keys: compute map %.1f Mops/s, CAS limiter %.1f Mops/s%n",
+                    threads, hotKeys, legacyOps / 1e6, limiterOps / 1e6);
+            }
+        }
+    }
+
+    private static double run(int threads, int opsPerThread, IntPredicate op) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        AtomicInteger allowed = new AtomicInteger();
+        for (int t = 0; t < threads; t++) {
+            int seed = t * 7919;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                int count = 0;
+                for (int i = 0; i < opsPerThread; i++) {
+                    if (op.test(seed + i * 31)) {
+                        count++;
+                    }
+                }
+                allowed.addAndGet(count);
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+        assertTrue(allowed.get() > 0);
+        return (double) threads * opsPerThread / (elapsed / 1e9);
+    }
+}
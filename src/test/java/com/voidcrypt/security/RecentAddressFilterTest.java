@@ -0,0 +1,155 @@
+package com.voidcrypt.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests and flood benchmark for RecentAddressFilter
+ */
+class RecentAddressFilterTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long MINUTE = 60_000;
+
+    @Test
+    @DisplayName("Recorded addresses should be found until the window has passed")
+    void testWindow() {
+        RecentAddressFilter filter = new RecentAddressFilter(10 * MINUTE, 5, 1_000, 0.01);
+        PackedAddress pinger = PackedAddress.of("203.0.113.7");
+        PackedAddress stranger = PackedAddress.of("203.0.113.8");
+        filter.record(pinger, NOW);
+
+        assertTrue(filter.contains(pinger, NOW));
+        assertFalse(filter.contains(stranger, NOW));
+        assertTrue(filter.contains(pinger, NOW + 10 * MINUTE - 1));
+        // Gone at the latest one slice after the window
+        assertFalse(filter.contains(pinger, NOW + 12 * MINUTE));
+
+        PackedAddress v6 = PackedAddress.of("2001:db8::42");
+        filter.record(v6, NOW + 20 * MINUTE);
+        assertTrue(filter.contains(v6, NOW + 25 * MINUTE));
+    }
+
+    @Test
+    @DisplayName("A long quiet period should clear every slice")
+    void testQuietPeriod() {
+        RecentAddressFilter filter = new RecentAddressFilter(10 * MINUTE, 5, 1_000, 0.01);
+        PackedAddress pinger = PackedAddress.of("198.51.100.1");
+        filter.record(pinger, NOW);
+        filter.record(PackedAddress.of("198.51.100.2"), NOW + 4 * MINUTE);
+        assertTrue(filter.contains(pinger, NOW + 9 * MINUTE));
+        assertFalse(filter.contains(pinger, NOW + 365L * 24 * 60 * MINUTE));
+    }
+
+    @Test
+    @DisplayName("False positives should stay near the configured rate at capacity")
+    void testFalsePositiveRate() {
+        int capacity = 50_000;
+        RecentAddressFilter filter = new RecentAddressFilter(10 * MINUTE, 5, capacity, 0.01);
+        for (int i = 0; i < capacity; i++) {
+            filter.record(PackedAddress.ofIPv4(0x0A00_0000 + i), NOW);
+        }
+        for (int i = 0; i < capacity; i++) {
+            assertTrue(filter.contains(PackedAddress.ofIPv4(0x0A00_0000 + i), NOW));
+        }
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.contains(PackedAddress.ofIPv4(0xC000_0000 + i), NOW)) {
+                falsePositives++;
+            }
+        }
+        // Only the current slice is filled, so the rate is that of one filter
+        assertTrue(falsePositives < probes * 0.02, "false positives: " + falsePositives);
+        assertEquals(7, filter.getHashCount());
+        assertEquals(6L * ((479_253 + 63) / 64) * 8, filter.getFootprintBytes());
+    }
+
+    @Test
+    @DisplayName("Addresses recorded while another thread starts a slice should not be lost")
+    void testConcurrentRotation() throws InterruptedException {
+        // Large filters take long enough to clear that an in-place clear would race the records
+        RecentAddressFilter filter = new RecentAddressFilter(5 * MINUTE, 5, 2_000_000, 0.01);
+        int threads = 8;
+        int slices = 40;
+        int perSlice = 500;
+        CyclicBarrier sliceStart = new CyclicBarrier(threads);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            workers[t] = new Thread(() -> {
+                for (int slice = 0; slice < slices; slice++) {
+                    try {
+                        sliceStart.await();
+                    } catch (InterruptedException | BrokenBarrierException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perSlice; i++) {
+                        filter.record(address(thread, slice, i), NOW + slice * MINUTE);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        // Every address of the slices still in the window, whichever thread started them
+        for (int slice = slices - 5; slice < slices; slice++) {
+            for (int t = 0; t < threads; t++) {
+                for (int i = 0; i < perSlice; i++) {
+                    assertTrue(filter.contains(address(t, slice, i), NOW + (slices - 1) * MINUTE));
+                }
+            }
+        }
+    }
+
+    private static PackedAddress address(int thread, int slice, int i) {
+        return PackedAddress.ofIPv4(0x0A00_0000 + (thread << 20) + (slice << 10) + i);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "voidcrypt.bench", matches = "true")
+    @DisplayName("Benchmark: millions of pinging sources in fixed memory")
+    void benchmarkFlood() {
+        int capacity = 1_000_000;
+        RecentAddressFilter filter = new RecentAddressFilter(10 * MINUTE, 5, capacity, 0.01);
+        Runtime runtime = Runtime.getRuntime();
+        int sources = 5_000_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < sources; i++) {
+            // Spread over the whole window: one million per two-minute slice
+            filter.record(PackedAddress.ofIPv4(0x0100_0000 + i), NOW + (long) i * 10 * MINUTE / sources);
+        }
+        long recordNanos = (System.nanoTime() - start) / sources;
+        long end = NOW + 10 * MINUTE - 1;
+
+        int probes = 1_000_000;
+        int found = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < probes; i++) {
+            if (filter.contains(PackedAddress.ofIPv4(0x0100_0000 + sources - 1 - i), end)) {
+                found++;
+            }
+        }
+        long containsNanos = (System.nanoTime() - start) / probes;
+        int falsePositives = 0;
+        for (int i = 0; i < probes; i++) {
+            if (filter.contains(PackedAddress.ofIPv4(0xE000_0000 + i), end)) {
+                falsePositives++;
+            }
+        }
+        System.out.printf("%,d sources: record %,d ns, lookup %,d ns, %,d KiB fixed (heap in use %,d MiB),"
+                + " false positives %.2f%%%n", sources, recordNanos, containsNanos,
+            filter.getFootprintBytes() / 1024, (runtime.totalMemory() - runtime.freeMemory()) >> 20,
+            100.0 * falsePositives / probes);
+        assertEquals(probes, found);
+        assertTrue(falsePositives < probes * 0.06);
+    }
+}
@@ -106,4 +106,14 @@ class SecurityValidatorTest {
         assertNotEquals(token1, token2); // Should be random
         assertTrue(token1.matches("^[0-9a-f]+$")); // Should be hex
     }
+
+    @Test
+    @DisplayName("Thread-local secure tokens should be hex of the requested length")
+    void testThreadTokens() {
+        String token = SecurityValidator.generateSecureToken(8);
+        assertEquals(16, token.length());
+        assertTrue(token.matches("[0-9a-f]+"));
+        assertEquals(600, SecurityValidator.generateSecureToken(300).length());
+        assertNotEquals(SecurityValidator.nextSecureLong(), SecurityValidator.nextSecureLong());
+    }
 }
@@ -0,0 +1,378 @@
+package com.voidcrypt.shadow;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests and replication benchmark for ReplicatedSessionStore
+ */
+class ReplicatedSessionStoreTest {
+
+    private static final String SECRET = "test-secret-key-for-sync!";
+    private static final long INTERVAL_MS = 10_000;
+    private static final Logger LOGGER = Logger.getLogger("ReplicatedSessionStoreTest");
+
+    private final List<ReplicatedSessionStore> stores = new ArrayList<>();
+    private long now = 1_700_000_000_000L;
+
+    @AfterEach
+    void closeStores() {
+        stores.forEach(ReplicatedSessionStore::close);
+    }
+
+    /**
+     * Creates stores on ephemeral loopback ports, each with all the others as peers
+     */
+    private ReplicatedSessionStore[] cluster(String... secrets) throws IOException {
+        DatagramChannel[] channels = new DatagramChannel[secrets.length];
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (int i = 0; i < secrets.length; i++) {
+            channels[i] = channel();
+            addresses.add((InetSocketAddress) channels[i].getLocalAddress());
+        }
+        ReplicatedSessionStore[] cluster = new ReplicatedSessionStore[secrets.length];
+        for (int i = 0; i < secrets.length; i++) {
+            List<InetSocketAddress> peers = new ArrayList<>(addresses);
+            peers.remove(i);
+            cluster[i] = new ReplicatedSessionStore(i + 1, channels[i], peers, secrets[i], INTERVAL_MS, 1400, LOGGER);
+            stores.add(cluster[i]);
+        }
+        return cluster;
+    }
+
+    private static DatagramChannel channel() throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.bind(new InetSocketAddress("127.0.0.1", 0));
+        return channel;
+    }
+
+    private ReplicatedSessionStore store(long nodeId, DatagramChannel channel, List<InetSocketAddress> peers) {
+        ReplicatedSessionStore store = new ReplicatedSessionStore(nodeId, channel, peers, SECRET, INTERVAL_MS, 1400,
+            LOGGER);
+        stores.add(store);
+        return store;
+    }
+
+    /**
+     * Ticks the stores until the condition holds, failing after two seconds
+     */
+    private void tickUntil(BooleanSupplier condition, ReplicatedSessionStore... ticking) throws InterruptedException {
+        long deadline = System.nanoTime() + 2_000_000_000L;
+        while (true) {
+            for (ReplicatedSessionStore store : ticking) {
+                store.tick(now);
+            }
+            if (condition.getAsBoolean()) {
+                return;
+            }
+            assertTrue(System.nanoTime() < deadline, "condition not reached");
+            Thread.sleep(1);
+        }
+    }
+
+    private static SessionFingerprint session(UUID uuid, long creationTime) {
+        return SessionFingerprint.restore(uuid, "198.51.100.7", null, creationTime, 765, null,
+            SessionFingerprint.SessionStatus.ACTIVE, 0);
+    }
+
+    @Test
+    @DisplayName("Sessions should reach peers as sessions of another server")
+    void testReplication() throws Exception {
+        ReplicatedSessionStore[] nodes = cluster(SECRET, SECRET);
+        List<SessionFingerprint> sessions = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            SessionFingerprint fp = new SessionFingerprint(UUID.randomUUID(), "203.0.113." + i, 765);
+            fp.incrementSuspicion(3);
+            sessions.add(fp);
+            nodes[0].put(fp);
+        }
+
+        tickUntil(() -> nodes[1].getRemoteCount() == 100, nodes);
+
+        assertTrue(nodes[0].getSentDatagrams() > 1, "records should be split across datagrams");
+        assertEquals(0, nodes[1].size());
+        assertFalse(nodes[1].getLocalSessions().iterator().hasNext());
+        assertEquals(100, nodes[0].size());
+        SessionFingerprint original = sessions.get(42);
+        SessionFingerprint copy = nodes[1].get(original.getPlayerUUID());
+        assertEquals(original.getBoundIP(), copy.getBoundIP());
+        assertEquals(original.getProtocolHash(), copy.getProtocolHash());
+        assertEquals(original.getEntropyToken(), copy.getEntropyToken());
+        assertEquals(original.getCreationTime(), copy.getCreationTime());
+        assertEquals(3, copy.getSuspicionLevel());
+    }
+
+    @Test
+    @DisplayName("The newest session of a player should win on every server")
+    void testNewerSessionWins() throws Exception {
+        ReplicatedSessionStore[] nodes = cluster(SECRET, SECRET);
+        UUID player = UUID.randomUUID();
+        nodes[0].put(session(player, 1_000L));
+        nodes[1].put(session(player, 2_000L));
+
+        tickUntil(() -> nodes[0].get(player).getCreationTime() == 2_000L
+            && nodes[0].getAppliedRecords() > 0 && nodes[1].getReceivedRecords() > 0, nodes);
+
+        assertEquals(2_000L, nodes[1].get(player).getCreationTime());
+        assertEquals(0, nodes[0].size(), "the older server gives up the session");
+        assertEquals(1, nodes[1].size());
+    }
+
+    @Test
+    @DisplayName("Suspicion added on another server should reach the owner")
+    void testUpdateFromPeer() throws Exception {
+        ReplicatedSessionStore[] nodes = cluster(SECRET, SECRET);
+        UUID player = UUID.randomUUID();
+        nodes[0].put(session(player, 1_000L));
+        tickUntil(() -> nodes[1].get(player) != null, nodes);
+
+        SessionFingerprint remote = nodes[1].get(player);
+        remote.incrementSuspicion(12);
+        nodes[1].updated(remote);
+
+        tickUntil(() -> nodes[0].get(player).getStatus() == SessionFingerprint.SessionStatus.COMPROMISED, nodes);
+        assertEquals(1, nodes[0].size(), "the session stays with its owner");
+        assertEquals(0, nodes[1].size());
+    }
+
+    @Test
+    @DisplayName("Suspicion added on two servers at once should add up on both, in the held fingerprints")
+    void testConcurrentUpdates() throws Exception {
+        ReplicatedSessionStore[] nodes = cluster(SECRET, SECRET);
+        UUID player = UUID.randomUUID();
+        SessionFingerprint owned = session(player, 1_000L);
+        nodes[0].put(owned);
+        tickUntil(() -> nodes[1].get(player) != null, nodes);
+        SessionFingerprint remote = nodes[1].get(player);
+
+        owned.incrementSuspicion(3);
+        nodes[0].updated(owned);
+        remote.incrementSuspicion(4);
+        nodes[1].updated(remote);
+        tickUntil(() -> owned.getSuspicionLevel() == 7 && remote.getSuspicionLevel() == 7, nodes);
+        assertSame(owned, nodes[0].get(player));
+        assertSame(remote, nodes[1].get(player));
+
+        // Re-announced shares are not counted twice
+        for (int i = 0; i < 3; i++) {
+            now += INTERVAL_MS;
+            long received0 = nodes[0].getReceivedRecords();
+            long received1 = nodes[1].getReceivedRecords();
+            tickUntil(() -> nodes[0].getReceivedRecords() > received0 && nodes[1].getReceivedRecords() > received1,
+                nodes);
+        }
+        assertEquals(7, owned.getSuspicionLevel());
+        assertEquals(7, remote.getSuspicionLevel());
+
+        owned.markInvestigated();
+        nodes[0].updated(owned);
+        tickUntil(() -> remote.getStatus() == SessionFingerprint.SessionStatus.UNDER_INVESTIGATION, nodes);
+    }
+
+    @Test
+    @DisplayName("Only the owning server should remove a session")
+    void testRemoveIsLocal() throws Exception {
+        ReplicatedSessionStore[] nodes = cluster(SECRET, SECRET);
+        UUID player = UUID.randomUUID();
+        nodes[0].put(session(player, 1_000L));
+        tickUntil(() -> nodes[1].get(player) != null, nodes);
+
+        nodes[1].remove(player);
+        assertNotNull(nodes[1].get(player));
+
+        nodes[0].remove(player);
+        assertNull(nodes[0].get(player));
+        tickUntil(() -> nodes[1].get(player) == null, nodes);
+    }
+
+    @Test
+    @DisplayName("Datagrams signed with another secret should be rejected")
+    void testWrongSecret() throws Exception {
+        ReplicatedSessionStore[] nodes = cluster(SECRET, "some-other-secret-key!!");
+        UUID player = UUID.randomUUID();
+        nodes[1].put(session(player, 1_000L));
+
+        tickUntil(() -> nodes[0].getRejectedDatagrams() > 0, nodes);
+        assertNull(nodes[0].get(player));
+        assertEquals(0, nodes[0].getReceivedRecords());
+    }
+
+    @Test
+    @DisplayName("Replayed and outdated datagrams should be rejected")
+    void testReplay() throws Exception {
+        DatagramChannel sniffer = DatagramChannel.open().bind(new InetSocketAddress("127.0.0.1", 0));
+        DatagramChannel victimChannel = channel();
+        ReplicatedSessionStore victim = store(2, victimChannel, List.of());
+        InetSocketAddress victimAddress = (InetSocketAddress) victimChannel.getLocalAddress();
+        // Node 1 sends to an attacker on the path, who keeps a copy
+        ReplicatedSessionStore sender = store(1, channel(), List.of((InetSocketAddress) sniffer.getLocalAddress()));
+        UUID player = UUID.randomUUID();
+        sender.put(session(player, 1_000L));
+        sender.tick(now);
+        ByteBuffer captured = ByteBuffer.allocate(2048);
+        sniffer.receive(captured);
+        captured.flip();
+
+        sniffer.send(captured.duplicate(), victimAddress);
+        tickUntil(() -> victim.get(player) != null, victim);
+
+        // The same datagram again is not newer than the last one from its sender
+        sniffer.send(captured.duplicate(), victimAddress);
+        tickUntil(() -> victim.getStaleDatagrams() == 1, victim);
+
+        // A datagram sent more than three intervals ago
+        ReplicatedSessionStore late = store(3, channel(), List.of(victimAddress));
+        late.put(session(UUID.randomUUID(), 1_000L));
+        late.tick(now - 4 * INTERVAL_MS);
+        tickUntil(() -> victim.getStaleDatagrams() == 2, victim);
+        assertEquals(1, victim.getRemoteCount());
+        sniffer.close();
+    }
+
+    @Test
+    @DisplayName("A removed session should not come back from a late announcement")
+    void testTombstone() throws Exception {
+        ReplicatedSessionStore[] nodes = cluster(SECRET, SECRET, SECRET);
+        UUID player = UUID.randomUUID();
+        nodes[0].put(session(player, 1_000L));
+        tickUntil(() -> nodes[1].get(player) != null && nodes[2].get(player) != null, nodes);
+
+        // Node 2's share is in flight when the owner removes the session
+        SessionFingerprint remote = nodes[2].get(player);
+        remote.incrementSuspicion(2);
+        nodes[2].updated(remote);
+        nodes[2].tick(now);
+        nodes[0].remove(player);
+        long received = nodes[0].getReceivedRecords();
+        tickUntil(() -> nodes[0].getReceivedRecords() > received, nodes[0]);
+        assertNull(nodes[0].get(player));
+        assertEquals(0, nodes[0].size());
+
+        tickUntil(() -> nodes[1].get(player) == null && nodes[2].get(player) == null, nodes);
+        for (int i = 0; i < 2; i++) {
+            now += INTERVAL_MS;
+            for (ReplicatedSessionStore node : nodes) {
+                node.tick(now);
+            }
+            Thread.sleep(10);
+        }
+        for (ReplicatedSessionStore node : nodes) {
+            assertNull(node.get(player));
+        }
+    }
+
+    @Test
+    @DisplayName("Sessions of a server that went quiet should be forgotten after three intervals")
+    void testStaleOwner() throws Exception {
+        ReplicatedSessionStore[] nodes = cluster(SECRET, SECRET);
+        UUID kept = UUID.randomUUID();
+        UUID lost = UUID.randomUUID();
+        nodes[0].put(session(kept, 1_000L));
+        nodes[1].put(session(lost, 1_000L));
+        tickUntil(() -> nodes[0].get(lost) != null && nodes[1].get(kept) != null, nodes);
+
+        // Both keep announcing, so both keep both sessions
+        for (int i = 0; i < 5; i++) {
+            now += INTERVAL_MS;
+            long received0 = nodes[0].getReceivedRecords();
+            long received1 = nodes[1].getReceivedRecords();
+            tickUntil(() -> nodes[0].getReceivedRecords() > received0 && nodes[1].getReceivedRecords() > received1,
+                nodes);
+        }
+        assertNotNull(nodes[0].get(lost));
+        assertNotNull(nodes[1].get(kept));
+
+        // Node 1 goes quiet
+        for (int i = 0; i < 4; i++) {
+            now += INTERVAL_MS;
+            nodes[0].tick(now);
+        }
+        assertNull(nodes[0].get(lost));
+        assertNotNull(nodes[0].get(kept), "own sessions never expire");
+        assertEquals(0, nodes[0].getRemoteCount());
+    }
+
+    @Test
+    @DisplayName("Ticks after close should do nothing")
+    void testTickAfterClose() throws Exception {
+        ReplicatedSessionStore[] nodes = cluster(SECRET, SECRET);
+        nodes[0].put(session(UUID.randomUUID(), 1_000L));
+        nodes[0].close();
+
+        assertDoesNotThrow(() -> nodes[0].tick(now));
+        assertEquals(0, nodes[0].getSentDatagrams());
+    }
+
+    @Test
+    @DisplayName("Addresses should parse as host:port")
+    void testParseAddress() {
+        assertEquals(new InetSocketAddress("127.0.0.1", 25590), ReplicatedSessionStore.parseAddress("127.0.0.1:25590"));
+        assertEquals(new InetSocketAddress("::1", 25591), ReplicatedSessionStore.parseAddress("[::1]:25591"));
+        assertThrows(IllegalArgumentException.class, () -> ReplicatedSessionStore.parseAddress("127.0.0.1"));
+        assertThrows(IllegalArgumentException.class, () -> ReplicatedSessionStore.parseAddress("127.0.0.1:"));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "voidcrypt.bench", matches = "true")
+    @DisplayName("Benchmark: 10k updates/s between two servers")
+    void benchmarkUpdates() throws Exception {
+        ReplicatedSessionStore[] nodes = cluster(SECRET, SECRET);
+        int players = 2_000;
+        int perTick = 500; // 10k updates/s at 20 ticks/s
+        int ticks = 400;
+        List<SessionFingerprint> sessions = new ArrayList<>();
+        for (int i = 0; i < players; i++) {
+            SessionFingerprint fp = new SessionFingerprint(UUID.randomUUID(), "10.0." + (i >> 8) + "." + (i & 0xFF), 765);
+            sessions.add(fp);
+            nodes[0].put(fp);
+        }
+        tickUntil(() -> nodes[1].getRemoteCount() == players, nodes);
+
+        for (int round = 0; round < 2; round++) {
+            long[] staleness = new long[ticks];
+            long sendNanos = 0;
+            long datagrams = nodes[0].getSentDatagrams();
+            long start = System.nanoTime();
+            for (int t = 0; t < ticks; t++) {
+                for (int i = 0; i < perTick; i++) {
+                    SessionFingerprint fp = sessions.get((t * perTick + i) % players);
+                    fp.incrementSuspicion(0.01, System.nanoTime());
+                    nodes[0].updated(fp);
+                }
+                long target = nodes[1].getAppliedRecords() + perTick;
+                long sent = System.nanoTime();
+                nodes[0].tick(now);
+                sendNanos += System.nanoTime() - sent;
+                long deadline = sent + 1_000_000_000L;
+                while (nodes[1].getAppliedRecords() < target && System.nanoTime() < deadline) {
+                    nodes[1].tick(now);
+                }
+                staleness[t] = System.nanoTime() - sent;
+            }
+            long elapsed = System.nanoTime() - start;
+            Arrays.sort(staleness);
+            System.out.printf("%,d updates in %,d ms (%,.0f updates/s max) | %,d datagrams/tick | send %,d us/tick"
+                    + " | staleness after flush p50 %,d us, p99 %,d us (+ up to one 50 ms tick of batching)%n",
+                ticks * perTick, elapsed / 1_000_000, ticks * perTick * 1e9 / elapsed,
+                (nodes[0].getSentDatagrams() - datagrams) / ticks, sendNanos / ticks / 1000,
+                staleness[ticks / 2] / 1000, staleness[ticks * 99 / 100] / 1000);
+        }
+        assertEquals(players, nodes[1].getRemoteCount());
+    }
+}
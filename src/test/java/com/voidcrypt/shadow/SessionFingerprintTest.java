@@ -0,0 +1,288 @@
+package com.voidcrypt.shadow;
+
+import com.voidcrypt.security.PackedAddress;
+import com.voidcrypt.security.SecurityValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests, contention and heap footprint benchmarks for SessionFingerprint
+ */
+class SessionFingerprintTest {
+
+    private static final long MINUTE_NANOS = 60_000_000_000L;
+
+    @AfterEach
+    void restoreHalfLife() {
+        SessionFingerprint.setSuspicionHalfLifeMs(30 * 60_000L);
+    }
+
+    private static SessionFingerprint session() {
+        return new SessionFingerprint(UUID.randomUUID(), "198.51.100.7", 765);
+    }
+
+    @Test
+    @DisplayName("Status should follow the score: active, suspicious, then latched compromised")
+    void testTransitions() {
+        SessionFingerprint fp = session();
+        long now = System.nanoTime();
+        assertEquals(SessionFingerprint.SessionStatus.ACTIVE, fp.getStatus(now));
+
+        fp.incrementSuspicion(3, now);
+        assertEquals(3, fp.getSuspicionLevel(now));
+        assertEquals(SessionFingerprint.SessionStatus.ACTIVE, fp.getStatus(now));
+
+        fp.incrementSuspicion(2, now);
+        assertEquals(SessionFingerprint.SessionStatus.SUSPICIOUS, fp.getStatus(now));
+
+        fp.incrementSuspicion(5, now);
+        assertEquals(SessionFingerprint.SessionStatus.COMPROMISED, fp.getStatus(now));
+        // Compromised stays even after the score has decayed
+        assertEquals(SessionFingerprint.SessionStatus.COMPROMISED, fp.getStatus(now + 600 * MINUTE_NANOS));
+
+        fp.clearSuspicion();
+        assertEquals(SessionFingerprint.SessionStatus.ACTIVE, fp.getStatus());
+        assertEquals(0, fp.getSuspicionLevel());
+    }
+
+    @Test
+    @DisplayName("Scores should halve every half-life and decay back to active")
+    void testDecay() {
+        SessionFingerprint.setSuspicionHalfLifeMs(10 * 60_000L);
+        SessionFingerprint fp = session();
+        long now = System.nanoTime();
+        fp.incrementSuspicion(8, now);
+
+        assertEquals(4.0, fp.getSuspicionScore(now + 10 * MINUTE_NANOS), 0.01);
+        assertEquals(2.0, fp.getSuspicionScore(now + 20 * MINUTE_NANOS), 0.01);
+        assertEquals(SessionFingerprint.SessionStatus.SUSPICIOUS, fp.getStatus(now));
+        assertEquals(SessionFingerprint.SessionStatus.ACTIVE, fp.getStatus(now + 10 * MINUTE_NANOS));
+
+        // New reports add to the decayed score, not the original one
+        fp.incrementSuspicion(3, now + 10 * MINUTE_NANOS);
+        assertEquals(7.0, fp.getSuspicionScore(now + 10 * MINUTE_NANOS), 0.01);
+        assertEquals(SessionFingerprint.SessionStatus.SUSPICIOUS, fp.getStatus(now + 10 * MINUTE_NANOS));
+    }
+
+    @Test
+    @DisplayName("Investigation should be kept until cleared and overridden only by compromised")
+    void testInvestigation() {
+        SessionFingerprint fp = session();
+        long now = System.nanoTime();
+        fp.markInvestigated();
+        fp.incrementSuspicion(6, now);
+        assertEquals(SessionFingerprint.SessionStatus.UNDER_INVESTIGATION, fp.getStatus(now));
+
+        fp.incrementSuspicion(6, now);
+        assertEquals(SessionFingerprint.SessionStatus.COMPROMISED, fp.getStatus(now));
+    }
+
+    @Test
+    @DisplayName("Restored sessions should keep their level and status flags")
+    void testRestore() {
+        SessionFingerprint fp = SessionFingerprint.restore(UUID.randomUUID(), "203.0.113.1", "abcd", 1L, 765,
+            "token", SessionFingerprint.SessionStatus.UNDER_INVESTIGATION, 4);
+        assertEquals(4, fp.getSuspicionLevel());
+        assertEquals(SessionFingerprint.SessionStatus.UNDER_INVESTIGATION, fp.getStatus());
+
+        SessionFingerprint invalid = new SessionFingerprint(UUID.randomUUID(), "not an ip", 765);
+        assertEquals("INVALID", invalid.getBoundIP());
+        assertEquals(1, invalid.getSuspicionLevel());
+    }
+
+    @Test
+    @DisplayName("The lazy protocol hash should match SHA-256 over the session's identity strings")
+    void testProtocolHash() throws Exception {
+        SessionFingerprint fp = new SessionFingerprint(UUID.randomUUID(), "2001:db8::7", 765);
+        String input = fp.getPlayerUUID().toString() + fp.getBoundIP() + fp.getProtocolVersion()
+            + fp.getCreationTime() + fp.getEntropyToken();
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(input.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(HexFormat.of().formatHex(digest, 0, 8), fp.getProtocolHash());
+        assertEquals(fp.getProtocolHash(), fp.getProtocolHash());
+        assertEquals(16, fp.getEntropyToken().length());
+        assertEquals("2001:db8:0:0:0:0:0:7", fp.getBoundIP());
+    }
+
+    @Test
+    @DisplayName("Sessions should bind to the packed address, whatever its spelling")
+    void testBinding() {
+        SessionFingerprint fp = new SessionFingerprint(UUID.randomUUID(), "203.0.113.5", 765);
+        assertTrue(fp.validateIP("203.0.113.5"));
+        assertTrue(fp.isBoundTo(PackedAddress.ofIPv4(0xCB00_7105)));
+        assertFalse(fp.validateIP("203.0.113.6"));
+        assertFalse(fp.validateIP("garbage"));
+
+        SessionFingerprint invalid = new SessionFingerprint(UUID.randomUUID(), null, 765);
+        assertFalse(invalid.validateIP("203.0.113.5"));
+        assertFalse(invalid.isBoundTo(PackedAddress.of("0:0:0:0:0:0:0:0")));
+    }
+
+    @Test
+    @DisplayName("Restoring from saved strings should keep hash, token and identity")
+    void testRestoreIdentity() {
+        SessionFingerprint fp = new SessionFingerprint(UUID.randomUUID(), "198.51.100.99", 764);
+        SessionFingerprint copy = SessionFingerprint.restore(fp.getPlayerUUID(), fp.getBoundIP(), fp.getProtocolHash(),
+            fp.getCreationTime(), fp.getProtocolVersion(), fp.getEntropyToken(), fp.getStatus(),
+            fp.getSuspicionLevel());
+
+        assertEquals(fp.getPlayerUUID(), copy.getPlayerUUID());
+        assertEquals(fp.getBoundIP(), copy.getBoundIP());
+        assertEquals(fp.getProtocolHash(), copy.getProtocolHash());
+        assertEquals(fp.getEntropyToken(), copy.getEntropyToken());
+        assertEquals(fp.getCreationTime(), copy.getCreationTime());
+
+        // A damaged saved hash is recomputed from the identity
+        SessionFingerprint damaged = SessionFingerprint.restore(fp.getPlayerUUID(), fp.getBoundIP(), "error",
+            fp.getCreationTime(), fp.getProtocolVersion(), fp.getEntropyToken(), fp.getStatus(), 0);
+        assertEquals(fp.getProtocolHash(), damaged.getProtocolHash());
+    }
+
+    @Test
+    @DisplayName("Concurrent increments should never be lost")
+    void testConcurrentIncrements() throws InterruptedException {
+        SessionFingerprint fp = session();
+        long now = System.nanoTime();
+        int threads = 4;
+        int perThread = 2_000;
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    fp.incrementSuspicion(1, now);
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(threads * perThread, fp.getSuspicionLevel(now));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "voidcrypt.bench", matches = "true")
+    @DisplayName("Benchmark: per-session heap and creation cost, eager strings vs compact layout")
+    void benchmarkFootprint() {
+        int sessions = 100_000;
+        for (int warmup = 0; warmup < 2; warmup++) {
+            long baseline = usedHeapAfterGc();
+            long start = System.nanoTime();
+            List<Object> legacy = new ArrayList<>(sessions);
+            for (int i = 0; i < sessions; i++) {
+                legacy.add(new EagerFingerprint(UUID.randomUUID(), ipv4(i), 765));
+            }
+            long legacyNanos = (System.nanoTime() - start) / sessions;
+            long legacyBytes = usedHeapAfterGc() - baseline;
+            assertEquals(sessions, legacy.size());
+            legacy = null;
+
+            baseline = usedHeapAfterGc();
+            start = System.nanoTime();
+            List<SessionFingerprint> compact = new ArrayList<>(sessions);
+            for (int i = 0; i < sessions; i++) {
+                compact.add(new SessionFingerprint(UUID.randomUUID(), ipv4(i), 765));
+            }
+            long compactNanos = (System.nanoTime() - start) / sessions;
+            long compactBytes = usedHeapAfterGc() - baseline;
+
+            assertEquals(sessions, compact.size());
+            System.out.printf("%,d sessions: eager %.0f B and %,d ns per session | compact %.0f B and %,d ns%n",
+                sessions, legacyBytes / (double) sessions, legacyNanos, compactBytes / (double) sessions,
+                compactNanos);
+            assertTrue(compactBytes < legacyBytes);
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "voidcrypt.bench", matches = "true")
+    @DisplayName("Benchmark: contended CAS increments with decay")
+    void benchmarkIncrements() throws InterruptedException {
+        int threads = 4;
+        int perThread = 1_000_000;
+        for (int warmup = 0; warmup < 2; warmup++) {
+            SessionFingerprint fp = session();
+            Thread[] workers = new Thread[threads];
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                workers[t] = new Thread(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        fp.incrementSuspicion(0.001, System.nanoTime());
+                    }
+                });
+                workers[t].start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            long nanos = (System.nanoTime() - start) / ((long) threads * perThread);
+            assertTrue(fp.getSuspicionScore(System.nanoTime()) > 0);
+            System.out.printf("%d threads: %,d ns per increment%n", threads, nanos);
+        }
+    }
+
+    private static String ipv4(int i) {
+        return "10." + ((i >>> 16) & 0xFF) + "." + ((i >>> 8) & 0xFF) + "." + (i & 0xFF);
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * The previous layout: UUID, IP, token and hash as objects, the hash built when the session is
+     */
+    private static final class EagerFingerprint {
+        final UUID playerUUID;
+        final String boundIP;
+        final String protocolHash;
+        final long creationTime;
+        final int protocolVersion;
+        final String entropyToken;
+        Object status = SessionFingerprint.SessionStatus.ACTIVE;
+        int suspicionLevel;
+
+        EagerFingerprint(UUID playerUUID, String boundIP, int protocolVersion) {
+            this.playerUUID = playerUUID;
+            this.boundIP = boundIP;
+            this.protocolVersion = protocolVersion;
+            this.creationTime = System.currentTimeMillis();
+            this.entropyToken = SecurityValidator.generateSecureToken(8);
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                String input = playerUUID.toString() + boundIP + protocolVersion + creationTime + entropyToken;
+                byte[] hash = digest.digest(input.getBytes(StandardCharsets.UTF_8));
+                StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < 8; i++) {
+                    sb.append(String.format("%02x", hash[i]));
+                }
+                this.protocolHash = sb.toString();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
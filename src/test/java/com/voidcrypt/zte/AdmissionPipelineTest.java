@@ -0,0 +1,148 @@
+package com.voidcrypt.zte;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests and stage ordering benchmark for AdmissionPipeline
+ */
+class AdmissionPipelineTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    /**
+     * Rejects multiples of {@code modulus} after burning roughly {@code work} iterations
+     */
+    private static AdmissionPipeline.Stage<Integer> filter(List<String> log, String name, int modulus, int work) {
+        return (attempt, now) -> {
+            log.add(name);
+            long sink = attempt;
+            for (int i = 0; i < work; i++) {
+                sink = sink * 31 + i;
+            }
+            return sink != Long.MIN_VALUE && attempt % modulus == 0
+                ? AdmissionPipeline.Outcome.REJECT : AdmissionPipeline.Outcome.PASS;
+        };
+    }
+
+    private static List<String> names(AdmissionPipeline<Integer> pipeline) {
+        List<String> names = new ArrayList<>();
+        for (AdmissionPipeline.StageView stage : pipeline.getStages()) {
+            names.add(stage.name());
+        }
+        return names;
+    }
+
+    @Test
+    @DisplayName("Stages should run in order and stop at the first rejection")
+    void testStopsAtFirstRejection() {
+        List<String> log = new ArrayList<>();
+        AdmissionPipeline<Integer> pipeline = new AdmissionPipeline<Integer>(false)
+            .addFilter("odd", filter(log, "odd", 2, 0))
+            .addFixed("challenge", (attempt, now) -> {
+                log.add("challenge");
+                return AdmissionPipeline.Outcome.PASS;
+            });
+
+        assertEquals(new AdmissionPipeline.Result(AdmissionPipeline.Outcome.REJECT, "odd"), pipeline.run(4, NOW));
+        assertEquals(List.of("odd"), log);
+        log.clear();
+        assertEquals(new AdmissionPipeline.Result(AdmissionPipeline.Outcome.PASS, null), pipeline.run(5, NOW));
+        assertEquals(List.of("odd", "challenge"), log);
+
+        AdmissionPipeline.StageView odd = pipeline.getStages().get(0);
+        assertEquals(2, odd.evaluated());
+        assertEquals(1, odd.rejected());
+        assertEquals(0.5, odd.rejectRate(), 1e-9);
+        assertEquals(1, pipeline.getStages().get(1).evaluated());
+    }
+
+    @Test
+    @DisplayName("A held attempt should resume after the stage that held it")
+    void testHoldAndResume() {
+        List<String> log = new ArrayList<>();
+        AdmissionPipeline.Stage<Integer> cookie = (attempt, now) -> {
+            log.add("cookie");
+            return AdmissionPipeline.Outcome.HOLD;
+        };
+        AdmissionPipeline<Integer> pipeline = new AdmissionPipeline<Integer>(true)
+            .addFixed("cookie", cookie)
+            .addFixed("challenge", (attempt, now) -> {
+                log.add("challenge");
+                return attempt > 10 ? AdmissionPipeline.Outcome.REJECT : AdmissionPipeline.Outcome.PASS;
+            });
+
+        assertEquals(new AdmissionPipeline.Result(AdmissionPipeline.Outcome.HOLD, "cookie"), pipeline.run(3, NOW));
+        assertEquals(AdmissionPipeline.Outcome.PASS, pipeline.resume(3, cookie, NOW).outcome());
+        assertEquals(new AdmissionPipeline.Result(AdmissionPipeline.Outcome.REJECT, "challenge"),
+            pipeline.resume(30, cookie, NOW));
+        assertEquals(List.of("cookie", "challenge", "challenge"), log);
+        assertEquals(1, pipeline.getStages().get(0).held());
+        assertThrows(IllegalArgumentException.class,
+            () -> pipeline.resume(3, (attempt, now) -> AdmissionPipeline.Outcome.PASS, NOW));
+    }
+
+    @Test
+    @DisplayName("Reordering should put the cheapest, most selective filter first and keep fixed stages last")
+    void testReorder() {
+        List<String> log = new ArrayList<>();
+        AdmissionPipeline<Integer> pipeline = new AdmissionPipeline<Integer>(true)
+            .addFilter("expensive-rare", filter(log, "expensive-rare", 97, 20_000))
+            .addFilter("cheap-common", filter(log, "cheap-common", 2, 0))
+            .addFixed("challenge", (attempt, now) -> AdmissionPipeline.Outcome.PASS);
+
+        // Too few samples: order is kept
+        for (int i = 0; i < 10; i++) {
+            pipeline.run(i, NOW);
+        }
+        pipeline.reorder();
+        assertEquals(List.of("expensive-rare", "cheap-common", "challenge"), names(pipeline));
+
+        for (int i = 0; i < 1_000; i++) {
+            pipeline.run(i, NOW);
+        }
+        pipeline.reorder();
+        assertEquals(List.of("cheap-common", "expensive-rare", "challenge"), names(pipeline));
+
+        // Fixed order when not adaptive
+        AdmissionPipeline<Integer> fixedOrder = new AdmissionPipeline<Integer>(false)
+            .addFilter("expensive-rare", filter(log, "expensive-rare", 97, 20_000))
+            .addFilter("cheap-common", filter(log, "cheap-common", 2, 0));
+        for (int i = 0; i < 1_000; i++) {
+            fixedOrder.run(i, NOW);
+        }
+        fixedOrder.reorder();
+        assertEquals(List.of("expensive-rare", "cheap-common"), names(fixedOrder));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "voidcrypt.bench", matches = "true")
+    @DisplayName("Benchmark: cost per login before and after the pipeline reorders its filters")
+    void benchmarkReorder() {
+        List<String> log = new ArrayList<>();
+        AdmissionPipeline<Integer> pipeline = new AdmissionPipeline<Integer>(true)
+            .addFilter("auth-like", filter(log, "auth-like", 1_000, 50_000))
+            .addFilter("lockout-like", filter(log, "lockout-like", 3, 100))
+            .addFilter("blocklist-like", filter(log, "blocklist-like", 2, 10));
+        int rounds = 20_000;
+
+        for (int pass = 0; pass < 2; pass++) {
+            log.clear();
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                pipeline.run(i, NOW);
+            }
+            long nanos = (System.nanoTime() - start) / rounds;
+            System.out.printf("%s: %,d ns per login, %,d stage calls%n", names(pipeline), nanos, log.size());
+            pipeline.reorder();
+        }
+        assertEquals("blocklist-like", names(pipeline).get(0));
+        assertEquals("auth-like", names(pipeline).get(2));
+    }
+}
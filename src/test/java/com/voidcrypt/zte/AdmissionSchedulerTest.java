@@ -0,0 +1,223 @@
+package com.voidcrypt.zte;
+
+import com.voidcrypt.security.PackedAddress;
+import com.voidcrypt.security.RateLimiter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests and flood benchmark for AdmissionScheduler
+ */
+class AdmissionSchedulerTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    /**
+     * Records what the scheduler decided for a queued login
+     */
+    private static final class RecordingTicket implements AdmissionScheduler.Ticket {
+        final List<String> log;
+        final String name;
+
+        RecordingTicket(List<String> log, String name) {
+            this.log = log;
+            this.name = name;
+        }
+
+        @Override
+        public void admit() {
+            log.add("admit " + name);
+        }
+
+        @Override
+        public void reject() {
+            log.add("reject " + name);
+        }
+    }
+
+    private static AdmissionScheduler scheduler(int globalPerSecond, int subnetBurst, int maxQueue) {
+        RateLimiter subnet = new RateLimiter("admission-subnet", RateLimiter.Policy.TOKEN_BUCKET,
+            subnetBurst, subnetBurst, 10_000, 1024);
+        RateLimiter global = new RateLimiter("admission", RateLimiter.Policy.TOKEN_BUCKET,
+            globalPerSecond, globalPerSecond, 1_000, 16);
+        return new AdmissionScheduler(subnet, global, 24, 48, maxQueue, 5_000);
+    }
+
+    @Test
+    @DisplayName("Subnet prefixes should clear host bits for both address families")
+    void testPrefix() {
+        assertEquals(PackedAddress.of("203.0.113.0"), PackedAddress.of("203.0.113.77").prefix(24, 48));
+        assertEquals(PackedAddress.of("203.0.112.0"), PackedAddress.of("203.0.113.77").prefix(20, 48));
+        assertEquals(PackedAddress.of("203.0.113.77"), PackedAddress.of("203.0.113.77").prefix(32, 48));
+        assertEquals(PackedAddress.of("2001:db8:1::"), PackedAddress.of("2001:db8:1:2::99").prefix(24, 48));
+        assertEquals(PackedAddress.of("2001:db8:1:2::"), PackedAddress.of("2001:db8:1:2::99").prefix(24, 64));
+        assertEquals(PackedAddress.of("2001:db8:1:2::80"), PackedAddress.of("2001:db8:1:2::99").prefix(24, 121));
+    }
+
+    @Test
+    @DisplayName("Known-good clients should skip the buckets and the queue")
+    void testFastLane() {
+        AdmissionScheduler admission = scheduler(1, 1, 4);
+        PackedAddress ip = PackedAddress.of("198.51.100.1");
+        List<String> log = new ArrayList<>();
+        assertEquals(AdmissionScheduler.Decision.ADMITTED, admission.offer(ip, false, NOW, () -> new RecordingTicket(log, "a")));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(AdmissionScheduler.Decision.FAST_LANE, admission.offer(ip, true, NOW, () -> new RecordingTicket(log, "b")));
+        }
+        assertEquals(10, admission.getFastLaneCount());
+        assertEquals(0, admission.getQueueDepth());
+        assertTrue(log.isEmpty());
+    }
+
+    @Test
+    @DisplayName("A busy subnet should be refused without affecting its neighbours")
+    void testSubnetBucket() {
+        AdmissionScheduler admission = scheduler(100, 2, 16);
+        List<String> log = new ArrayList<>();
+        assertTrue(admission.offer(PackedAddress.of("203.0.113.1"), false, NOW, () -> new RecordingTicket(log, "1")).proceeds());
+        assertTrue(admission.offer(PackedAddress.of("203.0.113.2"), false, NOW, () -> new RecordingTicket(log, "2")).proceeds());
+        assertEquals(AdmissionScheduler.Decision.REJECTED_SUBNET,
+            admission.offer(PackedAddress.of("203.0.113.3"), false, NOW, () -> new RecordingTicket(log, "3")));
+        assertTrue(admission.offer(PackedAddress.of("203.0.114.3"), false, NOW, () -> new RecordingTicket(log, "4")).proceeds());
+        assertEquals(1, admission.getRejectedSubnetCount());
+    }
+
+    @Test
+    @DisplayName("Logins over the global rate should wait in order and be admitted as it refills")
+    void testQueue() {
+        AdmissionScheduler admission = scheduler(2, 100, 3);
+        List<String> log = new ArrayList<>();
+        List<String> created = new ArrayList<>();
+        AdmissionScheduler.Decision[] decisions = new AdmissionScheduler.Decision[6];
+        for (int i = 0; i < decisions.length; i++) {
+            String name = String.valueOf(i);
+            decisions[i] = admission.offer(PackedAddress.ofIPv4(0x0A00_0000 + (i << 8)), false, NOW, () -> {
+                created.add(name);
+                return new RecordingTicket(log, name);
+            });
+        }
+        assertEquals(List.of(
+            AdmissionScheduler.Decision.ADMITTED, AdmissionScheduler.Decision.ADMITTED,
+            AdmissionScheduler.Decision.QUEUED, AdmissionScheduler.Decision.QUEUED, AdmissionScheduler.Decision.QUEUED,
+            AdmissionScheduler.Decision.REJECTED_FULL), List.of(decisions));
+        // Only queued logins get a ticket
+        assertEquals(List.of("2", "3", "4"), created);
+        assertEquals(3, admission.getQueueDepth());
+        assertEquals(3, admission.getPeakQueueDepth());
+
+        // No tokens yet
+        assertEquals(0, admission.drain(NOW + 100));
+        // Half a second refills one token at 2 per second
+        assertEquals(1, admission.drain(NOW + 500));
+        assertEquals(List.of("admit 2"), log);
+
+        // While others wait, a new login queues behind them even if a token is free
+        assertEquals(AdmissionScheduler.Decision.QUEUED,
+            admission.offer(PackedAddress.of("198.51.100.9"), false, NOW + 1_000, () -> new RecordingTicket(log, "late")));
+        assertEquals(1, admission.drain(NOW + 1_000));
+        assertEquals(List.of("admit 2", "admit 3"), log);
+
+        assertEquals(1_000, admission.getMaxWaitMs());
+        assertEquals(750.0, admission.getAverageWaitMs(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Logins refused by a full queue should not use up their subnet's allowance")
+    void testFullQueueKeepsSubnetTokens() {
+        AdmissionScheduler admission = scheduler(1, 2, 1);
+        List<String> log = new ArrayList<>();
+        assertEquals(AdmissionScheduler.Decision.ADMITTED,
+            admission.offer(PackedAddress.of("198.51.100.1"), false, NOW, () -> new RecordingTicket(log, "a")));
+        assertEquals(AdmissionScheduler.Decision.QUEUED,
+            admission.offer(PackedAddress.of("198.51.101.1"), false, NOW, () -> new RecordingTicket(log, "b")));
+        for (int i = 0; i < 5; i++) {
+            assertEquals(AdmissionScheduler.Decision.REJECTED_FULL,
+                admission.offer(PackedAddress.of("203.0.113.1"), false, NOW, () -> new RecordingTicket(log, "full")));
+        }
+        assertEquals(1, admission.drain(NOW + 1_000));
+
+        // The queue has room again and 203.0.113.0/24 still has both of its tokens
+        assertEquals(AdmissionScheduler.Decision.ADMITTED,
+            admission.offer(PackedAddress.of("203.0.113.1"), false, NOW + 2_000, () -> new RecordingTicket(log, "c")));
+        assertEquals(AdmissionScheduler.Decision.QUEUED,
+            admission.offer(PackedAddress.of("203.0.113.2"), false, NOW + 2_000, () -> new RecordingTicket(log, "d")));
+        assertEquals(0, admission.getRejectedSubnetCount());
+        assertEquals(5, admission.getRejectedFullCount());
+    }
+
+    @Test
+    @DisplayName("Logins that waited longer than max-wait should be rejected")
+    void testMaxWait() {
+        AdmissionScheduler admission = scheduler(1, 100, 8);
+        List<String> log = new ArrayList<>();
+        admission.offer(PackedAddress.of("198.51.100.1"), false, NOW, () -> new RecordingTicket(log, "a"));
+        admission.offer(PackedAddress.of("198.51.101.1"), false, NOW, () -> new RecordingTicket(log, "b"));
+        admission.offer(PackedAddress.of("198.51.102.1"), false, NOW + 4_000, () -> new RecordingTicket(log, "c"));
+
+        assertEquals(1, admission.drain(NOW + 6_000));
+        assertEquals(List.of("reject b", "admit c"), log);
+        assertEquals(1, admission.getTimedOutCount());
+        assertEquals(1, admission.getRejectedCount());
+        assertEquals(0, admission.getQueueDepth());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "voidcrypt.bench", matches = "true")
+    @DisplayName("Benchmark: flood of new logins while returning players keep connecting")
+    void benchmarkFlood() {
+        int perSecond = 20;
+        AdmissionScheduler admission = scheduler(perSecond, 8, 1024);
+        int seconds = 30;
+        int botsPerTick = 50;
+        int playersPerSecond = 5;
+        long[] playerWait = new long[seconds * playersPerSecond];
+        int players = 0;
+        AdmissionScheduler.Ticket noop = new AdmissionScheduler.Ticket() {
+            @Override
+            public void admit() {
+            }
+
+            @Override
+            public void reject() {
+            }
+        };
+
+        long offers = 0;
+        long start = System.nanoTime();
+        for (int tick = 0; tick < seconds * 20; tick++) {
+            long now = NOW + tick * 50L;
+            for (int b = 0; b < botsPerTick; b++) {
+                admission.offer(PackedAddress.ofIPv4(0xC000_0000 + tick * botsPerTick + b), false, now, () -> noop);
+                offers++;
+            }
+            if (tick % (20 / playersPerSecond) == 0) {
+                // Known-good players are never queued, whatever the flood
+                AdmissionScheduler.Decision decision = admission.offer(
+                    PackedAddress.ofIPv4(0x0A00_0000 + players), true, now, () -> noop);
+                playerWait[players++] = decision.proceeds() ? 0 : Long.MAX_VALUE;
+                offers++;
+            }
+            admission.drain(now);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("%,d offers in %d s of simulated flood: %,d ns per offer | admitted %,d (%,d after waiting),"
+                + " fast lane %,d, rejected %,d (subnet %,d, full %,d, expired %,d), peak queue %,d,"
+                + " wait avg %.0f ms / max %,d ms%n",
+            offers, seconds, elapsed / offers, admission.getAdmittedCount() + admission.getAdmittedFromQueueCount(),
+            admission.getAdmittedFromQueueCount(), admission.getFastLaneCount(), admission.getRejectedCount(),
+            admission.getRejectedSubnetCount(), admission.getRejectedFullCount(), admission.getTimedOutCount(),
+            admission.getPeakQueueDepth(), admission.getAverageWaitMs(), admission.getMaxWaitMs());
+        for (int i = 0; i < players; i++) {
+            assertEquals(0, playerWait[i]);
+        }
+        // The global bucket holds new logins to its rate (plus the initial burst)
+        assertTrue(admission.getAdmittedCount() + admission.getAdmittedFromQueueCount() <= perSecond * (seconds + 1L));
+    }
+}
@@ -0,0 +1,121 @@
+package com.voidcrypt.zte;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests and throughput benchmark for ChallengeEngine
+ */
+class ChallengeEngineTest {
+
+    private static final String SECRET = "MySecureKey12345!";
+
+    @Test
+    @DisplayName("Answers should match the original String-based SHA-256 construction")
+    void testMatchesLegacyConstruction() throws Exception {
+        ChallengeEngine engine = new ChallengeEngine(SECRET);
+        long[] nonces = {0L, 1L, -1L, 42L, Long.MAX_VALUE, Long.MIN_VALUE, 8_675_309L};
+
+        for (long nonce : nonces) {
+            long entropy = nonce * 31 + 7;
+            String token = HexFormat.of().toHexDigits(entropy);
+            byte[] legacy = MessageDigest.getInstance("SHA-256")
+                .digest((nonce + SECRET + 2 + token).getBytes(StandardCharsets.UTF_8));
+
+            assertArrayEquals(legacy, engine.computeAnswer(nonce, 2, entropy));
+        }
+    }
+
+    @Test
+    @DisplayName("Hex verification should accept either case and reject anything else")
+    void testVerifyHex() {
+        ChallengeEngine engine = new ChallengeEngine(SECRET);
+        byte[] answer = engine.computeAnswer(123L, 2, 456L);
+        String hex = HexFormat.of().formatHex(answer);
+
+        assertTrue(ChallengeEngine.verifyHex(answer, hex));
+        assertTrue(ChallengeEngine.verifyHex(answer, hex.toUpperCase()));
+        assertTrue(ChallengeEngine.verifyHex(answer, hex.getBytes(StandardCharsets.US_ASCII), 0, hex.length()));
+
+        char flipped = hex.charAt(63) == '0' ? '1' : '0';
+        assertFalse(ChallengeEngine.verifyHex(answer, hex.substring(0, 63) + flipped));
+        assertFalse(ChallengeEngine.verifyHex(answer, hex.substring(0, 62)));
+        assertFalse(ChallengeEngine.verifyHex(answer, hex.substring(0, 63) + "g"));
+        assertFalse(ChallengeEngine.verifyHex(answer, hex.substring(0, 63) + "é"));
+        assertFalse(ChallengeEngine.verifyHex(answer, (CharSequence) null));
+    }
+
+    @Test
+    @DisplayName("Format check should require exactly 64 hex characters")
+    void testWellFormed() {
+        String valid = "0123456789abcdefABCDEF0123456789abcdef0123456789abcdef0123456789";
+        assertTrue(ChallengeEngine.isWellFormed(valid));
+        assertFalse(ChallengeEngine.isWellFormed(valid + "0"));
+        assertFalse(ChallengeEngine.isWellFormed(valid.replace('a', 'z')));
+        assertFalse(ChallengeEngine.isWellFormed((CharSequence) null));
+        assertFalse(ChallengeEngine.isWellFormed(null, 0, 64));
+    }
+
+    @Test
+    @DisplayName("Hex parsing should round-trip raw answers")
+    void testParseHex() {
+        byte[] answer = new ChallengeEngine(SECRET).computeAnswer(9L, 3, 10L);
+        byte[] parsed = new byte[ChallengeEngine.ANSWER_LENGTH];
+
+        assertTrue(ChallengeEngine.parseHex(HexFormat.of().formatHex(answer), parsed, 0, parsed.length));
+        assertArrayEquals(answer, parsed);
+        assertFalse(ChallengeEngine.parseHex("zz", parsed, 0, 1));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "voidcrypt.bench", matches = "true")
+    @DisplayName("Benchmark: challenges issued and verified per second per core")
+    void benchmarkIssueAndVerify() {
+        ChallengeEngine engine = new ChallengeEngine(SECRET);
+        SecureRandom random = new SecureRandom();
+        int iterations = 2_000_000;
+
+        byte[][] answers = new byte[1024][];
+        String[] responses = new String[answers.length];
+
+        // Warm-up so the JIT has compiled the hot paths before measuring
+        for (int i = 0; i < iterations / 4; i++) {
+            engine.computeAnswer(random.nextLong(), 2, random.nextLong());
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            byte[] answer = engine.computeAnswer(random.nextLong(), 2, random.nextLong());
+            answers[i & (answers.length - 1)] = answer;
+        }
+        long issueNanos = System.nanoTime() - start;
+
+        for (int i = 0; i < answers.length; i++) {
+            responses[i] = HexFormat.of().formatHex(answers[i]);
+        }
+
+        int accepted = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            int slot = i & (answers.length - 1);
+            if (ChallengeEngine.verifyHex(answers[slot], responses[slot])) {
+                accepted++;
+            }
+        }
+        long verifyNanos = System.nanoTime() - start;
+
+        assertEquals(iterations, accepted);
+        System.out.printf("ChallengeEngine issue:  %,.0f challenges/s/core (%.0f ns/op)%n",
+            iterations * 1e9 / issueNanos, issueNanos / (double) iterations);
+        System.out.printf("ChallengeEngine verify: %,.0f responses/s/core (%.0f ns/op)%n",
+            iterations * 1e9 / verifyNanos, verifyNanos / (double) iterations);
+    }
+}
@@ -0,0 +1,173 @@
+package com.voidcrypt.zte;
+
+import com.voidcrypt.core.TimingWheel;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests and memory benchmark for stateless ChallengeToken
+ */
+class ChallengeTokenTest {
+
+    private static final String SECRET = "MySecureKey12345!";
+    private static final long TIMEOUT_MS = 60_000;
+
+    private final ChallengeEngine engine = new ChallengeEngine(SECRET);
+
+    private byte[] respond(byte[] token, long nonce, int difficulty, long entropy) {
+        String seed = HexFormat.of().formatHex(ProofOfWork.seed(nonce, difficulty, entropy, 0));
+        return (ChallengeToken.toHex(token) + ":" + seed).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    @DisplayName("A correct answer with an untouched token should verify")
+    void testRoundTrip() {
+        long now = System.currentTimeMillis();
+        byte[] token = ChallengeToken.issue(engine, "203.0.113.7", 11L, now, 2, 22L, 0);
+
+        assertEquals(CryptographicChallenge.VerificationResult.SUCCESS,
+            ChallengeToken.verify(engine, "203.0.113.7", respond(token, 11L, 2, 22L), now + 1_000, TIMEOUT_MS));
+    }
+
+    @Test
+    @DisplayName("Tokens should be bound to the address they were issued for")
+    void testAddressBinding() {
+        long now = System.currentTimeMillis();
+        byte[] token = ChallengeToken.issue(engine, "203.0.113.7", 11L, now, 2, 22L, 0);
+
+        assertEquals(CryptographicChallenge.VerificationResult.WRONG_ANSWER,
+            ChallengeToken.verify(engine, "203.0.113.8", respond(token, 11L, 2, 22L), now, TIMEOUT_MS));
+    }
+
+    @Test
+    @DisplayName("Tampered tokens, wrong answers and stale tokens should be rejected")
+    void testRejections() {
+        long now = System.currentTimeMillis();
+        byte[] token = ChallengeToken.issue(engine, "2001:db8:0:0:0:0:0:1", 5L, now, 2, 6L, 0);
+
+        byte[] tampered = token.clone();
+        tampered[17] = 0; // lower the difficulty
+        assertEquals(CryptographicChallenge.VerificationResult.WRONG_ANSWER,
+            ChallengeToken.verify(engine, "2001:db8:0:0:0:0:0:1", respond(tampered, 5L, 0, 6L), now, TIMEOUT_MS));
+
+        assertEquals(CryptographicChallenge.VerificationResult.WRONG_ANSWER,
+            ChallengeToken.verify(engine, "2001:db8:0:0:0:0:0:1", respond(token, 5L, 2, 7L), now, TIMEOUT_MS));
+
+        assertEquals(CryptographicChallenge.VerificationResult.TIMEOUT,
+            ChallengeToken.verify(engine, "2001:db8:0:0:0:0:0:1", respond(token, 5L, 2, 6L),
+                now + TIMEOUT_MS + 1, TIMEOUT_MS));
+
+        assertEquals(CryptographicChallenge.VerificationResult.INVALID_FORMAT,
+            ChallengeToken.verify(engine, "2001:db8:0:0:0:0:0:1", "deadbeef", now, TIMEOUT_MS));
+    }
+
+    @Test
+    @DisplayName("Work bits carried in the token should be enforced")
+    void testProofOfWork() {
+        long now = System.currentTimeMillis();
+        byte[] token = ChallengeToken.issue(engine, "203.0.113.7", 11L, now, 2, 22L, 12);
+        byte[] seed = ProofOfWork.seed(11L, 2, 22L, 12);
+        String prefix = ChallengeToken.toHex(token) + ":" + HexFormat.of().formatHex(seed);
+
+        long suffix = ProofOfWork.solve(seed, 12, 0);
+        assertEquals(CryptographicChallenge.VerificationResult.SUCCESS,
+            ChallengeToken.verify(engine, "203.0.113.7", prefix + ProofOfWork.suffixHex(suffix), now, TIMEOUT_MS));
+
+        // The bare seed is only accepted when no work was asked for
+        assertEquals(CryptographicChallenge.VerificationResult.INVALID_FORMAT,
+            ChallengeToken.verify(engine, "203.0.113.7", prefix, now, TIMEOUT_MS));
+
+        byte[] lowered = token.clone();
+        lowered[26] = 0;
+        assertEquals(CryptographicChallenge.VerificationResult.WRONG_ANSWER,
+            ChallengeToken.verify(engine, "203.0.113.7", respond(lowered, 11L, 2, 22L), now, TIMEOUT_MS));
+    }
+
+    @Test
+    @DisplayName("Tokens signed with another key should be rejected")
+    void testForeignKey() {
+        long now = System.currentTimeMillis();
+        ChallengeEngine other = new ChallengeEngine("AnotherSecretKey99!");
+        byte[] token = ChallengeToken.issue(other, "198.51.100.1", 1L, now, 2, 2L, 0);
+
+        assertEquals(CryptographicChallenge.VerificationResult.WRONG_ANSWER,
+            ChallengeToken.verify(engine, "198.51.100.1", respond(token, 1L, 2, 2L), now, TIMEOUT_MS));
+    }
+
+    @Test
+    @DisplayName("An answered token should be accepted once, until it has expired anyway")
+    void testSpentOnce() {
+        AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+        TimingWheel wheel = new TimingWheel(50, clock::get, Logger.getLogger("ChallengeTokenTest"));
+        SpentTokens spent = new SpentTokens(wheel);
+        byte[] first = respond(ChallengeToken.issue(engine, "203.0.113.7", 11L, clock.get(), 2, 22L, 0), 11L, 2, 22L);
+        byte[] second = respond(ChallengeToken.issue(engine, "203.0.113.7", 12L, clock.get(), 2, 23L, 0), 12L, 2, 23L);
+
+        assertTrue(spent.spend(first, TIMEOUT_MS));
+        assertFalse(spent.spend(first, TIMEOUT_MS));
+        assertTrue(spent.spend(second, TIMEOUT_MS));
+        assertFalse(spent.spend("short".getBytes(StandardCharsets.US_ASCII), TIMEOUT_MS));
+        assertEquals(2, spent.size());
+
+        clock.addAndGet(TIMEOUT_MS + 100);
+        wheel.advance();
+        assertEquals(0, spent.size());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "voidcrypt.bench", matches = "true")
+    @DisplayName("Benchmark: retained heap of stateful vs stateless mode for 1M source IPs")
+    void benchmarkMemoryUnderFlood() {
+        int sources = 1_000_000;
+        long now = System.currentTimeMillis();
+
+        long baseline = usedHeapAfterGc();
+        Map<String, CryptographicChallenge.ChallengeData> pending = new ConcurrentHashMap<>();
+        for (int i = 0; i < sources; i++) {
+            String ip = ipv4(i);
+            byte[] seed = ProofOfWork.seed(i, 2, ~i, 0);
+            pending.put(ip, new CryptographicChallenge.ChallengeData(i, seed, now, 2, ~i, 0, null));
+        }
+        long statefulBytes = usedHeapAfterGc() - baseline;
+        assertEquals(sources, pending.size());
+        pending.clear();
+
+        baseline = usedHeapAfterGc();
+        long start = System.nanoTime();
+        long checksum = 0;
+        for (int i = 0; i < sources; i++) {
+            ProofOfWork.seed(i, 2, ~i, 0);
+            checksum += ChallengeToken.issue(engine, ipv4(i), i, now, 2, ~i, 0)[42];
+        }
+        long issueNanos = System.nanoTime() - start;
+        long statelessBytes = usedHeapAfterGc() - baseline;
+
+        System.out.printf("Stateful  mode: %,d bytes retained (%.0f B/IP)%n",
+            statefulBytes, statefulBytes / (double) sources);
+        System.out.printf("Stateless mode: %,d bytes retained, %,.0f tokens/s issued (checksum %d)%n",
+            Math.max(0, statelessBytes), sources * 1e9 / issueNanos, checksum);
+        assertTrue(statelessBytes < statefulBytes / 10);
+    }
+
+    private static String ipv4(int i) {
+        return "10." + ((i >>> 16) & 0xFF) + "." + ((i >>> 8) & 0xFF) + "." + (i & 0xFF);
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
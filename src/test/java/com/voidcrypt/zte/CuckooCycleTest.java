@@ -0,0 +1,136 @@
+package com.voidcrypt.zte;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests and verification cost benchmark for CuckooCycle
+ */
+class CuckooCycleTest {
+
+    private static final int EDGE_BITS = 12;
+
+    private final ChallengeEngine engine = new ChallengeEngine("MySecureKey12345!");
+
+    private static byte[] response(byte[] seed, CuckooCycle.Solution solution) {
+        return (HexFormat.of().formatHex(seed) + solution.toHex()).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    @DisplayName("Solver output should satisfy the verifier, directly and through ProofOfWork")
+    void testSolveAndVerify() {
+        byte[] seed = ProofOfWork.seed(7L, 2, 8L, CuckooCycle.work(EDGE_BITS));
+        CuckooCycle.Solution solution = CuckooCycle.solve(seed, EDGE_BITS, 0);
+        byte[] response = response(seed, solution);
+
+        assertEquals(CuckooCycle.CYCLE_LENGTH, solution.edges().length);
+        assertEquals(CuckooCycle.RESPONSE_HEX_LENGTH, response.length);
+        assertEquals(CryptographicChallenge.VerificationResult.SUCCESS,
+            CuckooCycle.verifyResponse(seed, EDGE_BITS, response, 0, response.length));
+        assertEquals(CryptographicChallenge.VerificationResult.SUCCESS,
+            ProofOfWork.verifyResponse(seed, CuckooCycle.work(EDGE_BITS), response, 0, response.length));
+
+        // A cycle in one graph size says nothing about another
+        assertEquals(CryptographicChallenge.VerificationResult.WRONG_ANSWER,
+            CuckooCycle.verifyResponse(seed, EDGE_BITS + 1, response, 0, response.length));
+    }
+
+    @Test
+    @DisplayName("Altered cycles, foreign seeds and malformed input should be rejected")
+    void testRejections() {
+        byte[] seed = ProofOfWork.seed(7L, 2, 8L, CuckooCycle.work(EDGE_BITS));
+        CuckooCycle.Solution solution = CuckooCycle.solve(seed, EDGE_BITS, 0);
+
+        int[] edges = solution.edges().clone();
+        edges[CuckooCycle.CYCLE_LENGTH - 1] = edges[CuckooCycle.CYCLE_LENGTH - 1] + 1 < (1 << EDGE_BITS)
+            ? edges[CuckooCycle.CYCLE_LENGTH - 1] + 1 : edges[CuckooCycle.CYCLE_LENGTH - 1] - 1;
+        byte[] altered = response(seed, new CuckooCycle.Solution(solution.nonce(), edges));
+        assertEquals(CryptographicChallenge.VerificationResult.WRONG_ANSWER,
+            CuckooCycle.verifyResponse(seed, EDGE_BITS, altered, 0, altered.length));
+
+        int[] unsorted = solution.edges().clone();
+        int first = unsorted[0];
+        unsorted[0] = unsorted[1];
+        unsorted[1] = first;
+        byte[] reordered = response(seed, new CuckooCycle.Solution(solution.nonce(), unsorted));
+        assertEquals(CryptographicChallenge.VerificationResult.WRONG_ANSWER,
+            CuckooCycle.verifyResponse(seed, EDGE_BITS, reordered, 0, reordered.length));
+
+        byte[] otherNonce = response(seed, new CuckooCycle.Solution(solution.nonce() + 1, solution.edges()));
+        assertEquals(CryptographicChallenge.VerificationResult.WRONG_ANSWER,
+            CuckooCycle.verifyResponse(seed, EDGE_BITS, otherNonce, 0, otherNonce.length));
+
+        byte[] other = ProofOfWork.seed(7L, 2, 9L, CuckooCycle.work(EDGE_BITS));
+        byte[] forged = response(other, CuckooCycle.solve(other, EDGE_BITS, 0));
+        assertEquals(CryptographicChallenge.VerificationResult.WRONG_ANSWER,
+            CuckooCycle.verifyResponse(seed, EDGE_BITS, forged, 0, forged.length));
+
+        byte[] valid = response(seed, solution);
+        byte[] garbage = valid.clone();
+        garbage[70] = 'z';
+        assertEquals(CryptographicChallenge.VerificationResult.INVALID_FORMAT,
+            CuckooCycle.verifyResponse(seed, EDGE_BITS, garbage, 0, garbage.length));
+        assertEquals(CryptographicChallenge.VerificationResult.INVALID_FORMAT,
+            CuckooCycle.verifyResponse(seed, EDGE_BITS, valid, 0, valid.length - 8));
+        assertEquals(CryptographicChallenge.VerificationResult.INVALID_FORMAT,
+            CuckooCycle.verifyResponse(seed, EDGE_BITS, null, 0, 0));
+    }
+
+    @Test
+    @DisplayName("Stateless tokens should carry the memory-hard work and verify its cycle")
+    void testStatelessToken() {
+        long now = System.currentTimeMillis();
+        int work = CuckooCycle.work(EDGE_BITS);
+        byte[] token = ChallengeToken.issue(engine, "203.0.113.7", 11L, now, 2, 22L, work);
+        byte[] seed = ProofOfWork.seed(11L, 2, 22L, work);
+        String response = ChallengeToken.toHex(token) + ":" + HexFormat.of().formatHex(seed)
+            + CuckooCycle.solve(seed, EDGE_BITS, 0).toHex();
+
+        assertEquals(CryptographicChallenge.VerificationResult.SUCCESS,
+            ChallengeToken.verify(engine, "203.0.113.7", response, now, 60_000));
+        // A SHA-256 suffix does not satisfy a memory-hard token
+        String preimage = ChallengeToken.toHex(token) + ":" + HexFormat.of().formatHex(seed)
+            + ProofOfWork.suffixHex(ProofOfWork.solve(seed, 4, 0));
+        assertEquals(CryptographicChallenge.VerificationResult.INVALID_FORMAT,
+            ChallengeToken.verify(engine, "203.0.113.7", preimage, now, 60_000));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "voidcrypt.bench", matches = "true")
+    @DisplayName("Benchmark: server verification stays under 50 µs while client cost grows with the graph")
+    void benchmarkVerification() {
+        int rounds = 100_000;
+        for (int edgeBits : new int[]{12, 16, 20}) {
+            byte[] seed = ProofOfWork.seed(edgeBits, 2, 99L, CuckooCycle.work(edgeBits));
+            long start = System.nanoTime();
+            CuckooCycle.Solution solution = CuckooCycle.solve(seed, edgeBits, 0);
+            long solveMillis = (System.nanoTime() - start) / 1_000_000;
+            byte[] response = response(seed, solution);
+
+            int ok = 0;
+            long verifyNanos = 0;
+            for (int warmup = 0; warmup < 2; warmup++) {
+                ok = 0;
+                start = System.nanoTime();
+                for (int i = 0; i < rounds; i++) {
+                    if (CuckooCycle.verifyResponse(seed, edgeBits, response, 0, response.length)
+                            == CryptographicChallenge.VerificationResult.SUCCESS) {
+                        ok++;
+                    }
+                }
+                verifyNanos = (System.nanoTime() - start) / rounds;
+            }
+
+            assertEquals(rounds, ok);
+            assertTrue(verifyNanos < 50_000, "verification took " + verifyNanos + " ns");
+            System.out.printf("%d edge bits: client solve %,d ms (graph nonce %d, %,d KiB) | server verify %,d ns%n",
+                edgeBits, solveMillis, solution.nonce(), (2L << edgeBits) * Integer.BYTES / 1024, verifyNanos);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.voidcrypt.zte;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DifficultyController
+ */
+class DifficultyControllerTest {
+
+    private double threat;
+
+    @Test
+    @DisplayName("Quiet server should stay at the minimum difficulty")
+    void testQuiet() {
+        DifficultyController controller = new DifficultyController(8, 20, 20, () -> threat);
+        controller.recordLogin();
+        controller.update();
+
+        assertEquals(8, controller.getCurrentBits());
+        assertEquals(1, controller.getLoginsLastSecond());
+    }
+
+    @Test
+    @DisplayName("Threat level or login flood should raise difficulty immediately")
+    void testRisesUnderPressure() {
+        DifficultyController controller = new DifficultyController(8, 20, 10, () -> threat);
+
+        threat = 0.5;
+        controller.update();
+        assertEquals(14, controller.getCurrentBits());
+
+        threat = 0.0;
+        for (int i = 0; i < 50; i++) {
+            controller.recordLogin();
+        }
+        controller.update();
+        assertEquals(20, controller.getCurrentBits());
+    }
+
+    @Test
+    @DisplayName("Difficulty should decay one bit per update once pressure is gone")
+    void testDecay() {
+        DifficultyController controller = new DifficultyController(8, 20, 10, () -> threat);
+        threat = 1.0;
+        controller.update();
+        assertEquals(20, controller.getCurrentBits());
+
+        threat = 0.0;
+        controller.update();
+        assertEquals(19, controller.getCurrentBits());
+        for (int i = 0; i < 30; i++) {
+            controller.update();
+        }
+        assertEquals(8, controller.getCurrentBits());
+    }
+
+    @Test
+    @DisplayName("Configured bounds should be clamped to a sane range")
+    void testBounds() {
+        DifficultyController controller = new DifficultyController(-3, 99, 0, () -> Double.NaN);
+        assertEquals(0, controller.getMinBits());
+        assertEquals(ProofOfWork.MAX_BITS, controller.getMaxBits());
+        controller.update();
+        assertEquals(0, controller.getCurrentBits());
+    }
+
+    @Test
+    @DisplayName("Difficulty at or above the memory-hard tier should select a growing Cuckoo graph")
+    void testMemoryHardTier() {
+        DifficultyController controller = new DifficultyController(8, 20, 10, () -> threat, 16, 14);
+        controller.update();
+        assertEquals(8, controller.getCurrentWork());
+
+        threat = 0.75;
+        controller.update();
+        assertEquals(17, controller.getCurrentBits());
+        int work = controller.getCurrentWork();
+        assertTrue(CuckooCycle.isMemoryHard(work));
+        assertEquals(15, CuckooCycle.edgeBits(work));
+        assertEquals("c15", CuckooCycle.label(work));
+
+        DifficultyController disabled = new DifficultyController(8, 20, 10, () -> threat);
+        disabled.update();
+        assertFalse(CuckooCycle.isMemoryHard(disabled.getCurrentWork()));
+    }
+}
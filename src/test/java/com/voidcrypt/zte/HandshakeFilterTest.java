@@ -0,0 +1,74 @@
+package com.voidcrypt.zte;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for HandshakeFilter
+ */
+class HandshakeFilterTest {
+
+    private static final int PROTOCOL = 767;
+
+    private final HandshakeFilter filter = new HandshakeFilter(
+        List.of("play.example.net", " *.Example.org ", ""), false, 47, 10_000);
+
+    @Test
+    @DisplayName("Allowed hosts and subdomains of wildcard entries should pass")
+    void testAllowedHosts() {
+        assertEquals(HandshakeFilter.Reason.ACCEPTED, filter.check("play.example.net", PROTOCOL));
+        assertEquals(HandshakeFilter.Reason.ACCEPTED, filter.check("PLAY.Example.NET.", PROTOCOL));
+        assertEquals(HandshakeFilter.Reason.ACCEPTED, filter.check("eu.example.org", PROTOCOL));
+        assertEquals(HandshakeFilter.Reason.ACCEPTED, filter.check("a.b.example.org", PROTOCOL));
+        // Forge marker and proxy forwarding data after the host are ignored
+        assertEquals(HandshakeFilter.Reason.ACCEPTED, filter.check("play.example.net\0FML3\0", PROTOCOL));
+        assertEquals(HandshakeFilter.Reason.ACCEPTED,
+            filter.check("play.example.net\u0000203.0.113.7\u0000069a79f444e94726a5befca90e38aaf5", PROTOCOL));
+        assertEquals(6, filter.getCount(HandshakeFilter.Reason.ACCEPTED));
+    }
+
+    @Test
+    @DisplayName("Unknown hosts, raw IPs and missing hosts should be rejected with their own reason")
+    void testRejectedHosts() {
+        assertEquals(HandshakeFilter.Reason.HOST_NOT_ALLOWED, filter.check("example.org", PROTOCOL));
+        assertEquals(HandshakeFilter.Reason.HOST_NOT_ALLOWED, filter.check("xj3k9.example.com", PROTOCOL));
+        assertEquals(HandshakeFilter.Reason.HOST_NOT_ALLOWED, filter.check("evilexample.org", PROTOCOL));
+        assertEquals(HandshakeFilter.Reason.IP_LITERAL, filter.check("203.0.113.7", PROTOCOL));
+        assertEquals(HandshakeFilter.Reason.IP_LITERAL, filter.check("2001:db8::1", PROTOCOL));
+        assertEquals(HandshakeFilter.Reason.HOST_MISSING, filter.check("", PROTOCOL));
+        assertEquals(HandshakeFilter.Reason.HOST_MISSING, filter.check(null, PROTOCOL));
+        assertEquals(HandshakeFilter.Reason.HOST_NOT_ALLOWED, filter.check("a".repeat(300), PROTOCOL));
+        assertEquals(8, filter.getRejectedCount());
+    }
+
+    @Test
+    @DisplayName("Protocol versions outside the range should be rejected before the host is read")
+    void testProtocolRange() {
+        assertEquals(HandshakeFilter.Reason.PROTOCOL_TOO_OLD, filter.check("play.example.net", 46));
+        assertEquals(HandshakeFilter.Reason.PROTOCOL_TOO_OLD, filter.check("play.example.net", -1));
+        assertEquals(HandshakeFilter.Reason.PROTOCOL_TOO_NEW, filter.check("play.example.net", 0x4000_00C8));
+        assertEquals(HandshakeFilter.Reason.PROTOCOL_TOO_NEW, filter.check(null, Integer.MAX_VALUE));
+        assertEquals(HandshakeFilter.Reason.ACCEPTED, filter.check("play.example.net", 47));
+
+        HandshakeFilter unbounded = new HandshakeFilter(List.of(), false, 47, 0);
+        assertEquals(HandshakeFilter.Reason.ACCEPTED, unbounded.check("anything", 0x4000_00C8));
+    }
+
+    @Test
+    @DisplayName("Without an allowlist any host should pass, raw IPs only if allowed")
+    void testNoAllowlist() {
+        HandshakeFilter open = new HandshakeFilter(List.of(), false, 47, 10_000);
+        assertFalse(open.hasHostAllowlist());
+        assertEquals(HandshakeFilter.Reason.ACCEPTED, open.check("random-host.invalid", PROTOCOL));
+        assertEquals(HandshakeFilter.Reason.ACCEPTED, open.check("203.0.113.7", PROTOCOL));
+
+        HandshakeFilter noIps = new HandshakeFilter(List.of("10.0.0.5"), true, 47, 10_000);
+        assertEquals(HandshakeFilter.Reason.IP_LITERAL, noIps.check("203.0.113.7", PROTOCOL));
+        // An explicitly listed address is still accepted
+        assertEquals(HandshakeFilter.Reason.ACCEPTED, noIps.check("10.0.0.5", PROTOCOL));
+    }
+}
@@ -0,0 +1,651 @@
+package com.voidcrypt.zte;
+
+import com.voidcrypt.core.AuditPipeline;
+import com.voidcrypt.core.TimingWheel;
+import com.voidcrypt.security.EntropyPool;
+import com.voidcrypt.security.IpStateTable;
+import com.voidcrypt.security.PackedAddress;
+import com.voidcrypt.security.PrefixLockouts;
+import com.voidcrypt.security.RateKind;
+import com.voidcrypt.security.RateLimiter;
+import com.voidcrypt.security.RateLimits;
+import com.voidcrypt.security.RecentAddressFilter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests and login-storm load harness for HandshakeProcessor
+ * Packets and the scheduler are replaced by the local stand-ins below, so the harness runs
+ * the interceptor's decision path (its admission pipeline from LoginStages, state table, rate
+ * limiters, admission queue, challenge in either delivery phase, audit queue) without a server.
+ * Run with -Pbench or -Dvoidcrypt.bench=true.
+ */
+class HandshakeLoadTest {
+
+    private static final Logger LOGGER = Logger.getLogger("HandshakeLoadTest");
+    private static final String SECRET = "MySecureKey12345!";
+    private static final String CHALLENGE_CHANNEL = "voidcrypt:challenge";
+    private static final String RESPONSE_CHANNEL = "voidcrypt:response";
+    private static final int WORK_BITS = 4;
+    private static final long LOGIN_QUERY_TIMEOUT_MS = 20_000;
+
+    static {
+        LOGGER.setLevel(Level.SEVERE); // rate-limit warnings would dominate the harness output
+    }
+
+    /**
+     * Stand-in for ProtocolLib's PacketEvent: just what the interceptor reads and writes
+     */
+    private static final class SyntheticPacket implements LoginStages.Attempt {
+        final PacketKind kind;
+        final PackedAddress address;
+        final String channel;
+        final int messageId;
+        final byte[] payload;
+        boolean cancelled;
+
+        private SyntheticPacket(PacketKind kind, PackedAddress address, String channel, int messageId,
+                                byte[] payload) {
+            this.kind = kind;
+            this.address = address;
+            this.channel = channel;
+            this.messageId = messageId;
+            this.payload = payload;
+        }
+
+        static SyntheticPacket loginStart(PackedAddress address) {
+            return new SyntheticPacket(PacketKind.LOGIN_START, address, null, 0, null);
+        }
+
+        /**
+         * Login plugin response; a null payload is a client that did not understand the query
+         */
+        static SyntheticPacket loginAnswer(PackedAddress address, int messageId, byte[] payload) {
+            return new SyntheticPacket(PacketKind.LOGIN_ANSWER, address, null, messageId, payload);
+        }
+
+        static SyntheticPacket response(PackedAddress address, byte[] payload) {
+            return new SyntheticPacket(PacketKind.PLAY_RESPONSE, address, RESPONSE_CHANNEL, 0, payload);
+        }
+
+        @Override
+        public PackedAddress address() {
+            return address;
+        }
+    }
+
+    private enum PacketKind {
+        LOGIN_START,
+        LOGIN_ANSWER, // Login plugin response to a challenge query
+        PLAY_RESPONSE // Plugin message after join
+    }
+
+    /**
+     * A Login Start held for its login query answer, as in HandshakeInterceptor.holdLogin
+     */
+    private static final class HeldLogin {
+        final SyntheticPacket login;
+        TimingWheel.Timeout timeout;
+
+        HeldLogin(SyntheticPacket login) {
+            this.login = login;
+        }
+    }
+
+    /**
+     * Stand-in for the Bukkit scheduler: main-thread tasks queue up until the next tick
+     */
+    private static final class TickScheduler {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+        int kicks;
+
+        void runTask(Runnable task) {
+            tasks.add(task);
+        }
+
+        void tick() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * One processor and the interceptor's admission pipeline wired like the plugin does it, plus
+     * the last challenge "sent" to a client. With loginPhase the challenge goes out as a login
+     * query and the login is held for the answer; otherwise it is answered after join.
+     */
+    private static final class Harness {
+        final TimingWheel wheel = new TimingWheel(50, System::currentTimeMillis, LOGGER);
+        final IpStateTable table = new IpStateTable(wheel);
+        final PrefixLockouts prefixes = new PrefixLockouts(List.of(
+            new PrefixLockouts.Level(false, 24, 20), new PrefixLockouts.Level(false, 16, 200),
+            new PrefixLockouts.Level(true, 64, 20), new PrefixLockouts.Level(true, 48, 200)),
+            8192, 600_000, 5 * 60_000L, wheel);
+        final AuditPipeline audit = new AuditPipeline(1 << 16, List.of((kind, level, line) -> { }), LOGGER);
+        final TickScheduler scheduler = new TickScheduler();
+        final RateLimits limits = stormLimits();
+        final RecentAddressFilter pingGate = new RecentAddressFilter(600_000, 5, 250_000, 0.01);
+        final AdmissionScheduler admission = new AdmissionScheduler(limits.get(RateKind.ADMISSION_SUBNET),
+            limits.get(RateKind.ADMISSION), 24, 48, 1024, 10_000);
+        volatile Map<PackedAddress, String> ipBans = Map.of();
+        final boolean loginPhase;
+        final Map<Integer, HeldLogin> heldLogins = new ConcurrentHashMap<>();
+        final HandshakeProcessor processor;
+        final AdmissionPipeline<SyntheticPacket> pipeline;
+        final AdmissionPipeline.Stage<SyntheticPacket> admissionStage = this::checkAdmission;
+        CryptographicChallenge.ChallengeData lastChallenge;
+        int lastMessageId;
+        int nextMessageId = 1;
+        int loginsPassed;
+        int loginsRejected;
+
+        Harness() {
+            this(false);
+        }
+
+        Harness(boolean loginPhase) {
+            this.loginPhase = loginPhase;
+            CryptographicChallenge challenge = new CryptographicChallenge(SECRET, 2,
+                CryptographicChallenge.ChallengeMode.STATEFUL,
+                new DifficultyController(WORK_BITS, WORK_BITS, 20.0, () -> 0.0),
+                RateLimits.fromConfig(null, LOGGER), new EntropyPool(4096, 1024), wheel, () -> 60_000L, LOGGER);
+            processor = new HandshakeProcessor(table, prefixes, challenge, audit, 5 * 60_000L, LOGGER);
+            // Synthetic clients are older than 1.20.5, so they run without the cookie stage as with cookies off
+            pipeline = LoginStages.create(true, table, () -> ipBans, processor, pingGate, limits, null,
+                admissionStage, packet -> issued -> deliver(packet, issued));
+        }
+
+        private AdmissionPipeline.Outcome checkAdmission(SyntheticPacket packet, long now) {
+            AdmissionScheduler.Decision decision = admission.offer(packet.address,
+                processor.isVerified(packet.address, now), now, () -> new AdmissionScheduler.Ticket() {
+                    @Override
+                    public void admit() {
+                        pipeline.resume(packet, admissionStage, System.currentTimeMillis());
+                    }
+
+                    @Override
+                    public void reject() {
+                    }
+                });
+            if (decision.proceeds()) {
+                return AdmissionPipeline.Outcome.PASS;
+            }
+            return decision.rejects() ? AdmissionPipeline.Outcome.REJECT : AdmissionPipeline.Outcome.HOLD;
+        }
+
+        /**
+         * Mirrors HandshakeInterceptor.onPacketReceiving
+         */
+        void dispatch(SyntheticPacket packet) {
+            if (packet.cancelled) return;
+            long now = System.currentTimeMillis();
+            switch (packet.kind) {
+                case LOGIN_START -> {
+                    AdmissionPipeline.Result result = pipeline.run(packet, now);
+                    if (result.outcome() == AdmissionPipeline.Outcome.PASS) {
+                        loginsPassed++;
+                    } else {
+                        packet.cancelled = true;
+                        if (result.outcome() == AdmissionPipeline.Outcome.REJECT) {
+                            if (LoginStages.LOCKOUT.equals(result.stage())) {
+                                processor.alertLockout(packet.address, now);
+                            }
+                            loginsRejected++;
+                        }
+                    }
+                }
+                case LOGIN_ANSWER -> answerLogin(packet, now);
+                case PLAY_RESPONSE -> {
+                    if (RESPONSE_CHANNEL.equals(packet.channel) && packet.payload != null
+                            && processor.onResponse(packet.address, packet.payload, now).kicks()) {
+                        scheduler.runTask(() -> scheduler.kicks++);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Mirrors HandshakeInterceptor.handleLoginAnswer
+         */
+        private void answerLogin(SyntheticPacket answer, long now) {
+            HeldLogin held = heldLogins.get(answer.messageId);
+            if (held == null) return;
+            answer.cancelled = true;
+            if (!held.login.address.equals(answer.address) || !heldLogins.remove(answer.messageId, held)) {
+                return;
+            }
+            held.timeout.cancel();
+
+            if (answer.payload == null) {
+                processor.onUnsupported(answer.address, now);
+                loginsPassed++;
+            } else if (processor.onResponse(answer.address, answer.payload, now)
+                    == HandshakeProcessor.ResponseVerdict.VERIFIED) {
+                loginsPassed++;
+            } else {
+                loginsRejected++;
+            }
+        }
+
+        /**
+         * What the plugin's repeating tasks do between ticks
+         */
+        void tick() {
+            scheduler.tick();
+            admission.drain(System.currentTimeMillis());
+            pipeline.reorder();
+            audit.drain();
+            wheel.advance();
+        }
+
+        /**
+         * The pipeline's challenge delivery: a login query in the login phase, else after join
+         */
+        private boolean deliver(SyntheticPacket login, CryptographicChallenge.ChallengeData challenge) {
+            if (!loginPhase) {
+                return send(challenge);
+            }
+            lastChallenge = challenge;
+            int messageId = nextMessageId++;
+            lastMessageId = messageId;
+            HeldLogin held = new HeldLogin(login);
+            heldLogins.put(messageId, held);
+            held.timeout = wheel.schedule(timeout -> {
+                if (heldLogins.remove(messageId, held)) {
+                    processor.onNoAnswer(login.address, System.currentTimeMillis());
+                    loginsRejected++;
+                }
+            }, LOGIN_QUERY_TIMEOUT_MS);
+            return true;
+        }
+
+        /**
+         * Play-phase delivery: the login goes ahead and the answer arrives after join
+         */
+        boolean send(CryptographicChallenge.ChallengeData challenge) {
+            lastChallenge = challenge;
+            return false;
+        }
+
+        /**
+         * What a legitimate client sends back for the last challenge
+         */
+        byte[] solveLast() {
+            return solve(lastChallenge.toPayload());
+        }
+
+        /**
+         * The answer to the last challenge, on the path it was delivered by
+         */
+        SyntheticPacket answerLast(PackedAddress address, byte[] payload) {
+            return loginPhase ? SyntheticPacket.loginAnswer(address, lastMessageId, payload)
+                : SyntheticPacket.response(address, payload);
+        }
+    }
+
+    /**
+     * Reference client: answers a challenge from its payload alone, without the server secret
+     */
+    static byte[] solve(String payload) {
+        // nonce:difficulty:entropy:work:seed[:token]
+        String[] fields = payload.split(":");
+        String work = fields[3];
+        byte[] seed = HexFormat.of().parseHex(fields[4]);
+        String proof = work.startsWith("c")
+            ? CuckooCycle.solve(seed, Integer.parseInt(work.substring(1)), 0).toHex()
+            : ProofOfWork.suffixHex(ProofOfWork.solve(seed, Integer.parseInt(work), 0));
+        String response = fields[4] + proof;
+        return (fields.length > 5 ? fields[5] + ":" + response : response).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    @DisplayName("Logins should be challenged, verified on a correct answer and locked out after failures")
+    void testVerdicts() {
+        Harness harness = new Harness();
+        HandshakeProcessor processor = harness.processor;
+        long now = System.currentTimeMillis();
+        PackedAddress player = PackedAddress.of("198.51.100.10");
+        PackedAddress bot = PackedAddress.of("203.0.113.66");
+
+        assertEquals(HandshakeProcessor.LoginVerdict.CHALLENGED, processor.onLoginStart(player, now, harness::send));
+        assertEquals(HandshakeProcessor.ResponseVerdict.VERIFIED, processor.onResponse(player, harness.solveLast(), now));
+        assertEquals(HandshakeProcessor.LoginVerdict.VERIFIED, processor.onLoginStart(player, now, harness::send));
+        assertEquals(HandshakeProcessor.ResponseVerdict.IGNORED, processor.onResponse(player, harness.solveLast(), now));
+
+        byte[] garbage = "not-a-response".getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(HandshakeProcessor.LoginVerdict.CHALLENGED, processor.onLoginStart(bot, now, harness::send));
+            assertTrue(processor.onResponse(bot, garbage, now).kicks());
+        }
+        assertEquals(HandshakeProcessor.LoginVerdict.LOCKOUT_STARTED, processor.onLoginStart(bot, now, harness::send));
+        assertEquals(HandshakeProcessor.LoginVerdict.LOCKED_OUT, processor.onLoginStart(bot, now, harness::send));
+        assertTrue(HandshakeProcessor.LoginVerdict.LOCKED_OUT.cancelsLogin());
+        // One success audit, an alert and an audit per failure, one alert per refused login
+        assertEquals(1 + 3 * 2 + 2, harness.audit.drain());
+    }
+
+    @Test
+    @DisplayName("An answered or replaced challenge should leave no expiry behind")
+    void testChallengeExpiryCancelled() {
+        TimingWheel wheel = new TimingWheel(50, System::currentTimeMillis, LOGGER);
+        CryptographicChallenge challenge = new CryptographicChallenge(SECRET, 2,
+            CryptographicChallenge.ChallengeMode.STATEFUL, new DifficultyController(0, 0, 20.0, () -> 0.0),
+            RateLimits.fromConfig(null, LOGGER), new EntropyPool(4096, 1024), wheel, () -> 60_000L, LOGGER);
+
+        challenge.createChallenge("198.51.100.30");
+        CryptographicChallenge.ChallengeData latest = challenge.createChallenge("198.51.100.30");
+        assertEquals(1, wheel.getPendingTimeouts());
+
+        assertEquals(CryptographicChallenge.VerificationResult.SUCCESS,
+            challenge.verifyResponse("198.51.100.30", solve(latest.toPayload())));
+        assertEquals(0, wheel.getPendingTimeouts());
+        assertEquals(0, challenge.getPendingChallengeCount());
+    }
+
+    @Test
+    @DisplayName("A memory-hard challenge should be solvable from its payload alone, in both modes")
+    void testMemoryHardFromPayload() {
+        TimingWheel wheel = new TimingWheel(50, System::currentTimeMillis, LOGGER);
+        for (CryptographicChallenge.ChallengeMode mode : CryptographicChallenge.ChallengeMode.values()) {
+            CryptographicChallenge challenge = new CryptographicChallenge(SECRET, 2, mode,
+                new DifficultyController(4, 4, 20.0, () -> 0.0, 4, CuckooCycle.MIN_EDGE_BITS),
+                RateLimits.fromConfig(null, LOGGER), new EntropyPool(4096, 1024), wheel, () -> 60_000L, LOGGER);
+            CryptographicChallenge.ChallengeData data = challenge.createChallenge("198.51.100.31");
+            assertTrue(CuckooCycle.isMemoryHard(data.workBits()));
+            assertEquals(CryptographicChallenge.VerificationResult.SUCCESS,
+                challenge.verifyResponse("198.51.100.31", solve(data.toPayload())), mode.name());
+        }
+    }
+
+    @Test
+    @DisplayName("Logins challenged in the login phase should be held, and silence should count as a failure")
+    void testHeldLogins() {
+        Harness harness = new Harness();
+        HandshakeProcessor processor = harness.processor;
+        long now = System.currentTimeMillis();
+        PackedAddress player = PackedAddress.of("198.51.100.20");
+        PackedAddress silent = PackedAddress.of("203.0.113.77");
+        HandshakeProcessor.ChallengeDelivery query = challenge -> {
+            harness.lastChallenge = challenge;
+            return true;
+        };
+
+        HandshakeProcessor.LoginVerdict held = processor.onLoginStart(player, now, query);
+        assertEquals(HandshakeProcessor.LoginVerdict.HELD, held);
+        assertTrue(held.cancelsLogin());
+        assertFalse(held.rejects());
+        assertEquals(HandshakeProcessor.ResponseVerdict.VERIFIED, processor.onResponse(player, harness.solveLast(), now));
+        assertEquals(HandshakeProcessor.LoginVerdict.VERIFIED, processor.onLoginStart(player, now, query));
+
+        assertEquals(HandshakeProcessor.LoginVerdict.HELD, processor.onLoginStart(silent, now, query));
+        processor.onNoAnswer(silent, now);
+        assertEquals(1, processor.getFailureCount(silent));
+        // A client that did not understand the channel is let in without a failure
+        assertEquals(HandshakeProcessor.LoginVerdict.HELD, processor.onLoginStart(silent, now, query));
+        processor.onUnsupported(silent, now);
+        assertEquals(1, processor.getFailureCount(silent));
+        // An empty answer is an invalid one
+        assertEquals(HandshakeProcessor.LoginVerdict.HELD, processor.onLoginStart(silent, now, query));
+        assertTrue(processor.onResponse(silent, new byte[0], now).kicks());
+        assertEquals(2, processor.getFailureCount(silent));
+    }
+
+    @Test
+    @DisplayName("Logins through the interceptor's pipeline should be held for the login query and decided by the answer")
+    void testLoginQueryPipeline() {
+        Harness harness = new Harness(true);
+        PackedAddress player = PackedAddress.of("198.51.100.40");
+        PackedAddress vanilla = PackedAddress.of("198.51.100.41");
+        PackedAddress bot = PackedAddress.of("203.0.113.41");
+        for (PackedAddress address : List.of(player, vanilla, bot)) {
+            harness.pingGate.record(address, System.currentTimeMillis());
+        }
+
+        SyntheticPacket login = SyntheticPacket.loginStart(player);
+        harness.dispatch(login);
+        assertTrue(login.cancelled);
+        assertEquals(1, harness.heldLogins.size());
+        harness.dispatch(harness.answerLast(player, harness.solveLast()));
+        assertEquals(1, harness.loginsPassed);
+        assertTrue(harness.processor.isVerified(player, System.currentTimeMillis()));
+        // Verified now: the next login skips the query
+        harness.dispatch(SyntheticPacket.loginStart(player));
+        assertEquals(2, harness.loginsPassed);
+
+        // A client that did not understand the query goes ahead without a failure
+        harness.dispatch(SyntheticPacket.loginStart(vanilla));
+        harness.dispatch(harness.answerLast(vanilla, null));
+        assertEquals(3, harness.loginsPassed);
+        assertEquals(0, harness.processor.getFailureCount(vanilla));
+
+        // A wrong answer is rejected in the login phase; an answer from another address is ignored
+        harness.dispatch(SyntheticPacket.loginStart(bot));
+        harness.dispatch(harness.answerLast(player, "not-a-response".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(1, harness.heldLogins.size());
+        harness.dispatch(harness.answerLast(bot, "not-a-response".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(1, harness.loginsRejected);
+        assertEquals(1, harness.processor.getFailureCount(bot));
+        assertEquals(0, harness.heldLogins.size());
+
+        List<String> names = harness.pipeline.getStages().stream().map(AdmissionPipeline.StageView::name).toList();
+        assertEquals(List.of(LoginStages.BLOCKLIST, LoginStages.IP_BANS, LoginStages.LOCKOUT, LoginStages.PING_GATE,
+            LoginStages.LOGIN_RATE, LoginStages.ADMISSION, LoginStages.CHALLENGE), names);
+    }
+
+    @Test
+    @DisplayName("Failures spread over a subnet should lock out the subnet but not its verified players")
+    void testPrefixLockout() {
+        Harness harness = new Harness();
+        HandshakeProcessor processor = harness.processor;
+        long now = System.currentTimeMillis();
+        PackedAddress player = PackedAddress.of("203.0.113.250");
+        assertEquals(HandshakeProcessor.LoginVerdict.CHALLENGED, processor.onLoginStart(player, now, harness::send));
+        assertEquals(HandshakeProcessor.ResponseVerdict.VERIFIED, processor.onResponse(player, harness.solveLast(), now));
+
+        // Twenty addresses fail once each: none reaches its own limit, the /24 does
+        byte[] garbage = "not-a-response".getBytes(StandardCharsets.US_ASCII);
+        for (int i = 1; i <= 20; i++) {
+            PackedAddress bot = PackedAddress.of("203.0.113." + i);
+            assertEquals(HandshakeProcessor.LoginVerdict.CHALLENGED, processor.onLoginStart(bot, now, harness::send));
+            assertTrue(processor.onResponse(bot, garbage, now).kicks());
+        }
+        assertEquals(HandshakeProcessor.LoginVerdict.LOCKED_OUT,
+            processor.onLoginStart(PackedAddress.of("203.0.113.99"), now, harness::send));
+        assertEquals(HandshakeProcessor.LoginVerdict.VERIFIED, processor.onLoginStart(player, now, harness::send));
+        assertEquals(HandshakeProcessor.LoginVerdict.CHALLENGED,
+            processor.onLoginStart(PackedAddress.of("203.0.114.1"), now, harness::send));
+        assertEquals(1, harness.prefixes.getLockedPrefixCount());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "voidcrypt.bench", matches = "true")
+    @DisplayName("Benchmark: login storms with different mixes of fresh, repeat and malicious IPs")
+    void benchmarkLoginStorm() {
+        int events = 300_000;
+        // fresh / repeat / malicious, in percent
+        int[][] mixes = {{80, 15, 5}, {20, 75, 5}, {10, 10, 80}};
+        String[] names = {"fresh wave", "returning players", "bot flood"};
+
+        for (boolean loginPhase : new boolean[]{false, true}) {
+            for (int m = 0; m < mixes.length; m++) {
+                runStorm(names[m], loginPhase, events, mixes[m][0], mixes[m][1]);
+            }
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "voidcrypt.bench", matches = "true")
+    @DisplayName("Benchmark: CPU and bytes spent per rejected bot, login-phase versus play-phase challenge")
+    void benchmarkRejectedBotCost() {
+        int bots = 100_000;
+        String kick = "Connection rejected.";
+        byte[] garbage = new byte[ProofOfWork.RESPONSE_HEX_LENGTH];
+        Arrays.fill(garbage, (byte) 'f');
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        for (boolean loginPhase : new boolean[]{false, true}) {
+            Harness harness = new Harness();
+            long bytes = 0;
+            long cpuStart = threads.getCurrentThreadCpuTime();
+            for (int i = 0; i < bots; i++) {
+                // Fresh addresses, one /48 each in 2001:db8::/32, so every bot gets a challenge
+                // instead of an early IP or prefix lockout
+                PackedAddress bot = new PackedAddress(0x2001_0DB8_0000_0000L + ((long) i << 16), 1);
+                HandshakeProcessor.LoginVerdict verdict = harness.processor.onLoginStart(bot,
+                    System.currentTimeMillis(), challenge -> {
+                        harness.lastChallenge = challenge;
+                        return loginPhase;
+                    });
+                int payload = harness.lastChallenge.toPayload().length();
+                if (verdict == HandshakeProcessor.LoginVerdict.HELD) {
+                    bytes += LoginQuery.requestWireBytes(i + 1, payload);
+                } else {
+                    // Play-phase: plugin message on the challenge channel; Login Success, join
+                    // game and chunk data on top of this are not part of the count
+                    bytes += playPayloadWireBytes(CHALLENGE_CHANNEL, payload);
+                }
+                assertTrue(harness.processor.onResponse(bot, garbage, System.currentTimeMillis()).kicks());
+                bytes += LoginQuery.disconnectWireBytes(kick);
+                if ((i & 1023) == 0) {
+                    harness.audit.drain();
+                    harness.wheel.advance();
+                }
+            }
+            long cpu = threads.getCurrentThreadCpuTime() - cpuStart;
+            harness.audit.drain();
+            System.out.printf("%-12s %,d rejected bots: %,d ns CPU and %d bytes per bot before the disconnect%s%n",
+                loginPhase ? "login phase" : "play phase", bots, cpu / bots, bytes / bots,
+                loginPhase ? "" : " (plus Login Success, world join and chunks)");
+        }
+    }
+
+    /**
+     * config.yml's login bucket; admission is opened up so storms reach the challenge
+     */
+    private static RateLimits stormLimits() {
+        RateLimiter[] limiters = new RateLimiter[RateKind.values().length];
+        for (RateKind kind : RateKind.values()) {
+            limiters[kind.ordinal()] = new RateLimiter(kind.getConfigKey(), RateLimiter.Policy.TOKEN_BUCKET,
+                30, 30, 60_000, 65_536);
+        }
+        limiters[RateKind.LOGIN.ordinal()] = new RateLimiter("login", RateLimiter.Policy.TOKEN_BUCKET,
+            20, 10, 60_000, 65_536);
+        limiters[RateKind.ADMISSION.ordinal()] = new RateLimiter("admission", RateLimiter.Policy.TOKEN_BUCKET,
+            60_000, 60_000, 1_000, 1);
+        limiters[RateKind.ADMISSION_SUBNET.ordinal()] = new RateLimiter("admission-subnet",
+            RateLimiter.Policy.TOKEN_BUCKET, 512, 512, 10_000, 65_536);
+        return new RateLimits(limiters);
+    }
+
+    private static int playPayloadWireBytes(String channel, int payloadLength) {
+        int body = LoginQuery.varIntSize(0x17) + LoginQuery.varIntSize(channel.length()) + channel.length()
+            + payloadLength;
+        return LoginQuery.varIntSize(body) + body;
+    }
+
+    private void runStorm(String name, boolean loginPhase, int events, int freshPercent, int repeatPercent) {
+        Harness harness = new Harness(loginPhase);
+        Random random = new Random(name.hashCode());
+        PackedAddress[] verified = new PackedAddress[events];
+        int verifiedCount = 0;
+        PackedAddress[] attackers = new PackedAddress[2_048];
+        for (int i = 0; i < attackers.length; i++) {
+            attackers[i] = PackedAddress.ofIPv4(0xCB00_7100 + i); // 203.0.113.0/21
+        }
+        byte[] garbage = new byte[ProofOfWork.RESPONSE_HEX_LENGTH];
+        Arrays.fill(garbage, (byte) 'f');
+        int nextFresh = 0;
+
+        long[] latencies = new long[events];
+        int recorded = 0;
+        long heapBefore = usedHeapAfterGc();
+        long busyNanos = 0;
+
+        while (recorded < events) {
+            int roll = random.nextInt(100);
+            SyntheticPacket login;
+            boolean fresh = roll < freshPercent || verifiedCount == 0;
+            boolean malicious = !fresh && roll >= freshPercent + repeatPercent;
+            if (fresh) {
+                login = SyntheticPacket.loginStart(PackedAddress.ofIPv4(0x0A00_0000 + nextFresh++));
+            } else if (malicious) {
+                login = SyntheticPacket.loginStart(attackers[random.nextInt(attackers.length)]);
+            } else {
+                login = SyntheticPacket.loginStart(verified[random.nextInt(verifiedCount)]);
+            }
+
+            // Every client pings before it joins; recorded outside the measured path
+            harness.pingGate.record(login.address, System.currentTimeMillis());
+            harness.lastChallenge = null;
+            long start = System.nanoTime();
+            harness.dispatch(login);
+            long elapsed = System.nanoTime() - start;
+            latencies[recorded++] = elapsed;
+            busyNanos += elapsed;
+
+            if (harness.lastChallenge == null || recorded == events) {
+                continue;
+            }
+            // The client answers; a legitimate one does the work outside the measured path
+            byte[] payload = malicious ? garbage : harness.solveLast();
+            SyntheticPacket response = harness.answerLast(login.address, payload);
+            start = System.nanoTime();
+            harness.dispatch(response);
+            elapsed = System.nanoTime() - start;
+            latencies[recorded++] = elapsed;
+            busyNanos += elapsed;
+            if (!malicious) {
+                verified[verifiedCount++] = login.address;
+            }
+
+            if ((recorded & 1023) < 2) {
+                harness.tick();
+            }
+        }
+        harness.tick();
+        long heapGrowth = usedHeapAfterGc() - heapBefore;
+
+        Arrays.sort(latencies);
+        String label = (loginPhase ? "login " : "play ") + name;
+        System.out.printf("%-23s %,d events: %,.0f events/s | p50 %,d ns, p99 %,d ns, p99.9 %,d ns"
+                + " | %,d verified, %,d rejected, %,d tracked IPs, heap +%,d KB, audit dropped %,d%n",
+            label, events, events / (busyNanos / 1e9),
+            latencies[events / 2], latencies[(int) (events * 0.99)], latencies[(int) (events * 0.999)],
+            verifiedCount, harness.scheduler.kicks + harness.loginsRejected, harness.table.size(),
+            heapGrowth / 1024, harness.audit.getDroppedCount());
+        StringBuilder stages = new StringBuilder();
+        for (AdmissionPipeline.StageView stage : harness.pipeline.getStages()) {
+            stages.append(String.format(" %s %,.0f ns/%.0f%%", stage.name(), stage.averageNanos(),
+                stage.rejectRate() * 100));
+        }
+        System.out.printf("%-23s stages (avg cost/reject rate):%s%n", "", stages);
+        assertTrue(verifiedCount > 0);
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,134 @@
+package com.voidcrypt.zte;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests and client cost benchmark for ProofOfWork
+ */
+class ProofOfWorkTest {
+
+    private static byte[] response(byte[] seed, long suffix) {
+        return (HexFormat.of().formatHex(seed) + ProofOfWork.suffixHex(suffix)).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    @DisplayName("Solver output should satisfy the verifier")
+    void testSolveAndVerify() {
+        byte[] seed = ProofOfWork.seed(7L, 2, 8L, 0);
+        long suffix = ProofOfWork.solve(seed, 10, 0);
+        byte[] response = response(seed, suffix);
+
+        assertTrue(ProofOfWork.isSolution(seed, suffix, 10));
+        assertEquals(CryptographicChallenge.VerificationResult.SUCCESS,
+            ProofOfWork.verifyResponse(seed, 10, response, 0, response.length));
+    }
+
+    @Test
+    @DisplayName("Insufficient work or a wrong seed should be rejected")
+    void testRejectsInsufficientWork() {
+        byte[] seed = ProofOfWork.seed(7L, 2, 8L, 0);
+
+        // First suffix that does not reach 16 bits
+        long weak = 0;
+        while (ProofOfWork.isSolution(seed, weak, 16)) {
+            weak++;
+        }
+        byte[] response = response(seed, weak);
+        assertEquals(CryptographicChallenge.VerificationResult.WRONG_ANSWER,
+            ProofOfWork.verifyResponse(seed, 16, response, 0, response.length));
+
+        byte[] other = ProofOfWork.seed(7L, 2, 9L, 0);
+        byte[] forged = response(other, ProofOfWork.solve(other, 4, 0));
+        assertEquals(CryptographicChallenge.VerificationResult.WRONG_ANSWER,
+            ProofOfWork.verifyResponse(seed, 4, forged, 0, forged.length));
+    }
+
+    @Test
+    @DisplayName("Bare seeds are accepted only at zero bits, malformed input never")
+    void testFormats() {
+        byte[] seed = ProofOfWork.seed(1L, 2, 2L, 0);
+        byte[] bare = HexFormat.of().formatHex(seed).getBytes(StandardCharsets.US_ASCII);
+
+        assertEquals(CryptographicChallenge.VerificationResult.SUCCESS,
+            ProofOfWork.verifyResponse(seed, 0, bare, 0, bare.length));
+        assertEquals(CryptographicChallenge.VerificationResult.INVALID_FORMAT,
+            ProofOfWork.verifyResponse(seed, 8, bare, 0, bare.length));
+
+        byte[] response = response(seed, 0);
+        response[response.length - 1] = 'x';
+        assertEquals(CryptographicChallenge.VerificationResult.INVALID_FORMAT,
+            ProofOfWork.verifyResponse(seed, 0, response, 0, response.length));
+        assertEquals(CryptographicChallenge.VerificationResult.INVALID_FORMAT,
+            ProofOfWork.verifyResponse(seed, 0, null, 0, 0));
+    }
+
+    @Test
+    @DisplayName("Seeds should depend on every public challenge field, including the work")
+    void testSeed() {
+        byte[] seed = ProofOfWork.seed(7L, 2, 8L, 12);
+        assertArrayEquals(seed, ProofOfWork.seed(7L, 2, 8L, 12));
+        assertFalse(Arrays.equals(seed, ProofOfWork.seed(8L, 2, 8L, 12)));
+        assertFalse(Arrays.equals(seed, ProofOfWork.seed(7L, 3, 8L, 12)));
+        assertFalse(Arrays.equals(seed, ProofOfWork.seed(7L, 2, 9L, 12)));
+        assertFalse(Arrays.equals(seed, ProofOfWork.seed(7L, 2, 8L, 4)));
+    }
+
+    @Test
+    @DisplayName("Leading zero bits should be counted across byte boundaries")
+    void testLeadingZeroBits() {
+        assertEquals(0, ProofOfWork.leadingZeroBits(new byte[]{(byte) 0x80, 0}));
+        assertEquals(7, ProofOfWork.leadingZeroBits(new byte[]{0x01, 0}));
+        assertEquals(11, ProofOfWork.leadingZeroBits(new byte[]{0, 0x10}));
+        assertEquals(16, ProofOfWork.leadingZeroBits(new byte[]{0, 0}));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "voidcrypt.bench", matches = "true")
+    @DisplayName("Benchmark: expected client cost per difficulty level")
+    void benchmarkClientCost() {
+        // Measure the raw hash rate of the reference solver
+        byte[] seed = ProofOfWork.seed(3L, 2, 4L, 0);
+        long hashes = 0;
+        long suffix = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < 64; i++) {
+            long found = ProofOfWork.solve(seed, 14, suffix);
+            hashes += found - suffix + 1;
+            suffix = found + 1;
+        }
+        long nanos = System.nanoTime() - start;
+        double hashesPerSecond = hashes * 1e9 / nanos;
+        System.out.printf("Solver: %,.0f hashes/s/core (%,d hashes for 64 solutions at 14 bits, expected %,d)%n",
+            hashesPerSecond, hashes, 64L << 14);
+
+        for (int bits = 0; bits <= 24; bits += 2) {
+            double expected = Math.pow(2, bits);
+            System.out.printf("  %2d bits: %,12.0f hashes  ~%,10.2f ms per login%n",
+                bits, expected, expected / hashesPerSecond * 1000);
+        }
+
+        // Server side: one seed comparison plus one hash
+        byte[] response = response(seed, ProofOfWork.solve(seed, 16, 0));
+        int iterations = 1_000_000;
+        int accepted = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            if (ProofOfWork.verifyResponse(seed, 16, response, 0, response.length)
+                    == CryptographicChallenge.VerificationResult.SUCCESS) {
+                accepted++;
+            }
+        }
+        nanos = System.nanoTime() - start;
+        assertEquals(iterations, accepted);
+        System.out.printf("Verify: %,.0f responses/s/core (%.0f ns/op)%n",
+            iterations * 1e9 / nanos, nanos / (double) iterations);
+    }
+}
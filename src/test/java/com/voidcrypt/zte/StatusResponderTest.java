@@ -0,0 +1,148 @@
+package com.voidcrypt.zte;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for StatusResponder
+ */
+class StatusResponderTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final int P = 765;
+
+    @Test
+    @DisplayName("The first ping and one per interval should reach the server, the rest hit the cache")
+    void testRefreshOncePerInterval() {
+        StatusResponder<String> responder = new StatusResponder<>(1_000, StatusResponder.OverLimitAction.REDUCE);
+        assertEquals(StatusResponder.Decision.PASS_TO_SERVER, responder.onRequest(P, true, NOW));
+        // Nothing cached yet: the server answers until its first response is captured
+        assertEquals(StatusResponder.Decision.PASS_TO_SERVER, responder.onRequest(P, true, NOW + 1));
+        assertEquals(-1, responder.getCachedAt());
+
+        responder.update(P, "full", "reduced", NOW + 2);
+        assertEquals(StatusResponder.Decision.CACHED, responder.onRequest(P, true, NOW + 3));
+        assertEquals("full", responder.get(P, StatusResponder.Decision.CACHED));
+        assertEquals(StatusResponder.Decision.CACHED, responder.onRequest(P, true, NOW + 999));
+
+        assertEquals(StatusResponder.Decision.PASS_TO_SERVER, responder.onRequest(P, true, NOW + 1_000));
+        assertEquals(StatusResponder.Decision.CACHED, responder.onRequest(P, true, NOW + 1_001));
+        assertEquals(3, responder.getPassedToServerCount());
+        assertEquals(3, responder.getServedCachedCount());
+    }
+
+    @Test
+    @DisplayName("Sources over their limit should get the reduced response or be dropped, never a rebuild")
+    void testOverLimit() {
+        StatusResponder<String> reduce = new StatusResponder<>(1_000, StatusResponder.OverLimitAction.REDUCE);
+        // Nothing to serve yet
+        assertEquals(StatusResponder.Decision.DROP, reduce.onRequest(P, false, NOW));
+        reduce.update(P, "full", "reduced", NOW);
+        assertEquals(StatusResponder.Decision.REDUCED, reduce.onRequest(P, false, NOW + 5_000));
+        assertEquals("reduced", reduce.get(P, StatusResponder.Decision.REDUCED));
+        assertEquals(0, reduce.getPassedToServerCount());
+        assertEquals(1, reduce.getServedReducedCount());
+        assertEquals(1, reduce.getDroppedCount());
+
+        StatusResponder<String> drop = new StatusResponder<>(1_000, StatusResponder.OverLimitAction.DROP);
+        drop.update(P, "full", "reduced", NOW);
+        assertEquals(StatusResponder.Decision.DROP, drop.onRequest(P, false, NOW));
+        assertEquals(StatusResponder.OverLimitAction.DROP, StatusResponder.OverLimitAction.fromConfig(" Drop"));
+        assertEquals(StatusResponder.OverLimitAction.REDUCE, StatusResponder.OverLimitAction.fromConfig(null));
+    }
+
+    @Test
+    @DisplayName("Concurrent pings should let exactly one through per interval")
+    void testConcurrentClaim() throws InterruptedException {
+        StatusResponder<String> responder = new StatusResponder<>(1_000, StatusResponder.OverLimitAction.REDUCE);
+        responder.update(P, "full", "reduced", NOW);
+        AtomicInteger passed = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    if (responder.onRequest(P, true, NOW + 500) == StatusResponder.Decision.PASS_TO_SERVER) {
+                        passed.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, passed.get());
+        assertEquals(39_999, responder.getServedCachedCount());
+    }
+
+    @Test
+    @DisplayName("Each client protocol should get the response built for it")
+    void testPerProtocol() {
+        StatusResponder<String> responder = new StatusResponder<>(1_000, StatusResponder.OverLimitAction.REDUCE);
+        assertEquals(StatusResponder.Decision.PASS_TO_SERVER, responder.onRequest(765, true, NOW));
+        responder.update(765, "full-765", "reduced-765", NOW);
+        assertEquals(StatusResponder.Decision.CACHED, responder.onRequest(765, true, NOW + 1));
+
+        // Another version is built once by the server, then cached separately
+        assertEquals(StatusResponder.Decision.PASS_TO_SERVER, responder.onRequest(47, true, NOW + 2));
+        responder.update(47, "full-47", "reduced-47", NOW + 2);
+        assertEquals(StatusResponder.Decision.CACHED, responder.onRequest(47, true, NOW + 3));
+        assertEquals("full-47", responder.get(47, StatusResponder.Decision.CACHED));
+        assertEquals("full-765", responder.get(765, StatusResponder.Decision.CACHED));
+        assertEquals(2, responder.getProtocolCount());
+    }
+
+    @Test
+    @DisplayName("Protocols past the table size should share the latest response instead of reaching the server")
+    void testProtocolLimit() {
+        StatusResponder<String> responder = new StatusResponder<>(1_000, StatusResponder.OverLimitAction.REDUCE);
+        for (int protocol = 0; protocol < StatusResponder.MAX_PROTOCOLS; protocol++) {
+            assertEquals(StatusResponder.Decision.PASS_TO_SERVER, responder.onRequest(protocol, true, NOW));
+            responder.update(protocol, "full-" + protocol, "reduced-" + protocol, NOW);
+        }
+        long passed = responder.getPassedToServerCount();
+        for (int protocol = 1_000; protocol < 2_000; protocol++) {
+            assertEquals(StatusResponder.Decision.CACHED, responder.onRequest(protocol, true, NOW + 1));
+        }
+        assertEquals(passed, responder.getPassedToServerCount());
+        assertEquals(StatusResponder.MAX_PROTOCOLS, responder.getProtocolCount());
+        assertEquals("full-" + (StatusResponder.MAX_PROTOCOLS - 1),
+            responder.get(1_500, StatusResponder.Decision.CACHED));
+    }
+
+    @Test
+    @DisplayName("Junk protocols should not hold the table: idle entries make room, over-limit sources claim none")
+    void testProtocolEviction() {
+        StatusResponder<String> responder = new StatusResponder<>(1_000, StatusResponder.OverLimitAction.REDUCE);
+        for (int protocol = 0; protocol < StatusResponder.MAX_PROTOCOLS; protocol++) {
+            responder.onRequest(1_000 + protocol, true, NOW);
+            responder.update(1_000 + protocol, "junk", "junk", NOW);
+        }
+        // Keep one junk entry busy; the rest go idle
+        responder.onRequest(1_000, true, NOW + 1_500);
+
+        // Over-limit pings of a new protocol share the latest response without an entry
+        assertEquals(StatusResponder.Decision.REDUCED, responder.onRequest(P, false, NOW + 2_000));
+        assertEquals(StatusResponder.MAX_PROTOCOLS, responder.getProtocolCount());
+
+        // A real client evicts the least recently pinged entry and gets its own response
+        assertEquals(StatusResponder.Decision.PASS_TO_SERVER, responder.onRequest(P, true, NOW + 2_000));
+        responder.update(P, "full", "reduced", NOW + 2_000);
+        assertEquals("full", responder.get(P, StatusResponder.Decision.CACHED));
+        assertEquals(StatusResponder.MAX_PROTOCOLS, responder.getProtocolCount());
+        assertEquals(StatusResponder.Decision.CACHED, responder.onRequest(1_000, true, NOW + 2_001));
+
+        // Entries used within the interval are not evicted
+        StatusResponder<String> busy = new StatusResponder<>(1_000, StatusResponder.OverLimitAction.REDUCE);
+        for (int protocol = 0; protocol < StatusResponder.MAX_PROTOCOLS; protocol++) {
+            busy.onRequest(protocol, true, NOW);
+            busy.update(protocol, "full-" + protocol, "reduced-" + protocol, NOW);
+        }
+        assertEquals(StatusResponder.Decision.CACHED, busy.onRequest(P, true, NOW + 999));
+        assertEquals(StatusResponder.MAX_PROTOCOLS, busy.getPassedToServerCount());
+    }
+}
@@ -0,0 +1,152 @@
+package com.voidcrypt.zte;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests and re-verification benchmark for VerificationCookie
+ */
+class VerificationCookieTest {
+
+    private static final String SECRET = "MySecureKey12345!";
+    private static final long MAX_AGE_MS = 24 * 3_600_000L;
+    private static final UUID PLAYER = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+
+    private final ChallengeEngine engine = new ChallengeEngine(SECRET);
+
+    @Test
+    @DisplayName("A cookie should verify for the player and address it was issued to")
+    void testRoundTrip() {
+        long now = System.currentTimeMillis();
+        byte[] cookie = VerificationCookie.issue(engine, "203.0.113.7", PLAYER, now);
+        assertEquals(VerificationCookie.COOKIE_LENGTH, cookie.length);
+
+        assertEquals(CryptographicChallenge.VerificationResult.SUCCESS,
+            VerificationCookie.verify(engine, "203.0.113.7", PLAYER, cookie, now + 3_600_000, MAX_AGE_MS));
+    }
+
+    @Test
+    @DisplayName("Cookies should be bound to the player and the address")
+    void testBinding() {
+        long now = System.currentTimeMillis();
+        byte[] cookie = VerificationCookie.issue(engine, "2001:db8:0:0:0:0:0:1", PLAYER, now);
+
+        assertEquals(CryptographicChallenge.VerificationResult.WRONG_ANSWER,
+            VerificationCookie.verify(engine, "2001:db8:0:0:0:0:0:2", PLAYER, cookie, now, MAX_AGE_MS));
+        assertEquals(CryptographicChallenge.VerificationResult.WRONG_ANSWER,
+            VerificationCookie.verify(engine, "2001:db8:0:0:0:0:0:1", UUID.randomUUID(), cookie, now, MAX_AGE_MS));
+    }
+
+    @Test
+    @DisplayName("Missing, malformed, tampered, expired and future cookies should be rejected")
+    void testRejections() {
+        long now = System.currentTimeMillis();
+        byte[] cookie = VerificationCookie.issue(engine, "203.0.113.7", PLAYER, now);
+
+        assertEquals(CryptographicChallenge.VerificationResult.NO_CHALLENGE,
+            VerificationCookie.verify(engine, "203.0.113.7", PLAYER, null, now, MAX_AGE_MS));
+        assertEquals(CryptographicChallenge.VerificationResult.NO_CHALLENGE,
+            VerificationCookie.verify(engine, "203.0.113.7", PLAYER, new byte[0], now, MAX_AGE_MS));
+        assertEquals(CryptographicChallenge.VerificationResult.INVALID_FORMAT,
+            VerificationCookie.verify(engine, "203.0.113.7", PLAYER, new byte[7], now, MAX_AGE_MS));
+
+        byte[] tampered = cookie.clone();
+        tampered[8] ^= 0x40; // move issuedAt
+        assertEquals(CryptographicChallenge.VerificationResult.WRONG_ANSWER,
+            VerificationCookie.verify(engine, "203.0.113.7", PLAYER, tampered, now, MAX_AGE_MS));
+
+        assertEquals(CryptographicChallenge.VerificationResult.TIMEOUT,
+            VerificationCookie.verify(engine, "203.0.113.7", PLAYER, cookie, now + MAX_AGE_MS + 1, MAX_AGE_MS));
+
+        byte[] future = VerificationCookie.issue(engine, "203.0.113.7", PLAYER, now + 60_000);
+        assertEquals(CryptographicChallenge.VerificationResult.WRONG_ANSWER,
+            VerificationCookie.verify(engine, "203.0.113.7", PLAYER, future, now, MAX_AGE_MS));
+    }
+
+    @Test
+    @DisplayName("Backends sharing the secret key should accept each other's cookies")
+    void testSharedKey() {
+        long now = System.currentTimeMillis();
+        byte[] cookie = VerificationCookie.issue(engine, "198.51.100.4", PLAYER, now);
+
+        assertEquals(CryptographicChallenge.VerificationResult.SUCCESS,
+            VerificationCookie.verify(new ChallengeEngine(SECRET), "198.51.100.4", PLAYER, cookie, now, MAX_AGE_MS));
+        assertEquals(CryptographicChallenge.VerificationResult.WRONG_ANSWER,
+            VerificationCookie.verify(new ChallengeEngine("AnotherSecureKey987!"), "198.51.100.4", PLAYER, cookie,
+                now, MAX_AGE_MS));
+    }
+
+    @Test
+    @DisplayName("A tag computed under another MAC domain should not verify as a cookie")
+    void testDomainSeparation() {
+        long now = System.currentTimeMillis();
+        String address = "203.0.113.7";
+        byte[] cookie = VerificationCookie.issue(engine, address, PLAYER, now);
+
+        // Same signed bytes as the cookie, but under the challenge token's domain
+        byte[] input = new byte[9 + 16 + address.length()];
+        System.arraycopy(cookie, 0, input, 0, 9);
+        for (int i = 0; i < 8; i++) {
+            input[9 + i] = (byte) (PLAYER.getMostSignificantBits() >>> (56 - 8 * i));
+            input[17 + i] = (byte) (PLAYER.getLeastSignificantBits() >>> (56 - 8 * i));
+        }
+        for (int i = 0; i < address.length(); i++) {
+            input[25 + i] = (byte) address.charAt(i);
+        }
+        byte[] tag = new byte[ChallengeEngine.MAC_LENGTH];
+        engine.mac("vc-token".getBytes(StandardCharsets.US_ASCII), input, 0, input.length, tag, 0);
+        byte[] forged = cookie.clone();
+        System.arraycopy(tag, 0, forged, 9, 16);
+
+        assertEquals(CryptographicChallenge.VerificationResult.WRONG_ANSWER,
+            VerificationCookie.verify(engine, address, PLAYER, forged, now, MAX_AGE_MS));
+
+        // Under the cookie's own domain the same construction verifies
+        engine.mac("vc-cookie".getBytes(StandardCharsets.US_ASCII), input, 0, input.length, tag, 0);
+        System.arraycopy(tag, 0, forged, 9, 16);
+        assertEquals(CryptographicChallenge.VerificationResult.SUCCESS,
+            VerificationCookie.verify(engine, address, PLAYER, forged, now, MAX_AGE_MS));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "voidcrypt.bench", matches = "true")
+    @DisplayName("Benchmark: cookie re-verification vs solving and verifying a challenge")
+    void benchmarkReverification() {
+        int rounds = 200_000;
+        long now = System.currentTimeMillis();
+        byte[] cookie = VerificationCookie.issue(engine, "203.0.113.7", PLAYER, now);
+
+        for (int warmup = 0; warmup < 2; warmup++) {
+            long start = System.nanoTime();
+            int ok = 0;
+            for (int i = 0; i < rounds; i++) {
+                if (VerificationCookie.verify(engine, "203.0.113.7", PLAYER, cookie, now, MAX_AGE_MS)
+                        == CryptographicChallenge.VerificationResult.SUCCESS) {
+                    ok++;
+                }
+            }
+            long cookieNanos = (System.nanoTime() - start) / rounds;
+
+            // The challenge path the cookie replaces: the client has to solve the work again
+            int workBits = 8;
+            start = System.nanoTime();
+            for (int i = 0; i < rounds / 100; i++) {
+                byte[] answer = engine.computeAnswer(i, 2, i * 31L);
+                long suffix = ProofOfWork.solve(answer, workBits, 0);
+                assertTrue(suffix >= 0);
+            }
+            long challengeNanos = (System.nanoTime() - start) / (rounds / 100);
+
+            assertEquals(rounds, ok);
+            System.out.printf("cookie check %,d ns | challenge at %d bits (client work) %,d ns,"
+                + " plus a round trip; cookie %d bytes%n", cookieNanos, workBits, challengeNanos,
+                VerificationCookie.COOKIE_LENGTH);
+        }
+    }
+}